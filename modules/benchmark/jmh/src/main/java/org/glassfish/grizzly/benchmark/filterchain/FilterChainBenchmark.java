@@ -0,0 +1,166 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.filterchain;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.ProcessorExecutor;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.DefaultFilterChain;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of dispatching a READ event through a
+ * {@link org.glassfish.grizzly.filterchain.DefaultFilterChain} of
+ * pass-through filters, the same way an {@link org.glassfish.grizzly.IOStrategy}
+ * does it via {@link ProcessorExecutor}.
+ * No I/O is involved: the first filter in the chain plays the transport role
+ * and produces the message.
+ * The <tt>frozen</tt> parameter compares the regular chain execution with
+ * the precompiled one (see {@link DefaultFilterChain#freeze()}), the
+ * <tt>filterType</tt> parameter defines if the pass-through filters use the
+ * {@link BaseFilter} handleRead(...) implementation or override it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    @Param({"2", "5", "10"})
+    public int filtersCount;
+
+    @Param({"base", "custom"})
+    public String filterType;
+    
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    private Connection connection;
+    
+    private FilterChain filterChain;
+    
+    private SinkFilter sinkFilter;
+    
+    @Setup
+    public void setup() {
+        final TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance().build();
+        connection = new TCPNIOConnection(transport, null);
+        
+        sinkFilter = new SinkFilter();
+        
+        final FilterChainBuilder builder = FilterChainBuilder.stateless()
+                .add(new SourceFilter());
+        for (int i = 0; i < filtersCount; i++) {
+            builder.add("custom".equals(filterType)
+                    ? new PassThroughFilter()
+                    : new BaseFilter());
+        }
+        builder.add(sinkFilter);
+        
+        filterChain = builder.build();
+        if (frozen) {
+            ((DefaultFilterChain) filterChain).freeze();
+        }
+    }
+
+    @Benchmark
+    public int dispatchRead() {
+        ProcessorExecutor.execute(connection, IOEvent.READ, filterChain, null);
+        return sinkFilter.counter;
+    }
+    
+    private static final class SourceFilter extends BaseFilter {
+        private final Object message = new Object();
+        
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            ctx.setMessage(message);
+            return ctx.getInvokeAction();
+        }
+    }
+    
+    private static final class PassThroughFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            return ctx.getInvokeAction();
+        }
+    }
+    
+    private static final class SinkFilter extends BaseFilter {
+        private int counter;
+        
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            if (ctx.getMessage() != null) {
+                counter++;
+            }
+            
+            return ctx.getStopAction();
+        }
+    }
+}
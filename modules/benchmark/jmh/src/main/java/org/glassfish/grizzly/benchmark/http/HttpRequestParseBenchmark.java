@@ -0,0 +1,153 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.http;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpServerFilter;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link HttpServerFilter} (HttpCodecFilter) request parsing benchmark.
+ * Every operation parses one complete request and recycles the parsed
+ * request, so the reported allocation rate is the per-request garbage
+ * produced by the codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRequestParseBenchmark {
+    private static final Charset ASCII = Charset.forName("ASCII");
+    
+    private static final String SIMPLE_REQUEST =
+            "GET /index.html HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "\r\n";
+    
+    private static final String BROWSER_REQUEST =
+            "GET /static/css/main.css?v=1.2.3 HTTP/1.1\r\n"
+            + "Host: www.example.com\r\n"
+            + "Connection: keep-alive\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.36\r\n"
+            + "Accept: text/css,*/*;q=0.1\r\n"
+            + "Referer: http://www.example.com/index.html\r\n"
+            + "Accept-Encoding: gzip, deflate, sdch\r\n"
+            + "Accept-Language: en-US,en;q=0.8\r\n"
+            + "Cookie: JSESSIONID=5C8D1F4F16E4F0D1A2B3C4D5E6F70819; theme=dark\r\n"
+            + "\r\n";
+
+    @Param({"simple", "browser"})
+    public String request;
+    
+    private Connection connection;
+    
+    private HttpServerFilter httpServerFilter;
+    
+    private MemoryManager memoryManager;
+    
+    private byte[] requestBytes;
+    
+    @Setup
+    public void setup() {
+        connection = new TCPNIOConnection(
+                TCPNIOTransportBuilder.newInstance().build(), null);
+        httpServerFilter = new HttpServerFilter();
+        
+        final String requestString;
+        if ("simple".equals(request)) {
+            requestString = SIMPLE_REQUEST;
+        } else if ("browser".equals(request)) {
+            requestString = BROWSER_REQUEST;
+        } else {
+            throw new IllegalArgumentException("Unknown request: " + request);
+        }
+        
+        memoryManager = MemoryManager.DEFAULT_MEMORY_MANAGER;
+        requestBytes = requestString.getBytes(ASCII);
+    }
+
+    @Benchmark
+    public int parseRequest() throws IOException {
+        // the codec takes the ownership of the input buffer, so wrap
+        // the request bytes every time, like the transport would do
+        final Buffer input = Buffers.wrap(memoryManager, requestBytes);
+        
+        final FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(input);
+        
+        httpServerFilter.handleRead(ctx);
+
+        final HttpContent content = ctx.getMessage();
+        final HttpRequestPacket httpRequest =
+                (HttpRequestPacket) content.getHttpHeader();
+        final int result = httpRequest.getHeaders().size();
+        
+        content.recycle();
+        httpRequest.recycle();
+        ctx.completeAndRecycle();
+        
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.http2;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http2.hpack.Decoder;
+import org.glassfish.grizzly.http2.hpack.DecodingCallback;
+import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * HPACK {@link Encoder}/{@link Decoder} benchmark over a typical set of
+ * request headers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HpackBenchmark {
+    private static final int TABLE_SIZE = 4096;
+    
+    private static final String[][] HEADERS = {
+        {":method", "GET"},
+        {":scheme", "https"},
+        {":authority", "www.example.com"},
+        {":path", "/static/css/main.css?v=1.2.3"},
+        {"user-agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36"},
+        {"accept", "text/css,*/*;q=0.1"},
+        {"accept-encoding", "gzip, deflate, br"},
+        {"accept-language", "en-US,en;q=0.8"},
+        {"cookie", "JSESSIONID=5C8D1F4F16E4F0D1A2B3C4D5E6F70819"}
+    };
+    
+    private Encoder encoder;
+    private Decoder decoder;
+    
+    private Buffer encodeBuffer;
+    private Buffer encoded;
+    
+    @Setup
+    public void setup() {
+        encoder = new Encoder(TABLE_SIZE);
+        decoder = new Decoder(TABLE_SIZE);
+        
+        encodeBuffer = MemoryManager.DEFAULT_MEMORY_MANAGER.allocate(TABLE_SIZE);
+        encodeBuffer.allowBufferDispose(false);
+        
+        encodeHeaders();
+        encoded = encodeBuffer.duplicate();
+    }
+    
+    @Benchmark
+    public Buffer encode() {
+        encodeHeaders();
+        return encodeBuffer;
+    }
+
+    @Benchmark
+    public void decode(final Blackhole bh) {
+        encoded.position(0);
+        decoder.decode(encoded, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(final CharSequence name,
+                    final CharSequence value) {
+                bh.consume(name);
+                bh.consume(value);
+            }
+        });
+    }
+    
+    private void encodeHeaders() {
+        encodeBuffer.clear();
+        
+        for (String[] header : HEADERS) {
+            encoder.header(header[0], header[1]);
+            if (!encoder.encode(encodeBuffer)) {
+                throw new IllegalStateException("Encode buffer is too small");
+            }
+        }
+        
+        encodeBuffer.flip();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.memory;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ArenaMemoryManager;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MemoryManager} allocate/release benchmark.
+ * 
+ * Please note, {@link HeapMemoryManager} uses its thread-local pools only
+ * on Grizzly worker threads, so here it measures the non-pooled path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryManagerBenchmark {
+
+    @Param({"pooled-heap", "pooled-direct", "pooled-affine", "arena-heap", "arena-direct", "heap"})
+    public String memoryManager;
+
+    @Param({"128", "4096", "65536"})
+    public int size;
+
+    private MemoryManager mm;
+
+    @Setup
+    public void setup() {
+        if ("pooled-heap".equals(memoryManager)) {
+            mm = new PooledMemoryManager(false);
+        } else if ("pooled-direct".equals(memoryManager)) {
+            mm = new PooledMemoryManager(true);
+        } else if ("pooled-affine".equals(memoryManager)) {
+            mm = new PooledMemoryManager(
+                    PooledMemoryManager.DEFAULT_BASE_BUFFER_SIZE,
+                    PooledMemoryManager.DEFAULT_NUMBER_OF_POOLS,
+                    PooledMemoryManager.DEFAULT_GROWTH_FACTOR,
+                    Runtime.getRuntime().availableProcessors(),
+                    PooledMemoryManager.DEFAULT_HEAP_USAGE_PERCENTAGE,
+                    PooledMemoryManager.DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                    false, true);
+        } else if ("arena-heap".equals(memoryManager)) {
+            mm = new ArenaMemoryManager(false);
+        } else if ("arena-direct".equals(memoryManager)) {
+            mm = new ArenaMemoryManager(true);
+        } else if ("heap".equals(memoryManager)) {
+            mm = new HeapMemoryManager();
+        } else {
+            throw new IllegalArgumentException(
+                    "Unknown memory manager: " + memoryManager);
+        }
+    }
+
+    @Benchmark
+    public Buffer allocateRelease() {
+        final Buffer buffer = mm.allocate(size);
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer allocateAtLeastRelease() {
+        final Buffer buffer = mm.allocateAtLeast(size);
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer reallocateGrowRelease() {
+        final Buffer buffer = mm.reallocate(mm.allocate(size), size * 4);
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Buffer allocateReleaseContended() {
+        final Buffer buffer = mm.allocate(size);
+        buffer.tryDispose();
+        return buffer;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.benchmark.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.FlightRecorder;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.utils.EchoFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of the {@link FlightRecorder}s on a
+ * {@link TCPNIOTransport} echo round trip.
+ *
+ * Each invocation writes a message to the echo server over the loopback
+ * interface and reads the echoed message back, so every invocation records
+ * the READ readiness and processing events and, if the echo can't be written
+ * directly, the asynchronous write queue events.
+ * The <tt>flightRecorderCapacity</tt> parameter compares the disabled
+ * recorders (<tt>0</tt>) with the enabled ones
+ * (see {@link org.glassfish.grizzly.nio.NIOTransport#setFlightRecorderCapacity(int)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightRecorderBenchmark {
+    private static final int PORT = 18903;
+
+    @Param({"0", "4096"})
+    public int flightRecorderCapacity;
+
+    @Param({"64"})
+    public int payloadSize;
+
+    private TCPNIOTransport transport;
+    private Socket client;
+    private OutputStream out;
+    private InputStream in;
+    private byte[] payload;
+    private byte[] echo;
+
+    @Setup
+    public void setup() throws IOException {
+        transport = TCPNIOTransportBuilder.newInstance()
+                .setFlightRecorderCapacity(flightRecorderCapacity)
+                .build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new EchoFilter())
+                .build());
+
+        transport.bind(PORT);
+        transport.start();
+
+        client = new Socket("localhost", PORT);
+        client.setTcpNoDelay(true);
+        out = client.getOutputStream();
+        in = client.getInputStream();
+
+        payload = new byte[payloadSize];
+        echo = new byte[payloadSize];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        transport.shutdownNow();
+    }
+
+    @Benchmark
+    public int echoRoundTrip() throws IOException {
+        out.write(payload);
+        out.flush();
+
+        int read = 0;
+        while (read < echo.length) {
+            final int n = in.read(echo, read, echo.length - read);
+            if (n == -1) {
+                throw new IOException("Connection closed");
+            }
+            read += n;
+        }
+
+        return read;
+    }
+}
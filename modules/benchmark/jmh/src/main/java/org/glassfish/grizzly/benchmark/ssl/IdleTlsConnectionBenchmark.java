@@ -0,0 +1,305 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.ssl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLEngine;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Writer;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.ssl.SSLContextConfigurator;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.ssl.SSLFilter;
+import org.glassfish.grizzly.ssl.SSLUtils;
+import org.glassfish.grizzly.utils.EchoFilter;
+import org.glassfish.grizzly.utils.StringFilter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by idle TLS connections.
+ *
+ * Each invocation opens <tt>connections</tt> TLS connections to a local
+ * echo server and makes one request/response exchange on each of them.
+ * If <tt>pendingRecord</tt> is set, the client also sends the first bytes
+ * of one more TLS record, so each server side connection stays idle waiting
+ * for the rest of the record.
+ * Both sides of the connections live in the benchmark JVM, so the reported
+ * <tt>retainedBytesPerConnection</tt> counter, the heap usage growth divided
+ * by the number of connections, includes the client and the server side
+ * state. The score is the time it takes to establish the connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IdleTlsConnectionBenchmark {
+    private static final int PORT = 18901;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({"1000"})
+    public int connections;
+
+    @Param({"false", "true"})
+    public boolean pendingRecord;
+
+    private TCPNIOTransport serverTransport;
+    private TCPNIOTransport clientTransport;
+
+    private final AtomicInteger serverConnections = new AtomicInteger();
+    private final BlockingQueue<String> responses =
+            new LinkedBlockingQueue<String>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerConnection;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytesPerConnection = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        final SSLContextConfigurator sslContextConfigurator =
+                new SSLContextConfigurator();
+        sslContextConfigurator.setTrustStoreBytes(
+                readResource("ssltest-cacerts.jks"));
+        sslContextConfigurator.setTrustStorePass("changeit");
+        sslContextConfigurator.setKeyStoreBytes(
+                readResource("ssltest-keystore.jks"));
+        sslContextConfigurator.setKeyStorePass("changeit");
+
+        final SSLEngineConfigurator serverConfig = new SSLEngineConfigurator(
+                sslContextConfigurator.createSSLContext(true),
+                false, false, false);
+        final SSLEngineConfigurator clientConfig = new SSLEngineConfigurator(
+                sslContextConfigurator.createSSLContext(true),
+                true, false, false);
+
+        serverTransport = TCPNIOTransportBuilder.newInstance().build();
+        serverTransport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new ConnectionCounterFilter())
+                .add(new SSLFilter(serverConfig, null))
+                .add(new EchoFilter())
+                .build());
+
+        clientTransport = TCPNIOTransportBuilder.newInstance().build();
+        clientTransport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new SSLFilter(null, clientConfig))
+                .add(new StringFilter(UTF8))
+                .add(new ResponseFilter())
+                .build());
+
+        serverTransport.bind(PORT);
+        serverTransport.start();
+        clientTransport.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        clientTransport.shutdownNow();
+        serverTransport.shutdownNow();
+    }
+
+    @TearDown(Level.Iteration)
+    public void waitForServerConnectionsClosed() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (serverConnections.get() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Benchmark
+    public int openIdleConnections(final Footprint footprint)
+            throws Exception {
+        final List<Connection> clientConnections =
+                new ArrayList<Connection>(connections);
+
+        final long usedBefore = usedHeap();
+        try {
+            for (int i = 0; i < connections; i++) {
+                final Connection connection = clientTransport
+                        .connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+                clientConnections.add(connection);
+
+                connection.write("ping");
+                if (responses.poll(10, TimeUnit.SECONDS) == null) {
+                    throw new IllegalStateException("No response");
+                }
+
+                if (pendingRecord) {
+                    sendRecordHead(connection);
+                }
+            }
+
+            footprint.retainedBytesPerConnection =
+                    (usedHeap() - usedBefore) / connections;
+
+            return clientConnections.size();
+        } finally {
+            for (Connection connection : clientConnections) {
+                connection.closeSilently();
+            }
+        }
+    }
+
+    /**
+     * Wraps a message into a TLS record and writes just the record's first
+     * bytes directly to the socket, bypassing the filter chain.
+     */
+    @SuppressWarnings("unchecked")
+    private void sendRecordHead(final Connection connection)
+            throws Exception {
+        final SSLEngine sslEngine =
+                SSLUtils.getSslConnectionContext(connection).getSslEngine();
+        final ByteBuffer record = ByteBuffer.allocate(
+                sslEngine.getSession().getPacketBufferSize());
+
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (connection) {
+            sslEngine.wrap(ByteBuffer.wrap("pending".getBytes(UTF8)), record);
+        }
+
+        record.flip();
+        record.limit(Math.min(record.limit(), 10));
+
+        final Writer<SocketAddress> writer = clientTransport.getWriter(false);
+        writer.write(connection,
+                Buffers.wrap(clientTransport.getMemoryManager(), record));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        return memoryMXBean.getHeapMemoryUsage().getUsed();
+    }
+
+    private static byte[] readResource(final String name) throws IOException {
+        final InputStream is = IdleTlsConnectionBenchmark.class
+                .getClassLoader().getResourceAsStream(name);
+        if (is == null) {
+            throw new IllegalStateException("Resource not found: " + name);
+        }
+
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int len;
+            while ((len = is.read(buf)) != -1) {
+                out.write(buf, 0, len);
+            }
+
+            return out.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    private final class ConnectionCounterFilter extends BaseFilter {
+        @Override
+        public NextAction handleAccept(final FilterChainContext ctx)
+                throws IOException {
+            serverConnections.incrementAndGet();
+            return ctx.getInvokeAction();
+        }
+
+        @Override
+        public NextAction handleClose(final FilterChainContext ctx)
+                throws IOException {
+            serverConnections.decrementAndGet();
+            return ctx.getInvokeAction();
+        }
+    }
+
+    private final class ResponseFilter extends BaseFilter {
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx)
+                throws IOException {
+            responses.add((String) ctx.getMessage());
+            return ctx.getStopAction();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.benchmark.websockets;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.ProtocolHandler;
+import org.glassfish.grizzly.websockets.rfc6455.RFC6455Handler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RFC 6455 websocket frame parsing benchmark: the server side parses
+ * masked frames as they come from a client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameParseBenchmark {
+
+    @Param({"text", "binary"})
+    public String frameType;
+    
+    @Param({"16", "1024", "65536"})
+    public int payloadSize;
+    
+    private ProtocolHandler serverHandler;
+    
+    private Buffer frame;
+
+    @Setup
+    public void setup() {
+        final ProtocolHandler clientHandler = new RFC6455Handler(true);
+        serverHandler = new RFC6455Handler(false);
+        
+        final DataFrame dataFrame;
+        if ("text".equals(frameType)) {
+            final StringBuilder sb = new StringBuilder(payloadSize);
+            for (int i = 0; i < payloadSize; i++) {
+                sb.append((char) ('a' + i % 26));
+            }
+            dataFrame = clientHandler.toDataFrame(sb.toString());
+        } else if ("binary".equals(frameType)) {
+            final byte[] payload = new byte[payloadSize];
+            for (int i = 0; i < payloadSize; i++) {
+                payload[i] = (byte) i;
+            }
+            dataFrame = clientHandler.toDataFrame(payload);
+        } else {
+            throw new IllegalArgumentException("Unknown frame type: " + frameType);
+        }
+        
+        frame = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                clientHandler.frame(dataFrame));
+        frame.allowBufferDispose(false);
+    }
+    
+    @Benchmark
+    public DataFrame parse() {
+        frame.position(0);
+        return serverHandler.parse(frame);
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.asyncqueue.WritableMessage;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.ssl.SSLUtils;
+
+/**
+ * Asynchronous transfer of a file region, which is sent in chunks, keeping
+ * at most {@link #getWindowSize()} chunks in the connection write queue.
+ * 
+ * If the {@link Connection} is not secured by SSL, each chunk is sent as
+ * a {@link FileTransfer} using
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * Otherwise the data has to be encrypted, so each chunk is read from the file
+ * into a {@link Buffer} allocated by the connection {@link MemoryManager},
+ * and the file is never buffered as a whole.
+ * 
+ * Please note, the chunks are read from the file using blocking
+ * {@link FileChannel} reads, either by the thread, which starts the transfer,
+ * or by the thread, which completes the previous chunk write. The latter
+ * might be a {@link org.glassfish.grizzly.nio.SelectorRunner} thread, for
+ * example if {@link org.glassfish.grizzly.strategies.SameThreadIOStrategy}
+ * is used, so if the file is located on a slow storage, it's recommended to
+ * start the transfer from a worker thread and use a worker thread based
+ * {@link IOStrategy}, or to send the file using regular {@link Buffer}
+ * writes from a worker thread.
+ * 
+ * Each chunk is written as is, so the transfer can't be used, if the data
+ * has to be framed by a protocol, like HTTP/2.
+ * 
+ * The {@link CompletionHandler} passed to
+ * {@link #send(FilterChainContext, CompletionHandler)} is notified about
+ * the progress via {@link CompletionHandler#updated(Object)} every time a
+ * chunk is written, the {@link WriteResult#getWrittenSize()} is the number
+ * of file bytes sent so far. If the transfer fails, {@link #getPosition()}
+ * returns the file position the transfer may be resumed from.
+ * 
+ * @since 2.4.0
+ */
+public class ChunkedFileTransfer {
+    private static final Logger LOGGER = Grizzly.logger(ChunkedFileTransfer.class);
+    
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_WINDOW_SIZE = 4;
+    
+    private final File file;
+    private final long startPosition;
+    private final long endPosition;
+    
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private boolean isZeroCopyEnabled = true;
+    
+    // ---- transfer state
+    private boolean isStarted;
+    private boolean isDone;
+    private boolean isZeroCopy;
+    private Connection connection;
+    private CompletionHandler<WriteResult> completionHandler;
+    private FileChannel fileChannel;
+    private FilterChainContext writeContext;
+    
+    // the position of the next chunk to be written
+    private long writePosition;
+    // the number of the acknowledged bytes
+    private long bytesSent;
+    
+    // the sizes of the chunks, which are being written
+    private long[] inFlightChunks;
+    private int inFlightHead;
+    private int inFlightCount;
+    
+    // only one thread writes the chunks at a time to keep them ordered
+    private boolean isWriting;
+    
+    private final CompletionHandler<WriteResult> chunkCompletionHandler =
+            new EmptyCompletionHandler<WriteResult>() {
+
+        @Override
+        public void completed(final WriteResult result) {
+            onChunkCompleted();
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            onFailed(throwable);
+        }
+    };
+    
+    /**
+     * Constructs a new <code>ChunkedFileTransfer</code> for the whole
+     * {@link File}.
+     * 
+     * @param f the {@link File} to transfer.
+     */
+    public ChunkedFileTransfer(final File f) {
+        this(f, 0, f.length());
+    }
+
+    /**
+     * Constructs a new <code>ChunkedFileTransfer</code> for the file region.
+     * 
+     * @param f the {@link File} to transfer.
+     * @param pos the offset within the File to start the transfer.
+     * @param len the total number of bytes to transfer.
+     * 
+     * @throws IllegalArgumentException for the same reasons as
+     *  {@link FileTransfer#FileTransfer(java.io.File, long, long)}.
+     */
+    public ChunkedFileTransfer(final File f, final long pos, final long len) {
+        FileTransfer.validate(f, pos, len);
+        
+        this.file = f;
+        this.startPosition = pos;
+        this.endPosition = pos + len;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the total number of bytes to transfer
+     */
+    public long getLength() {
+        return endPosition - startPosition;
+    }
+    
+    /**
+     * @return the chunk size in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the chunk size in bytes.
+     * 
+     * @param chunkSize the chunk size in bytes
+     */
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize has to be positive");
+        }
+        checkNotStarted();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the max number of the chunks being written at the same time
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the max number of the chunks being written at the same time.
+     * 
+     * @param windowSize the max number of the chunks being written
+     */
+    public void setWindowSize(final int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize has to be positive");
+        }
+        checkNotStarted();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the zero-copy transfer is used, when the
+     *  {@link Connection} is not secured by SSL
+     */
+    public boolean isZeroCopyEnabled() {
+        return isZeroCopyEnabled;
+    }
+
+    /**
+     * Enables or disables the zero-copy transfer. If disabled, the chunks are
+     * always read from the file into {@link Buffer}s.
+     * 
+     * @param isZeroCopyEnabled <tt>true</tt> to enable the zero-copy transfer
+     */
+    public void setZeroCopyEnabled(final boolean isZeroCopyEnabled) {
+        checkNotStarted();
+        this.isZeroCopyEnabled = isZeroCopyEnabled;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the transfer has been started and uses
+     *  zero-copy chunks
+     */
+    public synchronized boolean isZeroCopy() {
+        return isZeroCopy;
+    }
+    
+    /**
+     * @return the number of the bytes sent so far
+     */
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+    
+    /**
+     * @return the position of the first file byte, which hasn't been sent yet
+     */
+    public synchronized long getPosition() {
+        return startPosition + bytesSent;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the transfer is either completed or failed
+     */
+    public synchronized boolean isDone() {
+        return isDone;
+    }
+    
+    /**
+     * Starts the asynchronous transfer. The chunks are written using the copy
+     * of the passed {@link FilterChainContext}, so the passed context may be
+     * recycled before the transfer completes.
+     * 
+     * @param ctx the {@link FilterChainContext}, which filter position is
+     *  used to write the chunks
+     * @param completionHandler the {@link CompletionHandler} to be notified
+     *  about the transfer progress, completion or failure
+     *  
+     * @throws IllegalStateException if the transfer has already been started
+     */
+    public void send(final FilterChainContext ctx,
+            final CompletionHandler<WriteResult> completionHandler) {
+        synchronized (this) {
+            checkNotStarted();
+            isStarted = true;
+            
+            this.connection = ctx.getConnection();
+            this.completionHandler = completionHandler;
+            // check the connection, not the FilterChain, which might be
+            // a sub-chain (port unification) w/o the SSL filter
+            isZeroCopy = isZeroCopyEnabled
+                    && SSLUtils.getSSLEngine(connection) == null;
+            inFlightChunks = new long[windowSize];
+            writePosition = startPosition;
+            
+            try {
+                fileChannel = new FileInputStream(file).getChannel();
+            } catch (IOException e) {
+                isDone = true;
+                notifyFailed(e);
+                return;
+            }
+            
+            writeContext = ctx.copy();
+        }
+        
+        if (endPosition == startPosition) {
+            onCompleted();
+        } else {
+            writeChunks();
+        }
+    }
+    
+    // ------------------------------------------------------------ Private methods
+
+    /**
+     * Writes the chunks, while the window is not full.
+     */
+    private void writeChunks() {
+        synchronized (this) {
+            if (isWriting) {
+                // the writing thread will check the window again
+                return;
+            }
+            
+            isWriting = true;
+        }
+        
+        while (true) {
+            final long position;
+            final int length;
+            synchronized (this) {
+                if (isDone || inFlightCount == windowSize
+                        || writePosition == endPosition) {
+                    isWriting = false;
+                    if (isDone) {
+                        // the release was postponed by onCompleted/onFailed
+                        release();
+                    }
+                    return;
+                }
+                
+                position = writePosition;
+                length = (int) Math.min(chunkSize, endPosition - position);
+                inFlightChunks[(inFlightHead + inFlightCount) % windowSize] = length;
+                inFlightCount++;
+                writePosition += length;
+            }
+            
+            final WritableMessage chunk;
+            try {
+                chunk = isZeroCopy
+                        ? new FileTransfer(fileChannel, position, length, false)
+                        : readChunk(position, length);
+            } catch (Exception e) {
+                synchronized (this) {
+                    isWriting = false;
+                }
+                
+                onFailed(e);
+                return;
+            }
+            
+            writeContext.write(chunk, chunkCompletionHandler);
+        }
+    }
+    
+    /**
+     * Reads the chunk from the file into a {@link Buffer}. The read is blocking
+     * and might happen in a {@link org.glassfish.grizzly.nio.SelectorRunner}
+     * thread (see the class description).
+     */
+    private Buffer readChunk(final long position, final int length)
+            throws IOException {
+        final MemoryManager memoryManager = connection.getMemoryManager();
+        final Buffer buffer = memoryManager.allocate(length);
+        buffer.allowBufferDispose(true);
+        
+        boolean isRead = false;
+        final ByteBufferArray array = buffer.toByteBufferArray(0, length);
+        try {
+            final ByteBuffer[] byteBuffers = array.getArray();
+            final int size = array.size();
+            
+            long filePosition = position;
+            for (int i = 0; i < size; i++) {
+                final ByteBuffer byteBuffer = byteBuffers[i];
+                while (byteBuffer.hasRemaining()) {
+                    final int read = fileChannel.read(byteBuffer, filePosition);
+                    if (read < 0) {
+                        throw new EOFException("Unexpected end of file "
+                                + file + " at position " + filePosition);
+                    }
+                    filePosition += read;
+                }
+            }
+            
+            isRead = true;
+        } finally {
+            array.restore();
+            array.recycle();
+            
+            if (!isRead) {
+                buffer.tryDispose();
+            }
+        }
+        
+        buffer.position(0);
+        buffer.limit(length);
+        
+        return buffer;
+    }
+    
+    private void onChunkCompleted() {
+        final long sent;
+        final boolean isCompleted;
+        synchronized (this) {
+            if (isDone) {
+                return;
+            }
+            
+            bytesSent += inFlightChunks[inFlightHead];
+            inFlightHead = (inFlightHead + 1) % windowSize;
+            inFlightCount--;
+            
+            sent = bytesSent;
+            isCompleted = (startPosition + sent == endPosition);
+        }
+        
+        if (isCompleted) {
+            onCompleted();
+        } else {
+            if (completionHandler != null) {
+                completionHandler.updated(
+                        WriteResult.create(connection, null, null, sent));
+            }
+            
+            writeChunks();
+        }
+    }
+    
+    private void onCompleted() {
+        final long sent;
+        synchronized (this) {
+            if (isDone) {
+                return;
+            }
+            
+            isDone = true;
+            sent = bytesSent;
+            releaseIfNotWriting();
+        }
+        
+        if (completionHandler != null) {
+            completionHandler.completed(
+                    WriteResult.create(connection, null, null, sent));
+        }
+    }
+    
+    private void onFailed(final Throwable throwable) {
+        synchronized (this) {
+            if (isDone) {
+                return;
+            }
+            
+            isDone = true;
+            releaseIfNotWriting();
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "File " + file + " transfer failed at position "
+                    + getPosition(), throwable);
+        }
+        
+        notifyFailed(throwable);
+    }
+
+    private void notifyFailed(final Throwable throwable) {
+        if (completionHandler != null) {
+            completionHandler.failed(throwable);
+        }
+    }
+    
+    /**
+     * Releases the transfer resources, unless a thread is writing a chunk
+     * (the chunk write might have completed inline), in which case the
+     * writing thread will release them.
+     */
+    private void releaseIfNotWriting() {
+        if (!isWriting) {
+            release();
+        }
+    }
+    
+    private void release() {
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException ignored) {
+            }
+            fileChannel = null;
+        }
+        
+        if (writeContext != null) {
+            writeContext.completeAndRecycle();
+            writeContext = null;
+        }
+    }
+    
+    private void checkNotStarted() {
+        if (isStarted) {
+            throw new IllegalStateException("The transfer has already been started");
+        }
+    }
+}
@@ -47,6 +47,7 @@ import java.util.logging.Logger;
 import org.glassfish.grizzly.asyncqueue.MessageCloner;
 import org.glassfish.grizzly.attributes.AttributeHolder;
 import org.glassfish.grizzly.attributes.AttributeStorage;
+import org.glassfish.grizzly.nio.FlightRecorder;
 
 /**
  * Object, which is responsible for holding context during I/O event processing.
@@ -127,6 +128,8 @@ public class Context implements AttributeStorage, Cacheable {
      * Notify Context its processing will be suspended in the current thread.
      */
     public void suspend() {
+        FlightRecorder.recordEvent(connection,
+                FlightRecorder.EventType.CONTEXT_SUSPEND, ioEvent, 0);
         try {
             final int sz = lifeCycleListeners.size;
             final IOEventLifeCycleListener[] array = lifeCycleListeners.array;
@@ -144,6 +147,8 @@ public class Context implements AttributeStorage, Cacheable {
      * Notify Context its processing will be resumed in the current thread.
      */
     public void resume() {
+        FlightRecorder.recordEvent(connection,
+                FlightRecorder.EventType.CONTEXT_RESUME, ioEvent, 0);
         try {
             final int sz = lifeCycleListeners.size;
             final IOEventLifeCycleListener[] array = lifeCycleListeners.array;
@@ -60,6 +60,7 @@ public class FileTransfer implements WritableMessage {
     private FileChannel fileChannel;
     private long len;
     private long pos;
+    private final boolean isChannelOwner;
     
     
     // ------------------------------------------------------------ Constructors
@@ -98,33 +99,11 @@ public class FileTransfer implements WritableMessage {
      *  may be transferred based on the provided offset and file length.
      */
     public FileTransfer(final File f, final long pos, final long len) {
-        if (f == null) {
-            throw new IllegalArgumentException("f cannot be null.");
-        }
-        if (!f.exists()) {
-            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " does not exist.");
-        }
-        if (!f.canRead()) {
-            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " is not readable.");
-        }
-        if (f.isDirectory()) {
-            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " is a directory.");
-        }
-        if (pos < 0) {
-            throw new IllegalArgumentException("The pos argument cannot be negative.");
-        }
-        if (len < 0) {
-            throw new IllegalArgumentException("The len argument cannot be negative.");
-        }
-        if (pos > f.length()) {
-            throw new IllegalArgumentException("Illegal offset");
-        }
-        if (f.length() - pos < len) {
-            throw new IllegalArgumentException("Specified length exceeds available bytes to transfer.");
-        }
+        validate(f, pos, len);
         
         this.pos = pos;
         this.len = len;
+        this.isChannelOwner = true;
         try {
             fileChannel = new FileInputStream(f).getChannel();
         } catch (FileNotFoundException fnfe) {
@@ -132,6 +111,21 @@ public class FileTransfer implements WritableMessage {
         }
     }
     
+    /**
+     * Constructs a new <code>FileTransfer</code> instance backed by the specified
+     * {@link FileChannel}. If the channel is not owned by the
+     * <code>FileTransfer</code>, it won't be closed by {@link #release()}, so
+     * multiple <code>FileTransfer</code>s might share the same {@link FileChannel}
+     * to transfer different file regions (see {@link ChunkedFileTransfer}).
+     */
+    FileTransfer(final FileChannel fileChannel, final long pos,
+            final long len, final boolean isChannelOwner) {
+        this.fileChannel = fileChannel;
+        this.pos = pos;
+        this.len = len;
+        this.isChannelOwner = isChannelOwner;
+    }
+    
     
     // ---------------------------------------------------------- Public Methods
 
@@ -179,7 +173,9 @@ public class FileTransfer implements WritableMessage {
     @Override
     public boolean release() {
         try {
-            fileChannel.close();
+            if (isChannelOwner) {
+                fileChannel.close();
+            }
         } catch (IOException ignored) {
         } finally {
             fileChannel = null;
@@ -195,4 +191,35 @@ public class FileTransfer implements WritableMessage {
     public boolean isExternal() {
         return true;
     }
+
+
+    // ------------------------------------------------- Package-Private Methods
+
+
+    static void validate(final File f, final long pos, final long len) {
+        if (f == null) {
+            throw new IllegalArgumentException("f cannot be null.");
+        }
+        if (!f.exists()) {
+            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " does not exist.");
+        }
+        if (!f.canRead()) {
+            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " is not readable.");
+        }
+        if (f.isDirectory()) {
+            throw new IllegalArgumentException("File " + f.getAbsolutePath() + " is a directory.");
+        }
+        if (pos < 0) {
+            throw new IllegalArgumentException("The pos argument cannot be negative.");
+        }
+        if (len < 0) {
+            throw new IllegalArgumentException("The len argument cannot be negative.");
+        }
+        if (pos > f.length()) {
+            throw new IllegalArgumentException("Illegal offset");
+        }
+        if (f.length() - pos < len) {
+            throw new IllegalArgumentException("Specified length exceeds available bytes to transfer.");
+        }
+    }
 }
@@ -92,6 +92,7 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
     protected boolean reuseAddress = NIOTransport.DEFAULT_REUSE_ADDRESS;
     protected int maxPendingBytesPerConnection = AsyncQueueWriter.AUTO_SIZE;
     protected boolean optimizedForMultiplexing = NIOTransport.DEFAULT_OPTIMIZED_FOR_MULTIPLEXING;
+    protected int flightRecorderCapacity = NIOTransport.DEFAULT_FLIGHT_RECORDER_CAPACITY;
 
     protected long readTimeout = TimeUnit.MILLISECONDS.convert(Transport.DEFAULT_READ_TIMEOUT, TimeUnit.SECONDS);
     protected long writeTimeout = TimeUnit.MILLISECONDS.convert(Transport.DEFAULT_WRITE_TIMEOUT, TimeUnit.SECONDS);
@@ -546,6 +547,23 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
         return getThis();
     }
 
+    /**
+     * @see org.glassfish.grizzly.nio.NIOTransport#getFlightRecorderCapacity()
+     */
+    public int getFlightRecorderCapacity() {
+        return flightRecorderCapacity;
+    }
+
+    /**
+     * @see org.glassfish.grizzly.nio.NIOTransport#setFlightRecorderCapacity(int)
+     *
+     * @return this <code>NIOTransportBuilder</code>
+     */
+    public T setFlightRecorderCapacity(final int flightRecorderCapacity) {
+        this.flightRecorderCapacity = flightRecorderCapacity;
+        return getThis();
+    }
+
     /**
      * @return an {@link NIOTransport} based on the builder's configuration.
      */
@@ -575,6 +593,7 @@ public abstract class NIOTransportBuilder<T extends NIOTransportBuilder> {
         transport.setWriteBufferSize(writeBufferSize);
         transport.setReuseAddress(reuseAddress);
         transport.setOptimizedForMultiplexing(isOptimizedForMultiplexing());
+        transport.setFlightRecorderCapacity(flightRecorderCapacity);
         transport.getAsyncQueueIO()
                 .getWriter()
                 .setMaxPendingBytesPerConnection(
@@ -44,6 +44,8 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.nio.FlightRecorder;
+import org.glassfish.grizzly.nio.FlightRecorder.EventType;
 
 /**
  *
@@ -72,6 +74,8 @@ public final class ProcessorExecutor {
         boolean isRerun;
         ProcessorResult result;
         
+        record(context, EventType.IO_EVENT_PROCESS);
+        
         try {
             do {
                 result = context.getProcessor().process(context);
@@ -151,6 +155,7 @@ public final class ProcessorExecutor {
 
     private static void rerun(final Context context, final Context newContext)
             throws IOException {
+        record(context, EventType.IO_EVENT_RERUN);
         
         final int sz = context.lifeCycleListeners.size();
         final IOEventLifeCycleListener[] listeners = context.lifeCycleListeners.array();
@@ -205,26 +210,32 @@ public final class ProcessorExecutor {
 
         switch (status) {
             case COMPLETE:
+                record(context, EventType.IO_EVENT_COMPLETE);
                 complete(context, result.getData());
                 break;
 
             case LEAVE:
+                record(context, EventType.IO_EVENT_LEAVE);
                 leave(context);
                 break;
 
             case TERMINATE:
+                record(context, EventType.IO_EVENT_TERMINATE);
 //                    terminate(context);
                 break;
 
             case REREGISTER:
+                record(context, EventType.IO_EVENT_REREGISTER);
                 reregister(context, result.getData());
                 break;
 
             case ERROR:
+                record(context, EventType.IO_EVENT_ERROR);
                 error(context, result.getData());
                 break;
 
             case NOT_RUN:
+                record(context, EventType.IO_EVENT_NOT_RUN);
                 notRun(context);
                 break;
 
@@ -232,4 +243,9 @@ public final class ProcessorExecutor {
                 throw new IllegalStateException();
         }
     }
+
+    private static void record(final Context context, final EventType type) {
+        FlightRecorder.recordEvent(context.getConnection(), type,
+                context.getIoEvent(), 0);
+    }
 }
@@ -41,6 +41,7 @@
 package org.glassfish.grizzly.asyncqueue;
 
 import org.glassfish.grizzly.*;
+import org.glassfish.grizzly.memory.SharedBuffer;
 import org.glassfish.grizzly.utils.DebugPoint;
 
 /**
@@ -179,6 +180,19 @@ public class AsyncWriteQueueRecord extends AsyncQueueRecord<RecordWriteResult> {
         messageLocal.release();
 
     }
+
+    @Override
+    public void notifyFailure(final Throwable e) {
+        final WritableMessage messageLocal = getWritableMessage();
+
+        super.notifyFailure(e);
+
+        // the message is not going to be written, but a shared buffer view
+        // still holds a reference, which has to be released
+        if (messageLocal instanceof SharedBuffer.View) {
+            messageLocal.release();
+        }
+    }
     
     public boolean isFinished() {
         return !getWritableMessage().hasRemaining();
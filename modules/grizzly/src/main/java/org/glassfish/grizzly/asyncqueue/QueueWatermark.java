@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.asyncqueue;
+
+/**
+ * High/low watermark of the {@link TaskQueue} size, the number of queued bytes.
+ * {@link #onHighWatermark()} is called, when the queue size reaches
+ * the high watermark, and {@link #onLowWatermark()} is called, when the
+ * queue size drops to the low watermark (or the queue is closed) afterwards,
+ * so the notifications always come in pairs.
+ * 
+ * The notifications are serialized, and the implementations are not
+ * supposed to block, because they are called by the threads, which
+ * update the queue size.
+ * 
+ * @see TaskQueue#addWatermark(QueueWatermark)
+ * @since 2.4.0
+ */
+public abstract class QueueWatermark {
+    private final int highWatermark;
+    private final int lowWatermark;
+    
+    private volatile boolean isAboveHighWatermark;
+    private boolean isClosed;
+
+    /**
+     * @param highWatermark the queue size (in bytes), when reached the
+     *  {@link #onHighWatermark()} is called
+     * @param lowWatermark the queue size (in bytes), when reached the
+     *  {@link #onLowWatermark()} is called
+     */
+    protected QueueWatermark(final int highWatermark, final int lowWatermark) {
+        if (highWatermark <= 0) {
+            throw new IllegalArgumentException("highWatermark has to be positive");
+        }
+        
+        if (lowWatermark < 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException(
+                    "lowWatermark has to be >= 0 and < highWatermark");
+        }
+        
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * @return <tt>true</tt> if the high watermark was reached, and the
+     * queue size hasn't dropped to the low watermark since then
+     */
+    public boolean isAboveHighWatermark() {
+        return isAboveHighWatermark;
+    }
+    
+    /**
+     * The method is called, when the queue size reaches the high watermark.
+     */
+    protected abstract void onHighWatermark();
+    
+    /**
+     * The method is called, when the queue size drops to the low watermark,
+     * or the queue is closed, after the high watermark was reached.
+     */
+    protected abstract void onLowWatermark();
+
+    // ---------------------------------------------------- Package-private methods
+    
+    final void check(final TaskQueue<?> queue, final int size) {
+        if (isAboveHighWatermark ?
+                size <= lowWatermark : size >= highWatermark) {
+            update(queue);
+        }
+    }
+    
+    final synchronized void onQueueClosed() {
+        isClosed = true;
+        
+        if (isAboveHighWatermark) {
+            isAboveHighWatermark = false;
+            onLowWatermark();
+        }
+    }
+    
+    // ------------------------------------------------------------ Private methods
+    
+    /**
+     * Updates the watermark state according to the current queue size.
+     * The size is checked again after each notification, because it might
+     * have been changed concurrently by the thread, which didn't manage
+     * to enter the synchronized block.
+     */
+    private synchronized void update(final TaskQueue<?> queue) {
+        while (!isClosed) {
+            final int size = queue.spaceInBytes();
+            if (!isAboveHighWatermark && size >= highWatermark) {
+                isAboveHighWatermark = true;
+                onHighWatermark();
+            } else if (isAboveHighWatermark && size <= lowWatermark) {
+                isAboveHighWatermark = false;
+                onLowWatermark();
+            } else {
+                return;
+            }
+        }
+    }
+}
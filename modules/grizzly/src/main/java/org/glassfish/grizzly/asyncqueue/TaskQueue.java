@@ -77,6 +77,9 @@ public final class TaskQueue<E extends AsyncQueueRecord> {
     private volatile int writeHandlersCounter;
     protected final Queue<WriteHandler> writeHandlersQueue =
             new ConcurrentLinkedQueue<WriteHandler>();
+    
+    private static final QueueWatermark[] NO_WATERMARKS = new QueueWatermark[0];
+    private volatile QueueWatermark[] watermarks = NO_WATERMARKS;
     // ------------------------------------------------------------ Constructors
 
 
@@ -151,7 +154,9 @@ public final class TaskQueue<E extends AsyncQueueRecord> {
      * @return the new memory (in bytes) consumed by the queue.
      */
     public int reserveSpace(final int amount) {
-        return spaceInBytesUpdater.addAndGet(this, amount);
+        final int space = spaceInBytesUpdater.addAndGet(this, amount);
+        checkWatermarks(space);
+        return space;
     }
 
     /**
@@ -161,7 +166,9 @@ public final class TaskQueue<E extends AsyncQueueRecord> {
      * @return the new memory (in bytes) consumed by the queue.
      */
     public int releaseSpace(final int amount) {
-        return spaceInBytesUpdater.addAndGet(this, -amount);
+        final int space = spaceInBytesUpdater.addAndGet(this, -amount);
+        checkWatermarks(space);
+        return space;
     }
 
     /**
@@ -235,6 +242,64 @@ public final class TaskQueue<E extends AsyncQueueRecord> {
     public final boolean forgetWritePossible(final WriteHandler writeHandler) {
         return removeWriteHandler(writeHandler);
     }
+
+    /**
+     * Adds the {@link QueueWatermark}, which will be notified when the queue
+     * size crosses its high and low watermarks.
+     * If the queue is closed, the watermark is not added.
+     * 
+     * @param watermark the {@link QueueWatermark}
+     * @since 2.4.0
+     */
+    public void addWatermark(final QueueWatermark watermark) {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            
+            final QueueWatermark[] oldWatermarks = watermarks;
+            final QueueWatermark[] newWatermarks =
+                    new QueueWatermark[oldWatermarks.length + 1];
+            System.arraycopy(oldWatermarks, 0, newWatermarks, 0,
+                    oldWatermarks.length);
+            newWatermarks[oldWatermarks.length] = watermark;
+            watermarks = newWatermarks;
+        }
+        
+        watermark.check(this, spaceInBytes());
+    }
+    
+    /**
+     * Removes the {@link QueueWatermark}.
+     * 
+     * @param watermark the {@link QueueWatermark}
+     * @return <tt>true</tt> if the watermark was removed, or <tt>false</tt>
+     *  if it wasn't found
+     * @since 2.4.0
+     */
+    public synchronized boolean removeWatermark(final QueueWatermark watermark) {
+        final QueueWatermark[] oldWatermarks = watermarks;
+        for (int i = 0; i < oldWatermarks.length; i++) {
+            if (oldWatermarks[i] == watermark) {
+                final QueueWatermark[] newWatermarks =
+                        new QueueWatermark[oldWatermarks.length - 1];
+                System.arraycopy(oldWatermarks, 0, newWatermarks, 0, i);
+                System.arraycopy(oldWatermarks, i + 1, newWatermarks, i,
+                        oldWatermarks.length - i - 1);
+                watermarks = newWatermarks;
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private void checkWatermarks(final int space) {
+        final QueueWatermark[] localWatermarks = watermarks;
+        for (int i = 0; i < localWatermarks.length; i++) {
+            localWatermarks[i].check(this, space);
+        }
+    }
     
     private void checkWriteHandlerOnClose(final WriteHandler writeHandler) {
         if (isClosed && removeWriteHandler(writeHandler)) {
@@ -323,7 +388,16 @@ public final class TaskQueue<E extends AsyncQueueRecord> {
     }
 
     public void onClose(final Throwable cause) {
-        isClosed = true;
+        final QueueWatermark[] closedWatermarks;
+        synchronized (this) {
+            isClosed = true;
+            closedWatermarks = watermarks;
+            watermarks = NO_WATERMARKS;
+        }
+        
+        for (QueueWatermark watermark : closedWatermarks) {
+            watermark.onQueueClosed();
+        }
         
         IOException error = null;
         if (!isEmpty()) {
@@ -0,0 +1,199 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.filterchain;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.glassfish.grizzly.ProcessorExecutor;
+
+/**
+ * Tracks the filter chain objects allocated while processing events:
+ * {@link FilterChainContext}s (together with the internal and transport
+ * contexts, listener lists and attributes they own), which are allocated
+ * when neither the thread local nor the shared context cache has a context
+ * to reuse, and the per-event objects like fork actions, non-constant
+ * {@link org.glassfish.grizzly.ProcessorResult}s, filter execution results,
+ * the stored remainders and the per-connection filter states.
+ * 
+ * The total number of allocations is always counted. In debug mode, which
+ * is enabled either by the
+ * <tt>org.glassfish.grizzly.filterchain.ContextAllocationTracker.enabled</tt>
+ * system property or by {@link #setEnabled(boolean)}, the tracker also
+ * reports which objects were allocated and by which code, and for the contexts,
+ * for which {@link FilterChainContext.Operation} (see {@link #getAllocations()}).
+ * The debug mode captures the stack trace for each allocation, so it's not
+ * supposed to be used in production.
+ * 
+ * @since 2.4.0
+ */
+public final class ContextAllocationTracker {
+    private static final String FILTERCHAIN_PACKAGE =
+            FilterChainContext.class.getPackage().getName() + '.';
+    
+    private static volatile boolean isEnabled = Boolean.getBoolean(
+            ContextAllocationTracker.class.getName() + ".enabled");
+    
+    private static final AtomicLong allocationsCount = new AtomicLong();
+    
+    private static final ConcurrentMap<String, AtomicLong> allocations =
+            new ConcurrentHashMap<String, AtomicLong>();
+
+    private ContextAllocationTracker() {
+    }
+    
+    /**
+     * @return <tt>true</tt> if the debug mode is enabled, or <tt>false</tt>
+     * otherwise
+     */
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Enables or disables the debug mode.
+     * 
+     * @param isEnabled <tt>true</tt> to enable the debug mode
+     */
+    public static void setEnabled(final boolean isEnabled) {
+        ContextAllocationTracker.isEnabled = isEnabled;
+    }
+    
+    /**
+     * @return the total number of allocated filter chain objects
+     */
+    public static long getAllocationsCount() {
+        return allocationsCount.get();
+    }
+    
+    /**
+     * Returns the filter chain object allocations, tracked in debug mode.
+     * The key has the form <tt>"&lt;type&gt; &lt;- &lt;allocation site&gt;"</tt>,
+     * for example <tt>"ProcessorResult &lt;- org.glassfish.grizzly.ProcessorExecutor.execute(ProcessorExecutor.java:80)"</tt>,
+     * or <tt>"FilterChainContext &lt;operation&gt; &lt;- &lt;allocation site&gt;"</tt>
+     * for the contexts, for example <tt>"FilterChainContext READ &lt;- org.glassfish.grizzly.nio.transport.TCPNIOTransport.fireIOEvent(TCPNIOTransport.java:123)"</tt>,
+     * the value is the number of allocations.
+     * 
+     * @return the snapshot of the filter chain object allocations
+     */
+    public static Map<String, Long> getAllocations() {
+        final Map<String, Long> snapshot = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : allocations.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        
+        return snapshot;
+    }
+    
+    /**
+     * Resets the allocations statistics.
+     */
+    public static void reset() {
+        allocationsCount.set(0);
+        allocations.clear();
+    }
+    
+    // ---------------------------------------------------- Package-private methods
+    
+    static void onAllocated(final FilterChainContext context) {
+        allocationsCount.incrementAndGet();
+        if (isEnabled) {
+            context.allocationTrace = new Throwable();
+        }
+    }
+
+    static void onOperation(final FilterChainContext context) {
+        final Throwable trace = context.allocationTrace;
+        if (trace != null) {
+            context.allocationTrace = null;
+            
+            count("FilterChainContext " + context.getOperation() + " <- "
+                    + allocationSite(trace));
+        }
+    }
+    
+    /**
+     * Registers the allocation of a filter chain object other than
+     * {@link FilterChainContext}.
+     * 
+     * @return the passed object
+     */
+    static <T> T onAllocated(final T object) {
+        allocationsCount.incrementAndGet();
+        if (isEnabled) {
+            count(object.getClass().getSimpleName() + " <- "
+                    + allocationSite(new Throwable()));
+        }
+        
+        return object;
+    }
+    
+    private static void count(final String key) {
+        AtomicLong counter = allocations.get(key);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = allocations.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        
+        counter.incrementAndGet();
+    }
+    
+    /**
+     * @return the first stack frame outside of the filter chain internals
+     */
+    private static String allocationSite(final Throwable trace) {
+        for (StackTraceElement element : trace.getStackTrace()) {
+            final String className = element.getClassName();
+            if (!className.startsWith(FILTERCHAIN_PACKAGE)
+                    && !className.equals(ProcessorExecutor.class.getName())) {
+                return element.toString();
+            }
+        }
+        
+        return "unknown";
+    }
+}
@@ -41,8 +41,12 @@
 package org.glassfish.grizzly.filterchain;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.ListIterator;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -73,6 +77,12 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
     private final FiltersStateFactory filtersStateFactory =
             new FiltersStateFactory();
     
+    /**
+     * The precompiled chain, which is not <tt>null</tt> only if the chain
+     * is frozen.
+     */
+    private volatile CompiledChain compiledChain;
+    
     /**
      * Logger
      */
@@ -86,6 +96,118 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
         super(new ArrayList<Filter>(initialFilters));
     }
 
+    /**
+     * Freezes this {@link FilterChain}, so it can't be modified anymore, and
+     * precompiles its execution path.
+     * The frozen chain keeps the same execution semantics, but it doesn't
+     * invoke the {@link BaseFilter} methods, which are not overridden by
+     * the {@link Filter} and would just pass the control to the next
+     * {@link Filter}. Any attempt to modify the frozen chain will lead to
+     * {@link IllegalStateException}.
+     * 
+     * @return this {@link DefaultFilterChain}
+     * @since 2.4.0
+     */
+    public DefaultFilterChain freeze() {
+        if (compiledChain == null) {
+            compiledChain = new CompiledChain(
+                    filters.toArray(new Filter[filters.size()]));
+        }
+        
+        return this;
+    }
+
+    /**
+     * @return <tt>true</tt> if this {@link FilterChain} is frozen and can't
+     * be modified, or <tt>false</tt> otherwise
+     * @see #freeze()
+     * @since 2.4.0
+     */
+    public boolean isFrozen() {
+        return compiledChain != null;
+    }
+
+    @Override
+    public boolean add(final Filter filter) {
+        checkNotFrozen();
+        return super.add(filter);
+    }
+
+    @Override
+    public void add(final int index, final Filter filter) {
+        checkNotFrozen();
+        super.add(index, filter);
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends Filter> c) {
+        checkNotFrozen();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(final int index, final Collection<? extends Filter> c) {
+        checkNotFrozen();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public Filter set(final int index, final Filter filter) {
+        checkNotFrozen();
+        return super.set(index, filter);
+    }
+
+    @Override
+    public boolean remove(final Object object) {
+        checkNotFrozen();
+        return super.remove(object);
+    }
+
+    @Override
+    public Filter remove(final int index) {
+        checkNotFrozen();
+        return super.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        checkNotFrozen();
+        super.clear();
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        checkNotFrozen();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        checkNotFrozen();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public Iterator<Filter> iterator() {
+        return compiledChain != null
+                ? Collections.unmodifiableList(filters).iterator()
+                : super.iterator();
+    }
+
+    @Override
+    public ListIterator<Filter> listIterator() {
+        return compiledChain != null
+                ? Collections.unmodifiableList(filters).listIterator()
+                : super.listIterator();
+    }
+
+    @Override
+    public ListIterator<Filter> listIterator(final int index) {
+        return compiledChain != null
+                ? Collections.unmodifiableList(filters).listIterator(index)
+                : super.listIterator(index);
+    }
+
     @Override
     public ProcessorResult process(final Context context) {
         if (isEmpty()) return ProcessorResult.createComplete();
@@ -145,12 +267,14 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
                             // rerun the filter chain with the new context right away
                             ctx.setMessage(null);
                             ctx.setFilterIdx(idx);
-                            return ProcessorResult.createRerun(ctx.internalContext);
+                            return ContextAllocationTracker.onAllocated(
+                                    ProcessorResult.createRerun(ctx.internalContext));
                         }
 
                         // reregister to listen for next operation,
                         // keeping the current Context
-                        return ProcessorResult.createReregister(ctx.internalContext);
+                        return ContextAllocationTracker.onAllocated(
+                                ProcessorResult.createReregister(ctx.internalContext));
                 }
             } while (prepareRemainder(ctx, filtersState));
         } catch (Throwable e) {
@@ -159,7 +283,8 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             throwChain(ctx, executor, e);
             ctx.getCloseable().closeWithReason(Exceptions.makeIOException(e));
 
-            return ProcessorResult.createError(e);
+            return ContextAllocationTracker.onAllocated(
+                    ProcessorResult.createError(e));
         }
 
         return ProcessorResult.createComplete();
@@ -181,6 +306,12 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             final FiltersState filtersState)
             throws IOException {
 
+        final CompiledChain compiled = compiledChain;
+        if (compiled != null) {
+            return executeCompiledChainPart(compiled, ctx, executor,
+                    start, end, filtersState);
+        }
+        
         int i = start;
         Filter currentFilter = null;
 
@@ -226,13 +357,96 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             ctx.setFilterIdx(i);
         }
 
+        return completeChainPart(ctx, filtersState, i,
+                lastNextActionType, lastNextAction);
+    }
+    
+    /**
+     * Sequentially lets each {@link Filter} in the precompiled chain to
+     * process {@link IOEvent}, skipping the {@link Filter}s, which don't
+     * override the corresponding {@link BaseFilter} method.
+     */
+    @SuppressWarnings("unchecked")
+    private FilterExecution executeCompiledChainPart(
+            final CompiledChain compiled,
+            final FilterChainContext ctx,
+            final FilterExecutor executor,
+            final int start,
+            final int end,
+            final FiltersState filtersState)
+            throws IOException {
+
+        final Filter[] compiledFilters = compiled.filters;
+        final int[] handlerMasks = compiled.handlerMasks;
+        final int operationMask = 1 << ctx.getOperation().ordinal();
+        
+        int i = start;
+
+        int lastNextActionType = InvokeAction.TYPE;
+        NextAction lastNextAction = null;
+
+        while (i != end) {
+
+            if (ctx.predefinedNextAction == null) {
+                if ((handlerMasks[i] & operationMask) == 0) {
+                    // the Filter uses the BaseFilter's method implementation,
+                    // which just passes the control to the next Filter
+                    lastNextActionType = InvokeAction.TYPE;
+                    i = executor.getNextFilter(ctx);
+                    ctx.setFilterIdx(i);
+                    continue;
+                }
+                
+                // Checks if there was a remainder message stored from the last filter execution
+                if (filtersState.hasRemainders()) {
+                    checkStoredMessage(ctx, filtersState, i);
+                }
+
+                // execute the task
+                lastNextAction = executeFilter(executor, compiledFilters[i], ctx);
+            } else {
+                lastNextAction = ctx.predefinedNextAction;
+                ctx.predefinedNextAction = null;
+            }
+
+            lastNextActionType = lastNextAction.type();
+            if (lastNextActionType != InvokeAction.TYPE) { // if we don't need to execute next filter
+                break;
+            }
+
+            final InvokeAction invokeAction = (InvokeAction) lastNextAction;
+            final Object chunk = invokeAction.getChunk();
+
+            if (chunk != null) {
+                // Store the remainder
+                storeMessage(ctx,
+                        filtersState,
+                        invokeAction.isIncomplete(),
+                        i,
+                        chunk,
+                        invokeAction.getAppender());
+            }
+
+            i = executor.getNextFilter(ctx);
+            ctx.setFilterIdx(i);
+        }
+
+        return completeChainPart(ctx, filtersState, i,
+                lastNextActionType, lastNextAction);
+    }
+    
+    /**
+     * Completes the {@link FilterChain} part execution based on the last
+     * {@link NextAction} returned by a {@link Filter}.
+     */
+    private FilterExecution completeChainPart(final FilterChainContext ctx,
+            final FiltersState filtersState, final int i,
+            final int lastNextActionType, final NextAction lastNextAction) {
         switch (lastNextActionType) {
             case InvokeAction.TYPE:
                 notifyComplete(ctx);
                 break;
             case StopAction.TYPE:
-                assert currentFilter != null;
-
                 // If the next action is StopAction and there is some data to store for the processed Filter - store it
                 final StopAction stopAction = (StopAction) lastNextAction;
                 
@@ -489,6 +703,12 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
         return new DefaultFilterChain(filters.subList(fromIndex, toIndex));
     }
 
+    private void checkNotFrozen() {
+        if (compiledChain != null) {
+            throw new IllegalStateException("FilterChain is frozen");
+        }
+    }
+    
     @SuppressWarnings("unchecked")
     private FiltersState obtainFiltersState(final Connection connection) {
         return (FiltersState) connection.obtainProcessorState(this, filtersStateFactory);
@@ -572,16 +792,32 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
     private static final class FiltersState {
         private static final int OPERATIONS_NUM = Operation.values().length;
 
+        private final int filtersNum;
+        
+        // per operation state arrays are allocated lazily, when the first
+        // remainder is stored
         private final FilterStateElement[][] state;
+        
+        // the number of valid (stored, but not yet appended) remainders
+        private int remaindersCount;
 
         public FiltersState(int filtersNum) {
-            state = new FilterStateElement[OPERATIONS_NUM][filtersNum];
+            this.filtersNum = filtersNum;
+            state = new FilterStateElement[OPERATIONS_NUM][];
         }
 
+        public boolean hasRemainders() {
+            return remaindersCount > 0;
+        }
+        
         public FilterStateElement get(final Operation operation,
                 final int filterIndex) {
-            final int opIdx = operation.ordinal();
-            final FilterStateElement elem = state[opIdx][filterIndex];
+            final FilterStateElement[] opState = state[operation.ordinal()];
+            if (opState == null) {
+                return null;
+            }
+            
+            final FilterStateElement elem = opState[filterIndex];
             if (elem != null && elem.isValid) {
                 return elem;
             }
@@ -594,30 +830,45 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             final Appender<M> appender) {
             final int opIdx = operation.ordinal();
             
-            FilterStateElement elem = state[opIdx][filterIndex];
+            FilterStateElement[] opState = state[opIdx];
+            if (opState == null) {
+                opState = new FilterStateElement[filtersNum];
+                state[opIdx] = opState;
+            }
+            
+            FilterStateElement elem = opState[filterIndex];
             if (elem != null) {
+                if (!elem.isValid) {
+                    remaindersCount++;
+                }
+                
                 elem.set(isIncomplete, messageToStore, appender);
             } else {
-                state[opIdx][filterIndex] = FilterStateElement.create(isIncomplete,
+                opState[filterIndex] = FilterStateElement.create(isIncomplete,
                         messageToStore, appender);
+                remaindersCount++;
             }
         }
 
         public int peekUnparsedIdx(final Operation operation,
                 final int start, final int end) {
             
-            if (start == end) {
+            if (start == end || remaindersCount == 0) {
+                return -1;
+            }
+            
+            final FilterStateElement[] opState = state[operation.ordinal()];
+            if (opState == null) {
                 return -1;
             }
             
-            final int opIdx = operation.ordinal();
             final int diff = end > start ? -1 : 1;
             
             int i = end;
             
             do {
                 i += diff;
-                final FilterStateElement elem = state[opIdx][i];
+                final FilterStateElement elem = opState[i];
                 if (elem != null && elem.isValid && !elem.isIncomplete) {
                     return i;
                 }
@@ -632,9 +883,12 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             
             // Check if there is any data stored for the current Filter
             final FilterStateElement filterState = get(operation, filterIdx);
-            return filterState != null ?
-                    filterState.append(currentMessage) :
-                    currentMessage;
+            if (filterState == null) {
+                return currentMessage;
+            }
+            
+            remaindersCount--;
+            return filterState.append(currentMessage);
         }
     }
 
@@ -653,13 +907,15 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
 
         static FilterStateElement create(
                 final boolean isIncomplete, final Appendable state) {
-            return new FilterStateElement(isIncomplete, state);
+            return ContextAllocationTracker.onAllocated(
+                    new FilterStateElement(isIncomplete, state));
         }
 
         static <E> FilterStateElement create(
                 final boolean isIncomplete,
                 final E state, final Appender<E> appender) {
-            return new FilterStateElement(isIncomplete, state, appender);
+            return ContextAllocationTracker.onAllocated(
+                    new FilterStateElement(isIncomplete, state, appender));
         }
         
         private boolean isIncomplete;
@@ -713,12 +969,80 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
         }
     }
     
+    /**
+     * The frozen {@link FilterChain} representation, which contains the
+     * array of {@link Filter}s and the mask of {@link Operation}s each
+     * {@link Filter} is interested in.
+     */
+    private static final class CompiledChain {
+        private static final int ALL_OPERATIONS_MASK = -1;
+        
+        private final Filter[] filters;
+        private final int[] handlerMasks;
+
+        private CompiledChain(final Filter[] filters) {
+            this.filters = filters;
+            
+            handlerMasks = new int[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                handlerMasks[i] = handlerMask(filters[i]);
+            }
+        }
+
+        /**
+         * Returns the mask of {@link Operation}s, which have to be passed
+         * to the {@link Filter}. The {@link Operation} is not passed to the
+         * {@link BaseFilter} if the corresponding method is not overridden,
+         * because the default implementation just returns
+         * {@link FilterChainContext#getInvokeAction()}.
+         */
+        private static int handlerMask(final Filter filter) {
+            if (!(filter instanceof BaseFilter)) {
+                return ALL_OPERATIONS_MASK;
+            }
+            
+            final Class<? extends Filter> filterClass = filter.getClass();
+            
+            try {
+                int mask = 1 << Operation.NONE.ordinal();
+                mask |= overrideMask(filterClass, Operation.ACCEPT,
+                        "handleAccept", FilterChainContext.class);
+                mask |= overrideMask(filterClass, Operation.CONNECT,
+                        "handleConnect", FilterChainContext.class);
+                mask |= overrideMask(filterClass, Operation.READ,
+                        "handleRead", FilterChainContext.class);
+                mask |= overrideMask(filterClass, Operation.WRITE,
+                        "handleWrite", FilterChainContext.class);
+                mask |= overrideMask(filterClass, Operation.EVENT,
+                        "handleEvent", FilterChainContext.class,
+                        FilterChainEvent.class);
+                mask |= overrideMask(filterClass, Operation.CLOSE,
+                        "handleClose", FilterChainContext.class);
+                
+                return mask;
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Can't introspect the filter: " + filter, e);
+                return ALL_OPERATIONS_MASK;
+            }
+        }
+        
+        private static int overrideMask(final Class<? extends Filter> filterClass,
+                final Operation operation, final String methodName,
+                final Class<?>... parameterTypes) throws NoSuchMethodException {
+            final Method method = filterClass.getMethod(methodName, parameterTypes);
+            return method.getDeclaringClass() != BaseFilter.class
+                    ? 1 << operation.ordinal()
+                    : 0;
+        }
+    }
+    
     private final class FiltersStateFactory implements
             NullaryFunction<FiltersState> {
 
         @Override
         public FiltersState evaluate() {
-            return new FiltersState(size());
+            return ContextAllocationTracker.onAllocated(
+                    new FiltersState(size()));
         }        
     }
     
@@ -745,7 +1069,8 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
         }
         
         public static FilterExecution createReExecute(final FilterChainContext context) {
-            return new FilterExecution(REEXECUTE_TYPE, context);
+            return ContextAllocationTracker.onAllocated(
+                    new FilterExecution(REEXECUTE_TYPE, context));
         }
 
         public FilterExecution(final int type, final FilterChainContext context) {
@@ -88,6 +88,15 @@ public class FilterChainContext implements AttributeStorage {
     private static final ThreadCache.CachedTypeIndex<FilterChainContext> CACHE_IDX =
             ThreadCache.obtainIndex(FilterChainContext.class, 8);
 
+    /**
+     * The second level cache, which keeps the contexts released by a thread
+     * other than the one, which will reuse them (suspend/resume, fork).
+     */
+    private static final SharedContextCache SHARED_CACHE =
+            new SharedContextCache(Integer.getInteger(
+            FilterChainContext.class.getName() + ".shared-cache-size",
+            Math.max(64, Runtime.getRuntime().availableProcessors() * 16)));
+
     public static FilterChainContext create(final Connection connection) {
         return create(connection, connection);
     }
@@ -96,7 +105,11 @@ public class FilterChainContext implements AttributeStorage {
             final Closeable closeable) {
         FilterChainContext context = ThreadCache.takeFromCache(CACHE_IDX);
         if (context == null) {
-            context = new FilterChainContext();
+            context = SHARED_CACHE.take();
+            if (context == null) {
+                context = new FilterChainContext();
+                ContextAllocationTracker.onAllocated(context);
+            }
         }
 
         context.setConnection(connection);
@@ -129,6 +142,12 @@ public class FilterChainContext implements AttributeStorage {
     final InternalContextImpl internalContext = new InternalContextImpl(this);
 
     final TransportContext transportFilterContext = new TransportContext();
+
+    /**
+     * The allocation stack trace, tracked in {@link ContextAllocationTracker}
+     * debug mode only.
+     */
+    Throwable allocationTrace;
     
     /**
      * Context task state
@@ -249,7 +268,12 @@ public class FilterChainContext implements AttributeStorage {
                 state = State.RUNNING;
             }
 
-            predefinedNextAction = nextAction;
+            // the rerun action means the suspended Filter has to be executed
+            // again, which happens if there's no predefined NextAction
+            predefinedNextAction =
+                    nextAction.type() != RerunFilterAction.TYPE
+                            ? nextAction
+                            : null;
             ProcessorExecutor.execute(internalContext);
         } catch (Exception e) {
             logger.log(Level.FINE, "Exception during running Processor", e);
@@ -487,6 +511,9 @@ public class FilterChainContext implements AttributeStorage {
 
     void setOperation(Operation operation) {
         this.operation = operation;
+        if (allocationTrace != null) {
+            ContextAllocationTracker.onOperation(this);
+        }
     }
     
     /**
@@ -676,7 +703,8 @@ public class FilterChainContext implements AttributeStorage {
         contextCopy.addressHolder = addressHolder;
         contextCopy.predefinedNextAction = nextAction;
 
-        return new ForkAction(contextCopy);
+        return ContextAllocationTracker.onAllocated(
+                new ForkAction(contextCopy));
     }
 
     /**
@@ -726,7 +754,7 @@ public class FilterChainContext implements AttributeStorage {
                 getFilterChain().obtainFilterChainContext(getConnection());
         
         newContext.closeable = closeable;
-        newContext.operation = Operation.READ;
+        newContext.setOperation(Operation.READ);
         newContext.transportFilterContext.configureBlocking(true);
         newContext.startIdx = 0;
         newContext.filterIdx = 0;
@@ -874,7 +902,7 @@ public class FilterChainContext implements AttributeStorage {
         final FilterChainContext newContext =
                 getFilterChain().obtainFilterChainContext(getConnection());
 
-        newContext.operation = Operation.WRITE;
+        newContext.setOperation(Operation.WRITE);
         newContext.transportFilterContext.configureBlocking(blocking);
         newContext.message = message;
         newContext.addressHolder = address == null ? addressHolder : Holder.staticHolder(address);
@@ -894,7 +922,7 @@ public class FilterChainContext implements AttributeStorage {
         final FilterChainContext newContext =
                 getFilterChain().obtainFilterChainContext(getConnection());
 
-        newContext.operation = Operation.EVENT;
+        newContext.setOperation(Operation.EVENT);
         newContext.closeable = closeable;
         newContext.event = TransportFilter.createFlushEvent(completionHandler);
         newContext.transportFilterContext.configureBlocking(transportFilterContext.isBlocking());
@@ -1058,8 +1086,13 @@ public class FilterChainContext implements AttributeStorage {
 
     public void completeAndRecycle() {
         notifyComplete(this, completionListeners);
+        if (allocationTrace != null) {
+            ContextAllocationTracker.onOperation(this);
+        }
         reset();
-        ThreadCache.putToCache(CACHE_IDX, this);
+        if (!ThreadCache.putToCache(CACHE_IDX, this)) {
+            SHARED_CACHE.put(this);
+        }
     }
 
     public void completeAndRelease() {
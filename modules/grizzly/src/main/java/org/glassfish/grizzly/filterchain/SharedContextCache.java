@@ -0,0 +1,129 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.filterchain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free cache of {@link FilterChainContext}s shared by all the
+ * threads. It's used as a second level cache after the
+ * {@link org.glassfish.grizzly.ThreadCache}, so the contexts obtained in one
+ * thread and recycled in another (for example suspended in a selector thread
+ * and resumed in a worker thread) are not lost when the recycling thread
+ * cache is full, and can be reused by the thread, which cache is empty.
+ * 
+ * Neither {@link #take()} nor {@link #put(FilterChainContext)} allocate
+ * objects.
+ */
+final class SharedContextCache {
+    private final AtomicReferenceArray<FilterChainContext> slots;
+    private final int mask;
+    private final int size;
+    
+    private final AtomicInteger count = new AtomicInteger();
+    
+    // the slots are used as a ring: the put and take positions follow each
+    // other, so in most cases the first probed slot is the right one
+    private final AtomicInteger putPosition = new AtomicInteger();
+    private final AtomicInteger takePosition = new AtomicInteger();
+
+    SharedContextCache(final int size) {
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        
+        this.size = size;
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<FilterChainContext>(capacity);
+    }
+
+    /**
+     * @return a cached {@link FilterChainContext}, or <tt>null</tt> if
+     * no context was found
+     */
+    FilterChainContext take() {
+        if (count.get() <= 0) {
+            return null;
+        }
+        
+        final int start = takePosition.getAndIncrement();
+        for (int i = 0; i <= mask; i++) {
+            final int idx = (start + i) & mask;
+            final FilterChainContext ctx = slots.get(idx);
+            if (ctx != null && slots.compareAndSet(idx, ctx, null)) {
+                count.decrementAndGet();
+                return ctx;
+            }
+        }
+        
+        return null;
+    }
+
+    /**
+     * Put the recycled {@link FilterChainContext} to the cache.
+     * 
+     * @return <tt>true</tt> if the context was cached, or <tt>false</tt> if
+     * the cache is full
+     */
+    boolean put(final FilterChainContext ctx) {
+        if (count.get() >= size) {
+            return false;
+        }
+        
+        final int start = putPosition.getAndIncrement();
+        for (int i = 0; i <= mask; i++) {
+            final int idx = (start + i) & mask;
+            if (slots.get(idx) == null && slots.compareAndSet(idx, null, ctx)) {
+                count.incrementAndGet();
+                return true;
+            }
+        }
+        
+        return false;
+    }
+
+    int size() {
+        return count.get();
+    }
+}
@@ -0,0 +1,1288 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringUtils;
+
+/**
+ * A {@link MemoryManager} implementation, which carves {@link Buffer}s out of
+ * large memory chunks using fine-grained size classes.
+ *
+ * Memory is reserved in chunks (4 MiB by default), every chunk is split into
+ * pages (8 KiB by default). Allocation requests are served depending on the
+ * requested size:
+ * <ul>
+ *     <li>small - sizes up to half a page are rounded up to the nearest size class
+ *         (16 byte steps up to 128 bytes, then 4 classes per power of two) and
+ *         served from page runs split into equally sized regions</li>
+ *     <li>large - sizes up to the chunk size are rounded up to a number of pages
+ *         and served as a contiguous page run</li>
+ *     <li>huge - bigger sizes are served as a {@link CompositeBuffer} of large runs</li>
+ * </ul>
+ *
+ * The chunks are spread across several arenas, each thread is bound to one of
+ * them, so arenas are rarely contended. Chunks are reserved lazily until the
+ * configured percentage of the heap is used, after that allocation requests
+ * are served by plain (non pooled) {@link Buffer}s.
+ *
+ * Unlike {@link PooledMemoryManager}, large page runs can grow and shrink in
+ * place: {@link #reallocate(Buffer, int)} takes over the pages following the
+ * run if they're free, and copies the content to a new run only otherwise.
+ *
+ * @since 2.4.0
+ */
+public class ArenaMemoryManager implements MemoryManager<Buffer>, WrapperAware {
+
+    public static final int DEFAULT_PAGE_SIZE = 8 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    public static final float DEFAULT_HEAP_USAGE_PERCENTAGE = 0.03f;
+
+    // the smallest size class, sizes up to 8 quantums are spaced by one quantum
+    private static final int QUANTUM = 16;
+
+    // the number of size classes per power of two above 8 quantums
+    private static final int CLASSES_PER_DOUBLING = 4;
+
+    // the min number of regions a small run is sized for
+    private static final int MIN_REGIONS_PER_RUN = 8;
+
+    // arena sequence, every new thread gets the next number
+    private static final AtomicInteger ARENA_COUNTER = new AtomicInteger();
+    private static final ThreadLocal<Integer> ARENA_SEQ =
+            new ThreadLocal<Integer>() {
+                @Override
+                protected Integer initialValue() {
+                    return ARENA_COUNTER.getAndIncrement() & Integer.MAX_VALUE;
+                }
+            };
+
+    /**
+     * Basic monitoring support.  Concrete implementations of this class need
+     * only to implement the {@link #createJmxManagementObject()}  method
+     * to plug into the Grizzly 2.0 JMX framework.
+     */
+    protected final DefaultMonitoringConfig<MemoryProbe> monitoringConfig =
+            new DefaultMonitoringConfig<MemoryProbe>(MemoryProbe.class) {
+
+                @Override
+                public Object createManagementObject() {
+                    return createJmxManagementObject();
+                }
+
+            };
+
+    private final Arena[] arenas;
+
+    // small size classes, sorted ascending
+    private final int[] sizeClasses;
+
+    // the number of pages in a run for each small size class
+    private final int[] runPages;
+
+    private final int pageSize;
+    private final int pageShift;
+    private final int chunkSize;
+    private final int maxSmallSize;
+    private final boolean isDirect;
+
+    // the max number of chunks all the arenas are allowed to reserve
+    private final int maxChunks;
+
+    // the number of chunks, which could still be reserved
+    private final AtomicInteger chunksLeft;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    /**
+     * Creates a new <code>ArenaMemoryManager</code> using the following defaults:
+     * <ul>
+     *     <li>8 KiB page size</li>
+     *     <li>4 MiB chunk size</li>
+     *     <li>Number of arenas based on <code>Runtime.getRuntime().availableProcessors()</code></li>
+     *     <li>Up to 3% of the heap could be reserved for chunks</li>
+     *     <li>Heap based {@link Buffer}s will be allocated</li>
+     * </ul>
+     */
+    public ArenaMemoryManager() {
+        this(false);
+    }
+
+    /**
+     * Creates a new <code>ArenaMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param isDirect flag, indicating whether direct or heap based {@link Buffer}s will be allocated
+     */
+    public ArenaMemoryManager(final boolean isDirect) {
+        this(DEFAULT_PAGE_SIZE,
+                DEFAULT_CHUNK_SIZE,
+                Runtime.getRuntime().availableProcessors(),
+                DEFAULT_HEAP_USAGE_PERCENTAGE,
+                isDirect);
+    }
+
+    /**
+     * Creates a new <code>ArenaMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param pageSize the page size, must be a power of two, not less than 256
+     * @param chunkSize the chunk size, must be a power of two, not less than the page size
+     * @param numberOfArenas the number of arenas allocation requests will be striped across
+     * @param percentOfHeap the max percentage of the heap, which could be reserved for chunks
+     * @param isDirect flag, indicating whether direct or heap based {@link Buffer}s will be allocated
+     */
+    public ArenaMemoryManager(final int pageSize,
+                              final int chunkSize,
+                              final int numberOfArenas,
+                              final float percentOfHeap,
+                              final boolean isDirect) {
+        if (pageSize < 256 || !isPowerOfTwo(pageSize)) {
+            throw new IllegalArgumentException("pageSize must be a power of two and not less than 256");
+        }
+        if (chunkSize < pageSize || !isPowerOfTwo(chunkSize)) {
+            throw new IllegalArgumentException("chunkSize must be a power of two and not less than pageSize");
+        }
+        if (numberOfArenas <= 0) {
+            throw new IllegalArgumentException("numberOfArenas must be greater than zero");
+        }
+        if (percentOfHeap <= 0.0f || percentOfHeap >= 1.0f) {
+            throw new IllegalArgumentException("percentOfHeap must be greater than zero and less than 1");
+        }
+
+        this.pageSize = pageSize;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.chunkSize = chunkSize;
+        this.maxSmallSize = pageSize >> 1;
+        this.isDirect = isDirect;
+
+        final long heapSize = Runtime.getRuntime().maxMemory();
+        maxChunks = (int) Math.max(1,
+                Math.min(Integer.MAX_VALUE, (long) (heapSize * percentOfHeap) / chunkSize));
+        chunksLeft = new AtomicInteger(maxChunks);
+
+        sizeClasses = initSizeClasses(maxSmallSize);
+        runPages = new int[sizeClasses.length];
+        final int pagesPerChunk = chunkSize >> pageShift;
+        for (int i = 0; i < sizeClasses.length; i++) {
+            runPages[i] = Math.min(pagesPerChunk,
+                    pagesFor(sizeClasses[i] * MIN_REGIONS_PER_RUN));
+        }
+
+        arenas = new Arena[numberOfArenas];
+        for (int i = 0; i < numberOfArenas; i++) {
+            arenas[i] = new Arena(this, i);
+        }
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the chunk size, allocation requests above this size are served
+     *          by {@link CompositeBuffer}s
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the number of arenas allocation requests are striped across
+     */
+    public int getNumberOfArenas() {
+        return arenas.length;
+    }
+
+    /**
+     * @return the max number of chunks, which could be reserved
+     */
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    /**
+     * @return the number of chunks reserved so far
+     */
+    public int getReservedChunks() {
+        return maxChunks - chunksLeft.get();
+    }
+
+    /**
+     * @return <tt>true</tt> if direct {@link Buffer}s are allocated, or
+     *          <tt>false</tt> otherwise
+     */
+    public boolean isDirect() {
+        return isDirect;
+    }
+
+
+    // ---------------------------------------------- Methods from MemoryManager
+
+
+    /**
+     * For this implementation, this method simply calls through to
+     * {@link #allocateAtLeast(int)};
+     */
+    @Override
+    public Buffer allocate(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested allocation size must be greater than or equal to zero.");
+        }
+        return allocateAtLeast(size).limit(size);
+    }
+
+    /**
+     * Allocates a buffer of at least the size requested.
+     * <p/>
+     * The capacity of the returned buffer is the requested size rounded up to
+     * its size class (small sizes) or to the page size (large sizes).
+     *
+     * @param size the min {@link Buffer} size to be allocated.
+     * @return a buffer with a limit of the specified <tt>size</tt>.
+     */
+    @Override
+    public Buffer allocateAtLeast(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested allocation size must be greater than or equal to zero.");
+        }
+
+        if (size == 0) {
+            return Buffers.EMPTY_BUFFER;
+        }
+
+        return size <= chunkSize ?
+                allocate0(size) :
+                allocateToCompositeBuffer(newCompositeBuffer(), size);
+    }
+
+    /**
+     * Reallocates an existing buffer to at least the specified size.
+     * <p/>
+     * Large page runs, which are not shared (sliced, split, duplicated etc),
+     * are resized in place if possible.
+     *
+     * @param oldBuffer old {@link Buffer} to be reallocated.
+     * @param newSize   new {@link Buffer} required size.
+     *
+     * @return potentially a new buffer of at least the specified size.
+     */
+    @Override
+    public Buffer reallocate(final Buffer oldBuffer, final int newSize) {
+        if (newSize == 0) {
+            oldBuffer.tryDispose();
+            return Buffers.EMPTY_BUFFER;
+        }
+
+        final int curBufSize = oldBuffer.capacity();
+
+        if (oldBuffer.isComposite()) {
+            final CompositeBuffer oldCompositeBuffer = (CompositeBuffer) oldBuffer;
+            if (curBufSize > newSize) {
+                final int oldPos = oldCompositeBuffer.position();
+                Buffers.setPositionLimit(oldBuffer, newSize, newSize);
+                oldCompositeBuffer.trim();
+                oldCompositeBuffer.position(Math.min(oldPos, newSize));
+
+                return oldCompositeBuffer;
+            } else {
+                return allocateToCompositeBuffer(oldCompositeBuffer,
+                        newSize - curBufSize);
+            }
+        }
+
+        final ArenaBuffer arenaBuffer = oldBuffer instanceof ArenaBuffer ?
+                (ArenaBuffer) oldBuffer : null;
+        final boolean isLargeRun = arenaBuffer != null
+                && arenaBuffer.run() == null && arenaBuffer.isResizable();
+
+        if (curBufSize >= newSize) {
+            oldBuffer.limit(newSize);
+
+            if (isLargeRun) {
+                // give the unused tail pages back
+                final int newPages = pagesFor(newSize);
+                if (newPages < arenaBuffer.pages()) {
+                    arenaBuffer.chunk().arena.shrink(arenaBuffer, newPages);
+                }
+            }
+
+            return oldBuffer;
+        }
+
+        final int pos = oldBuffer.position();
+
+        if (isLargeRun && newSize <= chunkSize
+                && arenaBuffer.chunk().arena.grow(arenaBuffer, pagesFor(newSize))) {
+            Buffers.setPositionLimit(oldBuffer, pos, newSize);
+            return oldBuffer;
+        }
+
+        Buffers.setPositionLimit(oldBuffer, 0, curBufSize);
+
+        if (newSize <= chunkSize) {
+            final Buffer newBuffer = allocate0(newSize);
+            newBuffer.put(oldBuffer);
+            Buffers.setPositionLimit(newBuffer, pos, newSize);
+
+            oldBuffer.tryDispose();
+
+            return newBuffer;
+        } else {
+            final CompositeBuffer cb = newCompositeBuffer();
+            cb.append(oldBuffer);
+            allocateToCompositeBuffer(cb, newSize - curBufSize);
+            Buffers.setPositionLimit(cb, pos, newSize);
+            return cb;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final Buffer buffer) {
+        buffer.tryDispose();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean willAllocateDirect(final int size) {
+        return isDirect;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<MemoryProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
+
+    // ----------------------------------------------- Methods from WrapperAware
+
+
+    @Override
+    public Buffer wrap(final byte[] data) {
+        return wrap(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public Buffer wrap(byte[] data, int offset, int length) {
+        return wrap(ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public Buffer wrap(final String s) {
+        return wrap(s.getBytes(Charset.defaultCharset()));
+    }
+
+    @Override
+    public Buffer wrap(final String s, final Charset charset) {
+        return wrap(s.getBytes(charset));
+    }
+
+    @Override
+    public Buffer wrap(final ByteBuffer byteBuffer) {
+        return new ByteBufferWrapper(byteBuffer);
+    }
+
+
+    // ------------------------------------------------------- Protected Methods
+
+
+    protected Object createJmxManagementObject() {
+        return MonitoringUtils.loadJmxObject(
+                "org.glassfish.grizzly.memory.jmx.ArenaMemoryManager", this,
+                ArenaMemoryManager.class);
+    }
+
+
+    // --------------------------------------------------------- Package Methods
+
+
+    int[] getSizeClasses() {
+        return Arrays.copyOf(sizeClasses, sizeClasses.length);
+    }
+
+    Arena[] getArenas() {
+        return Arrays.copyOf(arenas, arenas.length);
+    }
+
+    /**
+     * @return the size class index for the given small size
+     */
+    int sizeClassIndex(final int size) {
+        final int idx = Arrays.binarySearch(sizeClasses, size);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Buffer allocate0(final int size) {
+        final int home = ARENA_SEQ.get() % arenas.length;
+
+        // try the home arena first, then the others before giving up
+        for (int i = 0; i < arenas.length; i++) {
+            final Arena arena = arenas[(home + i) % arenas.length];
+            final Buffer b = size <= maxSmallSize ?
+                    arena.allocateSmall(sizeClassIndex(size)) :
+                    arena.allocateLarge(pagesFor(size));
+            if (b != null) {
+                return b;
+            }
+        }
+
+        // all the chunks are busy, fallback to non pooled buffer
+        ProbeNotifier.notifyBufferAllocated(monitoringConfig, size);
+        final Buffer b = isDirect ?
+                new ByteBufferWrapper(ByteBuffer.allocateDirect(size)) :
+                new HeapBuffer(new byte[size], 0, size);
+        b.allowBufferDispose(true);
+        return b;
+    }
+
+    private CompositeBuffer allocateToCompositeBuffer(
+            final CompositeBuffer cb, int size) {
+
+        assert size >= 0;
+
+        while (size > 0) {
+            final int len = Math.min(size, chunkSize);
+            cb.append(allocate0(len).limit(len));
+            size -= len;
+        }
+
+        return cb;
+    }
+
+    private CompositeBuffer newCompositeBuffer() {
+        final CompositeBuffer cb = CompositeBuffer.newBuffer(this);
+        cb.allowInternalBuffersDispose(true);
+        cb.allowBufferDispose(true);
+        return cb;
+    }
+
+    private int pagesFor(final int size) {
+        return (size + pageSize - 1) >> pageShift;
+    }
+
+    private static int[] initSizeClasses(final int maxSmallSize) {
+        final List<Integer> classes = new ArrayList<Integer>();
+        final int linearLimit = Math.min(QUANTUM * 8, maxSmallSize);
+        for (int size = QUANTUM; size <= linearLimit; size += QUANTUM) {
+            classes.add(size);
+        }
+
+        for (int base = linearLimit; base < maxSmallSize; base <<= 1) {
+            final int step = base / CLASSES_PER_DOUBLING;
+            for (int i = 1; i <= CLASSES_PER_DOUBLING; i++) {
+                classes.add(base + i * step);
+            }
+        }
+
+        final int[] result = new int[classes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = classes.get(i);
+        }
+
+        return result;
+    }
+
+    private static boolean isPowerOfTwo(final int valueToCheck) {
+        return ((valueToCheck & (valueToCheck - 1)) == 0);
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * The set of chunks, guarded by the arena monitor.
+     */
+    static final class Arena {
+        private final ArenaMemoryManager mm;
+        private final int index;
+        private final List<Chunk> chunks = new ArrayList<Chunk>();
+        private final Bin[] bins;
+
+        Arena(final ArenaMemoryManager mm, final int index) {
+            this.mm = mm;
+            this.index = index;
+
+            bins = new Bin[mm.sizeClasses.length];
+            for (int i = 0; i < bins.length; i++) {
+                bins[i] = new Bin(mm.sizeClasses[i], mm.runPages[i]);
+            }
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public synchronized int getChunksCount() {
+            return chunks.size();
+        }
+
+        /**
+         * @return the number of free pages in all the chunks of this arena
+         */
+        public synchronized int getFreePages() {
+            int sum = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                sum += chunks.get(i).freePages;
+            }
+
+            return sum;
+        }
+
+        synchronized Buffer allocateSmall(final int sizeClass) {
+            final Bin bin = bins[sizeClass];
+
+            Run run = bin.current;
+            if (run == null || run.freeRegions == 0) {
+                run = bin.nonFull.pollFirst();
+                if (run == null) {
+                    run = newRun(bin);
+                    if (run == null) {
+                        return null;
+                    }
+                }
+
+                bin.current = run;
+            }
+
+            final int region = run.allocateRegion();
+            ProbeNotifier.notifyBufferAllocatedFromPool(mm.monitoringConfig,
+                    bin.regionSize);
+
+            return mm.isDirect ?
+                    new ArenaByteBufferWrapper(run.chunk, run, region, 0,
+                            run.chunk.slice(run.offset(region), bin.regionSize)) :
+                    new ArenaHeapBuffer(run.chunk, run, region, 0,
+                            run.offset(region), bin.regionSize);
+        }
+
+        synchronized Buffer allocateLarge(final int pages) {
+            Chunk chunk = null;
+            int firstPage = -1;
+            for (int i = 0; i < chunks.size() && firstPage == -1; i++) {
+                chunk = chunks.get(i);
+                firstPage = chunk.allocatePages(pages);
+            }
+
+            if (firstPage == -1) {
+                chunk = newChunk();
+                if (chunk == null) {
+                    return null;
+                }
+
+                firstPage = chunk.allocatePages(pages);
+            }
+
+            final int size = pages << mm.pageShift;
+            ProbeNotifier.notifyBufferAllocatedFromPool(mm.monitoringConfig,
+                    size);
+
+            final int offset = firstPage << mm.pageShift;
+            return mm.isDirect ?
+                    new ArenaByteBufferWrapper(chunk, null, firstPage, pages,
+                            chunk.slice(offset, size)) :
+                    new ArenaHeapBuffer(chunk, null, firstPage, pages,
+                            offset, size);
+        }
+
+        /**
+         * Tries to extend the large run in place by taking over the pages
+         * following it.
+         */
+        synchronized boolean grow(final ArenaBuffer buffer, final int newPages) {
+            final int pages = buffer.pages();
+            final Chunk chunk = buffer.chunk();
+            if (!chunk.growPages(buffer.handle(), pages, newPages - pages)) {
+                return false;
+            }
+
+            buffer.pages(newPages);
+            buffer.resize(newPages << mm.pageShift);
+            ProbeNotifier.notifyBufferAllocatedFromPool(mm.monitoringConfig,
+                    (newPages - pages) << mm.pageShift);
+
+            return true;
+        }
+
+        /**
+         * Gives the tail pages of the large run back to the chunk.
+         */
+        synchronized void shrink(final ArenaBuffer buffer, final int newPages) {
+            final int pages = buffer.pages();
+            buffer.chunk().freePages(buffer.handle() + newPages, pages - newPages);
+            buffer.pages(newPages);
+            buffer.resize(newPages << mm.pageShift);
+            ProbeNotifier.notifyBufferReleasedToPool(mm.monitoringConfig,
+                    (pages - newPages) << mm.pageShift);
+        }
+
+        synchronized void release(final ArenaBuffer buffer) {
+            final Run run = buffer.run();
+            if (run == null) {
+                buffer.chunk().freePages(buffer.handle(), buffer.pages());
+                ProbeNotifier.notifyBufferReleasedToPool(mm.monitoringConfig,
+                        buffer.pages() << mm.pageShift);
+                return;
+            }
+
+            final Bin bin = run.bin;
+            run.freeRegion(buffer.handle());
+            ProbeNotifier.notifyBufferReleasedToPool(mm.monitoringConfig,
+                    bin.regionSize);
+
+            if (run == bin.current) {
+                return;
+            }
+
+            if (run.freeRegions == run.regionsCount) {
+                // the run is empty, give its pages back to the chunk
+                bin.nonFull.remove(run);
+                run.chunk.freePages(run.firstPage, run.pages);
+            } else if (run.freeRegions == 1) {
+                // the run was full
+                bin.nonFull.addLast(run);
+            }
+        }
+
+        private Run newRun(final Bin bin) {
+            for (int i = 0; i < chunks.size(); i++) {
+                final Chunk chunk = chunks.get(i);
+                final int firstPage = chunk.allocatePages(bin.runPages);
+                if (firstPage != -1) {
+                    return new Run(chunk, bin, firstPage, mm.pageShift);
+                }
+            }
+
+            final Chunk chunk = newChunk();
+            return chunk != null ?
+                    new Run(chunk, bin, chunk.allocatePages(bin.runPages),
+                            mm.pageShift) :
+                    null;
+        }
+
+        private Chunk newChunk() {
+            if (mm.chunksLeft.decrementAndGet() < 0) {
+                mm.chunksLeft.incrementAndGet();
+                return null;
+            }
+
+            final Chunk chunk = new Chunk(this, mm.chunkSize >> mm.pageShift,
+                    mm.chunkSize, mm.isDirect);
+            chunks.add(chunk);
+            ProbeNotifier.notifyBufferAllocated(mm.monitoringConfig,
+                    mm.chunkSize);
+
+            return chunk;
+        }
+
+        @Override
+        public String toString() {
+            return "Arena[" + index + "] {chunks=" + getChunksCount() +
+                    ", free pages=" + getFreePages() + '}';
+        }
+    } // END Arena
+
+    /**
+     * Chunk memory with the page usage map.
+     */
+    static final class Chunk {
+        final Arena arena;
+        final byte[] heap;
+        final ByteBuffer direct;
+        private final BitSet usedPages;
+        private final int pagesCount;
+        int freePages;
+
+        Chunk(final Arena arena, final int pagesCount, final int chunkSize,
+                final boolean isDirect) {
+            this.arena = arena;
+            this.pagesCount = pagesCount;
+            this.freePages = pagesCount;
+            usedPages = new BitSet(pagesCount);
+
+            if (isDirect) {
+                direct = ByteBuffer.allocateDirect(chunkSize);
+                heap = null;
+            } else {
+                heap = new byte[chunkSize];
+                direct = null;
+            }
+        }
+
+        /**
+         * First-fit search for the free page run.
+         *
+         * @return the first page of the run, or <tt>-1</tt> if there is no
+         *          free run of the given length
+         */
+        int allocatePages(final int pages) {
+            if (pages > freePages) {
+                return -1;
+            }
+
+            int first = usedPages.nextClearBit(0);
+            while (first + pages <= pagesCount) {
+                final int nextUsed = usedPages.nextSetBit(first);
+                if (nextUsed == -1 || nextUsed - first >= pages) {
+                    usedPages.set(first, first + pages);
+                    freePages -= pages;
+                    return first;
+                }
+
+                first = usedPages.nextClearBit(nextUsed);
+            }
+
+            return -1;
+        }
+
+        boolean growPages(final int first, final int pages, final int extra) {
+            final int end = first + pages;
+            if (end + extra > pagesCount) {
+                return false;
+            }
+
+            final int nextUsed = usedPages.nextSetBit(end);
+            if (nextUsed != -1 && nextUsed < end + extra) {
+                return false;
+            }
+
+            usedPages.set(end, end + extra);
+            freePages -= extra;
+            return true;
+        }
+
+        void freePages(final int first, final int pages) {
+            usedPages.clear(first, first + pages);
+            freePages += pages;
+        }
+
+        ByteBuffer slice(final int offset, final int size) {
+            final ByteBuffer dup = direct.duplicate();
+            Buffers.setPositionLimit(dup, offset, offset + size);
+            return dup.slice();
+        }
+    } // END Chunk
+
+    /**
+     * Page run split into equally sized regions of one size class.
+     */
+    static final class Run {
+        final Chunk chunk;
+        final Bin bin;
+        final int firstPage;
+        final int pages;
+        final int regionsCount;
+        private final int baseOffset;
+        private final BitSet usedRegions;
+        int freeRegions;
+
+        Run(final Chunk chunk, final Bin bin, final int firstPage,
+                final int pageShift) {
+            this.chunk = chunk;
+            this.bin = bin;
+            this.firstPage = firstPage;
+            this.pages = bin.runPages;
+            this.baseOffset = firstPage << pageShift;
+            this.regionsCount = (pages << pageShift) / bin.regionSize;
+            this.freeRegions = regionsCount;
+            usedRegions = new BitSet(regionsCount);
+        }
+
+        int allocateRegion() {
+            final int region = usedRegions.nextClearBit(0);
+            usedRegions.set(region);
+            freeRegions--;
+            return region;
+        }
+
+        void freeRegion(final int region) {
+            usedRegions.clear(region);
+            freeRegions++;
+        }
+
+        int offset(final int region) {
+            return baseOffset + region * bin.regionSize;
+        }
+    } // END Run
+
+    /**
+     * The runs of one size class.
+     */
+    static final class Bin {
+        final int regionSize;
+        final int runPages;
+
+        // the run the regions are currently allocated from
+        Run current;
+
+        // the runs, which have free regions, except the current one
+        final ArrayDeque<Run> nonFull = new ArrayDeque<Run>();
+
+        Bin(final int regionSize, final int runPages) {
+            this.regionSize = regionSize;
+            this.runPages = runPages;
+        }
+    } // END Bin
+
+
+    interface ArenaBuffer extends Buffer {
+        Chunk chunk();
+
+        /**
+         * @return the {@link Run} for small buffers, or <tt>null</tt> for
+         *          large buffers
+         */
+        Run run();
+
+        /**
+         * @return the region index for small buffers, or the first page for
+         *          large buffers
+         */
+        int handle();
+
+        int pages();
+
+        void pages(int pages);
+
+        /**
+         * @return <tt>true</tt> if the buffer could be resized in place, i.e.
+         *          it's not shared or split
+         */
+        boolean isResizable();
+
+        void resize(int capacity);
+    }
+
+    private static final class ArenaHeapBuffer extends HeapBuffer
+            implements ArenaBuffer {
+
+        private final Chunk chunk;
+        private final Run run;
+        private final int handle;
+        private int pages;
+
+        // the capacity, which is allocated in the chunk for this buffer
+        private int allocatedCap;
+
+        // Once disposed, this flag will be true.
+        boolean free;
+
+        // represents the number of 'child' buffers that have been created using
+        // this as the foundation.  This source buffer can't be returned
+        // to the arena unless this value is zero.
+        protected final AtomicInteger shareCount;
+
+        // represents the original buffer from the arena.  This value will be
+        // non-null in any 'child' buffers created from the original.
+        protected final ArenaHeapBuffer source;
+
+
+        // ------------------------------------------------------------ Constructors
+
+
+        private ArenaHeapBuffer(final Chunk chunk, final Run run,
+                final int handle, final int pages,
+                final int offset, final int cap) {
+            super(chunk.heap, offset, cap);
+            this.chunk = chunk;
+            this.run = run;
+            this.handle = handle;
+            this.pages = pages;
+            this.allocatedCap = cap;
+            this.shareCount = new AtomicInteger();
+            this.source = this;
+            allowBufferDispose = true;
+        }
+
+        private ArenaHeapBuffer(final byte[] heap, final int offs, final int cap,
+                final ArenaHeapBuffer source,
+                final AtomicInteger shareCount) {
+            super(heap, offs, cap);
+            this.chunk = null;
+            this.run = null;
+            this.handle = -1;
+            this.shareCount = shareCount;
+            this.source = source;
+        }
+
+        @Override
+        public Chunk chunk() {
+            return chunk;
+        }
+
+        @Override
+        public Run run() {
+            return run;
+        }
+
+        @Override
+        public int handle() {
+            return handle;
+        }
+
+        @Override
+        public int pages() {
+            return pages;
+        }
+
+        @Override
+        public void pages(final int pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public boolean isResizable() {
+            return source == this && !free && shareCount.get() == 0
+                    && cap == allocatedCap;
+        }
+
+        @Override
+        public void resize(final int capacity) {
+            cap = allocatedCap = capacity;
+            if (lim > cap) {
+                lim = cap;
+            }
+            if (pos > lim) {
+                pos = lim;
+            }
+            if (mark > pos) {
+                mark = -1;
+            }
+        }
+
+        // ------------------------------------------ Methods from HeapBuffer
+
+        @Override
+        public HeapBuffer asReadOnlyBuffer() {
+            final HeapBuffer b = asReadOnlyBuffer(offset, cap);
+
+            b.pos = pos;
+            b.lim = lim;
+            return b;
+        }
+
+
+        private HeapBuffer asReadOnlyBuffer(final int offset, final int cap) {
+            checkDispose();
+
+            onShareHeap();
+            final HeapBuffer b = new ReadOnlyHeapBuffer(heap, offset, cap) {
+
+                @Override
+                public void dispose() {
+                    super.dispose();
+                    ArenaHeapBuffer.this.dispose0();
+                }
+
+
+                @Override
+                protected void onShareHeap() {
+                    ArenaHeapBuffer.this.onShareHeap();
+                }
+
+                @Override
+                protected HeapBuffer createHeapBuffer(final int offset,
+                        final int capacity) {
+                    return ArenaHeapBuffer.this.asReadOnlyBuffer(offset, capacity);
+                }
+            };
+
+            b.allowBufferDispose(true);
+
+            return b;
+        }
+
+        @Override
+        public void dispose() {
+            if (free) {
+                return;
+            }
+            free = true;
+
+            dispose0();
+        }
+
+        private void dispose0() {
+            // check shared counter optimistically
+            boolean isNotShared = shareCount.get() == 0;
+            if (!isNotShared) {
+                // try pessimistic check using CAS loop
+                isNotShared = (shareCount.getAndDecrement() == 0);
+                if (isNotShared) {
+                    // if the former check is true - the shared counter is negative,
+                    // so we have to reset it
+                    shareCount.set(0);
+                }
+            }
+
+            if (isNotShared) {
+                // we can now safely return source memory back to the arena
+                source.chunk.arena.release(source);
+            }
+        }
+
+        // ----------------------------------------------------- Protected Methods
+
+        /**
+         * Override the default implementation to check the <tt>free</tt> status
+         * of this buffer (i.e., once released, operations on the buffer will no
+         * longer succeed).
+         */
+        @Override
+        protected final void checkDispose() {
+            if (free) {
+                throw new IllegalStateException(
+                        "ArenaBuffer has already been disposed",
+                        disposeStackTrace);
+            }
+        }
+
+        @Override
+        protected HeapBuffer createHeapBuffer(final int offs, final int capacity) {
+            onShareHeap();
+
+            final ArenaHeapBuffer b =
+                    new ArenaHeapBuffer(heap, offs + offset, capacity,
+                            source, // pass the 'parent' buffer along
+                            shareCount); // pass the shareCount
+            b.allowBufferDispose(true);
+
+            return b;
+        }
+
+        @Override
+        protected void onShareHeap() {
+            super.onShareHeap();
+
+            shareCount.incrementAndGet();
+        }
+    } // END ArenaHeapBuffer
+
+
+    private static final class ArenaByteBufferWrapper extends ByteBufferWrapper
+            implements ArenaBuffer {
+
+        private final Chunk chunk;
+        private final Run run;
+        private final int handle;
+        private int pages;
+
+        // the capacity, which is allocated in the chunk for this buffer
+        private int allocatedCap;
+
+        // Once disposed, this flag will be true.
+        boolean free;
+
+        // represents the number of 'child' buffers that have been created using
+        // this as the foundation.  This source buffer can't be returned
+        // to the arena unless this value is zero.
+        protected final AtomicInteger shareCount;
+
+        // represents the original buffer from the arena.  This value will be
+        // non-null in any 'child' buffers created from the original.
+        protected final ArenaByteBufferWrapper source;
+
+
+        // ------------------------------------------------------------ Constructors
+
+
+        private ArenaByteBufferWrapper(final Chunk chunk, final Run run,
+                final int handle, final int pages,
+                final ByteBuffer underlyingByteBuffer) {
+            super(underlyingByteBuffer);
+            this.chunk = chunk;
+            this.run = run;
+            this.handle = handle;
+            this.pages = pages;
+            this.allocatedCap = underlyingByteBuffer.capacity();
+            this.shareCount = new AtomicInteger();
+            this.source = this;
+            allowBufferDispose = true;
+        }
+
+        private ArenaByteBufferWrapper(final ByteBuffer underlyingByteBuffer,
+                final ArenaByteBufferWrapper source,
+                final AtomicInteger shareCount) {
+            super(underlyingByteBuffer);
+            this.chunk = null;
+            this.run = null;
+            this.handle = -1;
+            this.shareCount = shareCount;
+            this.source = source;
+        }
+
+        @Override
+        public Chunk chunk() {
+            return chunk;
+        }
+
+        @Override
+        public Run run() {
+            return run;
+        }
+
+        @Override
+        public int handle() {
+            return handle;
+        }
+
+        @Override
+        public int pages() {
+            return pages;
+        }
+
+        @Override
+        public void pages(final int pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public boolean isResizable() {
+            return source == this && !free && shareCount.get() == 0
+                    && visible.capacity() == allocatedCap;
+        }
+
+        @Override
+        public void resize(final int capacity) {
+            final int pos = visible.position();
+            final int lim = visible.limit();
+
+            allocatedCap = capacity;
+            visible = chunk.slice(handle << chunk.arena.mm.pageShift, capacity);
+            final int newLim = Math.min(lim, capacity);
+            Buffers.setPositionLimit(visible, Math.min(pos, newLim), newLim);
+            if (mark > visible.position()) {
+                mark = -1;
+            }
+        }
+
+        // ------------------------------------------ Methods from ByteBufferWrapper
+
+        @Override
+        public void dispose() {
+            if (free) {
+                return;
+            }
+            free = true;
+
+            dispose0();
+        }
+
+        private void dispose0() {
+            // check shared counter optimistically
+            boolean isNotShared = shareCount.get() == 0;
+            if (!isNotShared) {
+                // try pessimistic check using CAS loop
+                isNotShared = (shareCount.getAndDecrement() == 0);
+                if (isNotShared) {
+                    // if the former check is true - the shared counter is negative,
+                    // so we have to reset it
+                    shareCount.set(0);
+                }
+            }
+
+            if (isNotShared) {
+                // we can now safely return source memory back to the arena
+                source.chunk.arena.release(source);
+            }
+        }
+
+        // ----------------------------------------------------- Protected Methods
+
+
+        @Override
+        protected ByteBufferWrapper wrapByteBuffer(final ByteBuffer buffer) {
+            final ArenaByteBufferWrapper b =
+                    new ArenaByteBufferWrapper(buffer,
+                            source, // pass the 'parent' buffer along
+                            shareCount); // pass the shareCount
+            b.allowBufferDispose(true);
+            shareCount.incrementAndGet();
+
+            return b;
+        }
+
+        /**
+         * Override the default implementation to check the <tt>free</tt> status
+         * of this buffer (i.e., once released, operations on the buffer will no
+         * longer succeed).
+         */
+        @Override
+        protected final void checkDispose() {
+            if (free) {
+                throw new IllegalStateException(
+                        "ArenaBuffer has already been disposed",
+                        disposeStackTrace);
+            }
+        }
+    } // END ArenaByteBufferWrapper
+}
@@ -67,6 +67,30 @@ public interface MemoryProbe {
      */
     void onBufferReleaseToPoolEvent(int size);
 
+    /**
+     * Called by {@link MemoryManager}, when buffer gets allocated from the
+     * pool slice the calling thread is bound to.
+     * The default implementation does nothing.
+     *
+     * @param size buffer size
+     * @param sliceIndex the index of the pool slice the buffer was taken from
+     *
+     * @since 2.4.0
+     */
+    default void onBufferAllocateFromPoolSliceHitEvent(int size, int sliceIndex) {}
+
+    /**
+     * Called by {@link MemoryManager}, when the pool slice the calling thread
+     * is bound to was empty and the buffer got allocated from another slice.
+     * The default implementation does nothing.
+     *
+     * @param size buffer size
+     * @param sliceIndex the index of the pool slice the buffer was stolen from
+     *
+     * @since 2.4.0
+     */
+    default void onBufferAllocateFromPoolSliceStealEvent(int size, int sliceIndex) {}
+
 
     // ---------------------------------------------------------- Nested Classes
 
@@ -49,6 +49,7 @@ import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 
 import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
@@ -68,6 +69,7 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  *     <li>The percentage of the heap that this manager will use when populating the pools</li>
  *     <li>The percentage of buffers to be pre-allocated during MemoryManager initialization</li>
  *     <li>The flag indicating whether direct or heap based {@link Buffer}s will be allocated</li>
+ *     <li>The flag indicating whether every thread is bound to its own home pool slice</li>
  * </ul>
  *
  * If no explicit configuration is provided, the following defaults will be used:
@@ -79,8 +81,18 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  *     <li>Percentage of heap: 3% ({@link #DEFAULT_HEAP_USAGE_PERCENTAGE})</li>
  *     <li>Percentage of buffers to be pre-allocated: 100% ({@link #DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE})</li>
  *     <li>Heap based {@link Buffer}s will be allocated</li>
+ *     <li>Slices are picked randomly on every allocation, unless the
+ *         <tt>org.glassfish.grizzly.memory.PooledMemoryManager.thread-affinity</tt>
+ *         system property is set to <tt>true</tt></li>
  * </ul>
  *
+ * When thread affinity is enabled, every thread allocates from and releases to
+ * its home slice, and steals from (or spills to) the other slices only when the
+ * home slice is empty (or full). This keeps the slice cursors mostly owned by
+ * a single thread; the hit/steal ratio could be observed using
+ * {@link MemoryProbe#onBufferAllocateFromPoolSliceHitEvent(int, int)} and
+ * {@link MemoryProbe#onBufferAllocateFromPoolSliceStealEvent(int, int)}.
+ *
  * The main advantage of this manager over {@link org.glassfish.grizzly.memory.HeapMemoryManager} or
  * {@link org.glassfish.grizzly.memory.ByteBufferManager} is that this implementation doesn't use ThreadLocal pools
  * and as such, doesn't suffer from the memory fragmentation/reallocation cycle that can impact the ThreadLocal versions.
@@ -101,6 +113,20 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
     private static final long BACK_OFF_DELAY = Long.getLong(
             PooledMemoryManager.class + ".back-off-delay", 0L);
+
+    private static final boolean THREAD_AFFINITY_DEFAULT = Boolean.getBoolean(
+            PooledMemoryManager.class.getName() + ".thread-affinity");
+
+    // home slice sequence, every new thread gets the next number
+    private static final AtomicInteger HOME_SLICE_COUNTER = new AtomicInteger();
+    private static final ThreadLocal<Integer> HOME_SLICE_SEQ =
+            new ThreadLocal<Integer>() {
+                @Override
+                protected Integer initialValue() {
+                    return HOME_SLICE_COUNTER.getAndIncrement() & Integer.MAX_VALUE;
+                }
+            };
+
     /**
      * Basic monitoring support.  Concrete implementations of this class need
      * only to implement the {@link #createJmxManagementObject()}  method
@@ -122,6 +148,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     // the max buffer size pooled by this memory manager
     private final int maxPooledBufferSize;
 
+    // true, if every thread is bound to its home pool slice
+    private final boolean isThreadAffine;
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -182,6 +211,35 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             final float percentOfHeap,
             final float percentPreallocated,
             final boolean isDirect) {
+        this(baseBufferSize, numberOfPools, growthFactor, numberOfPoolSlices,
+                percentOfHeap, percentPreallocated, isDirect,
+                THREAD_AFFINITY_DEFAULT);
+    }
+
+    /**
+     * Creates a new <code>PooledMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param baseBufferSize the base size of the buffer for the 1st pool, every next pool n will have buffer size equal to bufferSize(n-1) * 2^growthFactor
+     * @param numberOfPools the number of pools, responsible for allocation of buffers of a pool-specific size
+     * @param growthFactor the buffer size growth factor, that defines 2^x multiplier, used to calculate buffer size for next allocated pool
+     * @param numberOfPoolSlices the number of pool slices that every pool will stripe allocation requests across
+     * @param percentOfHeap percentage of the heap that will be used when populating the pools
+     * @param percentPreallocated percentage of buffers to be pre-allocated during MemoryManager initialization
+     * @param isDirect flag, indicating whether direct or heap based {@link Buffer}s will be allocated
+     * @param isThreadAffine flag, indicating whether every thread will be bound to its home pool slice,
+     *                       stealing from other slices only if the home slice is empty or full
+     *
+     * @since 2.4.0
+     */
+    public PooledMemoryManager(
+            final int baseBufferSize,
+            final int numberOfPools,
+            final int growthFactor,
+            final int numberOfPoolSlices,
+            final float percentOfHeap,
+            final float percentPreallocated,
+            final boolean isDirect,
+            final boolean isThreadAffine) {
         if (baseBufferSize <= 0) {
             throw new IllegalArgumentException("baseBufferSize must be greater than zero");
         }
@@ -217,9 +275,20 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         for (int i = 0, bufferSize = baseBufferSize; i < numberOfPools; i++, bufferSize <<= growthFactor) {
             pools[i] = new Pool(bufferSize, memoryPerSubPool,
                     numberOfPoolSlices, percentPreallocated, isDirect,
-                    monitoringConfig);
+                    isThreadAffine, monitoringConfig);
         }
         maxPooledBufferSize = pools[numberOfPools - 1].bufferSize;
+        this.isThreadAffine = isThreadAffine;
+    }
+
+    /**
+     * @return <tt>true</tt> if every thread is bound to its home pool slice,
+     *          or <tt>false</tt> if pool slices are picked randomly
+     *
+     * @since 2.4.0
+     */
+    public boolean isThreadAffine() {
+        return isThreadAffine;
     }
 
     
@@ -487,17 +556,21 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     static final class Pool {
         private final PoolSlice[] slices;
         private final int bufferSize;
+        private final boolean isThreadAffine;
+        private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
 
         public Pool(final int bufferSize, final long memoryPerSubPool,
                 final int numberOfPoolSlices, final float percentPreallocated,
-                final boolean isDirect,
+                final boolean isDirect, final boolean isThreadAffine,
                 final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
             this.bufferSize = bufferSize;
+            this.isThreadAffine = isThreadAffine;
+            this.monitoringConfig = monitoringConfig;
             slices = new PoolSlice[numberOfPoolSlices];
             final long memoryPerSlice = memoryPerSubPool / numberOfPoolSlices;
             
             for (int i = 0; i < numberOfPoolSlices; i++) {
-                slices[i] = new PoolSlice(this, memoryPerSlice, bufferSize,
+                slices[i] = new PoolSlice(this, i, memoryPerSlice, bufferSize,
                         percentPreallocated, isDirect, monitoringConfig);
             }
         }
@@ -523,7 +596,15 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             return Arrays.copyOf(slices, slices.length);
         }
         
+        public boolean isThreadAffine() {
+            return isThreadAffine;
+        }
+
         public Buffer allocate() {
+            if (isThreadAffine) {
+                return allocateAffine();
+            }
+
             final PoolSlice slice = getSlice();
             PoolBuffer b = slice.poll();
             if (b == null) {
@@ -533,6 +614,31 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             return b.prepare();
         }
 
+        /**
+         * Returns the {@link PoolBuffer} back to the pool.
+         *
+         * @param b the buffer to return
+         * @param slice the {@link PoolSlice}, which allocated the buffer
+         * @return <tt>true</tt> if the buffer was pooled, or <tt>false</tt>
+         *          if all the candidate slices were full
+         */
+        boolean offer(final PoolBuffer b, final PoolSlice slice) {
+            if (!isThreadAffine) {
+                return slice.offer(b);
+            }
+
+            // try the home slice first, then spill to the neighbours
+            final int len = slices.length;
+            final int home = homeSliceIndex();
+            for (int i = 0; i < len; i++) {
+                if (slices[(home + i) % len].offer(b)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
         @Override
         public String toString() {
             final StringBuilder sb = new StringBuilder(
@@ -552,7 +658,40 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             sb.append('}');
             return sb.toString();
         }
-        
+
+        private Buffer allocateAffine() {
+            final int len = slices.length;
+            final int home = homeSliceIndex();
+            final PoolSlice homeSlice = slices[home];
+
+            PoolBuffer b = homeSlice.poll();
+            if (b != null) {
+                homeSlice.hits.increment();
+                ProbeNotifier.notifyBufferAllocatedFromPoolSliceHit(
+                        monitoringConfig, bufferSize, home);
+                return b.prepare();
+            }
+
+            // the home slice is empty, try to steal from the neighbours
+            for (int i = 1; i < len; i++) {
+                final int idx = (home + i) % len;
+                final PoolSlice slice = slices[idx];
+                b = slice.poll();
+                if (b != null) {
+                    slice.steals.increment();
+                    ProbeNotifier.notifyBufferAllocatedFromPoolSliceSteal(
+                            monitoringConfig, bufferSize, idx);
+                    return b.prepare();
+                }
+            }
+
+            return homeSlice.allocate().prepare();
+        }
+
+        private int homeSliceIndex() {
+            return HOME_SLICE_SEQ.get() % slices.length;
+        }
+
         @SuppressWarnings("unchecked")
         private PoolSlice getSlice() {
             return slices[ThreadLocalRandom.current().nextInt(slices.length)];
@@ -597,6 +736,14 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
         // The Pool this slice belongs to
         private final Pool owner;
+
+        // The index of this slice within the owner Pool
+        private final int index;
+
+        // Number of buffers polled from this slice by the threads bound to it
+        // and by the other threads (only tracked in thread affinity mode).
+        final LongAdder hits = new LongAdder();
+        final LongAdder steals = new LongAdder();
         
         // The max size of the pool.
         private final int maxPoolSize;
@@ -618,6 +765,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
 
         PoolSlice(final Pool owner,
+                   final int index,
                    final long totalPoolSize,
                    final int bufferSize,
                    final float percentPreallocated,
@@ -625,6 +773,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                    final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
 
             this.owner = owner;
+            this.index = index;
             this.bufferSize = bufferSize;
             this.isDirect = isDirect;
             this.monitoringConfig = monitoringConfig;
@@ -763,6 +912,31 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         public int getMaxElementsCount() {
             return maxPoolSize;
         }
+
+        /**
+         * @return the index of this <tt>PoolSlice</tt> within its pool
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the number of {@link Buffer}s polled from this
+         * <tt>PoolSlice</tt> by the threads bound to it (only tracked in
+         * thread affinity mode)
+         */
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        /**
+         * @return the number of {@link Buffer}s stolen from this
+         * <tt>PoolSlice</tt> by the threads bound to other slices (only tracked
+         * in thread affinity mode)
+         */
+        public long getStealCount() {
+            return steals.sum();
+        }
         
         public final long size() {
             return (long) elementsCount() * (long) bufferSize;
@@ -861,6 +1035,10 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                                 ", offer wrap bit=" + (fillHighestOneBitRight(
                     getWrappingBit(widx)) & 1) +
                                 ", maxPoolSize=" + maxPoolSize +
+                                (owner.isThreadAffine
+                                        ? ", hits=" + hits.sum() +
+                                          ", steals=" + steals.sum()
+                                        : "") +
                                 '}';
         }
 
@@ -1080,7 +1258,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             // clear
             clear();
             
-            owner.offer(this);
+            owner.owner.offer(this, owner);
         }
         
         // ----------------------------------------------------- Protected Methods
@@ -1296,7 +1474,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             // should be called on "source" only
             visible = origVisible;
             visible.clear();
-            owner.offer(this);
+            owner.owner.offer(this, owner);
         }
     } // END PoolBuffer    
 }
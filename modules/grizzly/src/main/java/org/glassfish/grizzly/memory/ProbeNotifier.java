@@ -101,4 +101,42 @@ final class ProbeNotifier {
         }
     }
 
+    /**
+     * Notify registered {@link MemoryProbe}s about the "allocated from home
+     * pool slice" event.
+     *
+     * @param size buffer size
+     * @param sliceIndex pool slice index
+     */
+    static void notifyBufferAllocatedFromPoolSliceHit(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int size, final int sliceIndex) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onBufferAllocateFromPoolSliceHitEvent(size, sliceIndex);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "stolen from another
+     * pool slice" event.
+     *
+     * @param size buffer size
+     * @param sliceIndex pool slice index
+     */
+    static void notifyBufferAllocatedFromPoolSliceSteal(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int size, final int sliceIndex) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onBufferAllocateFromPoolSliceStealEvent(size, sliceIndex);
+            }
+        }
+    }
+
 }
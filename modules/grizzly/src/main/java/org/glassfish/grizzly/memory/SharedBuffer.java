@@ -0,0 +1,341 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * Reference counted holder of a {@link Buffer}, which makes it possible to
+ * write the same content to several {@link org.glassfish.grizzly.Connection}s
+ * without copying it.
+ * <p/>
+ * A new <tt>SharedBuffer</tt> holds one reference, which belongs to the caller.
+ * Each {@link #retainedDuplicate()} call returns a new {@link Buffer} view with
+ * its own position and limit, which holds one more reference. The view's
+ * reference is released, when the view is disposed, for example by the
+ * asynchronous write queue once the view is written (or failed to be written).
+ * The underlying {@link Buffer} is disposed, i.e. returned to its pool, when
+ * the last reference is released.
+ * <pre>
+ *     final SharedBuffer shared = SharedBuffer.wrap(buffer);
+ *     try {
+ *         for (Connection connection : connections) {
+ *             connection.write(shared.retainedDuplicate());
+ *         }
+ *     } finally {
+ *         shared.release();
+ *     }
+ * </pre>
+ * The views must not be modified, as the content is shared.
+ *
+ * @since 2.4.0
+ */
+public final class SharedBuffer {
+
+    private final Buffer buffer;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    private SharedBuffer(final Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new <tt>SharedBuffer</tt>, holding one reference.
+     * The passed {@link Buffer} must not be used directly after this call.
+     *
+     * @param buffer the {@link HeapBuffer} or {@link ByteBufferWrapper} based
+     *               {@link Buffer} to share
+     * @return the new <tt>SharedBuffer</tt>
+     *
+     * @throws IllegalArgumentException if the buffer is composite
+     */
+    public static SharedBuffer wrap(final Buffer buffer) {
+        if (!(buffer instanceof HeapBuffer)
+                && !(buffer instanceof ByteBufferWrapper)) {
+            throw new IllegalArgumentException(
+                    "Only simple (non composite) Buffers could be shared");
+        }
+
+        return new SharedBuffer(buffer);
+    }
+
+    /**
+     * @return the number of references currently held
+     */
+    public int refCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Acquires one more reference, which has to be released by {@link #release()}.
+     *
+     * @return this <tt>SharedBuffer</tt>
+     *
+     * @throws IllegalStateException if all the references have already been released
+     */
+    public SharedBuffer retain() {
+        for (;;) {
+            final int count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException(
+                        "SharedBuffer has already been released");
+            }
+
+            if (refCount.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Releases one reference. The underlying {@link Buffer} is disposed
+     * together with the last reference.
+     *
+     * @return <tt>true</tt> if the last reference has been released, or
+     *          <tt>false</tt> otherwise
+     */
+    public boolean release() {
+        final int count = refCount.decrementAndGet();
+        if (count == 0) {
+            buffer.tryDispose();
+            return true;
+        }
+
+        if (count < 0) {
+            refCount.incrementAndGet();
+            throw new IllegalStateException(
+                    "SharedBuffer has already been released");
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates a new {@link Buffer} view, which shares the content of the
+     * underlying {@link Buffer}, has the same position and limit, and holds
+     * one reference, which is released once the view is disposed.
+     * Buffers derived from the view (slices, splits, duplicates) hold their
+     * own references.
+     *
+     * @return the new {@link Buffer} view
+     *
+     * @throws IllegalStateException if all the references have already been released
+     */
+    public Buffer retainedDuplicate() {
+        retain();
+
+        final Buffer view;
+        if (buffer instanceof HeapBuffer) {
+            final HeapBuffer heapBuffer = (HeapBuffer) buffer;
+            view = heapBuffer.isReadOnly() ?
+                    new SharedReadOnlyHeapBuffer(this, heapBuffer.heap,
+                            heapBuffer.offset, heapBuffer.cap) :
+                    new SharedHeapBuffer(this, heapBuffer.heap,
+                            heapBuffer.offset, heapBuffer.cap);
+        } else {
+            view = new SharedByteBufferWrapper(this,
+                    ((ByteBufferWrapper) buffer).visible.duplicate());
+        }
+
+        Buffers.setPositionLimit(view, buffer.position(), buffer.limit());
+        view.order(buffer.order());
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return "SharedBuffer (" + System.identityHashCode(this) +
+                ") [refCount=" + refCount.get() + " buffer=" + buffer + ']';
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link Buffer} view, which holds a reference to a {@link SharedBuffer}.
+     * Releasing (disposing) the view releases the reference.
+     */
+    public interface View extends Buffer {
+
+        /**
+         * @return the {@link SharedBuffer} this view belongs to
+         */
+        SharedBuffer getSharedBuffer();
+    }
+
+    private static final class SharedHeapBuffer extends HeapBuffer
+            implements View {
+
+        private final SharedBuffer owner;
+
+        private SharedHeapBuffer(final SharedBuffer owner, final byte[] heap,
+                final int offset, final int cap) {
+            super(heap, offset, cap);
+            this.owner = owner;
+            allowBufferDispose = true;
+        }
+
+        @Override
+        public SharedBuffer getSharedBuffer() {
+            return owner;
+        }
+
+        @Override
+        public HeapBuffer asReadOnlyBuffer() {
+            checkDispose();
+
+            final HeapBuffer b = new SharedReadOnlyHeapBuffer(owner.retain(),
+                    heap, offset, cap);
+            b.pos = pos;
+            b.lim = lim;
+            return b;
+        }
+
+        @Override
+        public void dispose() {
+            // the content is shared, so unlike HeapBuffer we don't clear it
+            // in debug mode; repeated dispose is ignored
+            if (heap == null) {
+                return;
+            }
+
+            byteBuffer = null;
+            heap = null;
+            pos = 0;
+            offset = 0;
+            lim = 0;
+            cap = 0;
+            order = ByteOrder.BIG_ENDIAN;
+            bigEndian = true;
+
+            owner.release();
+        }
+
+        @Override
+        protected HeapBuffer createHeapBuffer(final int offs, final int capacity) {
+            return new SharedHeapBuffer(owner.retain(), heap, offs + offset,
+                    capacity);
+        }
+    } // END SharedHeapBuffer
+
+    private static final class SharedReadOnlyHeapBuffer extends ReadOnlyHeapBuffer
+            implements View {
+
+        private final SharedBuffer owner;
+
+        private SharedReadOnlyHeapBuffer(final SharedBuffer owner,
+                final byte[] heap, final int offset, final int cap) {
+            super(heap, offset, cap);
+            this.owner = owner;
+            allowBufferDispose = true;
+        }
+
+        @Override
+        public SharedBuffer getSharedBuffer() {
+            return owner;
+        }
+
+        @Override
+        public void dispose() {
+            // the content is shared, so unlike HeapBuffer we don't clear it
+            // in debug mode; repeated dispose is ignored
+            if (heap == null) {
+                return;
+            }
+
+            byteBuffer = null;
+            heap = null;
+            pos = 0;
+            offset = 0;
+            lim = 0;
+            cap = 0;
+            order = ByteOrder.BIG_ENDIAN;
+            bigEndian = true;
+
+            owner.release();
+        }
+
+        @Override
+        protected HeapBuffer createHeapBuffer(final int offs, final int capacity) {
+            return new SharedReadOnlyHeapBuffer(owner.retain(), heap,
+                    offs + offset, capacity);
+        }
+    } // END SharedReadOnlyHeapBuffer
+
+    private static final class SharedByteBufferWrapper extends ByteBufferWrapper
+            implements View {
+
+        private final SharedBuffer owner;
+
+        private SharedByteBufferWrapper(final SharedBuffer owner,
+                final ByteBuffer byteBuffer) {
+            super(byteBuffer);
+            this.owner = owner;
+            allowBufferDispose = true;
+        }
+
+        @Override
+        public SharedBuffer getSharedBuffer() {
+            return owner;
+        }
+
+        @Override
+        public void dispose() {
+            // the content is shared, so unlike ByteBufferWrapper we don't
+            // clear it in debug mode; repeated dispose is ignored
+            if (visible == null) {
+                return;
+            }
+
+            visible = null;
+            owner.release();
+        }
+
+        @Override
+        protected ByteBufferWrapper wrapByteBuffer(final ByteBuffer byteBuffer) {
+            return new SharedByteBufferWrapper(owner.retain(), byteBuffer);
+        }
+    } // END SharedByteBufferWrapper
+}
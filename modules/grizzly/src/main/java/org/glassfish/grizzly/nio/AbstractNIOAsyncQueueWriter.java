@@ -243,10 +243,17 @@ public abstract class AbstractNIOAsyncQueueWriter
 
                 queueRecord.setMessage(
                         cloneRecordIfNeeded(nioConnection, cloner, message));
+                FlightRecorder.recordEvent(nioConnection,
+                        FlightRecorder.EventType.WRITE_QUEUED,
+                        IOEvent.WRITE, pendingBytes);
 
                 if (isCurrent) { //current but can't write because of maxReentrants limit
                     writeTaskQueue.setCurrentElement(queueRecord);
-                    nioConnection.simulateIOEvent(IOEvent.WRITE);
+                    if (!nioConnection.isCorked()) {
+                        nioConnection.simulateIOEvent(IOEvent.WRITE);
+                    } else {
+                        checkUncorked(nioConnection);
+                    }
                 } else {
                     writeTaskQueue.offer(queueRecord);
                 }
@@ -254,7 +261,9 @@ public abstract class AbstractNIOAsyncQueueWriter
                 return;
             }
 
-            if (isCurrent && isAllowDirectWrite) {
+            final boolean isCorked = nioConnection.isCorked();
+            
+            if (isCurrent && isAllowDirectWrite && !isCorked) {
 
                 // If we can write directly - do it w/o creating queue record (simple)
                 final RecordWriteResult writeResult = write0(nioConnection, queueRecord);
@@ -286,6 +295,9 @@ public abstract class AbstractNIOAsyncQueueWriter
 
             queueRecord.setMessage(
                     cloneRecordIfNeeded(nioConnection, cloner, message));
+            FlightRecorder.recordEvent(nioConnection,
+                    FlightRecorder.EventType.WRITE_QUEUED,
+                    IOEvent.WRITE, pendingBytes);
 
             if (isLogFine) {
                 doFineLog("AsyncQueueWriter.write queuing connection={0}, record={1}, "
@@ -296,7 +308,11 @@ public abstract class AbstractNIOAsyncQueueWriter
 
             if (isCurrent) { //current but not finished.
                 writeTaskQueue.setCurrentElement(queueRecord);
-                onReadyToWrite(nioConnection);
+                if (!isCorked) {
+                    onReadyToWrite(nioConnection);
+                } else {
+                    checkUncorked(nioConnection);
+                }
             } else {
                 writeTaskQueue.offer(queueRecord);
             }
@@ -325,6 +341,11 @@ public abstract class AbstractNIOAsyncQueueWriter
             return AsyncResult.COMPLETE;
         }
         
+        if (nioConnection.isCorked()) {
+            // will be flushed on uncork
+            return AsyncResult.COMPLETE;
+        }
+        
         final TaskQueue<AsyncWriteQueueRecord> writeTaskQueue =
                 nioConnection.getAsyncWriteQueue();
         
@@ -393,6 +414,9 @@ public abstract class AbstractNIOAsyncQueueWriter
                 }
                 
                 isComplete = (writeTaskQueue.releaseSpace(bytesReleased) == 0);
+                FlightRecorder.recordEvent(nioConnection,
+                        FlightRecorder.EventType.WRITE_FLUSHED,
+                        IOEvent.WRITE, bytesReleased);
             }
 
             if (isLogFine) {
@@ -450,6 +474,18 @@ public abstract class AbstractNIOAsyncQueueWriter
         }
     }
     
+    /**
+     * The record has been queued, because the connection was corked.
+     * If the connection got uncorked meanwhile, the uncork might have missed
+     * the record, so make sure it's flushed.
+     */
+    private static void checkUncorked(final NIOConnection nioConnection)
+            throws IOException {
+        if (!nioConnection.isCorked()) {
+            nioConnection.simulateIOEvent(IOEvent.WRITE);
+        }
+    }
+
     private static WritableMessage cloneRecordIfNeeded(
             final Connection connection,
             final MessageCloner<WritableMessage> cloner,
@@ -192,9 +192,13 @@ public class DefaultSelectorHandler implements SelectorHandler {
             registerChannel0(selectorRunner, channel, interest, attachment,
                     completionHandler);
         } else {
-            addPendingTask(selectorRunner,
+            final RegisterChannelOperation operation =
                     new RegisterChannelOperation(
-                    channel, interest, attachment, completionHandler));
+                    channel, interest, attachment, completionHandler);
+            operation.isQueued = true;
+            selectorRunner.onRegistrationQueued();
+            
+            addPendingTask(selectorRunner, operation);
         }
     }
 
@@ -287,10 +291,31 @@ public class DefaultSelectorHandler implements SelectorHandler {
     private boolean processPendingTasks(final SelectorRunner selectorRunner)
             throws IOException {
 
-        return processPendingTaskQueue(selectorRunner, selectorRunner.obtainPostponedTasks())
-                &&
-                (!selectorRunner.hasPendingTasks ||
-                processPendingTaskQueue(selectorRunner, selectorRunner.getPendingTasks()));
+        if (!processPendingTaskQueue(selectorRunner,
+                selectorRunner.obtainPostponedTasks())) {
+            return false;
+        }
+        
+        if (!selectorRunner.hasPendingTasks) {
+            return true;
+        }
+        
+        final Queue<SelectorHandlerTask> pendingTasks =
+                selectorRunner.getPendingTasks();
+        int count = 0;
+        try {
+            SelectorHandlerTask selectorHandlerTask;
+            while ((selectorHandlerTask = pendingTasks.poll()) != null) {
+                count++;
+                if (!selectorHandlerTask.run(selectorRunner)) {
+                    return false;
+                }
+            }
+        } finally {
+            selectorRunner.onPendingTasksProcessed(count);
+        }
+        
+        return true;
     }
 
     private boolean processPendingTaskQueue(final SelectorRunner selectorRunner,
@@ -324,6 +349,10 @@ public class DefaultSelectorHandler implements SelectorHandler {
                     final SelectionKey registeredSelectionKey =
                             channel.register(selector, interest, attachment);
 
+                    if (key == null) {
+                        selectorRunner.onKeyRegistered();
+                    }
+                    
                     selectorRunner.getTransport().
                             getSelectionKeyHandler().
                             onKeyRegistered(registeredSelectionKey);
@@ -379,7 +408,11 @@ public class DefaultSelectorHandler implements SelectorHandler {
                 // Check whether the channel has been registered on a selector
                 if (key != null) {
                     // If channel is registered
+                    final boolean isKeyValid = key.isValid();
                     selectorRunner.getTransport().getSelectionKeyHandler().cancel(key);
+                    if (isKeyValid) {
+                        selectorRunner.onKeyCancelled();
+                    }
 
                     selectorRunner.getTransport().
                             getSelectionKeyHandler().
@@ -452,6 +485,9 @@ public class DefaultSelectorHandler implements SelectorHandler {
         private final int interest;
         private final Object attachment;
         private final CompletionHandler<RegisterChannelResult> completionHandler;
+        // true, if the operation is accounted by the SelectorRunner's
+        // queued registrations counter
+        private boolean isQueued;
 
         private RegisterChannelOperation(final SelectableChannel channel,
                 final int interest, final Object attachment,
@@ -464,6 +500,11 @@ public class DefaultSelectorHandler implements SelectorHandler {
 
         @Override
         public boolean run(final SelectorRunner selectorRunner) throws IOException {
+            if (isQueued) {
+                isQueued = false;
+                selectorRunner.onQueuedRegistrationProcessed();
+            }
+            
             registerChannel0(selectorRunner, channel, interest,
                     attachment, completionHandler);
             return true;
@@ -0,0 +1,374 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+
+/**
+ * Bounded ring buffer of the {@link Connection} processing events, which
+ * helps to find out where a stalled connection is waiting: in the
+ * {@link java.nio.channels.Selector}, in the worker thread pool queue, in a
+ * suspended {@link org.glassfish.grizzly.filterchain.FilterChain} or in the
+ * asynchronous write queue.
+ * 
+ * Each {@link SelectorRunner} has its own recorder (if enabled by
+ * {@link NIOTransport#setFlightRecorderCapacity(int)}), which keeps the
+ * latest events of the connections registered with the runner, no matter
+ * which thread the events happen in. Recording an event doesn't allocate
+ * and doesn't block, the oldest events are overwritten.
+ * 
+ * @since 2.4.0
+ */
+public final class FlightRecorder {
+    
+    /**
+     * The recorded event types.
+     */
+    public enum EventType {
+        /**
+         * The {@link java.nio.channels.Selector} has reported the channel
+         * ready for the {@link IOEvent}.
+         */
+        IO_EVENT_READY,
+        /**
+         * The {@link org.glassfish.grizzly.Processor} has started to process
+         * the {@link IOEvent}.
+         */
+        IO_EVENT_PROCESS,
+        /**
+         * The {@link IOEvent} processing has completed.
+         */
+        IO_EVENT_COMPLETE,
+        /**
+         * The {@link IOEvent} processing has left the current thread.
+         */
+        IO_EVENT_LEAVE,
+        /**
+         * The {@link IOEvent} interest has been re-registered.
+         */
+        IO_EVENT_REREGISTER,
+        /**
+         * The {@link IOEvent} processing is going to be rerun.
+         */
+        IO_EVENT_RERUN,
+        /**
+         * The {@link IOEvent} processing has failed.
+         */
+        IO_EVENT_ERROR,
+        /**
+         * The {@link IOEvent} hasn't been processed.
+         */
+        IO_EVENT_NOT_RUN,
+        /**
+         * The {@link IOEvent} processing has been terminated.
+         */
+        IO_EVENT_TERMINATE,
+        /**
+         * The processing {@link org.glassfish.grizzly.Context} has been
+         * suspended.
+         */
+        CONTEXT_SUSPEND,
+        /**
+         * The processing {@link org.glassfish.grizzly.Context} has been
+         * resumed.
+         */
+        CONTEXT_RESUME,
+        /**
+         * A message has been added to the asynchronous write queue, the
+         * value is the number of bytes in the queue.
+         */
+        WRITE_QUEUED,
+        /**
+         * The asynchronous write queue has been flushed, the value is the
+         * number of bytes written.
+         */
+        WRITE_FLUSHED
+    }
+    
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final IOEvent[] IO_EVENTS = IOEvent.values();
+    private static final int NO_IO_EVENT = 0xFF;
+    
+    private final int mask;
+    
+    // The slot fields are atomic, so a reader can't see the fields of
+    // an event, which is being recorded, before the slot sequence number
+    // is read the second time (see getEvents()). The fields are set using
+    // lazySet(), which is cheaper than a volatile write.
+    private final AtomicLongArray timestamps;
+    private final AtomicLongArray values;
+    private final AtomicLongArray connectionIds;
+    /**
+     * The event type ordinal in the upper bits, the {@link IOEvent} ordinal
+     * in the lowest byte.
+     */
+    private final AtomicIntegerArray types;
+    /**
+     * The sequence number + 1 of the event stored in the slot, it's reset
+     * before the slot is overwritten and set once the slot is written, so a
+     * dump skips the slots being overwritten.
+     */
+    private final AtomicLongArray sequences;
+    
+    private final AtomicLong position = new AtomicLong();
+
+    /**
+     * @param capacity the number of latest events to keep, which is rounded
+     *  up to a power of two
+     */
+    public FlightRecorder(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity has to be positive");
+        }
+        
+        final int size = capacity > 1
+                ? Integer.highestOneBit(capacity - 1) << 1
+                : 1;
+        mask = size - 1;
+        
+        timestamps = new AtomicLongArray(size);
+        values = new AtomicLongArray(size);
+        connectionIds = new AtomicLongArray(size);
+        types = new AtomicIntegerArray(size);
+        sequences = new AtomicLongArray(size);
+    }
+
+    /**
+     * Records the event in the flight recorder of the {@link SelectorRunner}
+     * the {@link Connection} is registered with, if the recorder is enabled.
+     * 
+     * @param connection the {@link Connection} the event belongs to
+     * @param type the event type
+     * @param ioEvent the {@link IOEvent} the event belongs to, or <tt>null</tt>
+     * @param value the event specific value
+     */
+    public static void recordEvent(final Connection connection,
+            final EventType type, final IOEvent ioEvent, final long value) {
+        if (connection instanceof NIOConnection) {
+            final SelectorRunner runner =
+                    ((NIOConnection) connection).getSelectorRunner();
+            if (runner != null) {
+                final FlightRecorder recorder = runner.getFlightRecorder();
+                if (recorder != null) {
+                    recorder.record(connection, type, ioEvent, value);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Records the event.
+     * 
+     * @param connection the {@link Connection} the event belongs to
+     * @param type the event type
+     * @param ioEvent the {@link IOEvent} the event belongs to, or <tt>null</tt>
+     * @param value the event specific value
+     */
+    public void record(final Connection connection, final EventType type,
+            final IOEvent ioEvent, final long value) {
+        final long seq = position.getAndIncrement();
+        final int idx = (int) seq & mask;
+        
+        sequences.set(idx, 0); // the slot is being overwritten
+        timestamps.lazySet(idx, System.nanoTime());
+        values.lazySet(idx, value);
+        connectionIds.lazySet(idx, connection instanceof NIOConnection
+                ? ((NIOConnection) connection).getId()
+                : 0);
+        types.lazySet(idx, (type.ordinal() << 8)
+                | (ioEvent != null ? ioEvent.ordinal() : NO_IO_EVENT));
+        sequences.lazySet(idx, seq + 1);
+    }
+    
+    /**
+     * @return the max number of events the recorder keeps
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+    
+    /**
+     * @return the number of events recorded so far, including the overwritten
+     *  ones
+     */
+    public long getRecordedCount() {
+        return position.get();
+    }
+    
+    /**
+     * Returns the events kept by the recorder in the recording order. The events,
+     * which are being recorded concurrently with the call, may be skipped.
+     * 
+     * @return the events kept by the recorder
+     */
+    public List<Event> getEvents() {
+        final long end = position.get();
+        final long start = Math.max(0, end - (mask + 1));
+        
+        final List<Event> events = new ArrayList<Event>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            final int idx = (int) seq & mask;
+            if (sequences.get(idx) != seq + 1) {
+                continue;
+            }
+            
+            final long timestamp = timestamps.get(idx);
+            final long value = values.get(idx);
+            final long connectionId = connectionIds.get(idx);
+            final int type = types.get(idx);
+            
+            // the fields above are read before the sequence number is read
+            // again, so the event hasn't been overwritten, if it's the same
+            if (sequences.get(idx) == seq + 1) {
+                final int ioEventIdx = type & 0xFF;
+                events.add(new Event(timestamp, connectionId,
+                        EVENT_TYPES[type >>> 8],
+                        ioEventIdx != NO_IO_EVENT ? IO_EVENTS[ioEventIdx] : null,
+                        value));
+            }
+        }
+        
+        return events;
+    }
+    
+    /**
+     * Returns the events kept by the recorder as text, one event per line,
+     * in the recording order. Each line contains the event age in microseconds,
+     * the connection id (see {@link NIOConnection#getId()}), the event type, the
+     * {@link IOEvent} and the event value.
+     * 
+     * @return the events kept by the recorder as text
+     */
+    public String dump() {
+        final List<Event> events = getEvents();
+        final long now = System.nanoTime();
+        
+        final StringBuilder sb = new StringBuilder(events.size() * 64);
+        for (Event event : events) {
+            sb.append('-')
+                    .append(TimeUnit.NANOSECONDS.toMicros(now - event.getTimestamp()))
+                    .append("us connection=")
+                    .append(event.getConnectionId())
+                    .append(' ').append(event.getType());
+            if (event.getIoEvent() != null) {
+                sb.append(' ').append(event.getIoEvent());
+            }
+            if (event.getValue() != 0) {
+                sb.append(" value=").append(event.getValue());
+            }
+            sb.append('\n');
+        }
+        
+        return sb.toString();
+    }
+    
+    /**
+     * The recorded event.
+     */
+    public static final class Event {
+        private final long timestamp;
+        private final long connectionId;
+        private final EventType type;
+        private final IOEvent ioEvent;
+        private final long value;
+
+        private Event(final long timestamp, final long connectionId,
+                final EventType type, final IOEvent ioEvent, final long value) {
+            this.timestamp = timestamp;
+            this.connectionId = connectionId;
+            this.type = type;
+            this.ioEvent = ioEvent;
+            this.value = value;
+        }
+
+        /**
+         * @return the {@link System#nanoTime()} the event was recorded at
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return the {@link NIOConnection#getId()} of the {@link Connection}
+         *  the event belongs to, or <tt>0</tt> if the connection is unknown
+         */
+        public long getConnectionId() {
+            return connectionId;
+        }
+
+        /**
+         * @return the event type
+         */
+        public EventType getType() {
+            return type;
+        }
+
+        /**
+         * @return the {@link IOEvent} the event belongs to, or <tt>null</tt>
+         */
+        public IOEvent getIoEvent() {
+            return ioEvent;
+        }
+
+        /**
+         * @return the event specific value
+         */
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Event{" + "timestamp=" + timestamp
+                    + ", connectionId=" + connectionId
+                    + ", type=" + type + ", ioEvent=" + ioEvent
+                    + ", value=" + value + '}';
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+
+/**
+ * Load-aware {@link NIOChannelDistributor} implementation, which assigns
+ * a new channel to the least loaded {@link SelectorRunner}.
+ * 
+ * The load of a {@link SelectorRunner} is measured either as the number of
+ * channels it serves ({@link LoadMetric#REGISTERED_KEYS}), or as the share of
+ * time it spent processing events and tasks recently ({@link LoadMetric#BUSY_TIME}).
+ * 
+ * Optionally the distributor can rebalance the {@link SelectorRunner}s by
+ * migrating idle {@link NIOConnection}s from the runners, which serve
+ * noticeably more channels than the average, to the least loaded ones.
+ * A {@link NIOConnection} is considered idle, if its {@link SelectionKey}
+ * is interested in {@link SelectionKey#OP_READ} only, in other words none of
+ * its events is being processed at the moment, and its async write queue is empty.
+ * Only the {@link SocketChannel} based connections are migrated, the server
+ * and the UDP connections stay with their runners.
+ * 
+ * @since 2.4.0
+ */
+public final class LeastLoadedConnectionDistributor
+        extends AbstractNIOConnectionDistributor {
+    private static final Logger LOGGER =
+            Grizzly.logger(LeastLoadedConnectionDistributor.class);
+    
+    /**
+     * The {@link SelectorRunner} load metric.
+     */
+    public enum LoadMetric {
+        /**
+         * The number of the channels registered with the {@link SelectorRunner}.
+         * The least loaded runner is found by checking all the runners.
+         */
+        REGISTERED_KEYS,
+        /**
+         * The share of the time the {@link SelectorRunner} spent processing
+         * events and tasks, rather than waiting in select, during the last
+         * sampling period. As the samples change rarely comparing to the rate
+         * new channels may arrive, the runner is chosen as the less loaded
+         * from two random runners, so a burst of new channels isn't assigned
+         * to the single runner, which has been idle in the last period.
+         */
+        BUSY_TIME
+    }
+    
+    /**
+     * The default {@link LoadMetric#BUSY_TIME} sampling period (ms).
+     */
+    public static final long DEFAULT_BUSY_TIME_SAMPLING_PERIOD_MILLIS = 100;
+    
+    /**
+     * The default rebalancing threshold, the {@link SelectorRunner} is
+     * considered overloaded, if it serves 25% more channels than the average.
+     */
+    public static final float DEFAULT_REBALANCE_THRESHOLD = 0.25f;
+    
+    private final boolean useDedicatedAcceptor;
+    private final LoadMetric loadMetric;
+    
+    private final long busyTimeSamplingPeriodNanos;
+    private final AtomicBoolean isSampling = new AtomicBoolean();
+    private volatile BusyTimeSample busyTimeSample;
+    
+    private volatile long rebalanceIntervalNanos = -1;
+    private volatile float rebalanceThreshold = DEFAULT_REBALANCE_THRESHOLD;
+    private final AtomicLong lastRebalanceTime = new AtomicLong(System.nanoTime());
+    private final AtomicLong migratedConnectionsCount = new AtomicLong();
+
+    public LeastLoadedConnectionDistributor(final NIOTransport transport) {
+        this(transport, false, LoadMetric.REGISTERED_KEYS);
+    }
+
+    public LeastLoadedConnectionDistributor(final NIOTransport transport,
+            final boolean useDedicatedAcceptor) {
+        this(transport, useDedicatedAcceptor, LoadMetric.REGISTERED_KEYS);
+    }
+
+    /**
+     * Constructs LeastLoadedConnectionDistributor with the given configuration.
+     * 
+     * @param transport
+     * @param useDedicatedAcceptor depending on this flag server {@link Connection}s,
+     *          responsible for accepting client connections, will or will not
+     *          use dedicated {@link SelectorRunner}
+     * @param loadMetric the {@link LoadMetric} to compare {@link SelectorRunner}s by
+     */
+    public LeastLoadedConnectionDistributor(final NIOTransport transport,
+            final boolean useDedicatedAcceptor, final LoadMetric loadMetric) {
+        this(transport, useDedicatedAcceptor, loadMetric,
+                DEFAULT_BUSY_TIME_SAMPLING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Constructs LeastLoadedConnectionDistributor with the given configuration.
+     * 
+     * @param transport
+     * @param useDedicatedAcceptor depending on this flag server {@link Connection}s,
+     *          responsible for accepting client connections, will or will not
+     *          use dedicated {@link SelectorRunner}
+     * @param loadMetric the {@link LoadMetric} to compare {@link SelectorRunner}s by
+     * @param busyTimeSamplingPeriod the {@link LoadMetric#BUSY_TIME} sampling period
+     * @param timeUnit the sampling period {@link TimeUnit}
+     */
+    public LeastLoadedConnectionDistributor(final NIOTransport transport,
+            final boolean useDedicatedAcceptor, final LoadMetric loadMetric,
+            final long busyTimeSamplingPeriod, final TimeUnit timeUnit) {
+        super(transport);
+        
+        if (loadMetric == null) {
+            throw new IllegalArgumentException("loadMetric can't be null");
+        }
+        
+        if (busyTimeSamplingPeriod <= 0) {
+            throw new IllegalArgumentException("busyTimeSamplingPeriod has to be positive");
+        }
+        
+        this.useDedicatedAcceptor = useDedicatedAcceptor;
+        this.loadMetric = loadMetric;
+        this.busyTimeSamplingPeriodNanos = timeUnit.toNanos(busyTimeSamplingPeriod);
+    }
+
+    /**
+     * @return the {@link LoadMetric} {@link SelectorRunner}s are compared by
+     */
+    public LoadMetric getLoadMetric() {
+        return loadMetric;
+    }
+
+    /**
+     * Returns the rebalancing interval, or <tt>-1</tt> if the automatic
+     * rebalancing is disabled (default).
+     * 
+     * @param timeUnit {@link TimeUnit}
+     * @return the rebalancing interval
+     * 
+     * @see #setRebalanceInterval(long, java.util.concurrent.TimeUnit)
+     */
+    public long getRebalanceInterval(final TimeUnit timeUnit) {
+        final long intervalNanos = rebalanceIntervalNanos;
+        return intervalNanos < 0 ? -1 : timeUnit.convert(intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the rebalancing interval. If the interval is positive, the
+     * {@link #rebalance()} is initiated by a channel registration, if the
+     * interval has elapsed since the last rebalancing. Negative value disables
+     * the automatic rebalancing, {@link #rebalance()} still might be called
+     * explicitly.
+     * 
+     * @param interval the rebalancing interval
+     * @param timeUnit {@link TimeUnit}
+     */
+    public void setRebalanceInterval(final long interval, final TimeUnit timeUnit) {
+        rebalanceIntervalNanos = interval < 0 ? -1 : timeUnit.toNanos(interval);
+    }
+
+    /**
+     * @return the share of the average {@link SelectorRunner} load, by which
+     *          the runner's load has to exceed the average to be rebalanced
+     * 
+     * @see #setRebalanceThreshold(float)
+     */
+    public float getRebalanceThreshold() {
+        return rebalanceThreshold;
+    }
+
+    /**
+     * Sets the share of the average {@link SelectorRunner} load, by which
+     * the runner's load has to exceed the average to be rebalanced.
+     * 
+     * @param rebalanceThreshold the rebalancing threshold, which has to be
+     *          non-negative
+     */
+    public void setRebalanceThreshold(final float rebalanceThreshold) {
+        if (rebalanceThreshold < 0) {
+            throw new IllegalArgumentException("rebalanceThreshold can't be negative");
+        }
+        
+        this.rebalanceThreshold = rebalanceThreshold;
+    }
+
+    /**
+     * @return the number of the {@link NIOConnection}s migrated from one
+     *          {@link SelectorRunner} to another by rebalancing
+     */
+    public long getMigratedConnectionsCount() {
+        return migratedConnectionsCount.get();
+    }
+    
+    @Override
+    public void registerChannel(final SelectableChannel channel,
+            final int interestOps, final Object attachment) throws IOException {
+        checkRebalance();
+        transport.getSelectorHandler().registerChannel(next(),
+                channel, interestOps, attachment);
+    }
+
+    @Override
+    public void registerChannelAsync(
+            final SelectableChannel channel, final int interestOps,
+            final Object attachment,
+            final CompletionHandler<RegisterChannelResult> completionHandler) {
+        checkRebalance();
+        transport.getSelectorHandler().registerChannelAsync(
+                next(), channel, interestOps, attachment, completionHandler);
+    }
+
+    @Override
+    public void registerServiceChannelAsync(
+            final SelectableChannel channel, final int interestOps,
+            final Object attachment,
+            final CompletionHandler<RegisterChannelResult> completionHandler) {
+        
+        transport.getSelectorHandler().registerChannelAsync(
+                nextService(), channel, interestOps,
+                attachment, completionHandler);
+    }
+    
+    /**
+     * Migrates idle {@link NIOConnection}s from the overloaded
+     * {@link SelectorRunner}s to the least loaded ones. The load is measured
+     * as the number of the registered channels. The connections are picked
+     * and deregistered by the overloaded runner thread, so the method
+     * returns before the migration completes.
+     */
+    public void rebalance() {
+        lastRebalanceTime.set(System.nanoTime());
+        
+        final SelectorRunner[] runners = getTransportSelectorRunners();
+        final int from = firstRunnerIdx(runners);
+        final int count = runners.length - from;
+        if (count < 2) {
+            return;
+        }
+        
+        long total = 0;
+        for (int i = from; i < runners.length; i++) {
+            total += runners[i].getRegisteredKeysCount();
+        }
+        
+        final float average = (float) total / count;
+        final int overloadLimit = (int) Math.ceil(average * (1 + rebalanceThreshold));
+        
+        final SelectorHandler selectorHandler = transport.getSelectorHandler();
+        for (int i = from; i < runners.length; i++) {
+            final SelectorRunner runner = runners[i];
+            final int load = runner.getRegisteredKeysCount();
+            if (load > overloadLimit) {
+                selectorHandler.enque(runner,
+                        new MigrateTask(runner, load - (int) Math.ceil(average)),
+                        null);
+            }
+        }
+    }
+    
+    private void checkRebalance() {
+        final long intervalNanos = rebalanceIntervalNanos;
+        if (intervalNanos < 0) {
+            return;
+        }
+        
+        final long lastTime = lastRebalanceTime.get();
+        final long now = System.nanoTime();
+        if (now - lastTime >= intervalNanos &&
+                lastRebalanceTime.compareAndSet(lastTime, now)) {
+            rebalance();
+        }
+    }
+
+    private int firstRunnerIdx(final SelectorRunner[] runners) {
+        return useDedicatedAcceptor && runners.length > 1 ? 1 : 0;
+    }
+    
+    private SelectorRunner nextService() {
+        return useDedicatedAcceptor ?
+                getTransportSelectorRunners()[0] :
+                next();
+    }
+    
+    private SelectorRunner next() {
+        final SelectorRunner[] runners = getTransportSelectorRunners();
+        if (runners.length == 1) {
+            return runners[0];
+        }
+        
+        final int from = firstRunnerIdx(runners);
+        
+        return loadMetric == LoadMetric.REGISTERED_KEYS ?
+                leastRegisteredKeys(runners, from) :
+                leastBusyTime(runners, from);
+    }
+    
+    private SelectorRunner leastRegisteredKeys(final SelectorRunner[] runners,
+            final int from) {
+        SelectorRunner leastLoaded = runners[from];
+        int minLoad = leastLoaded.getRegisteredKeysCount();
+        
+        for (int i = from + 1; i < runners.length && minLoad > 0; i++) {
+            final int load = runners[i].getRegisteredKeysCount();
+            if (load < minLoad) {
+                minLoad = load;
+                leastLoaded = runners[i];
+            }
+        }
+        
+        return leastLoaded;
+    }
+    
+    private SelectorRunner leastBusyTime(final SelectorRunner[] runners,
+            final int from) {
+        final BusyTimeSample sample = sample(runners);
+        
+        final int count = runners.length - from;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int idx1 = from + random.nextInt(count);
+        int idx2 = from + random.nextInt(count - 1);
+        if (idx2 >= idx1) {
+            idx2++;
+        }
+        
+        final float load1 = sample.load[idx1];
+        final float load2 = sample.load[idx2];
+        if (load1 != load2) {
+            return load1 < load2 ? runners[idx1] : runners[idx2];
+        }
+        
+        return runners[idx1].getRegisteredKeysCount() <= runners[idx2].getRegisteredKeysCount() ?
+                runners[idx1] : runners[idx2];
+    }
+    
+    private BusyTimeSample sample(final SelectorRunner[] runners) {
+        final BusyTimeSample lastSample = busyTimeSample;
+        final long now = System.nanoTime();
+        
+        if (lastSample != null && lastSample.runners == runners &&
+                now - lastSample.time < busyTimeSamplingPeriodNanos) {
+            return lastSample;
+        }
+        
+        if (lastSample != null && lastSample.runners == runners &&
+                !isSampling.compareAndSet(false, true)) {
+            // another thread is sampling, use the last sample
+            return lastSample;
+        }
+        
+        try {
+            final BusyTimeSample newSample = new BusyTimeSample(runners, now);
+            final boolean isSameRunners =
+                    lastSample != null && lastSample.runners == runners;
+            final long elapsed = isSameRunners ? now - lastSample.time : 0;
+            
+            for (int i = 0; i < runners.length; i++) {
+                newSample.busyTime[i] = runners[i].getBusyTime();
+                if (elapsed > 0) {
+                    newSample.load[i] = Math.min(1f,
+                            (float) (newSample.busyTime[i] - lastSample.busyTime[i]) / elapsed);
+                }
+            }
+            
+            busyTimeSample = newSample;
+            return newSample;
+        } finally {
+            isSampling.set(false);
+        }
+    }
+    
+    private static final class BusyTimeSample {
+        private final SelectorRunner[] runners;
+        private final long time;
+        private final long[] busyTime;
+        private final float[] load;
+
+        private BusyTimeSample(final SelectorRunner[] runners, final long time) {
+            this.runners = runners;
+            this.time = time;
+            this.busyTime = new long[runners.length];
+            this.load = new float[runners.length];
+        }
+    }
+    
+    /**
+     * The task, which is executed by the overloaded {@link SelectorRunner}
+     * thread, picks the idle {@link NIOConnection}s and moves them to the
+     * least loaded runners.
+     */
+    private final class MigrateTask implements SelectorHandler.Task {
+        private final SelectorRunner runner;
+        private final int migrateCount;
+
+        private MigrateTask(final SelectorRunner runner, final int migrateCount) {
+            this.runner = runner;
+            this.migrateCount = migrateCount;
+        }
+        
+        @Override
+        public boolean run() throws Exception {
+            final SelectionKeyHandler selectionKeyHandler =
+                    transport.getSelectionKeyHandler();
+            
+            final List<NIOConnection> candidates =
+                    new ArrayList<NIOConnection>(migrateCount);
+            for (SelectionKey key : runner.getSelector().keys()) {
+                if (candidates.size() == migrateCount) {
+                    break;
+                }
+                
+                if (!key.isValid() || key.interestOps() != SelectionKey.OP_READ) {
+                    continue;
+                }
+                
+                final NIOConnection connection =
+                        selectionKeyHandler.getConnectionForKey(key);
+                if (connection != null && isIdle(connection, key)) {
+                    candidates.add(connection);
+                }
+            }
+            
+            for (NIOConnection connection : candidates) {
+                migrate(connection);
+            }
+            
+            return true;
+        }
+        
+        private boolean isIdle(final NIOConnection connection,
+                final SelectionKey key) {
+            // only the accepted or connected TCP connections are migrated,
+            // not the server or UDP ones
+            return key.channel() instanceof SocketChannel
+                    && connection.getSelectorRunner() == runner
+                    && connection.getSelectionKey() == key
+                    && connection.isOpen()
+                    && !connection.isCorked()
+                    && connection.getAsyncWriteQueue().isEmpty();
+        }
+        
+        private void migrate(final NIOConnection connection) throws IOException {
+            final SelectorRunner target = leastRegisteredKeys(
+                    getTransportSelectorRunners(),
+                    firstRunnerIdx(getTransportSelectorRunners()));
+            if (target == runner ||
+                    target.getRegisteredKeysCount() + 1 >= runner.getRegisteredKeysCount()) {
+                return;
+            }
+            
+            final SelectionKey oldKey = connection.getSelectionKey();
+            final SelectableChannel channel = oldKey.channel();
+            
+            // the key is cancelled by the runner thread, so no event
+            // processing of the connection is in progress. The connection
+            // might be closed before it's registered with the target runner,
+            // but its close doesn't account the cancelled key again
+            transport.getSelectionKeyHandler().cancel(oldKey);
+            runner.onKeyCancelled();
+            
+            transport.getSelectorHandler().registerChannelAsync(target, channel,
+                    SelectionKey.OP_READ, oldKey.attachment(),
+                    new EmptyCompletionHandler<RegisterChannelResult>() {
+
+                @Override
+                public void completed(final RegisterChannelResult result) {
+                    final SelectionKey newKey = result.getSelectionKey();
+                    connection.onSelectionKeyUpdated(newKey);
+                    connection.setSelectorRunner(target);
+                    migratedConnectionsCount.incrementAndGet();
+                    
+                    // the write interest might have been requested for
+                    // the old key, while the connection was migrating
+                    if (newKey.isValid() && !connection.isCorked() &&
+                            !connection.getAsyncWriteQueue().isEmpty()) {
+                        newKey.interestOps(newKey.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    LOGGER.log(Level.FINE, "Connection migration failed", throwable);
+                    connection.closeSilently();
+                }
+            });
+        }
+    }
+}
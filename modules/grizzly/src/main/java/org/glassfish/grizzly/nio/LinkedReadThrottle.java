@@ -0,0 +1,191 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.nio;
+
+import java.io.IOException;
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.ICloseType;
+import org.glassfish.grizzly.asyncqueue.QueueWatermark;
+
+/**
+ * Links the reads of the source {@link NIOConnection} to the asynchronous
+ * write queue of the target {@link NIOConnection}: when the target write
+ * queue size reaches the high watermark, the source reads are throttled
+ * (see {@link NIOConnection#throttleReads()}), and when the queue size
+ * drops to the low watermark, the reads are resumed.
+ * 
+ * This way the proxy-like {@link org.glassfish.grizzly.filterchain.FilterChain}s,
+ * which write the data read from one connection to another one, keep the
+ * memory consumption bounded without rejecting writes or
+ * {@link org.glassfish.grizzly.Connection#notifyCanWrite(org.glassfish.grizzly.WriteHandler)}
+ * based flow control:
+ * 
+ * <pre>
+ *     LinkedReadThrottle.link(clientConnection, backendConnection,
+ *             256 * 1024, 64 * 1024);
+ *     LinkedReadThrottle.link(backendConnection, clientConnection,
+ *             256 * 1024, 64 * 1024);
+ * </pre>
+ * 
+ * The link is released, when either connection is closed, or
+ * {@link #unlink()} is called. A source connection might be linked to
+ * several target connections, in which case the source reads are
+ * resumed, when none of the target queues is above its high watermark.
+ * 
+ * @since 2.4.0
+ */
+public final class LinkedReadThrottle extends QueueWatermark {
+    private final NIOConnection source;
+    private final NIOConnection target;
+    
+    private boolean isThrottling;
+    private boolean isUnlinked;
+
+    private final CloseListener<Closeable, ICloseType> closeListener =
+            new CloseListener<Closeable, ICloseType>() {
+        @Override
+        public void onClosed(final Closeable closeable, final ICloseType type)
+                throws IOException {
+            unlink();
+        }
+    };
+    
+    private LinkedReadThrottle(final NIOConnection source,
+            final NIOConnection target,
+            final int highWatermark, final int lowWatermark) {
+        super(highWatermark, lowWatermark);
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Links the source connection reads to the target connection
+     * asynchronous write queue.
+     * 
+     * @param source the connection, which reads have to be throttled
+     * @param target the connection, which write queue is monitored
+     * @param highWatermark the target write queue size (in bytes), when reached
+     *  the source reads are throttled
+     * @param lowWatermark the target write queue size (in bytes), when reached
+     *  the source reads are resumed
+     * @return the {@link LinkedReadThrottle}
+     */
+    public static LinkedReadThrottle link(final NIOConnection source,
+            final NIOConnection target,
+            final int highWatermark, final int lowWatermark) {
+        if (source == target) {
+            throw new IllegalArgumentException(
+                    "source and target have to be different connections");
+        }
+        
+        final LinkedReadThrottle throttle = new LinkedReadThrottle(
+                source, target, highWatermark, lowWatermark);
+        
+        source.addCloseListener(throttle.closeListener);
+        target.addCloseListener(throttle.closeListener);
+        target.getAsyncWriteQueue().addWatermark(throttle);
+        
+        return throttle;
+    }
+
+    /**
+     * @return the connection, which reads are throttled
+     */
+    public NIOConnection getSource() {
+        return source;
+    }
+
+    /**
+     * @return the connection, which write queue is monitored
+     */
+    public NIOConnection getTarget() {
+        return target;
+    }
+
+    /**
+     * @return <tt>true</tt> if the source reads are currently throttled by
+     * this link
+     */
+    public synchronized boolean isThrottling() {
+        return isThrottling;
+    }
+    
+    /**
+     * Releases the link and resumes the source reads, if they were
+     * throttled by this link.
+     */
+    public void unlink() {
+        synchronized (this) {
+            if (isUnlinked) {
+                return;
+            }
+            
+            isUnlinked = true;
+            unthrottle();
+        }
+        
+        target.getAsyncWriteQueue().removeWatermark(this);
+        source.removeCloseListener(closeListener);
+        target.removeCloseListener(closeListener);
+    }
+    
+    @Override
+    protected synchronized void onHighWatermark() {
+        if (!isUnlinked && !isThrottling) {
+            isThrottling = true;
+            source.throttleReads();
+        }
+    }
+
+    @Override
+    protected synchronized void onLowWatermark() {
+        unthrottle();
+    }
+    
+    private void unthrottle() {
+        if (isThrottling) {
+            isThrottling = false;
+            source.unthrottleReads();
+        }
+    }
+}
@@ -52,6 +52,8 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -82,12 +84,15 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
     private static final boolean WIN32 = "\\".equals(System.getProperty("file.separator"));
     private static final Logger LOGGER = Grizzly.logger(NIOConnection.class);
     private static final short MAX_ZERO_READ_COUNT = 100;
+    private static final AtomicLong ID_COUNTER = new AtomicLong();
     
     /**
      * Is initial OP_READ enabling required for the connection
      */
     private boolean isInitialReadRequired = true;
     
+    private final long id = ID_COUNTER.incrementAndGet();
+    
     protected final NIOTransport transport;
     protected volatile int maxAsyncWriteQueueSize;
     protected volatile long readTimeoutMillis = 30000;
@@ -120,6 +125,14 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
     
     protected volatile boolean isBlocking;
     protected volatile boolean isStandalone;        
+    private volatile boolean isCorked;
+    
+    // the number of active read throttles, OP_READ is not registered if > 0
+    private static final AtomicIntegerFieldUpdater<NIOConnection> readThrottlesUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(NIOConnection.class, "readThrottles");
+    private volatile int readThrottles;
+    // false, if OP_READ was disabled using disableIOEvent(IOEvent.READ)
+    private volatile boolean isReadRequested = true;
     protected short zeroByteReadCount;
     private final Queue<org.glassfish.grizzly.CloseListener> closeListeners =
             new ConcurrentLinkedQueue<org.glassfish.grizzly.CloseListener>();
@@ -150,6 +163,15 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
         attributes = transport.getAttributeBuilder().createSafeAttributeHolder();
     }
 
+    /**
+     * @return the id of the connection, which is unique within the JVM
+     * 
+     * @since 2.4.0
+     */
+    public long getId() {
+        return id;
+    }
+
     @Override
     public void configureBlocking(boolean isBlocking) {
         this.isBlocking = isBlocking;
@@ -366,6 +388,45 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
         return asyncWriteQueue;
     }
 
+    /**
+     * Corks the connection: the messages passed to the asynchronous write
+     * queue are queued, but not written until {@link #uncork()} is called.
+     * This lets a protocol layer, which is about to produce several small
+     * messages, have them flushed together with one (gathering) write.
+     *
+     * @since 2.4.0
+     */
+    public void cork() {
+        isCorked = true;
+    }
+
+    /**
+     * Uncorks the connection and flushes the messages, which have been
+     * queued while the connection was corked.
+     *
+     * @throws IOException if the flush couldn't be scheduled
+     *
+     * @since 2.4.0
+     */
+    public void uncork() throws IOException {
+        isCorked = false;
+        if (!asyncWriteQueue.isEmpty()) {
+            simulateIOEvent(IOEvent.WRITE);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the connection is corked, i.e. the
+     *          asynchronous write queue holds the messages back, or
+     *          <tt>false</tt> otherwise
+     *
+     * @see #cork()
+     * @since 2.4.0
+     */
+    public boolean isCorked() {
+        return isCorked;
+    }
+
     @Override
     public AttributeHolder getAttributes() {
         return attributes;
@@ -609,12 +670,21 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
 
                 @Override
                 public boolean run() {
+                    // the key might have been cancelled already, if the
+                    // connection is being migrated to another SelectorRunner
+                    final SelectionKey key = selectionKey;
+                    final boolean isKeyValid = key != null && key.isValid();
+                    
                     try {
                         doClose();
                     } catch (IOException e) {
                         LOGGER.log(Level.FINE, "Error during connection close", e);
                     }
 
+                    if (isKeyValid && selectorRunner != null) {
+                        selectorRunner.onKeyCancelled(key);
+                    }
+                    
                     return true;
                 }
             }, new CompletionHandlerAdapter<Closeable, SelectorHandler.Task>(
@@ -929,9 +999,22 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
         // if OP_READ was enabled at least once - isInitialReadRequired should be false
         isInitialReadRequired = isInitialReadRequired && !isOpRead;
         
+        if (isOpRead) {
+            isReadRequested = true;
+            if (readThrottles > 0) {
+                // OP_READ will be registered once reads are unthrottled
+                return;
+            }
+        }
+        
         final SelectorHandler selectorHandler = transport.getSelectorHandler();
         selectorHandler.registerKeyInterest(selectorRunner, selectionKey,
             interest);
+        
+        if (isOpRead && readThrottles > 0) {
+            // reads have been throttled concurrently
+            selectorHandler.enque(selectorRunner, readInterestUpdater, null);
+        }
     }
 
     private final SelectorHandler.Task writeSimulatorRunnable =
@@ -965,7 +1048,90 @@ public abstract class NIOConnection implements Connection<SocketAddress> {
 
         final SelectorHandler selectorHandler = transport.getSelectorHandler();
         selectorHandler.deregisterKeyInterest(selectorRunner, selectionKey, interest);
+        
+        if (ioEvent == IOEvent.READ) {
+            isReadRequested = false;
+        }
+    }
+
+    /**
+     * Throttles the reads on this connection: OP_READ interest is removed and
+     * won't be registered, including by {@link #enableIOEvent(org.glassfish.grizzly.IOEvent)},
+     * until every throttle is released via {@link #unthrottleReads()}.
+     * Unlike {@link #disableIOEvent(org.glassfish.grizzly.IOEvent)}, which
+     * is used by {@link org.glassfish.grizzly.IOStrategy}s to control
+     * the READ event processing, the throttles are not overridden by the
+     * {@link org.glassfish.grizzly.IOStrategy}, so they can be used to apply
+     * backpressure (see {@link LinkedReadThrottle}).
+     * 
+     * @since 2.4.0
+     */
+    public void throttleReads() {
+        if (readThrottlesUpdater.incrementAndGet(this) == 1) {
+            transport.getSelectorHandler().enque(
+                    selectorRunner, readInterestUpdater, null);
+        }
+    }
+
+    /**
+     * Releases the read throttle, obtained by {@link #throttleReads()}.
+     * OP_READ interest is registered back, when the last throttle is released,
+     * unless READ event was disabled using
+     * {@link #disableIOEvent(org.glassfish.grizzly.IOEvent)}.
+     * 
+     * @throws IllegalStateException if the reads are not throttled
+     * @since 2.4.0
+     */
+    public void unthrottleReads() {
+        final int throttles = readThrottlesUpdater.decrementAndGet(this);
+        if (throttles == 0) {
+            transport.getSelectorHandler().enque(
+                    selectorRunner, readInterestUpdater, null);
+        } else if (throttles < 0) {
+            readThrottlesUpdater.incrementAndGet(this);
+            throw new IllegalStateException("Reads are not throttled");
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the reads are throttled using
+     * {@link #throttleReads()}, or <tt>false</tt> otherwise
+     * @since 2.4.0
+     */
+    public boolean isReadThrottled() {
+        return readThrottles > 0;
     }
+    
+    /**
+     * The task, which runs in the selector thread and updates OP_READ
+     * interest according to the current read throttles state.
+     * Running in the selector thread, the task is ordered with the other
+     * registrations, so the last update always reflects the latest state.
+     */
+    private final SelectorHandler.Task readInterestUpdater =
+            new SelectorHandler.Task() {
+
+                @Override
+                public boolean run() throws IOException {
+                    final SelectionKey key = selectionKey;
+                    if (key == null || !key.isValid()) {
+                        return true;
+                    }
+                    
+                    final int currentOps = key.interestOps();
+                    if (readThrottles == 0 && isReadRequested
+                            && closeReason == null && !isCloseScheduled.get()) {
+                        if ((currentOps & SelectionKey.OP_READ) == 0) {
+                            key.interestOps(currentOps | SelectionKey.OP_READ);
+                        }
+                    } else if (readThrottles > 0
+                            && (currentOps & SelectionKey.OP_READ) != 0) {
+                        key.interestOps(currentOps & ~SelectionKey.OP_READ);
+                    }
+                    
+                    return true;
+                }
+            };
 
     protected final void checkEmptyRead(final int size) {
         if (WIN32) {
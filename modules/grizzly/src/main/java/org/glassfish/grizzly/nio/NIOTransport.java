@@ -91,6 +91,7 @@ public abstract class NIOTransport extends AbstractTransport
             SocketConnectorHandler.DEFAULT_CONNECTION_TIMEOUT;
     public static final int DEFAULT_SELECTOR_RUNNER_COUNT = -1;
     public static final boolean DEFAULT_OPTIMIZED_FOR_MULTIPLEXING = false;
+    public static final int DEFAULT_FLIGHT_RECORDER_CAPACITY = 0;
 
     private static final Logger LOGGER = Grizzly.logger(NIOTransport.class);
 
@@ -119,6 +120,11 @@ public abstract class NIOTransport extends AbstractTransport
 
     private boolean optimizedForMultiplexing = DEFAULT_OPTIMIZED_FOR_MULTIPLEXING;
 
+    /**
+     * The number of events kept by each {@link SelectorRunner}'s {@link FlightRecorder}.
+     */
+    private int flightRecorderCapacity = DEFAULT_FLIGHT_RECORDER_CAPACITY;
+
     protected SelectorRunner[] selectorRunners;
     
     protected NIOChannelDistributor nioChannelDistributor;
@@ -280,6 +286,78 @@ public abstract class NIOTransport extends AbstractTransport
         getAsyncQueueIO().getWriter().setAllowDirectWrite(!optimizedForMultiplexing);
     }
 
+    /**
+     * @return the number of the latest events kept by each
+     *          {@link SelectorRunner}'s {@link FlightRecorder}, or <tt>0</tt>
+     *          if the recorders are disabled
+     *
+     * @see #setFlightRecorderCapacity(int)
+     * @since 2.4.0
+     */
+    public int getFlightRecorderCapacity() {
+        return flightRecorderCapacity;
+    }
+
+    /**
+     * Sets the number of the latest events kept by each {@link SelectorRunner}'s
+     * {@link FlightRecorder}. If the value is positive, each runner records
+     * the processing events of its connections: the IOEvents readiness and
+     * processing, the processing context suspend/resume and the asynchronous
+     * write queue activity, so the recorders can be dumped, using
+     * {@link #dumpFlightRecorders()} or the <tt>dump-flight-recorders</tt>
+     * JMX operation, to see where a stalled connection is waiting.
+     * The recording doesn't allocate and doesn't lock, so the recorders may
+     * be left enabled in production.
+     * If the value is not positive (default) - the recorders are disabled.
+     * The value is applied to the {@link SelectorRunner}s, when the transport
+     * is started.
+     *
+     * @param flightRecorderCapacity the number of events each recorder keeps
+     *
+     * @since 2.4.0
+     */
+    public void setFlightRecorderCapacity(final int flightRecorderCapacity) {
+        this.flightRecorderCapacity = flightRecorderCapacity;
+        notifyProbesConfigChanged(this);
+    }
+
+    /**
+     * Dumps the events kept by the {@link SelectorRunner}s' {@link FlightRecorder}s.
+     *
+     * @return the recorded events as text, see {@link FlightRecorder#dump()},
+     *          or an empty string if the recorders are disabled or the
+     *          transport is stopped
+     *
+     * @see #setFlightRecorderCapacity(int)
+     * @since 2.4.0
+     */
+    public String dumpFlightRecorders() {
+        final SelectorRunner[] runners = selectorRunners;
+        if (runners == null) {
+            return "";
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < runners.length; i++) {
+            final SelectorRunner runner = runners[i];
+            final FlightRecorder recorder = runner != null
+                    ? runner.getFlightRecorder()
+                    : null;
+            if (recorder != null) {
+                final Thread thread = runner.getRunnerThread();
+                sb.append("SelectorRunner #").append(i);
+                if (thread != null) {
+                    sb.append(" (").append(thread.getName()).append(')');
+                }
+                sb.append(", ").append(recorder.getRecordedCount())
+                        .append(" events recorded:\n")
+                        .append(recorder.dump());
+            }
+        }
+
+        return sb.toString();
+    }
+
     protected synchronized void startSelectorRunners() throws IOException {
         selectorRunners = new SelectorRunner[selectorRunnersCount];
         
@@ -58,15 +58,15 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import org.glassfish.grizzly.localization.LogMessages;
 import org.glassfish.grizzly.threadpool.Threads;
+import org.glassfish.grizzly.utils.MpscQueue;
 import org.glassfish.grizzly.utils.StateHolder;
 
 /**
@@ -101,9 +101,40 @@ public final class SelectorRunner implements Runnable {
     private SelectionKey key = null;
     private int keyReadyOps;
 
-    private final AtomicBoolean selectorWakeupFlag = new AtomicBoolean();
+    // Selector wakeup states
+    /**
+     * The runner thread is processing keys or tasks, the pending tasks will
+     * be processed before the next select, so no wakeup is needed.
+     */
+    private static final int AWAKE = 0;
+    /**
+     * The runner thread is (about to be) blocked in select.
+     */
+    private static final int SELECTING = 1;
+    /**
+     * The selector has been woken up, no more wakeups are needed until
+     * the select returns.
+     */
+    private static final int WOKEN_UP = 2;
+    
+    private final AtomicInteger wakeupState = new AtomicInteger(AWAKE);
     private final AtomicInteger runnerThreadActivityCounter = new AtomicInteger();
 
+    // Statistics
+    private final LongAdder wakeupCount = new LongAdder();
+    private final LongAdder avoidedWakeupCount = new LongAdder();
+    private volatile long selectCount;
+    private volatile long processedTasksCount;
+    private volatile int maxTasksPerSelect;
+    
+    // Load statistics
+    private final AtomicInteger registeredKeysCount = new AtomicInteger();
+    private final AtomicInteger queuedRegistrationsCount = new AtomicInteger();
+    private volatile long busyTime;
+    private long lastSelectReturnTime;
+    
+    private final FlightRecorder flightRecorder;
+
     public static SelectorRunner create(final NIOTransport transport)
             throws IOException {
         return new SelectorRunner(transport,
@@ -118,24 +149,42 @@ public final class SelectorRunner implements Runnable {
         this.selector = selector;
         stateHolder = new AtomicReference<State>(State.STOPPED);
 
-        pendingTasks = new ConcurrentLinkedQueue<SelectorHandlerTask>();
+        pendingTasks = new MpscQueue<SelectorHandlerTask>();
         evenPostponedTasks = new ArrayDeque<SelectorHandlerTask>();
         oddPostponedTasks = new ArrayDeque<SelectorHandlerTask>();
         currentPostponedTasks = evenPostponedTasks;
+        
+        final int flightRecorderCapacity = transport.getFlightRecorderCapacity();
+        flightRecorder = flightRecorderCapacity > 0
+                ? new FlightRecorder(flightRecorderCapacity)
+                : null;
     }
 
     void addPendingTask(final SelectorHandlerTask task) {
         pendingTasks.offer(task);
         hasPendingTasks = true;
 
-        wakeupSelector();
+        // If the runner isn't selecting - the task will be processed before
+        // the next select, if it's selecting - only the first task posted
+        // during the select has to wake it up.
+        if (wakeupState.get() == SELECTING &&
+                wakeupState.compareAndSet(SELECTING, WOKEN_UP)) {
+            wakeupSelector0();
+        } else {
+            avoidedWakeupCount.increment();
+        }
     }
 
     private void wakeupSelector() {
+        wakeupState.set(WOKEN_UP);
+        wakeupSelector0();
+    }
+
+    private void wakeupSelector0() {
         final Selector localSelector = getSelector();
-        if (localSelector != null &&
-                selectorWakeupFlag.compareAndSet(false, true)) {
+        if (localSelector != null) {
             try {
+                wakeupCount.increment();
                 localSelector.wakeup();
             } catch (Exception e) {
                 LOGGER.log(Level.FINE, "Error during selector wakeup", e);
@@ -143,6 +192,171 @@ public final class SelectorRunner implements Runnable {
         }
     }
 
+    /**
+     * Switches the runner to the {@link #SELECTING} state, so the tasks
+     * posted from now on wake the selector up. The tasks, which have been
+     * posted after the last processing, but before the switch, would not
+     * do that, so we wake the selector up ourselves.
+     */
+    private void beforeSelect() {
+        wakeupState.set(SELECTING);
+        
+        if (hasPendingTasks &&
+                wakeupState.compareAndSet(SELECTING, WOKEN_UP)) {
+            wakeupSelector0();
+        }
+    }
+
+    /**
+     * Updates the statistics, the method is called by the runner thread.
+     * 
+     * @param tasksCount the number of the pending tasks processed before
+     *                   the select
+     */
+    void onPendingTasksProcessed(final int tasksCount) {
+        if (tasksCount > 0) {
+            processedTasksCount += tasksCount;
+            if (tasksCount > maxTasksPerSelect) {
+                maxTasksPerSelect = tasksCount;
+            }
+        }
+    }
+
+    /**
+     * @return the number of the selector wakeups, initiated by posting tasks
+     *          to the runner or by stopping it
+     * 
+     * @since 2.4.0
+     */
+    public long getWakeupCount() {
+        return wakeupCount.sum();
+    }
+
+    /**
+     * @return the number of the tasks, which were posted to the runner without
+     *          waking the selector up, because either the runner wasn't
+     *          selecting or it had already been woken up
+     * 
+     * @since 2.4.0
+     */
+    public long getAvoidedWakeupCount() {
+        return avoidedWakeupCount.sum();
+    }
+
+    /**
+     * @return the number of the select iterations the runner performed
+     * 
+     * @since 2.4.0
+     */
+    public long getSelectCount() {
+        return selectCount;
+    }
+
+    /**
+     * @return the number of the posted tasks the runner processed
+     * 
+     * @since 2.4.0
+     */
+    public long getProcessedTasksCount() {
+        return processedTasksCount;
+    }
+
+    /**
+     * @return the max number of the posted tasks processed by the runner
+     *          within one select iteration
+     * 
+     * @since 2.4.0
+     */
+    public int getMaxTasksPerSelect() {
+        return maxTasksPerSelect;
+    }
+
+    /**
+     * Returns the approximate number of the channels served by the runner:
+     * the {@link SelectionKey}s registered with its {@link Selector}, plus
+     * the channel registrations posted to the runner, but not processed yet.
+     * 
+     * @return the approximate number of the channels served by the runner
+     * 
+     * @since 2.4.0
+     */
+    public int getRegisteredKeysCount() {
+        return registeredKeysCount.get() + queuedRegistrationsCount.get();
+    }
+
+    /**
+     * @return the total time (in nanoseconds) the runner spent processing
+     *          the selected keys and the posted tasks, in other words
+     *          the time it wasn't blocked in select
+     * 
+     * @since 2.4.0
+     */
+    public long getBusyTime() {
+        return busyTime;
+    }
+
+    /**
+     * The registered keys count is taken from the {@link Selector} after
+     * each select, in between the registered and the cancelled
+     * {@link SelectionKey}s are accounted explicitly, because the
+     * {@link Selector} removes the cancelled keys during the next select only.
+     * A key has to be accounted as cancelled only once, by the runner it's
+     * registered with, which isn't necessarily the runner the key is
+     * cancelled by (see {@link #onKeyCancelled(SelectionKey)}).
+     */
+    void onKeyRegistered() {
+        registeredKeysCount.incrementAndGet();
+    }
+
+    void onKeyCancelled() {
+        registeredKeysCount.decrementAndGet();
+    }
+
+    /**
+     * Accounts the cancellation of the valid {@link SelectionKey} on
+     * the runner the key is registered with. The key might be registered
+     * with another runner of the transport, if its connection has just been
+     * migrated.
+     * 
+     * @param key the valid {@link SelectionKey}, which is being cancelled
+     */
+    void onKeyCancelled(final SelectionKey key) {
+        final Selector keySelector = key.selector();
+        if (keySelector == selector) {
+            onKeyCancelled();
+            return;
+        }
+        
+        final SelectorRunner[] runners = transport.getSelectorRunners();
+        if (runners != null) {
+            for (SelectorRunner runner : runners) {
+                if (runner.selector == keySelector) {
+                    runner.onKeyCancelled();
+                    return;
+                }
+            }
+        }
+    }
+
+    void onRegistrationQueued() {
+        queuedRegistrationsCount.incrementAndGet();
+    }
+
+    void onQueuedRegistrationProcessed() {
+        queuedRegistrationsCount.decrementAndGet();
+    }
+
+    /**
+     * @return the {@link FlightRecorder} of the connections registered with
+     *          this runner, or <tt>null</tt> if the recorder is disabled
+     * 
+     * @see NIOTransport#setFlightRecorderCapacity(int)
+     * @since 2.4.0
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
     public NIOTransport getTransport() {
         return transport;
     }
@@ -336,8 +550,21 @@ public final class SelectorRunner implements Runnable {
                 return false;
             }
 
-            readyKeySet = selectorHandler.select(this);
-            selectorWakeupFlag.set(false);
+            if (lastSelectReturnTime != 0) {
+                busyTime += System.nanoTime() - lastSelectReturnTime;
+            }
+            
+            beforeSelect();
+            try {
+                readyKeySet = selectorHandler.select(this);
+            } finally {
+                wakeupState.set(AWAKE);
+            }
+            lastSelectReturnTime = System.nanoTime();
+            selectCount++;
+            // the keys cancelled by closing their channels directly are
+            // accounted here
+            registeredKeysCount.set(selector.keys().size());
 
             if (stateHolder.get() == State.STOPPING) return true;
             
@@ -408,6 +635,10 @@ public final class SelectorRunner implements Runnable {
 
         for (IOEvent ioEvent : ioEvents) {
             NIOConnection.notifyIOEventReady(connection, ioEvent);
+            if (flightRecorder != null) {
+                flightRecorder.record(connection,
+                        FlightRecorder.EventType.IO_EVENT_READY, ioEvent, 0);
+            }
             
             final int interest = ioEvent.getSelectionKeyInterest();
             keyReadyOps &= (~interest);
@@ -488,6 +719,20 @@ public final class SelectorRunner implements Runnable {
         }
     }
 
+    /**
+     * The {@link System#nanoTime()} value, when the last select returned,
+     * so the time the runner spent processing the selected keys so far
+     * could be estimated.
+     * Operation is not thread-safe.
+     *
+     * @return the {@link System#nanoTime()} value, when the last select returned
+     * 
+     * @since 2.4.0
+     */
+    public long getLastSelectReturnTime() {
+        return lastSelectReturnTime;
+    }
+
     /**
      * Number of {@link SelectionKey}s, which were selected last time.
      * Operation is not thread-safe.
@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.nio.transport;
+
+import java.util.Arrays;
+
+/**
+ * Predicts the size of the next read buffer for a {@link TCPNIOConnection}
+ * based on the sizes of the recent reads.
+ * <p/>
+ * The sizes are taken from a table, which grows in 16 byte steps up to 512
+ * bytes and doubles after that up to the maximum size. If a read fills the
+ * whole buffer, the prediction jumps several steps up at once; if two
+ * consecutive reads would have fit into the next smaller size, the prediction
+ * goes one step down. So the buffer grows quickly for bulk transfers and
+ * shrinks slowly for connections, which exchange small messages.
+ * <p/>
+ * The predictor is not thread-safe, it's expected to be used by the thread,
+ * which is reading the connection.
+ *
+ * @since 2.4.0
+ */
+public final class ReadBufferSizePredictor {
+
+    public static final int DEFAULT_MIN_SIZE = 64;
+    public static final int DEFAULT_INITIAL_SIZE = 2048;
+
+    private static final int INDEX_INCREMENT = 4;
+    private static final int INDEX_DECREMENT = 1;
+
+    private final int[] sizeTable;
+    private final int maxIndex;
+
+    private int index;
+    private int nextSize;
+    private boolean decreaseNow;
+
+    /**
+     * Creates a predictor with the {@link #DEFAULT_MIN_SIZE} and
+     * {@link #DEFAULT_INITIAL_SIZE}.
+     *
+     * @param maxSize the maximum buffer size to be predicted
+     */
+    public ReadBufferSizePredictor(final int maxSize) {
+        this(Math.min(DEFAULT_MIN_SIZE, maxSize),
+                Math.min(DEFAULT_INITIAL_SIZE, maxSize),
+                maxSize);
+    }
+
+    /**
+     * @param minSize the minimum buffer size to be predicted
+     * @param initialSize the buffer size to be predicted for the first read
+     * @param maxSize the maximum buffer size to be predicted
+     */
+    public ReadBufferSizePredictor(final int minSize, final int initialSize,
+            final int maxSize) {
+        if (minSize <= 0 || minSize > initialSize || initialSize > maxSize) {
+            throw new IllegalArgumentException("Invalid sizes: min=" + minSize
+                    + " initial=" + initialSize + " max=" + maxSize);
+        }
+
+        sizeTable = buildSizeTable(minSize, maxSize);
+        maxIndex = sizeTable.length - 1;
+        index = ceilingIndex(initialSize);
+        nextSize = sizeTable[index];
+    }
+
+    /**
+     * @return the size of the buffer to be allocated for the next read
+     */
+    public int nextSize() {
+        return nextSize;
+    }
+
+    /**
+     * Updates the prediction based on the result of the read.
+     *
+     * @param read the number of bytes read
+     * @param allocated the size of the buffer the bytes were read into
+     */
+    public void record(final int read, final int allocated) {
+        if (read >= allocated) {
+            // the buffer was filled, there might be more data
+            index = Math.min(index + INDEX_INCREMENT, maxIndex);
+            nextSize = sizeTable[index];
+            decreaseNow = false;
+        } else if (index > 0
+                && read <= sizeTable[index - INDEX_DECREMENT]) {
+            if (decreaseNow) {
+                index = Math.max(index - INDEX_DECREMENT, 0);
+                nextSize = sizeTable[index];
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else {
+            decreaseNow = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadBufferSizePredictor{nextSize=" + nextSize
+                + ", min=" + sizeTable[0]
+                + ", max=" + sizeTable[maxIndex] + '}';
+    }
+
+    private int ceilingIndex(final int size) {
+        final int i = Arrays.binarySearch(sizeTable, size);
+        return i >= 0 ? i : Math.min(-i - 1, maxIndex);
+    }
+
+    private static int[] buildSizeTable(final int minSize, final int maxSize) {
+        int[] table = new int[16];
+        int count = 0;
+
+        table[count++] = minSize;
+        long size = minSize;
+        while (size < maxSize) {
+            size = size < 512 ? (size + 16) & ~15 : size << 1;
+            if (count == table.length) {
+                table = Arrays.copyOf(table, count << 1);
+            }
+            table[count++] = (int) Math.min(size, maxSize);
+        }
+
+        return Arrays.copyOf(table, count);
+    }
+}
@@ -79,10 +79,84 @@ import org.glassfish.grizzly.nio.NIOTransport;
 public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
     private final static Logger LOGGER = Grizzly.logger(TCPNIOAsyncQueueWriter.class);
 
+    /**
+     * The default max number of bytes of the queued messages, which could be
+     * coalesced into one gathering write.
+     */
+    public static final int DEFAULT_MAX_COALESCED_BYTES = Integer.getInteger(
+            TCPNIOAsyncQueueWriter.class.getName() + ".max-coalesced-bytes",
+            Integer.MAX_VALUE);
+
+    /**
+     * The default max number of queued messages, which could be coalesced
+     * into one gathering write.
+     */
+    public static final int DEFAULT_MAX_COALESCED_RECORDS = Integer.getInteger(
+            TCPNIOAsyncQueueWriter.class.getName() + ".max-coalesced-records",
+            Integer.MAX_VALUE);
+
+    private volatile int maxCoalescedBytes = DEFAULT_MAX_COALESCED_BYTES;
+    private volatile int maxCoalescedRecords = DEFAULT_MAX_COALESCED_RECORDS;
+
     public TCPNIOAsyncQueueWriter(final NIOTransport transport) {
         super(transport);
     }
 
+    /**
+     * @return the max number of bytes of the queued messages, which could be
+     *          coalesced into one gathering write
+     *
+     * @since 2.4.0
+     */
+    public int getMaxCoalescedBytes() {
+        return maxCoalescedBytes;
+    }
+
+    /**
+     * Sets the max number of bytes of the queued messages, which could be
+     * coalesced into one gathering write. Once the limit is reached, the rest
+     * of the queue waits for the coalesced messages to be written.
+     * The number of bytes passed to a single write call is also limited by
+     * the connection's write buffer size.
+     *
+     * @param maxCoalescedBytes the max number of bytes to coalesce
+     *
+     * @since 2.4.0
+     */
+    public void setMaxCoalescedBytes(final int maxCoalescedBytes) {
+        if (maxCoalescedBytes <= 0) {
+            throw new IllegalArgumentException("maxCoalescedBytes should be positive");
+        }
+
+        this.maxCoalescedBytes = maxCoalescedBytes;
+    }
+
+    /**
+     * @return the max number of queued messages, which could be coalesced
+     *          into one gathering write
+     *
+     * @since 2.4.0
+     */
+    public int getMaxCoalescedRecords() {
+        return maxCoalescedRecords;
+    }
+
+    /**
+     * Sets the max number of queued messages, which could be coalesced into
+     * one gathering write. The value <tt>1</tt> turns the coalescing off.
+     *
+     * @param maxCoalescedRecords the max number of messages to coalesce
+     *
+     * @since 2.4.0
+     */
+    public void setMaxCoalescedRecords(final int maxCoalescedRecords) {
+        if (maxCoalescedRecords <= 0) {
+            throw new IllegalArgumentException("maxCoalescedRecords should be positive");
+        }
+
+        this.maxCoalescedRecords = maxCoalescedRecords;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected RecordWriteResult write0(final NIOConnection connection,
@@ -337,6 +411,13 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
             return currentRecord;
         }
         
+        final int maxBytes = maxCoalescedBytes;
+        final int maxRecords = maxCoalescedRecords;
+        
+        if (!canAppend(currentRecord, maxBytes, maxRecords)) {
+            return currentRecord;
+        }
+        
         AsyncWriteQueueRecord nextRecord = checkAndGetNextRecord(writeTaskQueue);
         
         if (nextRecord == null) {
@@ -349,6 +430,7 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
         do {
             compositeQueueRecord.append(nextRecord);
         } while(compositeQueueRecord.remaining() < queueSize &&
+                canAppend(compositeQueueRecord, maxBytes, maxRecords) &&
                 (nextRecord = checkAndGetNextRecord(writeTaskQueue)) != null);
         
         return compositeQueueRecord;
@@ -372,6 +454,19 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
         return record.canBeAggregated();
     }
     
+    /**
+     * Checks if one more record could be coalesced with the passed one
+     * (plain or composite) without exceeding the limits.
+     */
+    private static boolean canAppend(final AsyncWriteQueueRecord record,
+            final int maxBytes, final int maxRecords) {
+        final int records = record instanceof CompositeQueueRecord
+                ? ((CompositeQueueRecord) record).queue.size()
+                : 1;
+        
+        return records < maxRecords && record.remaining() < maxBytes;
+    }
+    
     private static final Attribute<CompositeQueueRecord> COMPOSITE_BUFFER_ATTR =
             Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
                     TCPNIOAsyncQueueWriter.class.getName() + ".compositeBuffer");
@@ -72,6 +72,8 @@ public class TCPNIOConnection extends NIOConnection {
     private int readBufferSize = -1;
     private int writeBufferSize = -1;
 
+    private ReadBufferSizePredictor readBufferSizePredictor;
+
     private AtomicReference<ConnectResultHandler> connectHandlerRef;
 
     public TCPNIOConnection(TCPNIOTransport transport,
@@ -190,6 +192,8 @@ public class TCPNIOConnection extends NIOConnection {
                 }
                 
                 this.readBufferSize = readBufferSize;
+                // the max size has changed, start over
+                readBufferSizePredictor = null;
             } catch (IOException e) {
                 LOGGER.log(Level.WARNING,
                         LogMessages.WARNING_GRIZZLY_CONNECTION_SET_READBUFFER_SIZE_EXCEPTION(),
@@ -198,6 +202,40 @@ public class TCPNIOConnection extends NIOConnection {
         }
     }
 
+    /**
+     * Returns the size of the buffer to be allocated for the next read.
+     * It's either the connection's read buffer size (limited by
+     * {@link TCPNIOTransport#MAX_RECEIVE_BUFFER_SIZE}) or, if the
+     * {@link TCPNIOTransport#isAdaptiveReadBufferSize()} is on, the size
+     * predicted from the recent reads.
+     */
+    int getNextReadSize() {
+        final int maxReadSize = Math.min(TCPNIOTransport.MAX_RECEIVE_BUFFER_SIZE,
+                getReadBufferSize());
+
+        if (!((TCPNIOTransport) transport).isAdaptiveReadBufferSize()
+                || maxReadSize <= 0) {
+            return maxReadSize;
+        }
+
+        if (readBufferSizePredictor == null) {
+            readBufferSizePredictor = new ReadBufferSizePredictor(maxReadSize);
+        }
+
+        return readBufferSizePredictor.nextSize();
+    }
+
+    /**
+     * Updates the read size prediction, if the adaptive read buffer sizing
+     * is on.
+     */
+    void onReadSize(final int read, final int allocated) {
+        final ReadBufferSizePredictor predictor = readBufferSizePredictor;
+        if (predictor != null) {
+            predictor.record(read, allocated);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
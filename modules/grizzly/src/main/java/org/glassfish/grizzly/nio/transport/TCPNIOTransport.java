@@ -99,6 +99,8 @@ public final class TCPNIOTransport extends NIOTransport implements
     public static final boolean DEFAULT_KEEP_ALIVE = true;
     public static final int DEFAULT_LINGER = -1;
     public static final int DEFAULT_SERVER_CONNECTION_BACKLOG = 4096;
+    public static final boolean DEFAULT_ADAPTIVE_READ_BUFFER_SIZE = false;
+    public static final int DEFAULT_MAX_READ_BYTES_PER_EVENT = 0;
 
     private static final String DEFAULT_TRANSPORT_NAME = "TCPNIOTransport";
     /**
@@ -128,6 +130,17 @@ public final class TCPNIOTransport extends NIOTransport implements
      * The socket keepAlive mode.
      */
     boolean isKeepAlive = DEFAULT_KEEP_ALIVE;
+    /**
+     * <tt>true</tt>, if the size of the read buffer is predicted from
+     * the recent reads, or <tt>false</tt> if the connection's read buffer
+     * size is always used.
+     */
+    boolean isAdaptiveReadBufferSize = DEFAULT_ADAPTIVE_READ_BUFFER_SIZE;
+    /**
+     * The max number of bytes read from a connection per read event,
+     * if the value is not positive - only one read is performed.
+     */
+    int maxReadBytesPerEvent = DEFAULT_MAX_READ_BYTES_PER_EVENT;
 
     private final Filter defaultTransportFilter;
     final RegisterChannelCompletionHandler selectorRegistrationHandler;
@@ -489,6 +502,62 @@ public final class TCPNIOTransport extends NIOTransport implements
         this.serverConnectionBackLog = serverConnectionBackLog;
     }
 
+    /**
+     * @return <tt>true</tt>, if the size of the buffer allocated for a read
+     *          is predicted from the connection's recent reads, or
+     *          <tt>false</tt> if the connection's read buffer size is used
+     *          for every read.
+     *
+     * @since 2.4.0
+     */
+    public boolean isAdaptiveReadBufferSize() {
+        return isAdaptiveReadBufferSize;
+    }
+
+    /**
+     * Turns on/off the adaptive read buffer sizing. If turned on, the size of
+     * the buffer allocated for a read is predicted from the connection's
+     * recent reads by {@link ReadBufferSizePredictor} and never exceeds
+     * the connection's read buffer size.
+     *
+     * @param isAdaptiveReadBufferSize <tt>true</tt> to predict the read buffer
+     *          size, or <tt>false</tt> to use the connection's read buffer size
+     *          for every read
+     *
+     * @since 2.4.0
+     */
+    public void setAdaptiveReadBufferSize(final boolean isAdaptiveReadBufferSize) {
+        this.isAdaptiveReadBufferSize = isAdaptiveReadBufferSize;
+        notifyProbesConfigChanged(this);
+    }
+
+    /**
+     * @return the max number of bytes read from a connection per read event.
+     *          If the value is not positive - only one read is performed.
+     *
+     * @since 2.4.0
+     */
+    public int getMaxReadBytesPerEvent() {
+        return maxReadBytesPerEvent;
+    }
+
+    /**
+     * Sets the max number of bytes read from a connection per read event.
+     * If a read fills the whole allocated buffer, the connection is read
+     * again, until there is no more data available or the limit is reached,
+     * and all the data is passed to the {@link org.glassfish.grizzly.filterchain.FilterChain}
+     * at once. If the value is not positive (default) - only one read is
+     * performed per event.
+     *
+     * @param maxReadBytesPerEvent the max number of bytes read per read event
+     *
+     * @since 2.4.0
+     */
+    public void setMaxReadBytesPerEvent(final int maxReadBytesPerEvent) {
+        this.maxReadBytesPerEvent = maxReadBytesPerEvent;
+        notifyProbesConfigChanged(this);
+    }
+
     @Override
     public Filter getTransportFilter() {
         return defaultTransportFilter;
@@ -56,6 +56,8 @@ public class TCPNIOTransportBuilder extends NIOTransportBuilder<TCPNIOTransportB
     protected int serverConnectionBackLog = TCPNIOTransport.DEFAULT_SERVER_CONNECTION_BACKLOG;
     protected int serverSocketSoTimeout = TCPNIOTransport.DEFAULT_SERVER_SOCKET_SO_TIMEOUT;
     protected boolean tcpNoDelay = TCPNIOTransport.DEFAULT_TCP_NO_DELAY;
+    protected boolean adaptiveReadBufferSize = TCPNIOTransport.DEFAULT_ADAPTIVE_READ_BUFFER_SIZE;
+    protected int maxReadBytesPerEvent = TCPNIOTransport.DEFAULT_MAX_READ_BYTES_PER_EVENT;
 
     // ------------------------------------------------------------ Constructors
 
@@ -157,6 +159,40 @@ public class TCPNIOTransportBuilder extends NIOTransportBuilder<TCPNIOTransportB
         return getThis();
     }
 
+    /**
+     * @see TCPNIOTransport#isAdaptiveReadBufferSize()
+     */
+    public boolean isAdaptiveReadBufferSize() {
+        return adaptiveReadBufferSize;
+    }
+
+    /**
+     * @see TCPNIOTransport#setAdaptiveReadBufferSize(boolean)
+     *
+     * @return this <code>TCPNIOTransportBuilder</code>
+     */
+    public TCPNIOTransportBuilder setAdaptiveReadBufferSize(boolean adaptiveReadBufferSize) {
+        this.adaptiveReadBufferSize = adaptiveReadBufferSize;
+        return getThis();
+    }
+
+    /**
+     * @see TCPNIOTransport#getMaxReadBytesPerEvent()
+     */
+    public int getMaxReadBytesPerEvent() {
+        return maxReadBytesPerEvent;
+    }
+
+    /**
+     * @see TCPNIOTransport#setMaxReadBytesPerEvent(int)
+     *
+     * @return this <code>TCPNIOTransportBuilder</code>
+     */
+    public TCPNIOTransportBuilder setMaxReadBytesPerEvent(int maxReadBytesPerEvent) {
+        this.maxReadBytesPerEvent = maxReadBytesPerEvent;
+        return getThis();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -168,6 +204,8 @@ public class TCPNIOTransportBuilder extends NIOTransportBuilder<TCPNIOTransportB
         transport.setServerConnectionBackLog(serverConnectionBackLog);
         transport.setTcpNoDelay(tcpNoDelay);
         transport.setServerSocketSoTimeout(serverSocketSoTimeout);
+        transport.setAdaptiveReadBufferSize(adaptiveReadBufferSize);
+        transport.setMaxReadBytesPerEvent(maxReadBytesPerEvent);
         return transport;
     }
 
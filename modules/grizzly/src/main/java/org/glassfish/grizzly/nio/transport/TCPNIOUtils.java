@@ -218,21 +218,65 @@ public class TCPNIOUtils {
             throws IOException {
         
         final MemoryManager memoryManager = connection.getMemoryManager();
+        final int maxReadBytes = ((TCPNIOTransport) connection.getTransport())
+                .getMaxReadBytesPerEvent();
+        
+        int receiveBufferSize = maxReadBytes > 0
+                ? Math.min(connection.getNextReadSize(), maxReadBytes)
+                : connection.getNextReadSize();
+        Buffer buffer = allocateAndReadBuffer(connection, memoryManager,
+                receiveBufferSize);
+        int read = buffer.position();
+        int totalRead = read;
+        
+        // keep reading while the allocated buffers are getting filled
+        while (read >= receiveBufferSize && totalRead < maxReadBytes) {
+            receiveBufferSize = Math.min(connection.getNextReadSize(),
+                    maxReadBytes - totalRead);
+            
+            final Buffer nextBuffer;
+            try {
+                nextBuffer = allocateAndReadBuffer(connection, memoryManager,
+                        receiveBufferSize);
+            } catch (IOException e) {
+                // pass the data, which has been read, up the chain;
+                // the error will be reported by the next read
+                break;
+            }
+            
+            read = nextBuffer.position();
+            if (read == 0) {
+                break;
+            }
+            
+            buffer = appendReadBuffer(memoryManager, buffer, nextBuffer);
+            totalRead += read;
+        }
+        
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "TCPNIOConnection ({0}) (allocated) read {1} bytes", new Object[]{
+                        connection, totalRead
+                    });
+        }
+        return buffer;
+    }
+
+    private static Buffer allocateAndReadBuffer(final TCPNIOConnection connection,
+            final MemoryManager memoryManager, final int receiveBufferSize)
+            throws IOException {
         
         int read;
         Throwable error = null;
         Buffer buffer = null;
         
         try {
-            final int receiveBufferSize =
-                    Math.min(TCPNIOTransport.MAX_RECEIVE_BUFFER_SIZE,
-                            connection.getReadBufferSize());
-        
             if (!memoryManager.willAllocateDirect(receiveBufferSize)) {
                 final DirectByteBufferRecord ioRecord = 
                         DirectByteBufferRecord.get();
                 final ByteBuffer directByteBuffer =
                         ioRecord.allocate(receiveBufferSize);
+                // the cached direct buffer might be larger than requested
+                directByteBuffer.limit(directByteBuffer.position() + receiveBufferSize);
                 
                 try {
                     read = readSimpleByteBuffer(connection, directByteBuffer);
@@ -246,6 +290,9 @@ public class TCPNIOUtils {
                 }
             } else {
                 buffer = memoryManager.allocateAtLeast(receiveBufferSize);
+                if (buffer.remaining() > receiveBufferSize) {
+                    buffer.limit(buffer.position() + receiveBufferSize);
+                }
                 read = readBuffer(connection, buffer);
             }
         } catch (Throwable e) {
@@ -254,6 +301,7 @@ public class TCPNIOUtils {
         }
         
         if (read > 0) {
+            connection.onReadSize(read, receiveBufferSize);
             buffer.position(read);
             buffer.allowBufferDispose(true);
         } else {
@@ -271,14 +319,34 @@ public class TCPNIOUtils {
             buffer = Buffers.EMPTY_BUFFER;
         }
         
-        if (LOGGER.isLoggable(Level.FINE)) {
-            LOGGER.log(Level.FINE, "TCPNIOConnection ({0}) (allocated) read {1} bytes", new Object[]{
-                        connection, read
-                    });
-        }
         return buffer;
     }
 
+    /**
+     * Appends the read data from the next buffer to the read data from
+     * the first one. Both the passed and the returned buffers are in
+     * "just read" state: the position marks the end of the read data.
+     */
+    private static Buffer appendReadBuffer(final MemoryManager memoryManager,
+            final Buffer buffer, final Buffer nextBuffer) {
+        buffer.trim();
+        nextBuffer.trim();
+        
+        final CompositeBuffer compositeBuffer;
+        if (buffer.isComposite()) {
+            compositeBuffer = (CompositeBuffer) buffer;
+        } else {
+            compositeBuffer = CompositeBuffer.newBuffer(memoryManager, buffer);
+            compositeBuffer.allowBufferDispose(true);
+            compositeBuffer.allowInternalBuffersDispose(true);
+        }
+        
+        compositeBuffer.append(nextBuffer);
+        compositeBuffer.position(compositeBuffer.limit());
+        
+        return compositeBuffer;
+    }
+
     public static int readBuffer(final TCPNIOConnection connection,
                                  final Buffer buffer) throws IOException {
         return buffer.isComposite()
@@ -42,13 +42,18 @@ package org.glassfish.grizzly.nio.transport;
 
 import org.glassfish.grizzly.AbstractBindingHandler;
 import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.utils.Exceptions;
 
 import java.io.IOException;
 import java.net.DatagramSocket;
 import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.DatagramChannel;
 import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This class may be used to apply a custom {@link org.glassfish.grizzly.Processor} and/or {@link org.glassfish.grizzly.ProcessorSelector}
@@ -63,6 +68,13 @@ import java.util.concurrent.locks.Lock;
  * @since 2.2.19
  */
 public class UDPNIOBindingHandler extends AbstractBindingHandler {
+    private static final Logger LOGGER = Grizzly.logger(UDPNIOBindingHandler.class);
+
+    /**
+     * <tt>StandardSocketOptions.SO_REUSEPORT</tt>, or <tt>null</tt> if the JDK
+     * doesn't expose it (it's available since JDK 9).
+     */
+    private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
 
     private final UDPNIOTransport udpTransport;
 
@@ -87,14 +99,15 @@ public class UDPNIOBindingHandler extends AbstractBindingHandler {
     public UDPNIOServerConnection bind(SocketAddress socketAddress, int backlog) throws IOException {
         return bindToChannel(
                 udpTransport.getSelectorProvider().openDatagramChannel(),
-                socketAddress);
+                socketAddress,
+                socketAddress != null ? udpTransport.getServerChannelsPerBind() : 1);
     }
 
     @Override
     public UDPNIOServerConnection bindToInherited() throws IOException {
         return bindToChannel(
                 this.<DatagramChannel>getSystemInheritedChannel(DatagramChannel.class),
-                null);
+                null, 1);
     }
 
     @Override
@@ -111,7 +124,8 @@ public class UDPNIOBindingHandler extends AbstractBindingHandler {
 
 
     private UDPNIOServerConnection bindToChannel(final DatagramChannel serverDatagramChannel,
-                                                 final SocketAddress socketAddress)
+                                                 final SocketAddress socketAddress,
+                                                 final int channelsCount)
     throws IOException {
         UDPNIOServerConnection serverConnection = null;
 
@@ -120,6 +134,9 @@ public class UDPNIOBindingHandler extends AbstractBindingHandler {
         try {
             udpTransport.getChannelConfigurator().preConfigure(transport,
                     serverDatagramChannel);
+            
+            final boolean isReusePort = channelsCount > 1
+                    && enableReusePort(serverDatagramChannel);
 
             if (socketAddress != null) {
                 final DatagramSocket socket = serverDatagramChannel.socket();
@@ -134,13 +151,40 @@ public class UDPNIOBindingHandler extends AbstractBindingHandler {
             serverConnection.setProcessorSelector(getProcessorSelector());
             udpTransport.serverConnections.add(serverConnection);
 
+            if (isReusePort) {
+                // port 0 might have been passed, so use the actual address
+                final SocketAddress localAddress =
+                        serverDatagramChannel.socket().getLocalSocketAddress();
+                for (int i = 1; i < channelsCount; i++) {
+                    serverConnection.addReusePortConnection(
+                            bindReusePortChannel(localAddress), i);
+                }
+            } else if (channelsCount > 1) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "SO_REUSEPORT is not supported, "
+                            + "the datagrams read by {0} will be dispatched "
+                            + "to the worker thread pool", serverConnection);
+                }
+                
+                serverConnection.setDispatchReads(true);
+            }
+            
             if (!udpTransport.isStopped()) {
                 serverConnection.register();
+                for (UDPNIOServerConnection reusePortConnection :
+                        serverConnection.getReusePortConnections()) {
+                    reusePortConnection.register();
+                }
             }
 
             return serverConnection;
         } catch (Exception e) {
             if (serverConnection != null) {
+                for (UDPNIOServerConnection reusePortConnection :
+                        serverConnection.getReusePortConnections()) {
+                    udpTransport.unbind(reusePortConnection);
+                }
+                
                 udpTransport.serverConnections.remove(serverConnection);
 
                 serverConnection.closeSilently();
@@ -157,6 +201,72 @@ public class UDPNIOBindingHandler extends AbstractBindingHandler {
         }
     }
 
+    /**
+     * Opens one more channel and binds it to the local address, which is
+     * already bound with <tt>SO_REUSEPORT</tt> enabled.
+     * Must be called with the transport's state write lock held.
+     */
+    private UDPNIOServerConnection bindReusePortChannel(
+            final SocketAddress localAddress) throws IOException {
+        final DatagramChannel datagramChannel =
+                udpTransport.getSelectorProvider().openDatagramChannel();
+        try {
+            udpTransport.getChannelConfigurator().preConfigure(transport,
+                    datagramChannel);
+            datagramChannel.setOption(SO_REUSEPORT, true);
+            datagramChannel.socket().bind(localAddress);
+            udpTransport.getChannelConfigurator().postConfigure(transport,
+                    datagramChannel);
+        } catch (IOException e) {
+            try {
+                datagramChannel.close();
+            } catch (IOException ignored) {
+            }
+            
+            throw e;
+        }
+        
+        final UDPNIOServerConnection connection =
+                udpTransport.obtainServerNIOConnection(datagramChannel);
+        udpTransport.serverConnections.add(connection);
+        
+        return connection;
+    }
+    
+    /**
+     * Enables <tt>SO_REUSEPORT</tt> on the not yet bound channel.
+     * 
+     * @return <tt>true</tt> if the option has been enabled, or <tt>false</tt>
+     * if the JDK or the channel doesn't support it
+     */
+    private static boolean enableReusePort(final DatagramChannel channel) {
+        if (SO_REUSEPORT == null
+                || !channel.supportedOptions().contains(SO_REUSEPORT)) {
+            return false;
+        }
+        
+        try {
+            channel.setOption(SO_REUSEPORT, true);
+            return true;
+        } catch (Exception e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Can not enable SO_REUSEPORT", e);
+            }
+            
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class
+                    .getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
 
     // ----------------------------------------------------------- Inner Classes
 
@@ -43,12 +43,16 @@ package org.glassfish.grizzly.nio.transport;
 import java.io.IOException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.*;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.nio.RegisterChannelResult;
+import org.glassfish.grizzly.nio.SelectorRunner;
 import org.glassfish.grizzly.utils.Futures;
 
 /**
@@ -60,12 +64,93 @@ import org.glassfish.grizzly.utils.Futures;
 public class UDPNIOServerConnection extends UDPNIOConnection {
     private static final Logger LOGGER = Grizzly.logger(UDPNIOServerConnection.class);
 
+    /**
+     * The connection returned by the bind operation, if this connection is
+     * one of the additional channels bound to the same port.
+     */
+    private UDPNIOServerConnection primaryConnection;
+    
+    /**
+     * The additional channels bound to this connection's port.
+     */
+    private List<UDPNIOServerConnection> reusePortConnections =
+            Collections.emptyList();
+    
+    /**
+     * The index of the {@link SelectorRunner} to register the channel with,
+     * or <tt>-1</tt> to let the transport's distributor choose.
+     */
+    private int selectorRunnerIdx = -1;
+    
+    /**
+     * <tt>true</tt> if the datagrams read from the channel have to be
+     * dispatched to the worker thread pool.
+     */
+    private boolean isDispatchReads;
+    
     public UDPNIOServerConnection(UDPNIOTransport transport, DatagramChannel channel) {
         super(transport, channel);
     }
 
+    /**
+     * @return the {@link UDPNIOServerConnection} returned by the bind
+     * operation, which opened this connection's channel. If the bind operation
+     * opened several channels on the same port - the first channel's
+     * connection, otherwise <tt>this</tt>.
+     * 
+     * @see UDPNIOTransport#setServerChannelsPerBind(int)
+     * @since 2.4.0
+     */
+    public UDPNIOServerConnection getPrimaryConnection() {
+        return primaryConnection != null ? primaryConnection : this;
+    }
+    
+    /**
+     * @return the additional {@link UDPNIOServerConnection}s bound to this
+     * connection's port using <tt>SO_REUSEPORT</tt>. The list is empty if
+     * this connection is the only one, or isn't the primary connection.
+     * 
+     * @see UDPNIOTransport#setServerChannelsPerBind(int)
+     * @since 2.4.0
+     */
+    public List<UDPNIOServerConnection> getReusePortConnections() {
+        return reusePortConnections;
+    }
+    
+    /**
+     * @return <tt>true</tt> if the datagrams read from the channel are
+     * dispatched to the transport's worker thread pool, because the channel
+     * couldn't be bound several times using <tt>SO_REUSEPORT</tt>.
+     * 
+     * @see UDPNIOTransport#setServerChannelsPerBind(int)
+     * @since 2.4.0
+     */
+    public boolean isDispatchReads() {
+        return isDispatchReads;
+    }
+    
+    void setDispatchReads(final boolean isDispatchReads) {
+        this.isDispatchReads = isDispatchReads;
+    }
+    
+    void addReusePortConnection(final UDPNIOServerConnection connection,
+            final int selectorRunnerIdx) {
+        if (reusePortConnections.isEmpty()) {
+            this.selectorRunnerIdx = 0;
+            reusePortConnections = new ArrayList<UDPNIOServerConnection>(4);
+        }
+        
+        reusePortConnections.add(connection);
+        connection.primaryConnection = this;
+        connection.selectorRunnerIdx = selectorRunnerIdx;
+    }
+    
     @Override
     public Processor getProcessor() {
+        if (primaryConnection != null) {
+            return primaryConnection.getProcessor();
+        }
+        
         if (processor == null) {
             return transport.getProcessor();
         }
@@ -75,6 +160,10 @@ public class UDPNIOServerConnection extends UDPNIOConnection {
 
     @Override
     public ProcessorSelector getProcessorSelector() {
+        if (primaryConnection != null) {
+            return primaryConnection.getProcessorSelector();
+        }
+        
         if (processorSelector == null) {
             return transport.getProcessorSelector();
         }
@@ -87,12 +176,25 @@ public class UDPNIOServerConnection extends UDPNIOConnection {
         final FutureImpl<RegisterChannelResult> future =
                 Futures.createSafeFuture();
 
-        transport.getNIOChannelDistributor().registerServiceChannelAsync(
-                channel,
-                SelectionKey.OP_READ, this,
+        final CompletionHandler<RegisterChannelResult> completionHandler =
                 Futures.toCompletionHandler(future,
-                ((UDPNIOTransport) transport).registerChannelCompletionHandler
-                ));
+                ((UDPNIOTransport) transport).registerChannelCompletionHandler);
+        
+        final SelectorRunner selectorRunner = selectorRunnerIdx >= 0
+                ? ((UDPNIOTransport) transport).getSelectorRunner(selectorRunnerIdx)
+                : null;
+        
+        if (selectorRunner != null) {
+            // spread the channels bound to the same port over the runners
+            transport.getSelectorHandler().registerChannelAsync(
+                    selectorRunner, channel, SelectionKey.OP_READ, this,
+                    completionHandler);
+        } else {
+            transport.getNIOChannelDistributor().registerServiceChannelAsync(
+                    channel,
+                    SelectionKey.OP_READ, this,
+                    completionHandler);
+        }
 
         try {
             future.get(10, TimeUnit.SECONDS);
@@ -79,6 +79,15 @@ public final class UDPNIOTransport extends NIOTransport
      */
     public static final ChannelConfigurator DEFAULT_CHANNEL_CONFIGURATOR =
             new DefaultChannelConfigurator();
+    
+    public static final int DEFAULT_MAX_DATAGRAMS_PER_READ = 1;
+    
+    public static final int DEFAULT_SERVER_CHANNELS_PER_BIND = 1;
+    
+    /**
+     * The max size of a UDP datagram payload.
+     */
+    private static final int MAX_DATAGRAM_SIZE = 65535;
 
     static final Logger LOGGER = Grizzly.logger(UDPNIOTransport.class);
     private static final String DEFAULT_TRANSPORT_NAME = "UDPNIOTransport";
@@ -104,6 +113,16 @@ public final class UDPNIOTransport extends NIOTransport
     private final UDPNIOBindingHandler bindingHandler =
             new UDPNIOBindingHandler(this);
 
+    /**
+     * The max number of datagrams read from a connection per read event.
+     */
+    int maxDatagramsPerRead = DEFAULT_MAX_DATAGRAMS_PER_READ;
+
+    /**
+     * The number of channels a bind operation opens on the same port.
+     */
+    int serverChannelsPerBind = DEFAULT_SERVER_CHANNELS_PER_BIND;
+
 
     public UDPNIOTransport() {
         this(DEFAULT_TRANSPORT_NAME);
@@ -125,6 +144,78 @@ public final class UDPNIOTransport extends NIOTransport
         serverConnections = new ConcurrentLinkedQueue<UDPNIOServerConnection>();
     }
 
+    /**
+     * @return the max number of datagrams read from a connection per read
+     *          event.
+     *
+     * @see #setMaxDatagramsPerRead(int)
+     * @since 2.4.0
+     */
+    public int getMaxDatagramsPerRead() {
+        return maxDatagramsPerRead;
+    }
+
+    /**
+     * Sets the max number of datagrams read from a connection per read event.
+     * If the value is greater than one, the read event keeps reading the
+     * connection until there are no more datagrams available or the limit is
+     * reached. Each datagram is still passed through the
+     * {@link org.glassfish.grizzly.filterchain.FilterChain} separately, but
+     * without going back to the {@link java.nio.channels.Selector}, and is
+     * received into a thread-local recycled direct buffer, so only a buffer of
+     * the datagram's size is allocated. The connection is corked while the
+     * datagrams are being processed, so the replies written meanwhile are
+     * flushed by the asynchronous write queue together, once the batch is
+     * over, or once its processing is suspended.
+     * If the value is not greater than one (default) - only one datagram is
+     * read per event.
+     *
+     * @param maxDatagramsPerRead the max number of datagrams read per event
+     *
+     * @since 2.4.0
+     */
+    public void setMaxDatagramsPerRead(final int maxDatagramsPerRead) {
+        this.maxDatagramsPerRead = maxDatagramsPerRead;
+        notifyProbesConfigChanged(this);
+    }
+
+    /**
+     * @return the number of channels a bind operation opens on the same port.
+     *
+     * @see #setServerChannelsPerBind(int)
+     * @since 2.4.0
+     */
+    public int getServerChannelsPerBind() {
+        return serverChannelsPerBind;
+    }
+
+    /**
+     * Sets the number of channels a bind operation opens on the same port.
+     * If the value is greater than one and the JDK and OS support the
+     * <tt>SO_REUSEPORT</tt> socket option, the bind operation opens that
+     * many {@link DatagramChannel}s on the same local address and registers
+     * them with different {@link SelectorRunner}s, so the OS spreads the
+     * incoming datagrams over several selector threads. The bind operation
+     * returns the first channel's {@link UDPNIOServerConnection}, the other
+     * ones share its {@link Processor} and are unbound together with it,
+     * see {@link UDPNIOServerConnection#getReusePortConnections()}.
+     * If <tt>SO_REUSEPORT</tt> is not supported - a single channel is bound,
+     * and the datagrams it reads are dispatched to the worker thread pool
+     * (if any), each in its own
+     * {@link org.glassfish.grizzly.filterchain.FilterChainContext}, so the
+     * filters following the transport filter have to be ready to process
+     * the connection's datagrams concurrently.
+     * The value has no effect on the channels bound before the call.
+     *
+     * @param serverChannelsPerBind the number of channels to open per bind
+     *
+     * @since 2.4.0
+     */
+    public void setServerChannelsPerBind(final int serverChannelsPerBind) {
+        this.serverChannelsPerBind = serverChannelsPerBind;
+        notifyProbesConfigChanged(this);
+    }
+
     @Override
     protected TemporarySelectorIO createTemporarySelectorIO() {
         return new TemporarySelectorIO(new UDPNIOTemporarySelectorReader(this),
@@ -240,6 +331,12 @@ public final class UDPNIOTransport extends NIOTransport
                             LogMessages.WARNING_GRIZZLY_TRANSPORT_UNBINDING_CONNECTION_EXCEPTION(connection),
                             e);
                 }
+                
+                // the channels bound to the same port go together
+                for (UDPNIOServerConnection reusePortConnection :
+                        ((UDPNIOServerConnection) connection).getReusePortConnections()) {
+                    unbind(reusePortConnection);
+                }
             }
         } finally {
             lock.unlock();
@@ -269,6 +366,17 @@ public final class UDPNIOTransport extends NIOTransport
         }
     }
 
+    /**
+     * Returns the {@link SelectorRunner} with the given index modulo the
+     * number of runners, or <tt>null</tt> if the transport is not started.
+     */
+    SelectorRunner getSelectorRunner(final int idx) {
+        final SelectorRunner[] runners = getSelectorRunners();
+        return runners != null && runners.length > 0
+                ? runners[idx % runners.length]
+                : null;
+    }
+
     /**
      * Creates non-connected UDP {@link Connection}.
      *
@@ -572,6 +680,69 @@ public final class UDPNIOTransport extends NIOTransport
         return read;
     }
 
+    /**
+     * Reads one datagram into a newly allocated {@link Buffer} of the
+     * datagram's size. The datagram is received into the current thread's
+     * direct buffer first, so unlike {@link #read(UDPNIOConnection, Buffer, ReadResult)}
+     * the method doesn't allocate a buffer of the connection's read buffer
+     * size for each datagram. A zero-length datagram is read as an empty
+     * {@link Buffer}.
+     *
+     * @param connection the {@link UDPNIOConnection} to read from
+     * @param currentResult the {@link ReadResult} to be populated
+     * @return <tt>true</tt> if a datagram was read, or <tt>false</tt> if
+     *         there was no datagram available
+     * @throws IOException if the datagram couldn't be received
+     */
+    boolean readDatagram(final UDPNIOConnection connection,
+            final ReadResult<Buffer, SocketAddress> currentResult)
+            throws IOException {
+        final DatagramChannel channel = (DatagramChannel) connection.getChannel();
+        
+        final SocketAddress peerAddress;
+        Buffer buffer = null;
+        int read = 0;
+        
+        final DirectByteBufferRecord ioRecord =
+                        DirectByteBufferRecord.get();
+        try {
+            final ByteBuffer directByteBuffer =
+                    ioRecord.allocate(MAX_DATAGRAM_SIZE);
+            final int initialBufferPos = directByteBuffer.position();
+            // unlike read(), receive() tells an empty datagram from no datagram
+            peerAddress = channel.receive(directByteBuffer);
+            
+            if (peerAddress != null) {
+                read = directByteBuffer.position() - initialBufferPos;
+                directByteBuffer.flip();
+                buffer = memoryManager.allocate(read);
+                buffer.put(directByteBuffer);
+                
+                connection.onRead(buffer, read);
+                
+                buffer.flip();
+                buffer.allowBufferDispose(true);
+            }
+        } finally {
+            ioRecord.release();
+        }
+        
+        if (peerAddress == null) {
+            return false;
+        }
+        
+        currentResult.setMessage(buffer);
+        currentResult.setReadSize(currentResult.getReadSize() + read);
+        if (connection.isConnected()) {
+            currentResult.setSrcAddressHolder(
+                    connection.peerSocketAddressHolder);
+        } else {
+            currentResult.setSrcAddress(peerAddress);
+        }
+        
+        return true;
+    }
+
     public long write(final UDPNIOConnection connection,
             final SocketAddress dstAddress, final WritableMessage message)
             throws IOException {
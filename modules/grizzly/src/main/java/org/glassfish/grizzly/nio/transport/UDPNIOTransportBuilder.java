@@ -51,6 +51,8 @@ import org.glassfish.grizzly.nio.NIOTransport;
  */
 public class UDPNIOTransportBuilder extends NIOTransportBuilder<UDPNIOTransportBuilder> {
 
+    protected int maxDatagramsPerRead = UDPNIOTransport.DEFAULT_MAX_DATAGRAMS_PER_READ;
+    protected int serverChannelsPerBind = UDPNIOTransport.DEFAULT_SERVER_CHANNELS_PER_BIND;
 
     // ------------------------------------------------------------ Constructors
 
@@ -67,12 +69,49 @@ public class UDPNIOTransportBuilder extends NIOTransportBuilder<UDPNIOTransportB
     }
 
 
+    /**
+     * @see UDPNIOTransport#getMaxDatagramsPerRead()
+     */
+    public int getMaxDatagramsPerRead() {
+        return maxDatagramsPerRead;
+    }
+
+    /**
+     * @see UDPNIOTransport#setMaxDatagramsPerRead(int)
+     *
+     * @return this <code>UDPNIOTransportBuilder</code>
+     */
+    public UDPNIOTransportBuilder setMaxDatagramsPerRead(int maxDatagramsPerRead) {
+        this.maxDatagramsPerRead = maxDatagramsPerRead;
+        return getThis();
+    }
+
+    /**
+     * @see UDPNIOTransport#getServerChannelsPerBind()
+     */
+    public int getServerChannelsPerBind() {
+        return serverChannelsPerBind;
+    }
+
+    /**
+     * @see UDPNIOTransport#setServerChannelsPerBind(int)
+     *
+     * @return this <code>UDPNIOTransportBuilder</code>
+     */
+    public UDPNIOTransportBuilder setServerChannelsPerBind(int serverChannelsPerBind) {
+        this.serverChannelsPerBind = serverChannelsPerBind;
+        return getThis();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public UDPNIOTransport build() {
-        return (UDPNIOTransport) super.build();
+        UDPNIOTransport transport = (UDPNIOTransport) super.build();
+        transport.setMaxDatagramsPerRead(maxDatagramsPerRead);
+        transport.setServerChannelsPerBind(serverChannelsPerBind);
+        return transport;
     }
 
 
@@ -43,14 +43,21 @@ package org.glassfish.grizzly.nio.transport;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Filter;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Context;
 import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.IOEventLifeCycleListener;
+import org.glassfish.grizzly.ProcessorExecutor;
 import org.glassfish.grizzly.ReadResult;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.FilterChainEvent;
 import org.glassfish.grizzly.filterchain.NextAction;
@@ -65,6 +72,63 @@ import org.glassfish.grizzly.utils.Holder;
  */
 @SuppressWarnings("unchecked")
 public final class UDPNIOTransportFilter extends BaseFilter {
+    /**
+     * Uncorks the connection, when the processing of a batched read leaves
+     * the {@link Context} the connection was corked in.
+     */
+    private static final IOEventLifeCycleListener BATCH_UNCORKER =
+            new IOEventLifeCycleListener.Adapter() {
+
+        @Override
+        public void onContextSuspend(final Context context) throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onReregister(final Context context) throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onComplete(final Context context, final Object data)
+                throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onLeave(final Context context) throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onRerun(final Context context, final Context newContext)
+                throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onError(final Context context, final Object description)
+                throws IOException {
+            uncork(context);
+        }
+
+        @Override
+        public void onNotRun(final Context context) throws IOException {
+            uncork(context);
+        }
+
+        private void uncork(final Context context) throws IOException {
+            // the listener can't be removed while it's being notified, so
+            // it stays registered and the rest of a resumed batch is
+            // processed uncorked
+            final UDPNIOConnection connection =
+                    (UDPNIOConnection) context.getConnection();
+            if (connection.isCorked()) {
+                connection.uncork();
+            }
+        }
+    };
+    
     private final UDPNIOTransport transport;
 
     UDPNIOTransportFilter(final UDPNIOTransport transport) {
@@ -77,6 +141,27 @@ public final class UDPNIOTransportFilter extends BaseFilter {
         final UDPNIOConnection connection = (UDPNIOConnection) ctx.getConnection();
         final boolean isBlocking = ctx.getTransportContext().isBlocking();
 
+        if (!isBlocking) {
+            final Object message = ctx.getMessage();
+            if (message instanceof ReadBatch) {
+                return readBatched(ctx, connection, (ReadBatch) message);
+            } else if (message == null) {
+                if (connection instanceof UDPNIOServerConnection
+                        && ((UDPNIOServerConnection) connection).isDispatchReads()) {
+                    final Executor workerThreadPool =
+                            transport.getWorkerThreadPool();
+                    if (workerThreadPool != null) {
+                        return readAndDispatch(ctx, connection,
+                                workerThreadPool);
+                    }
+                }
+                
+                if (transport.maxDatagramsPerRead > 1) {
+                    return readBatched(ctx, connection, new ReadBatch());
+                }
+            }
+        }
+        
         final Buffer inBuffer = ctx.getMessage();
 
         final ReadResult<Buffer, SocketAddress> readResult;
@@ -125,6 +210,103 @@ public final class UDPNIOTransportFilter extends BaseFilter {
         return ctx.getInvokeAction();
     }
 
+    /**
+     * Reads the next datagram of the read event's batch and passes it
+     * up the {@link org.glassfish.grizzly.filterchain.FilterChain}.
+     * The {@link ReadBatch} is returned as an unparsed remainder, so once
+     * the datagram is processed the FilterChain reruns this filter, which
+     * either reads the next datagram or finishes the batch.
+     * The connection is corked while the batch is processed in the
+     * current {@link Context}, and is uncorked by {@link #BATCH_UNCORKER}
+     * if the processing leaves the Context before the batch is over,
+     * for example if a downstream filter suspends it.
+     */
+    private NextAction readBatched(final FilterChainContext ctx,
+            final UDPNIOConnection connection, final ReadBatch batch)
+            throws IOException {
+        
+        final Context context = ctx.getInternalContext();
+        
+        if (batch.datagramsRead < transport.maxDatagramsPerRead) {
+            final ReadResult<Buffer, SocketAddress> readResult =
+                    ReadResult.create(connection);
+            
+            if (transport.readDatagram(connection, readResult)) {
+                batch.datagramsRead++;
+                if (!context.hasLifeCycleListener(BATCH_UNCORKER)) {
+                    // hold the replies back until the batch is over
+                    connection.cork();
+                    context.addLifeCycleListener(BATCH_UNCORKER);
+                }
+                
+                ctx.setMessage(readResult.getMessage());
+                ctx.setAddressHolder(readResult.getSrcAddressHolder());
+                readResult.recycle();
+                
+                return ctx.getInvokeAction(batch);
+            }
+            
+            readResult.recycle();
+        }
+        
+        // the batch is over
+        ctx.setMessage(null);
+        if (context.removeLifeCycleListener(BATCH_UNCORKER)) {
+            connection.uncork();
+        }
+        
+        return ctx.getStopAction();
+    }
+
+    /**
+     * Reads up to {@link UDPNIOTransport#getMaxDatagramsPerRead()} datagrams
+     * and passes each of them up the
+     * {@link org.glassfish.grizzly.filterchain.FilterChain} in a separate
+     * {@link FilterChainContext} executed by the worker thread pool, so the
+     * datagrams of a single channel are processed in parallel.
+     * The read event itself is over as soon as the datagrams are read.
+     */
+    private NextAction readAndDispatch(final FilterChainContext ctx,
+            final UDPNIOConnection connection, final Executor workerThreadPool)
+            throws IOException {
+        
+        final FilterChain filterChain = ctx.getFilterChain();
+        final int maxDatagrams = Math.max(1, transport.maxDatagramsPerRead);
+        
+        for (int i = 0; i < maxDatagrams; i++) {
+            final ReadResult<Buffer, SocketAddress> readResult =
+                    ReadResult.create(connection);
+            
+            if (!transport.readDatagram(connection, readResult)) {
+                readResult.recycle();
+                break;
+            }
+            
+            final FilterChainContext datagramCtx =
+                    filterChain.obtainFilterChainContext(connection,
+                    ctx.getStartIdx(), ctx.getEndIdx(), ctx.getFilterIdx() + 1);
+            datagramCtx.setMessage(readResult.getMessage());
+            datagramCtx.setAddressHolder(readResult.getSrcAddressHolder());
+            datagramCtx.getInternalContext().setIoEvent(IOEvent.READ);
+            readResult.recycle();
+            
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    ProcessorExecutor.execute(datagramCtx.getInternalContext());
+                }
+            };
+            
+            try {
+                workerThreadPool.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+        
+        return ctx.getStopAction();
+    }
+
     @Override
     public NextAction handleWrite(final FilterChainContext ctx)
             throws IOException {
@@ -180,7 +362,31 @@ public final class UDPNIOTransportFilter extends BaseFilter {
 
         final Connection connection = ctx.getConnection();
         if (connection != null) {
+            final UDPNIOConnection udpConnection = (UDPNIOConnection) connection;
+            if (udpConnection.isCorked()) {
+                try {
+                    udpConnection.uncork();
+                } catch (IOException ignored) {
+                }
+            }
+            
             connection.closeSilently();
         }
     }
+
+    /**
+     * The state of a batched read event, which is stored by the
+     * {@link org.glassfish.grizzly.filterchain.FilterChain} as
+     * the {@link UDPNIOTransportFilter}'s unparsed remainder between
+     * the datagrams.
+     */
+    private static final class ReadBatch
+            implements org.glassfish.grizzly.Appendable<ReadBatch> {
+        private int datagramsRead;
+
+        @Override
+        public ReadBatch append(final ReadBatch element) {
+            return this;
+        }
+    }
 }
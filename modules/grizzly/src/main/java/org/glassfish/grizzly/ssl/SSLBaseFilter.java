@@ -47,8 +47,11 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Filter;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -83,6 +86,9 @@ import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.ssl.SSLConnectionContext.Allocator;
 import org.glassfish.grizzly.ssl.SSLConnectionContext.SslResult;
 import org.glassfish.grizzly.utils.DataStructures;
@@ -95,7 +101,8 @@ import static org.glassfish.grizzly.ssl.SSLUtils.*;
  *
  * @author Alexey Stashok
  */
-public class SSLBaseFilter extends BaseFilter {
+public class SSLBaseFilter extends BaseFilter
+        implements MonitoringAware<SSLProbe> {
     private static final Logger LOGGER = Grizzly.logger(SSLBaseFilter.class);
     protected static final MessageCloner<Buffer> COPY_CLONER = new OnWriteCopyCloner();
 
@@ -131,6 +138,20 @@ public class SSLBaseFilter extends BaseFilter {
             DataStructures.<HandshakeListener, Boolean>getConcurrentMap(2));
     
     private long handshakeTimeoutMillis = -1;
+
+    private volatile Executor handshakeExecutor;
+
+    /**
+     * The number of connections, whose delegated tasks have been submitted to
+     * the handshake {@link Executor}, but not completed yet.
+     */
+    private final AtomicInteger pendingDelegatedTasks = new AtomicInteger();
+
+    /**
+     * SSL probes
+     */
+    protected final DefaultMonitoringConfig<SSLProbe> monitoringConfig =
+            new DefaultMonitoringConfig<SSLProbe>(SSLProbe.class);
         
     private SSLTransportFilterWrapper optimizedTransportFilter;
     
@@ -234,6 +255,61 @@ public class SSLBaseFilter extends BaseFilter {
         }
     }
 
+    /**
+     * @return the {@link Executor} used to run {@link SSLEngine} delegated
+     * tasks, or <tt>null</tt> if the filter's own executor is not set.
+     *
+     * @see #setHandshakeExecutor(java.util.concurrent.Executor)
+     * @since 2.4.0
+     */
+    public Executor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Sets the {@link Executor} to run {@link SSLEngine} delegated tasks
+     * (certificate validation, key exchange computations etc.) on.
+     * While the tasks are being executed the {@link Connection}'s
+     * {@link FilterChain} processing is suspended, so the thread, which
+     * processed the handshake data, is released. Once the tasks are completed
+     * the processing is resumed on the {@link Executor}'s thread.
+     *
+     * If the executor is not set, the one configured on
+     * {@link SSLEngineConfigurator#getHandshakeExecutor()} is used, if neither
+     * is set - the delegated tasks are executed in the current thread.
+     * The executor is not used if the blocking handshake mode is enabled
+     * via {@link #setHandshakeTimeout(long, java.util.concurrent.TimeUnit)}.
+     *
+     * @param handshakeExecutor the {@link Executor} to run delegated tasks on,
+     *  or <tt>null</tt>.
+     *
+     * @since 2.4.0
+     */
+    public void setHandshakeExecutor(final Executor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
+    /**
+     * @return the number of connections, whose {@link SSLEngine} delegated
+     * tasks have been submitted to the handshake {@link Executor}, but
+     * not completed yet.
+     *
+     * @since 2.4.0
+     */
+    public int getPendingDelegatedTasksCount() {
+        return pendingDelegatedTasks.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 2.4.0
+     */
+    @Override
+    public MonitoringConfig<SSLProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
     /**
      * Completely disables renegotiation.
      *
@@ -314,9 +390,13 @@ public class SSLBaseFilter extends BaseFilter {
         final SSLConnectionContext sslCtx = obtainSslConnectionContext(connection);
         SSLEngine sslEngine = sslCtx.getSslEngine();
         
-        if (sslEngine != null && !isHandshaking(sslEngine)) {
+        if (sslEngine != null && !isHandshaking(sslEngine)
+                && !sslCtx.isHandshakeSuspended()) {
             return unwrapAll(ctx, sslCtx);
         } else {
+            // the delegated tasks (if any) have been completed
+            sslCtx.setHandshakeSuspended(false);
+            
             if (sslEngine == null) {
                 sslEngine = serverSSLEngineConfigurator.createSSLEngine();
                 sslEngine.beginHandshake();
@@ -325,16 +405,29 @@ public class SSLBaseFilter extends BaseFilter {
             }
 
             final Buffer buffer;
-            buffer = ((handshakeTimeoutMillis >= 0)
-                         ? doHandshakeSync(sslCtx,
-                                           ctx,
-                                           (Buffer) ctx.getMessage(),
-                                           handshakeTimeoutMillis)
-                         : makeInputRemainder(sslCtx,
-                                              ctx,
-                                              doHandshakeStep(sslCtx,
-                                                              ctx,
-                                                              (Buffer) ctx.getMessage())));
+            if (handshakeTimeoutMillis >= 0) {
+                buffer = doHandshakeSync(sslCtx,
+                                         ctx,
+                                         (Buffer) ctx.getMessage(),
+                                         handshakeTimeoutMillis);
+            } else {
+                final Executor executor = obtainHandshakeExecutor(sslCtx);
+                sslCtx.setDelegatedTaskOffloadAllowed(executor != null);
+                try {
+                    buffer = makeInputRemainder(sslCtx,
+                                                ctx,
+                                                doHandshakeStep(sslCtx,
+                                                                ctx,
+                                                                (Buffer) ctx.getMessage()));
+                } finally {
+                    sslCtx.setDelegatedTaskOffloadAllowed(false);
+                }
+                
+                if (executor != null && sslEngine.getHandshakeStatus()
+                        == HandshakeStatus.NEED_TASK) {
+                    return offloadDelegatedTasks(ctx, sslCtx, executor, buffer);
+                }
+            }
         
             final boolean hasRemaining = buffer != null && buffer.hasRemaining();
             
@@ -386,8 +479,9 @@ public class SSLBaseFilter extends BaseFilter {
 
         //noinspection SynchronizationOnLocalVariableOrMethodParameter
         synchronized(connection) {
-            final Buffer output =
-                    wrapAll(ctx, obtainSslConnectionContext(connection));
+            final SSLConnectionContext sslCtx =
+                    obtainSslConnectionContext(connection);
+            final Buffer output = wrapAll(ctx, sslCtx);
 
             final TransportContext transportContext =
                     ctx.getTransportContext();
@@ -398,6 +492,10 @@ public class SSLBaseFilter extends BaseFilter {
                     COPY_CLONER,
                     transportContext.isBlocking());
 
+            // the output buffer has been either written or cloned,
+            // don't keep it referenced while the connection is idle
+            sslCtx.resetLastOutputBuffer();
+            
             return ctx.getStopAction();
         }
     }
@@ -583,6 +681,90 @@ public class SSLBaseFilter extends BaseFilter {
 //        }
 //    }
 
+    /**
+     * Returns the {@link Executor} to run the {@link SSLEngine} delegated
+     * tasks on, or <tt>null</tt> if the tasks have to be executed in the
+     * current thread.
+     *
+     * @param sslCtx {@link SSLConnectionContext}
+     * @return the {@link Executor} to run the delegated tasks on, or
+     *  <tt>null</tt>.
+     *
+     * @since 2.4.0
+     */
+    protected Executor obtainHandshakeExecutor(
+            final SSLConnectionContext sslCtx) {
+        final Executor executor = handshakeExecutor;
+        if (executor != null) {
+            return executor;
+        }
+        
+        final SSLEngine sslEngine = sslCtx.getSslEngine();
+        return sslEngine != null && !sslEngine.getUseClientMode()
+                ? serverSSLEngineConfigurator.getHandshakeExecutor()
+                : null;
+    }
+
+    /**
+     * Suspends the {@link FilterChainContext} and executes the
+     * {@link SSLEngine} delegated tasks using the passed {@link Executor}.
+     * Once the tasks are completed, the processing is resumed and
+     * the filter is rerun, so the handshake could move on.
+     */
+    private NextAction offloadDelegatedTasks(final FilterChainContext ctx,
+            final SSLConnectionContext sslCtx, final Executor executor,
+            final Buffer remainder) {
+        
+        final Connection connection = ctx.getConnection();
+        final SSLEngine sslEngine = sslCtx.getSslEngine();
+        
+        final NextAction suspendAction = ctx.getSuspendAction();
+        ctx.setMessage(remainder);
+        ctx.suspend();
+        
+        sslCtx.setHandshakeSuspended(true);
+
+        notifyProbesDelegatedTaskQueued(connection,
+                pendingDelegatedTasks.incrementAndGet());
+        final long queuedTime = System.nanoTime();
+        
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executeDelegatedTask(sslEngine);
+                } catch (Throwable t) {
+                    // the SSLEngine will report the failure on the next
+                    // wrap/unwrap
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.log(Level.FINE,
+                                "Delegated task failed. Connection=" + connection, t);
+                    }
+                }
+                
+                notifyProbesDelegatedTaskComplete(connection,
+                        pendingDelegatedTasks.decrementAndGet(),
+                        System.nanoTime() - queuedTime);
+                
+                ctx.resume(ctx.getRerunFilterAction());
+            }
+        };
+        
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Handshake executor rejected the"
+                        + " delegated task, running it in the current thread."
+                        + " Connection={0}", connection);
+            }
+            
+            task.run();
+        }
+        
+        return suspendAction;
+    }
+
     protected Buffer doHandshakeSync(final SSLConnectionContext sslCtx,
             final FilterChainContext ctx,
             Buffer inputBuffer,
@@ -706,6 +888,12 @@ public class SSLBaseFilter extends BaseFilter {
                         if (isLoggingFinest) {
                             LOGGER.log(Level.FINEST, "NEED_TASK Engine: {0}", sslEngine);
                         }
+                        
+                        if (sslCtx.isDelegatedTaskOffloadAllowed()) {
+                            // the caller will run the tasks on the handshake executor
+                            break _exitWhile;
+                        }
+                        
                         executeDelegatedTask(sslEngine);
                         handshakeStatus = sslEngine.getHandshakeStatus();
                         break;
@@ -741,6 +929,7 @@ public class SSLBaseFilter extends BaseFilter {
                     inputBuffer = makeInputRemainder(sslCtx, ctx, inputBuffer);
                 }
                 
+                sslCtx.resetLastOutputBuffer();
                 ctx.write(tmpNetBuffer);
             }
         }
@@ -1007,11 +1196,21 @@ public class SSLBaseFilter extends BaseFilter {
     }
 
     protected void notifyHandshakeStart(final Connection connection) {
+        obtainSslConnectionContext(connection).setHandshakeStartTime(
+                System.nanoTime());
+        
         if (!handshakeListeners.isEmpty()) {
             for (final HandshakeListener listener : handshakeListeners) {
                 listener.onStart(connection);
             }
         }
+        
+        final SSLProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLProbe probe : probes) {
+                probe.onHandshakeStartEvent(this, connection);
+            }
+        }
     }
     
     protected void notifyHandshakeComplete(final Connection<?> connection,
@@ -1022,6 +1221,15 @@ public class SSLBaseFilter extends BaseFilter {
                 listener.onComplete(connection);
             }
         }
+        
+        final SSLProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            final long handshakeTime = System.nanoTime()
+                    - obtainSslConnectionContext(connection).getHandshakeStartTime();
+            for (SSLProbe probe : probes) {
+                probe.onHandshakeCompleteEvent(this, connection, handshakeTime);
+            }
+        }
     }
 
     protected void notifyHandshakeFailed(final Connection connection,
@@ -1031,6 +1239,34 @@ public class SSLBaseFilter extends BaseFilter {
                 listener.onFailure(connection, t);
             }
         }
+        
+        final SSLProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLProbe probe : probes) {
+                probe.onHandshakeFailureEvent(this, connection, t);
+            }
+        }
+    }
+    
+    private void notifyProbesDelegatedTaskQueued(final Connection connection,
+            final int queueSize) {
+        final SSLProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLProbe probe : probes) {
+                probe.onDelegatedTaskQueueEvent(this, connection, queueSize);
+            }
+        }
+    }
+    
+    private void notifyProbesDelegatedTaskComplete(final Connection connection,
+            final int queueSize, final long taskTime) {
+        final SSLProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLProbe probe : probes) {
+                probe.onDelegatedTaskCompleteEvent(this, connection,
+                        queueSize, taskTime);
+            }
+        }
     }
     
     // ----------------------------------------------------------- Inner Classes
@@ -80,15 +80,14 @@ public final class SSLConnectionContext {
         BUFFER_SIZE_COEF = coeff;
     }
     
-    final ByteBufferArray outputByteBufferArray =
-            ByteBufferArray.create();
-    
-    final ByteBufferArray inputByteBufferArray =
-            ByteBufferArray.create();
-
+    // The context doesn't own any network or application buffers between
+    // operations: ByteBufferArrays are borrowed from the thread cache for the
+    // duration of a single wrap/unwrap, input and output buffers are
+    // referenced only while the operation, which uses them, is in progress,
+    // so an idle TLS connection retains nothing but its SSLEngine.
     private Buffer lastOutputBuffer;
-    private final InputBufferWrapper inputBuffer = new InputBufferWrapper();
-    private InputBufferWrapper lastInputBuffer;
+    private InputBufferWrapper inputBuffer;
+    private Buffer lastInputBuffer;
     
     private boolean isServerMode;
     private SSLEngine sslEngine;
@@ -98,6 +97,15 @@ public final class SSLConnectionContext {
     
     private final Connection connection;
     private FilterChain newConnectionFilterChain;
+    
+    // true, if the handshake step may leave SSLEngine delegated tasks
+    // to be executed asynchronously
+    private boolean isDelegatedTaskOffloadAllowed;
+    // true, if the handshake has been suspended until the SSLEngine
+    // delegated tasks are executed
+    private volatile boolean isHandshakeSuspended;
+    
+    private long handshakeStartTime;
 
     public SSLConnectionContext(Connection connection) {
         this.connection = connection;
@@ -147,6 +155,30 @@ public final class SSLConnectionContext {
         this.newConnectionFilterChain = newConnectionFilterChain;
     }
 
+    boolean isDelegatedTaskOffloadAllowed() {
+        return isDelegatedTaskOffloadAllowed;
+    }
+
+    void setDelegatedTaskOffloadAllowed(final boolean isAllowed) {
+        this.isDelegatedTaskOffloadAllowed = isAllowed;
+    }
+
+    boolean isHandshakeSuspended() {
+        return isHandshakeSuspended;
+    }
+
+    void setHandshakeSuspended(final boolean isHandshakeSuspended) {
+        this.isHandshakeSuspended = isHandshakeSuspended;
+    }
+
+    long getHandshakeStartTime() {
+        return handshakeStartTime;
+    }
+
+    void setHandshakeStartTime(final long handshakeStartTime) {
+        this.handshakeStartTime = handshakeStartTime;
+    }
+
     Buffer resetLastOutputBuffer() {
         final Buffer tmp = lastOutputBuffer;
         lastOutputBuffer = null;
@@ -158,16 +190,31 @@ public final class SSLConnectionContext {
         this.lastOutputBuffer = lastOutputBuffer;
     }
 
-    InputBufferWrapper resetLastInputBuffer() {
-        final InputBufferWrapper tmp = lastInputBuffer;
+    Buffer resetLastInputBuffer() {
+        final Buffer tmp = lastInputBuffer;
         lastInputBuffer = null;
         return tmp;
     }
 
     @SuppressWarnings("unused")
     InputBufferWrapper useInputBuffer() {
+        if (inputBuffer == null) {
+            inputBuffer = new InputBufferWrapper();
+        }
+        
         lastInputBuffer = inputBuffer;
-        return lastInputBuffer;
+        return inputBuffer;
+    }
+
+    /**
+     * Marks the passed {@link Buffer}, which is not owned by the
+     * {@link Connection}'s {@link MemoryManager}, as the current input buffer,
+     * so the unprocessed input remainder (if any) will be copied out of it
+     * instead of being kept as a slice.
+     */
+    Buffer useInputBuffer(final Buffer buffer) {
+        lastInputBuffer = buffer;
+        return buffer;
     }
 
     SslResult unwrap(int len, final Buffer input, Buffer output,
@@ -194,8 +241,7 @@ public final class SSLConnectionContext {
                         output.toByteBuffer());
 
             } else {
-                final ByteBufferArray bba =
-                        output.toByteBufferArray(this.outputByteBufferArray);
+                final ByteBufferArray bba = output.toByteBufferArray();
                 final ByteBuffer[] outputArray = bba.getArray();
 
                 try {
@@ -203,7 +249,7 @@ public final class SSLConnectionContext {
                             outputArray, 0, bba.size());
                 } finally {
                     bba.restore();
-                    bba.reset();
+                    bba.recycle();
                 }
             }
         } catch (SSLException e) {
@@ -236,8 +282,7 @@ public final class SSLConnectionContext {
             final Allocator allocator) throws SSLException {
         final MemoryManager memoryManager = connection.getMemoryManager();
         
-        final ByteBufferArray bba =
-                input.toByteBufferArray(inputByteBufferArray);
+        final ByteBufferArray bba = input.toByteBufferArray();
         final ByteBuffer[] inputArray = bba.getArray();
         final int inputArraySize = bba.size();
         
@@ -273,7 +318,7 @@ public final class SSLConnectionContext {
             return output;
         } finally {
             bba.restore();
-            bba.reset();
+            bba.recycle();
             if (result != null && result.isError()) {
                 if (output != null) {
                     output.dispose();
@@ -361,8 +406,7 @@ public final class SSLConnectionContext {
                         outputByteBuffer);
 
             } else {
-                final ByteBufferArray bba =
-                        input.toByteBufferArray(this.inputByteBufferArray);
+                final ByteBufferArray bba = input.toByteBufferArray();
                 final ByteBuffer[] inputArray = bba.getArray();
 
                 try {
@@ -371,7 +415,7 @@ public final class SSLConnectionContext {
                             outputByteBuffer);
                 } finally {
                     bba.restore();
-                    bba.reset();
+                    bba.recycle();
                 }
             }
         } catch (SSLException e) {
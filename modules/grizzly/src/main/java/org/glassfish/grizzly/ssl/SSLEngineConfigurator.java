@@ -42,6 +42,7 @@ package org.glassfish.grizzly.ssl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -89,6 +90,10 @@ public class SSLEngineConfigurator implements SSLEngineFactory {
      * Has the enabled Cipher configured.
      */
     private boolean isCipherConfigured = false;
+    /**
+     * The {@link Executor} to run {@link SSLEngine} delegated tasks on.
+     */
+    protected Executor handshakeExecutor;
     
     /**
      * Create SSL Engine configuration basing on passed {@link SSLContext}.
@@ -172,6 +177,7 @@ public class SSLEngineConfigurator implements SSLEngineFactory {
 
         this.isCipherConfigured = pattern.isCipherConfigured;
         this.isProtocolConfigured = pattern.isProtocolConfigured;
+        this.handshakeExecutor = pattern.handshakeExecutor;
     }
 
     protected SSLEngineConfigurator() {
@@ -366,6 +372,39 @@ public class SSLEngineConfigurator implements SSLEngineFactory {
         return this;
     }
 
+    /**
+     * @return the {@link Executor} to run {@link SSLEngine} delegated tasks on
+     * during non-blocking handshakes, or <tt>null</tt> if the tasks are run
+     * on the thread, which processes the handshake.
+     * 
+     * @since 2.4.0
+     */
+    public Executor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Sets the {@link Executor} to run {@link SSLEngine} delegated tasks
+     * (certificate validation, key exchange computations etc.) on during
+     * non-blocking handshakes of the {@link SSLEngine}s created by this
+     * configurator. While the tasks are running, the
+     * {@link org.glassfish.grizzly.Connection}'s processing is suspended, so
+     * the thread, which handles the handshake (often a selector thread),
+     * is free to serve other connections.
+     * 
+     * @param handshakeExecutor the {@link Executor}, or <tt>null</tt> (default)
+     * to run the tasks on the thread, which processes the handshake
+     * @return this SSLEngineConfigurator
+     * @see SSLBaseFilter#setHandshakeExecutor(java.util.concurrent.Executor)
+     * 
+     * @since 2.4.0
+     */
+    public SSLEngineConfigurator setHandshakeExecutor(
+            final Executor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+        return this;
+    }
+
     public SSLContext getSslContext() {
         if (sslContext == null) {
             synchronized(sync) {
@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.logging.Filter;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -340,6 +341,27 @@ public class SSLFilter extends SSLBaseFilter {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * For client side {@link Connection}s the {@link Executor} configured on
+     * the client {@link SSLEngineConfigurator} is used, if the filter's own
+     * executor is not set.
+     */
+    @Override
+    protected Executor obtainHandshakeExecutor(
+            final SSLConnectionContext sslCtx) {
+        final Executor executor = super.obtainHandshakeExecutor(sslCtx);
+        if (executor != null) {
+            return executor;
+        }
+        
+        final SSLEngine sslEngine = sslCtx.getSslEngine();
+        return sslEngine != null && sslEngine.getUseClientMode()
+                ? clientSSLEngineConfigurator.getHandshakeExecutor()
+                : null;
+    }
+
     protected SSLEngine createClientSSLEngine(
             final SSLConnectionContext sslCtx,
             final SSLEngineConfigurator sslEngineConfigurator) {
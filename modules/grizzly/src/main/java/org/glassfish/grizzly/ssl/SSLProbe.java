@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.ssl;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by
+ * {@link SSLBaseFilter} during TLS handshakes.
+ *
+ * @see SSLBaseFilter#getMonitoringConfig()
+ *
+ * @since 2.4.0
+ */
+public interface SSLProbe {
+
+    /**
+     * Method will be called, when the {@link Connection}'s handshake
+     * has been started.
+     *
+     * @param filter {@link SSLBaseFilter} the event belongs to.
+     * @param connection {@link Connection} the event belongs to.
+     */
+    void onHandshakeStartEvent(SSLBaseFilter filter, Connection connection);
+
+    /**
+     * Method will be called, when the {@link Connection}'s handshake
+     * has been successfully completed.
+     *
+     * @param filter {@link SSLBaseFilter} the event belongs to.
+     * @param connection {@link Connection} the event belongs to.
+     * @param handshakeTimeNanos the time in nanoseconds passed since the
+     *  handshake has been started.
+     */
+    void onHandshakeCompleteEvent(SSLBaseFilter filter, Connection connection,
+            long handshakeTimeNanos);
+
+    /**
+     * Method will be called, when the {@link Connection}'s handshake
+     * has failed.
+     *
+     * @param filter {@link SSLBaseFilter} the event belongs to.
+     * @param connection {@link Connection} the event belongs to.
+     * @param error the failure cause.
+     */
+    void onHandshakeFailureEvent(SSLBaseFilter filter, Connection connection,
+            Throwable error);
+
+    /**
+     * Method will be called, when the {@link Connection}'s handshake has been
+     * suspended and its {@link javax.net.ssl.SSLEngine} delegated tasks
+     * have been submitted to the handshake {@link java.util.concurrent.Executor}.
+     *
+     * @param filter {@link SSLBaseFilter} the event belongs to.
+     * @param connection {@link Connection} the event belongs to.
+     * @param queueSize the number of connections, whose delegated tasks are
+     *  submitted, but not completed yet, including this one.
+     */
+    void onDelegatedTaskQueueEvent(SSLBaseFilter filter, Connection connection,
+            int queueSize);
+
+    /**
+     * Method will be called, when the {@link Connection}'s
+     * {@link javax.net.ssl.SSLEngine} delegated tasks have been executed
+     * and the handshake is about to be resumed.
+     *
+     * @param filter {@link SSLBaseFilter} the event belongs to.
+     * @param connection {@link Connection} the event belongs to.
+     * @param queueSize the number of connections, whose delegated tasks are
+     *  submitted, but not completed yet.
+     * @param taskTimeNanos the time in nanoseconds passed since the tasks
+     *  have been submitted, including the time they spent in the queue.
+     */
+    void onDelegatedTaskCompleteEvent(SSLBaseFilter filter,
+            Connection connection, int queueSize, long taskTimeNanos);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link SSLProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     *
+     * @since 2.4.0
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements SSLProbe {
+
+
+        // ------------------------------------------------ Methods from SSLProbe
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeStartEvent(SSLBaseFilter filter,
+                Connection connection) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeCompleteEvent(SSLBaseFilter filter,
+                Connection connection, long handshakeTimeNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeFailureEvent(SSLBaseFilter filter,
+                Connection connection, Throwable error) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDelegatedTaskQueueEvent(SSLBaseFilter filter,
+                Connection connection, int queueSize) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDelegatedTaskCompleteEvent(SSLBaseFilter filter,
+                Connection connection, int queueSize, long taskTimeNanos) {}
+
+    } // END Adapter
+}
@@ -388,7 +388,8 @@ public final class SSLUtils {
 //        final InputBufferWrapper buffer = sslCtx.useInputBuffer();
 //        return buffer.prepare(sslCtx.getNetBufferSize() * 2);
         // Heap buffer input
-        return allocateOutputBuffer(sslCtx.getNetBufferSize() * 2);
+        return sslCtx.useInputBuffer(
+                allocateOutputBuffer(sslCtx.getNetBufferSize() * 2));
     }
 
     static Buffer makeInputRemainder(
@@ -396,6 +397,8 @@ public final class SSLUtils {
             final FilterChainContext context,
             final Buffer buffer) {
         
+        final Buffer inputBuffer = sslCtx.resetLastInputBuffer();
+        
         if (buffer == null) {
             return null;
         }
@@ -405,7 +408,10 @@ public final class SSLUtils {
             return null;
         }
         
-        final Buffer inputBuffer = sslCtx.resetLastInputBuffer();
+        // if SSLTransportWrapper has been used - the input buffer is shared
+        // via the thread cache, so copy the remainder (a part of a TLS record)
+        // instead of keeping a slice, which pins the entire input buffer
+        // while the connection is waiting for the rest of the record
         if (inputBuffer == null) { // SSLTransportWrapper hasn't been used
             final Buffer remainder = buffer.split(buffer.position());
             buffer.tryDispose();
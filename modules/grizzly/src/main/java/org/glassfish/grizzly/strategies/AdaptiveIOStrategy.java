@@ -0,0 +1,366 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.strategies;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.IOEventLifeCycleListener;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
+import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.SelectorRunner;
+import org.glassfish.grizzly.utils.NullaryFunction;
+
+/**
+ * {@link org.glassfish.grizzly.IOStrategy}, which decides per {@link Connection}
+ * whether to process an {@link IOEvent} in the selector thread, like
+ * {@link SameThreadIOStrategy}, or in a worker thread, like
+ * {@link WorkerThreadIOStrategy}.
+ *
+ * The strategy measures how long the {@link Connection}'s events take to
+ * process and keeps the exponentially weighted moving average (EWMA) of
+ * this time. The event is processed in the selector thread, if the
+ * {@link Connection}'s average is within the inline threshold and the
+ * selector thread hasn't been processing the current batch of selected keys
+ * longer than the max selector lag; otherwise the event is passed to the
+ * worker thread pool. The events processed by the worker threads are
+ * measured as well, so a {@link Connection}, whose events became cheap,
+ * returns to the selector thread.
+ *
+ * The decisions and the measured latencies are published via
+ * {@link AdaptiveIOStrategyProbe}s.
+ *
+ * @since 2.4.0
+ */
+public final class AdaptiveIOStrategy extends AbstractIOStrategy
+        implements MonitoringAware<AdaptiveIOStrategyProbe> {
+
+    private static final Logger logger = Grizzly.logger(AdaptiveIOStrategy.class);
+
+    /**
+     * Default max EWMA of the {@link Connection}'s event processing time (us),
+     * which lets the event be processed in the selector thread.
+     */
+    public static final long DEFAULT_INLINE_THRESHOLD_MICROS = 50;
+
+    /**
+     * Default max time (us) the selector thread may spend processing the
+     * selected keys, before the rest of the events are passed to the worker
+     * threads.
+     */
+    public static final long DEFAULT_MAX_SELECTOR_LAG_MICROS = 1000;
+
+    // the EWMA weight of the new sample is 1/2^EWMA_SHIFT
+    private static final int EWMA_SHIFT = 3;
+
+    private final Attribute<LatencyStats> latencyStatsAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    AdaptiveIOStrategy.class.getName() + '-' + hashCode() + ".latency-stats",
+                    new NullaryFunction<LatencyStats>() {
+
+                @Override
+                public LatencyStats evaluate() {
+                    return new LatencyStats();
+                }
+            });
+
+    private final long inlineThresholdNanos;
+    private final long maxSelectorLagNanos;
+
+    /**
+     * AdaptiveIOStrategy probes
+     */
+    private final DefaultMonitoringConfig<AdaptiveIOStrategyProbe> monitoringConfig =
+            new DefaultMonitoringConfig<AdaptiveIOStrategyProbe>(
+                    AdaptiveIOStrategyProbe.class);
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    public AdaptiveIOStrategy() {
+        this(DEFAULT_INLINE_THRESHOLD_MICROS, DEFAULT_MAX_SELECTOR_LAG_MICROS,
+                TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Constructs AdaptiveIOStrategy.
+     *
+     * @param inlineThreshold the max EWMA of the {@link Connection}'s event
+     *          processing time, which lets the event be processed in the
+     *          selector thread
+     * @param maxSelectorLag the max time the selector thread may spend
+     *          processing the selected keys, before the rest of the events
+     *          are passed to the worker threads
+     * @param timeUnit the {@link TimeUnit} of the parameters above
+     */
+    public AdaptiveIOStrategy(final long inlineThreshold,
+            final long maxSelectorLag, final TimeUnit timeUnit) {
+        if (inlineThreshold < 0 || maxSelectorLag < 0) {
+            throw new IllegalArgumentException("thresholds can't be negative");
+        }
+
+        this.inlineThresholdNanos = timeUnit.toNanos(inlineThreshold);
+        this.maxSelectorLagNanos = timeUnit.toNanos(maxSelectorLag);
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param timeUnit {@link TimeUnit}
+     * @return the max EWMA of the {@link Connection}'s event processing
+     *          time, which lets the event be processed in the selector thread
+     */
+    public long getInlineThreshold(final TimeUnit timeUnit) {
+        return timeUnit.convert(inlineThresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param timeUnit {@link TimeUnit}
+     * @return the max time the selector thread may spend processing the
+     *          selected keys, before the rest of the events are passed to the
+     *          worker threads
+     */
+    public long getMaxSelectorLag(final TimeUnit timeUnit) {
+        return timeUnit.convert(maxSelectorLagNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the EWMA of the {@link Connection}'s event processing time.
+     *
+     * @param connection {@link Connection}
+     * @param timeUnit {@link TimeUnit}
+     * @return the EWMA of the {@link Connection}'s event processing time
+     */
+    public long getLatency(final Connection connection, final TimeUnit timeUnit) {
+        final LatencyStats stats = latencyStatsAttr.get(connection);
+        return timeUnit.convert(stats.ewmaNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<AdaptiveIOStrategyProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
+
+    // ------------------------------------------------- Methods from IOStrategy
+
+
+    @Override
+    public boolean executeIoEvent(final Connection connection,
+            final IOEvent ioEvent, final boolean isIoEventEnabled)
+            throws IOException {
+
+        final Executor threadPool = super.getThreadPoolFor(connection, ioEvent);
+        if (threadPool == null) {
+            // not a worker thread event (WRITE, SERVER_ACCEPT...)
+            return SameThreadIOStrategy.getInstance().executeIoEvent(
+                    connection, ioEvent, isIoEventEnabled);
+        }
+
+        final LatencyStats stats = latencyStatsAttr.get(connection);
+        final long latencyNanos = stats.ewmaNanos;
+        final long selectorLagNanos = getSelectorLag(connection);
+        final boolean isWorkerThread = latencyNanos > inlineThresholdNanos
+                || selectorLagNanos > maxSelectorLagNanos;
+
+        notifyProbesDispatch(this, connection, ioEvent, isWorkerThread,
+                latencyNanos, selectorLagNanos);
+
+        if (!isWorkerThread) {
+            final long startTime = System.nanoTime();
+            try {
+                return SameThreadIOStrategy.getInstance().executeIoEvent(
+                        connection, ioEvent, isIoEventEnabled);
+            } finally {
+                onExecuted(connection, ioEvent, stats, System.nanoTime() - startTime);
+            }
+        }
+
+        final boolean isReadOrWriteEvent = isReadWrite(ioEvent);
+
+        final IOEventLifeCycleListener listener;
+        if (isReadOrWriteEvent) {
+            if (isIoEventEnabled) {
+                connection.disableIOEvent(ioEvent);
+            }
+
+            listener = ENABLE_INTEREST_LIFECYCLE_LISTENER;
+        } else {
+            listener = null;
+        }
+
+        threadPool.execute(new WorkerThreadRunnable(connection, ioEvent,
+                listener, stats));
+
+        return true;
+    }
+
+    @Override
+    public Executor getThreadPoolFor(final Connection connection,
+            final IOEvent ioEvent) {
+        final Executor threadPool = super.getThreadPoolFor(connection, ioEvent);
+        if (threadPool == null) {
+            return null;
+        }
+
+        return latencyStatsAttr.get(connection).ewmaNanos > inlineThresholdNanos ?
+                threadPool :
+                null;
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static long getSelectorLag(final Connection connection) {
+        if (connection instanceof NIOConnection) {
+            final SelectorRunner runner =
+                    ((NIOConnection) connection).getSelectorRunner();
+            if (runner != null && runner.getRunnerThread() == Thread.currentThread()) {
+                return System.nanoTime() - runner.getLastSelectReturnTime();
+            }
+        }
+
+        return 0;
+    }
+
+    private void onExecuted(final Connection connection, final IOEvent ioEvent,
+            final LatencyStats stats, final long executionTimeNanos) {
+        final long latencyNanos = stats.update(executionTimeNanos);
+        notifyProbesLatency(this, connection, ioEvent,
+                executionTimeNanos, latencyNanos);
+    }
+
+    private static void notifyProbesDispatch(final AdaptiveIOStrategy strategy,
+            final Connection connection, final IOEvent ioEvent,
+            final boolean isWorkerThread, final long latencyNanos,
+            final long selectorLagNanos) {
+        final AdaptiveIOStrategyProbe[] probes =
+                strategy.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (AdaptiveIOStrategyProbe probe : probes) {
+                probe.onDispatchEvent(strategy, connection, ioEvent,
+                        isWorkerThread, latencyNanos, selectorLagNanos);
+            }
+        }
+    }
+
+    private static void notifyProbesLatency(final AdaptiveIOStrategy strategy,
+            final Connection connection, final IOEvent ioEvent,
+            final long executionTimeNanos, final long latencyNanos) {
+        final AdaptiveIOStrategyProbe[] probes =
+                strategy.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (AdaptiveIOStrategyProbe probe : probes) {
+                probe.onLatencyEvent(strategy, connection, ioEvent,
+                        executionTimeNanos, latencyNanos);
+            }
+        }
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * The {@link Connection}'s event processing time statistics.
+     * The connection's events are processed one at a time, so the updates
+     * don't race with each other.
+     */
+    private static final class LatencyStats {
+        private volatile long ewmaNanos;
+        private boolean hasSamples;
+
+        private long update(final long sampleNanos) {
+            final long newEwma;
+            if (hasSamples) {
+                final long ewma = ewmaNanos;
+                newEwma = ewma + ((sampleNanos - ewma) >> EWMA_SHIFT);
+            } else {
+                hasSamples = true;
+                newEwma = sampleNanos;
+            }
+
+            ewmaNanos = newEwma;
+            return newEwma;
+        }
+    }
+
+    private final class WorkerThreadRunnable implements Runnable {
+        final Connection connection;
+        final IOEvent ioEvent;
+        final IOEventLifeCycleListener lifeCycleListener;
+        final LatencyStats stats;
+
+        private WorkerThreadRunnable(final Connection connection,
+                final IOEvent ioEvent,
+                final IOEventLifeCycleListener lifeCycleListener,
+                final LatencyStats stats) {
+            this.connection = connection;
+            this.ioEvent = ioEvent;
+            this.lifeCycleListener = lifeCycleListener;
+            this.stats = stats;
+        }
+
+        @Override
+        public void run() {
+            final long startTime = System.nanoTime();
+            try {
+                fireIOEvent(connection, ioEvent, lifeCycleListener, logger);
+            } finally {
+                onExecuted(connection, ioEvent, stats, System.nanoTime() - startTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.strategies;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by
+ * {@link AdaptiveIOStrategy}.
+ *
+ * @since 2.4.0
+ */
+public interface AdaptiveIOStrategyProbe {
+
+    /**
+     * Method will be called, when the {@link AdaptiveIOStrategy} decided
+     * how to process the {@link IOEvent}.
+     *
+     * @param strategy the {@link AdaptiveIOStrategy}, the event belongs to.
+     * @param connection {@link Connection}, the event belongs to.
+     * @param ioEvent the {@link IOEvent} to be processed.
+     * @param isWorkerThread <tt>true</tt>, if the event will be processed in
+     *          a worker thread, or <tt>false</tt> if it will be processed in
+     *          the selector thread.
+     * @param latencyNanos the {@link Connection}'s event processing time
+     *          EWMA (in nanoseconds) the decision was based on.
+     * @param selectorLagNanos the time (in nanoseconds) the selector thread
+     *          has been processing the selected keys, when the decision was made.
+     */
+    void onDispatchEvent(AdaptiveIOStrategy strategy, Connection connection,
+            IOEvent ioEvent, boolean isWorkerThread,
+            long latencyNanos, long selectorLagNanos);
+
+    /**
+     * Method will be called, when the {@link AdaptiveIOStrategy} has
+     * measured the {@link IOEvent} processing time.
+     *
+     * @param strategy the {@link AdaptiveIOStrategy}, the event belongs to.
+     * @param connection {@link Connection}, the event belongs to.
+     * @param ioEvent the processed {@link IOEvent}.
+     * @param executionTimeNanos the event processing time (in nanoseconds).
+     * @param latencyNanos the updated {@link Connection}'s event processing
+     *          time EWMA (in nanoseconds).
+     */
+    void onLatencyEvent(AdaptiveIOStrategy strategy, Connection connection,
+            IOEvent ioEvent, long executionTimeNanos, long latencyNanos);
+
+
+    // ------------------------------------------------------------ Nested Classes
+
+    /**
+     * {@link AdaptiveIOStrategyProbe} adapter that provides no-op implementations
+     * for all interface methods allowing easy extension by the developer.
+     */
+    class Adapter implements AdaptiveIOStrategyProbe {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDispatchEvent(AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent, boolean isWorkerThread,
+                long latencyNanos, long selectorLagNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLatencyEvent(AdaptiveIOStrategy strategy,
+                Connection connection, IOEvent ioEvent,
+                long executionTimeNanos, long latencyNanos) {}
+    }
+}
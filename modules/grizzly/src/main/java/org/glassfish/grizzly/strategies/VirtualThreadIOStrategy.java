@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.strategies;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.IOEventLifeCycleListener;
+import org.glassfish.grizzly.Processor;
+import org.glassfish.grizzly.threadpool.VirtualThreads;
+
+/**
+ * {@link org.glassfish.grizzly.IOStrategy}, which executes {@link Processor}s
+ * in a new virtual thread for each {@link IOEvent}, so the {@link Processor}
+ * logic is allowed to block (for example perform blocking reads and writes)
+ * without occupying a worker thread.
+ *
+ * If the current JVM doesn't support virtual threads (see
+ * {@link VirtualThreads#isSupported()}) - the strategy falls back to the
+ * {@link WorkerThreadIOStrategy} behavior and executes {@link Processor}s
+ * using the transport worker thread pool.
+ *
+ * @since 2.4.0
+ */
+public final class VirtualThreadIOStrategy extends AbstractIOStrategy {
+
+    private static final VirtualThreadIOStrategy INSTANCE = new VirtualThreadIOStrategy();
+
+    private static final Logger logger = Grizzly.logger(VirtualThreadIOStrategy.class);
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private VirtualThreadIOStrategy() { }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    public static VirtualThreadIOStrategy getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return <tt>true</tt> if {@link Processor}s are executed in virtual
+     * threads, or <tt>false</tt> if the strategy falls back to the transport
+     * worker thread pool
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return VirtualThreads.isSupported();
+    }
+
+
+    // ------------------------------------------------- Methods from IOStrategy
+
+
+    @Override
+    public boolean executeIoEvent(final Connection connection,
+            final IOEvent ioEvent, final boolean isIoEventEnabled)
+            throws IOException {
+
+        final boolean isReadOrWriteEvent = isReadWrite(ioEvent);
+
+        final IOEventLifeCycleListener listener;
+        if (isReadOrWriteEvent) {
+            if (isIoEventEnabled) {
+                connection.disableIOEvent(ioEvent);
+            }
+            
+            listener = ENABLE_INTEREST_LIFECYCLE_LISTENER;
+        } else {
+            listener = null;
+        }
+
+        final Executor threadPool = getThreadPoolFor(connection, ioEvent);
+        if (threadPool != null) {
+            threadPool.execute(
+                    new VirtualThreadRunnable(connection, ioEvent, listener));
+        } else {
+            run0(connection, ioEvent, listener);
+        }
+
+        return true;
+    }
+
+    @Override
+    public Executor getThreadPoolFor(final Connection connection,
+            final IOEvent ioEvent) {
+        final Executor workerThreadPool =
+                super.getThreadPoolFor(connection, ioEvent);
+        if (workerThreadPool == null) {
+            return null;
+        }
+
+        final Executor virtualThreadExecutor = VirtualThreads.getExecutor();
+        return virtualThreadExecutor != null
+                ? virtualThreadExecutor
+                : workerThreadPool;
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static void run0(final Connection connection,
+                             final IOEvent ioEvent,
+                             final IOEventLifeCycleListener lifeCycleListener) {
+
+        fireIOEvent(connection, ioEvent, lifeCycleListener, logger);
+
+    }
+    
+    private static final class VirtualThreadRunnable implements Runnable {
+        final Connection connection;
+        final IOEvent ioEvent;
+        final IOEventLifeCycleListener lifeCycleListener;
+        
+        private VirtualThreadRunnable(final Connection connection,
+                final IOEvent ioEvent,
+                final IOEventLifeCycleListener lifeCycleListener) {
+            this.connection = connection;
+            this.ioEvent = ioEvent;
+            this.lifeCycleListener = lifeCycleListener;
+            
+        }
+
+        @Override
+        public void run() {
+            run0(connection, ioEvent, lifeCycleListener);
+        }        
+    }
+
+}
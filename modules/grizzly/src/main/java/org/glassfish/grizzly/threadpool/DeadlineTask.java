@@ -0,0 +1,82 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.threadpool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The task, which has to be started by the thread pool within the specific
+ * time after it has been queued.
+ * 
+ * The {@link DeadlineThreadPool} serves the queued tasks earliest deadline
+ * first, so the tasks with shorter deadlines are preferred to the tasks with
+ * longer ones, and sheds the tasks, which have missed their deadline while
+ * waiting in the queue, by calling {@link #onDeadlineMissed()} instead of
+ * {@link #run()}. The other thread pool implementations execute the task as
+ * a regular {@link Runnable}.
+ * 
+ * @see ThreadPoolConfig#setDeadlineScheduling(boolean)
+ * 
+ * @since 2.4.0
+ */
+public interface DeadlineTask extends Runnable {
+    
+    /**
+     * Returns the time, within which the task has to be started after it
+     * has been queued, or a negative value to use the thread pool's
+     * {@link ThreadPoolConfig#getTaskDeadline(java.util.concurrent.TimeUnit)}.
+     * 
+     * @param timeUnit the {@link TimeUnit} of the returned value
+     * @return the time, within which the task has to be started after it
+     *          has been queued, or a negative value to use the thread pool's
+     *          default
+     */
+    long getDeadline(TimeUnit timeUnit);
+    
+    /**
+     * Invoked by the thread pool instead of {@link #run()}, if the task has
+     * missed its deadline while waiting in the queue. The implementation is
+     * expected to release the resources associated with the task and, if
+     * possible, notify the task originator that the task has been rejected.
+     */
+    void onDeadlineMissed();
+}
@@ -0,0 +1,279 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.threadpool;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed thread pool, which serves the queued tasks earliest deadline first
+ * (EDF), instead of the FIFO order, so under overload the tasks with the
+ * closer deadlines still have a chance to be executed in time.
+ * 
+ * The deadline of a task is the time it's queued at plus the
+ * {@link DeadlineTask#getDeadline(java.util.concurrent.TimeUnit)}, if the
+ * task is a {@link DeadlineTask} which specifies its own deadline, or the
+ * {@link ThreadPoolConfig#getTaskDeadline(java.util.concurrent.TimeUnit)}
+ * otherwise. If neither is set - the task is ordered as if its deadline
+ * were {@link #DEFAULT_TASK_DEADLINE_MILLIS}, so such tasks are served in
+ * FIFO order among themselves, but don't starve the tasks, which have been
+ * queued earlier and whose deadlines are closer.
+ * 
+ * A {@link DeadlineTask}, which has a deadline and hasn't been started
+ * before the deadline, is shed: the thread pool invokes
+ * {@link DeadlineTask#onDeadlineMissed()} instead of {@link Runnable#run()}
+ * and notifies {@link ThreadPoolProbe#onTaskCancelEvent(AbstractThreadPool, Runnable)}.
+ * The tasks, which are not {@link DeadlineTask}s, are never shed.
+ * 
+ * The pool starts the max pool size threads, the queue limit is applied to
+ * the number of the queued tasks. The {@link ThreadPoolConfig#getQueue()}
+ * setting is ignored.
+ * 
+ * @see ThreadPoolConfig#setDeadlineScheduling(boolean)
+ * 
+ * @since 2.4.0
+ */
+public class DeadlineThreadPool extends AbstractThreadPool {
+    
+    /**
+     * The deadline, which is used to order a task, which specifies no
+     * deadline, if the {@link ThreadPoolConfig} doesn't set the default one.
+     * Such a task is never shed.
+     */
+    public static final long DEFAULT_TASK_DEADLINE_MILLIS = 1000;
+    
+    private static final Comparator<Runnable> DEADLINE_COMPARATOR =
+            new Comparator<Runnable>() {
+
+        @Override
+        public int compare(final Runnable r1, final Runnable r2) {
+            // poison and the tasks drained from another pool go last
+            if (!(r1 instanceof QueuedTask)) {
+                return r2 instanceof QueuedTask ? 1 : 0;
+            } else if (!(r2 instanceof QueuedTask)) {
+                return -1;
+            }
+            
+            final QueuedTask t1 = (QueuedTask) r1;
+            final QueuedTask t2 = (QueuedTask) r2;
+            
+            final long diff = t1.deadline - t2.deadline;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            
+            return t1.seq < t2.seq ? -1 : (t1.seq == t2.seq ? 0 : 1);
+        }
+    };
+    
+    private final PriorityBlockingQueue<Runnable> workQueue;
+    private final long defaultDeadlineNanos;
+    private final AtomicInteger queuedTasksCount = new AtomicInteger();
+    private final AtomicLong seqCounter = new AtomicLong();
+    
+    public DeadlineThreadPool(final ThreadPoolConfig config) {
+        super(config);
+        
+        workQueue = new PriorityBlockingQueue<Runnable>(64, DEADLINE_COMPARATOR);
+        config.setQueue(workQueue);
+        defaultDeadlineNanos = config.getTaskDeadline(TimeUnit.NANOSECONDS);
+        
+        int poolSize = config.getMaxPoolSize();
+
+        synchronized (stateLock) {
+            while (poolSize-- > 0) {
+                startWorker(new DeadlineWorker());
+            }
+        }
+
+        ProbeNotifier.notifyThreadPoolStarted(this);
+        super.onMaxNumberOfThreadsReached();
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Runnable task is null");
+        }
+
+        if (!running) {
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+        
+        final int queueLimit = config.getQueueLimit();
+        if (queueLimit >= 0 &&
+                queuedTasksCount.incrementAndGet() > queueLimit) {
+            queuedTasksCount.decrementAndGet();
+            onTaskQueueOverflow();
+            return;
+        } else if (queueLimit < 0) {
+            queuedTasksCount.incrementAndGet();
+        }
+        
+        long deadlineNanos = task instanceof DeadlineTask
+                ? ((DeadlineTask) task).getDeadline(TimeUnit.NANOSECONDS)
+                : -1;
+        if (deadlineNanos < 0) {
+            deadlineNanos = defaultDeadlineNanos;
+        }
+        
+        final boolean isSheddable =
+                deadlineNanos >= 0 && task instanceof DeadlineTask;
+        if (deadlineNanos < 0) {
+            deadlineNanos = TimeUnit.MILLISECONDS.toNanos(
+                    DEFAULT_TASK_DEADLINE_MILLIS);
+        }
+        
+        final QueuedTask queuedTask = new QueuedTask(task,
+                System.nanoTime() + deadlineNanos,
+                seqCounter.getAndIncrement(), isSheddable);
+        
+        // notify before the task is visible to the workers, so the probes
+        // never see it dequeued before it's queued
+        onTaskQueued(task);
+        workQueue.offer(queuedTask);
+        
+        // doublecheck the pool is still running
+        if (!running && workQueue.remove(queuedTask)) {
+            queuedTasksCount.decrementAndGet();
+            onTaskDequeued(task);
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+    }
+
+    /**
+     * @return the number of the tasks waiting in the queue
+     */
+    public int getQueuedTasksCount() {
+        return queuedTasksCount.get();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> drained = super.shutdownNow();
+        for (final ListIterator<Runnable> it = drained.listIterator(); it.hasNext();) {
+            it.set(unwrap(it.next()));
+        }
+        
+        return drained;
+    }
+
+    @Override
+    protected void onTaskDequeued(final Runnable task) {
+        super.onTaskDequeued(unwrap(task));
+    }
+
+    @Override
+    protected void onTaskCancelled(final Runnable task) {
+        super.onTaskCancelled(unwrap(task));
+    }
+    
+    /**
+     * Invokes {@link DeadlineTask#onDeadlineMissed()} of the task, which
+     * has missed its deadline.
+     */
+    private void shed(final DeadlineTask task) {
+        onTaskDequeued(task);
+        try {
+            task.onDeadlineMissed();
+        } catch (Throwable t) {
+            uncaughtException(Thread.currentThread(), t);
+        }
+        onTaskCancelled(task);
+    }
+    
+    private static Runnable unwrap(final Runnable r) {
+        return r instanceof QueuedTask ? ((QueuedTask) r).task : r;
+    }
+    
+    private final class DeadlineWorker extends Worker {
+        @Override
+        protected Runnable getTask() throws InterruptedException {
+            while (true) {
+                final Runnable r = workQueue.take();
+                if (!(r instanceof QueuedTask)) {
+                    return r;
+                }
+                
+                queuedTasksCount.decrementAndGet();
+                
+                final QueuedTask queuedTask = (QueuedTask) r;
+                if (queuedTask.isSheddable
+                        && System.nanoTime() - queuedTask.deadline > 0) {
+                    shed((DeadlineTask) queuedTask.task);
+                    continue;
+                }
+                
+                return queuedTask.task;
+            }
+        }
+    }
+    
+    /**
+     * The queue element, which holds the task and its deadline.
+     */
+    private static final class QueuedTask implements Runnable {
+        private final Runnable task;
+        private final long deadline;
+        private final long seq;
+        private final boolean isSheddable;
+
+        private QueuedTask(final Runnable task, final long deadline,
+                final long seq, final boolean isSheddable) {
+            this.task = task;
+            this.deadline = deadline;
+            this.seq = seq;
+            this.isSheddable = isSheddable;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
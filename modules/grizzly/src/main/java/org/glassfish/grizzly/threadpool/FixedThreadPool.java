@@ -84,15 +84,19 @@ public class FixedThreadPool extends AbstractThreadPool {
     @Override
     public void execute(Runnable command) {
         if (running) {
+            // notify before the task is visible to the workers, so the probes
+            // never see it dequeued before it's queued
+            onTaskQueued(command);
             if (workQueue.offer(command)) {
                 // doublecheck the pool is still running
                 if (!running && workQueue.remove(command)) {
+                    onTaskDequeued(command);
                     throw new RejectedExecutionException("ThreadPool is not running");
                 }
                 
-                onTaskQueued(command);
                 return;
             }
+            onTaskDequeued(command);
             onTaskQueueOverflow();
             return;
         }
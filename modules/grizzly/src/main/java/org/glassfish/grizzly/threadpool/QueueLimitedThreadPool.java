@@ -81,12 +81,14 @@ final class QueueLimitedThreadPool extends FixedThreadPool {
             onTaskQueueOverflow();
         }
 
+        // notify before the task is visible to the workers, so the probes
+        // never see it dequeued before it's queued
+        onTaskQueued(command);
         if (!workQueue.offer(command)) {
             queuePermits.release();
+            onTaskDequeued(command);
             onTaskQueueOverflow();
         }
-
-        onTaskQueued(command);
     }
 
     @Override
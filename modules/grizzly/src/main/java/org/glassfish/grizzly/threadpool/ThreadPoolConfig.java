@@ -97,6 +97,9 @@ public final class ThreadPoolConfig {
     protected DelayedExecutor transactionMonitor;
     protected long transactionTimeoutMillis;
     protected ClassLoader initialClassLoader;
+    protected boolean isWorkStealing;
+    protected boolean isDeadlineScheduling;
+    protected long taskDeadlineNanos = -1;
 
     /**
      * Thread pool probes
@@ -155,6 +158,9 @@ public final class ThreadPoolConfig {
         this.keepAliveTimeMillis   = cfg.keepAliveTimeMillis;
         this.mm              = cfg.mm;
         this.initialClassLoader = cfg.initialClassLoader;
+        this.isWorkStealing  = cfg.isWorkStealing;
+        this.isDeadlineScheduling = cfg.isDeadlineScheduling;
+        this.taskDeadlineNanos = cfg.taskDeadlineNanos;
         
         this.threadPoolMonitoringConfig =
                 new DefaultMonitoringConfig<ThreadPoolProbe>(ThreadPoolProbe.class);
@@ -420,6 +426,101 @@ public final class ThreadPoolConfig {
         return this;
     }
 
+    /**
+     * @return <tt>true</tt>, if the {@link GrizzlyExecutorService} has to use
+     *          {@link WorkStealingThreadPool} implementation, or <tt>false</tt>
+     *          otherwise
+     *
+     * @since 2.4.0
+     */
+    public boolean isWorkStealing() {
+        return isWorkStealing;
+    }
+
+    /**
+     * Specifies whether the {@link GrizzlyExecutorService} has to use the
+     * {@link WorkStealingThreadPool} implementation, where each core thread has
+     * its own task queue and idle threads steal the tasks from the busy ones.
+     * The {@link #getQueue()} setting is ignored by the work-stealing pool.
+     *
+     * @param isWorkStealing <tt>true</tt> to use the work-stealing thread pool
+     *
+     * @return the {@link ThreadPoolConfig}
+     *
+     * @since 2.4.0
+     */
+    public ThreadPoolConfig setWorkStealing(final boolean isWorkStealing) {
+        this.isWorkStealing = isWorkStealing;
+        return this;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the {@link GrizzlyExecutorService} has to use
+     *          {@link DeadlineThreadPool} implementation, or <tt>false</tt>
+     *          otherwise
+     *
+     * @since 2.4.0
+     */
+    public boolean isDeadlineScheduling() {
+        return isDeadlineScheduling;
+    }
+
+    /**
+     * Specifies whether the {@link GrizzlyExecutorService} has to use the
+     * {@link DeadlineThreadPool} implementation, which serves the tasks
+     * earliest deadline first and sheds the {@link DeadlineTask}s, which
+     * have missed their deadline. The {@link #getQueue()} setting is ignored
+     * by the deadline thread pool.
+     *
+     * @param isDeadlineScheduling <tt>true</tt> to use the deadline thread pool
+     *
+     * @return the {@link ThreadPoolConfig}
+     *
+     * @see #setTaskDeadline(long, java.util.concurrent.TimeUnit)
+     * @since 2.4.0
+     */
+    public ThreadPoolConfig setDeadlineScheduling(final boolean isDeadlineScheduling) {
+        this.isDeadlineScheduling = isDeadlineScheduling;
+        return this;
+    }
+
+    /**
+     * @param timeUnit the {@link TimeUnit} of the returned value
+     * @return the time, within which a queued task has to be started, if
+     *          the task doesn't specify its own deadline, or <tt>-1</tt> if
+     *          the default deadline is not set
+     *
+     * @since 2.4.0
+     */
+    public long getTaskDeadline(final TimeUnit timeUnit) {
+        return taskDeadlineNanos < 0
+                ? -1
+                : timeUnit.convert(taskDeadlineNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time, within which a queued task has to be started, if the
+     * task doesn't specify its own deadline (see {@link DeadlineTask}).
+     * The setting is used only if {@link #isDeadlineScheduling()} is
+     * <tt>true</tt>. A negative value (default) means the tasks without
+     * own deadline are never shed and are ordered as if their deadline were
+     * {@link DeadlineThreadPool#DEFAULT_TASK_DEADLINE_MILLIS}.
+     *
+     * @param deadline the time, within which a queued task has to be started
+     * @param timeUnit the {@link TimeUnit} of the deadline
+     *
+     * @return the {@link ThreadPoolConfig}
+     *
+     * @since 2.4.0
+     */
+    public ThreadPoolConfig setTaskDeadline(final long deadline,
+            final TimeUnit timeUnit) {
+        this.taskDeadlineNanos = deadline < 0
+                ? -1
+                : TimeUnit.NANOSECONDS.convert(deadline, timeUnit);
+        return this;
+    }
+
     @Override
     public String toString() {
         return ThreadPoolConfig.class.getSimpleName() + " :\r\n"
@@ -434,6 +535,9 @@ public final class ThreadPoolConfig {
                 + "  transactionTimeoutMillis: " + transactionTimeoutMillis + "\r\n"
                 + "  priority: " + priority + "\r\n"
                 + "  isDaemon: " + isDaemon + "\r\n"
-                + "  initialClassLoader: " + initialClassLoader;
+                + "  initialClassLoader: " + initialClassLoader + "\r\n"
+                + "  isWorkStealing: " + isWorkStealing + "\r\n"
+                + "  isDeadlineScheduling: " + isDeadlineScheduling + "\r\n"
+                + "  taskDeadline (millis): " + getTaskDeadline(TimeUnit.MILLISECONDS);
     }
 }
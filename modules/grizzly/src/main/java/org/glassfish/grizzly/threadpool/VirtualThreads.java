@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.threadpool;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
+/**
+ * Virtual {@link Thread} utilities.
+ *
+ * Grizzly is built and runs on Java 8, so virtual threads (available since
+ * Java 21) are discovered reflectively at runtime. On a JVM, which doesn't
+ * support virtual threads, {@link #isSupported()} returns <tt>false</tt>,
+ * {@link #isVirtual()} always returns <tt>false</tt> and
+ * {@link #getExecutor()} returns <tt>null</tt>, so the callers are expected
+ * to fall back to the regular worker thread pool.
+ *
+ * @since 2.4.0
+ */
+public final class VirtualThreads {
+    private static final Logger LOGGER = Grizzly.logger(VirtualThreads.class);
+
+    private static final String THREAD_NAME_PREFIX = "Grizzly-virtual-";
+
+    private static final Method IS_VIRTUAL_METHOD;
+    private static final ThreadFactory THREAD_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR_METHOD;
+
+    static {
+        Method isVirtualMethod = null;
+        ThreadFactory threadFactory = null;
+        Method newThreadPerTaskExecutorMethod = null;
+
+        try {
+            isVirtualMethod = Thread.class.getMethod("isVirtual");
+
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass =
+                    Class.forName("java.lang.Thread$Builder$OfVirtual");
+            final Object namedBuilder = builderClass.getMethod(
+                    "name", String.class, long.class)
+                    .invoke(builder, THREAD_NAME_PREFIX, 0L);
+            threadFactory = (ThreadFactory) builderClass.getMethod("factory")
+                    .invoke(namedBuilder);
+
+            newThreadPerTaskExecutorMethod = Executors.class.getMethod(
+                    "newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (Throwable t) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Virtual threads are not supported", t);
+            }
+
+            isVirtualMethod = null;
+            threadFactory = null;
+            newThreadPerTaskExecutorMethod = null;
+        }
+
+        IS_VIRTUAL_METHOD = isVirtualMethod;
+        THREAD_FACTORY = threadFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR_METHOD = newThreadPerTaskExecutorMethod;
+    }
+
+    private static volatile ExecutorService executor;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return <tt>true</tt> if the current JVM supports virtual threads,
+     * or <tt>false</tt> otherwise
+     */
+    public static boolean isSupported() {
+        return THREAD_FACTORY != null;
+    }
+
+    /**
+     * @return <tt>true</tt> if the current {@link Thread} is a virtual thread
+     */
+    public static boolean isVirtual() {
+        return isVirtual(Thread.currentThread());
+    }
+
+    /**
+     * @param thread {@link Thread} to check
+     * @return <tt>true</tt> if the passed {@link Thread} is a virtual thread
+     */
+    public static boolean isVirtual(final Thread thread) {
+        if (IS_VIRTUAL_METHOD == null) {
+            return false;
+        }
+
+        try {
+            return (Boolean) IS_VIRTUAL_METHOD.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the shared {@link ExecutorService}, which starts a new virtual
+     * thread for each submitted task, or <tt>null</tt> if virtual threads
+     * are not supported by the current JVM.
+     * The returned {@link ExecutorService} is shared and is not supposed to be
+     * shutdown by the caller.
+     *
+     * @return the shared virtual thread-per-task {@link ExecutorService},
+     * or <tt>null</tt> if virtual threads are not supported
+     */
+    public static ExecutorService getExecutor() {
+        if (!isSupported()) {
+            return null;
+        }
+
+        ExecutorService localExecutor = executor;
+        if (localExecutor == null) {
+            synchronized (VirtualThreads.class) {
+                localExecutor = executor;
+                if (localExecutor == null) {
+                    localExecutor = newThreadPerTaskExecutor();
+                    executor = localExecutor;
+                }
+            }
+        }
+
+        return localExecutor;
+    }
+
+    /**
+     * Creates a new {@link ExecutorService}, which starts a new virtual thread
+     * for each submitted task.
+     *
+     * @return a new virtual thread-per-task {@link ExecutorService},
+     * or <tt>null</tt> if virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            return null;
+        }
+
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR_METHOD
+                    .invoke(null, THREAD_FACTORY);
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Can't create virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.threadpool;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Work-stealing thread pool implementation.
+ * 
+ * Unlike {@link FixedThreadPool} and {@link SyncThreadPool}, which share
+ * one task queue among all the worker threads, each core thread of this pool
+ * owns a task queue. A thread submitting tasks is bound to one of the queues,
+ * so the tasks submitted by the same thread (for example a
+ * {@link org.glassfish.grizzly.nio.SelectorRunner} thread) land in the same
+ * queue and a task submitted by the pool's core thread lands in the thread's
+ * own queue. A thread, which finds its own queue empty, steals tasks from
+ * the queues of the other threads before going idle.
+ * 
+ * The pool honors {@link ThreadPoolConfig}: it starts the core threads
+ * (if core pool size is less than 0 - the max pool size is used) and adds
+ * non-core threads up to the max pool size, when a task is submitted and none
+ * of the threads is idle. The non-core threads have no own queues, they only
+ * steal the tasks, and are terminated after the keep-alive timeout.
+ * The queue limit is applied to the total number of the queued tasks.
+ * The {@link ThreadPoolConfig#getQueue()} setting is ignored, the
+ * {@link #getQueue()} returns a view over the threads' queues.
+ * 
+ * @see ThreadPoolConfig#setWorkStealing(boolean)
+ * 
+ * @since 2.4.0
+ */
+public class WorkStealingThreadPool extends AbstractThreadPool {
+    
+    // Worker states
+    private static final int RUNNING = 0;
+    private static final int IDLE = 1;
+    
+    private final ConcurrentLinkedDeque<Runnable>[] queues;
+    private final StealingWorker[] queueOwners;
+    
+    private final AtomicInteger queuedTasksCount = new AtomicInteger();
+    private final Queue<StealingWorker> idleWorkers =
+            new ConcurrentLinkedQueue<StealingWorker>();
+    
+    private final AtomicInteger queueIdxCounter = new AtomicInteger();
+    private final ThreadLocal<Integer> boundQueueIdx = new ThreadLocal<Integer>();
+    
+    private volatile int currentPoolSize;
+    
+    @SuppressWarnings("unchecked")
+    public WorkStealingThreadPool(final ThreadPoolConfig config) {
+        super(config);
+        
+        final int corePoolSize = config.getCorePoolSize() < 0 ?
+                config.getMaxPoolSize() : config.getCorePoolSize();
+        validateNewPoolSize(Math.max(1, corePoolSize), config.getMaxPoolSize());
+        
+        final int queuesCount = Math.max(1, corePoolSize);
+        queues = new ConcurrentLinkedDeque[queuesCount];
+        for (int i = 0; i < queuesCount; i++) {
+            queues[i] = new ConcurrentLinkedDeque<Runnable>();
+        }
+        queueOwners = new StealingWorker[queuesCount];
+        
+        config.setQueue(new QueueView());
+        
+        synchronized (stateLock) {
+            for (int i = 0; i < corePoolSize; i++) {
+                final StealingWorker worker = new StealingWorker(i);
+                queueOwners[i] = worker;
+                startWorker(worker);
+            }
+        }
+        
+        ProbeNotifier.notifyThreadPoolStarted(this);
+        if (corePoolSize == config.getMaxPoolSize()) {
+            onMaxNumberOfThreadsReached();
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Runnable task is null");
+        }
+        
+        if (!running) {
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+        
+        final int queueLimit = config.getQueueLimit();
+        if (queueLimit >= 0 &&
+                queuedTasksCount.incrementAndGet() > queueLimit) {
+            queuedTasksCount.decrementAndGet();
+            onTaskQueueOverflow();
+            return;
+        } else if (queueLimit < 0) {
+            queuedTasksCount.incrementAndGet();
+        }
+        
+        final int idx = boundQueueIdx();
+        // notify before the task is visible to the workers, so the probes
+        // never see it dequeued before it's queued
+        onTaskQueued(task);
+        queues[idx].offerLast(task);
+        
+        // doublecheck the pool is still running
+        if (!running && queues[idx].removeLastOccurrence(task)) {
+            queuedTasksCount.decrementAndGet();
+            onTaskDequeued(task);
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+        
+        signalWorker(idx);
+    }
+
+    /**
+     * @return the number of the tasks waiting in the queues
+     */
+    public int getQueuedTasksCount() {
+        return queuedTasksCount.get();
+    }
+
+    @Override
+    protected void startWorker(final Worker worker) {
+        synchronized (stateLock) {
+            super.startWorker(worker);
+            currentPoolSize++;
+        }
+    }
+
+    @Override
+    protected void onWorkerExit(final Worker worker) {
+        super.onWorkerExit(worker);
+        
+        synchronized (stateLock) {
+            currentPoolSize--;
+        }
+    }
+
+    /**
+     * Wakes up all the workers, so they process the remaining tasks and exit.
+     * Must hold statelock while calling this method.
+     */
+    @Override
+    protected void poisonAll() {
+        for (Worker worker : workers.keySet()) {
+            ((StealingWorker) worker).wakeUp();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", queued-tasks=" + queuedTasksCount.get();
+    }
+
+    private int boundQueueIdx() {
+        final Integer idx = boundQueueIdx.get();
+        if (idx != null) {
+            return idx;
+        }
+        
+        final int newIdx = (queueIdxCounter.getAndIncrement() & 0x7fffffff)
+                % queues.length;
+        boundQueueIdx.set(newIdx);
+        return newIdx;
+    }
+    
+    /**
+     * Wakes up the owner of the queue the task has been added to, if it's
+     * idle, otherwise any idle worker, which will steal the task. If there is
+     * no idle worker - starts a new non-core worker, if the max pool size
+     * allows.
+     */
+    private void signalWorker(final int queueIdx) {
+        final StealingWorker owner = queueOwners[queueIdx];
+        if (owner != null && owner.tryWakeUp()) {
+            return;
+        }
+        
+        StealingWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.tryWakeUp()) {
+                return;
+            }
+        }
+        
+        if (currentPoolSize < config.getMaxPoolSize()) {
+            synchronized (stateLock) {
+                if (running && currentPoolSize < config.getMaxPoolSize()) {
+                    startWorker(new StealingWorker(-1));
+                    
+                    if (currentPoolSize == config.getMaxPoolSize()) {
+                        onMaxNumberOfThreadsReached();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Polls the task from the queue with the given index, if the queue is
+     * empty - tries to steal a task from the other queues.
+     * The tasks are taken from the head of the queue both by the owner and by
+     * the thieves, so the tasks are processed in the order they were submitted.
+     */
+    private Runnable pollTask(final int ownQueueIdx) {
+        Runnable task;
+        if (ownQueueIdx >= 0 && (task = queues[ownQueueIdx].pollFirst()) != null) {
+            queuedTasksCount.decrementAndGet();
+            return task;
+        }
+        
+        final int queuesCount = queues.length;
+        final int startIdx = queuesCount == 1 ? 0 :
+                ThreadLocalRandom.current().nextInt(queuesCount);
+        for (int i = 0; i < queuesCount; i++) {
+            int idx = startIdx + i;
+            if (idx >= queuesCount) {
+                idx -= queuesCount;
+            }
+            
+            if (idx != ownQueueIdx &&
+                    (task = queues[idx].pollFirst()) != null) {
+                queuedTasksCount.decrementAndGet();
+                return task;
+            }
+        }
+        
+        return null;
+    }
+    
+    private final class StealingWorker extends Worker {
+        private final int queueIdx;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+        private StealingWorker(final int queueIdx) {
+            this.queueIdx = queueIdx;
+        }
+
+        @Override
+        protected void doWork() {
+            if (queueIdx >= 0) {
+                // the tasks submitted by the core thread go to its own queue
+                boundQueueIdx.set(queueIdx);
+            }
+            
+            super.doWork();
+        }
+
+        @Override
+        protected Runnable getTask() throws InterruptedException {
+            final boolean isCore = queueIdx >= 0;
+            final long keepAliveNanos =
+                    config.getKeepAliveTime(TimeUnit.NANOSECONDS);
+            
+            while (true) {
+                Runnable task = pollTask(queueIdx);
+                if (task != null) {
+                    return task;
+                }
+                
+                if (!running) {
+                    return null;
+                }
+                
+                // announce the worker is idle and recheck the queues,
+                // so a task submitted concurrently is not missed
+                state.set(IDLE);
+                idleWorkers.offer(this);
+                
+                task = pollTask(queueIdx);
+                if (task != null || !running) {
+                    if (state.compareAndSet(IDLE, RUNNING)) {
+                        idleWorkers.remove(this);
+                    }
+                    
+                    if (task != null) {
+                        return task;
+                    }
+                    
+                    continue;
+                }
+                
+                final boolean isTimed = !isCore && keepAliveNanos >= 0;
+                if (isTimed) {
+                    LockSupport.parkNanos(this, keepAliveNanos);
+                } else {
+                    LockSupport.park(this);
+                }
+                
+                // the interruption (by transaction timeout) must not make
+                // the next park return immediately
+                Thread.interrupted();
+                
+                if (state.compareAndSet(IDLE, RUNNING)) {
+                    // nobody woke the worker up: timeout, interruption
+                    // or spurious wakeup
+                    idleWorkers.remove(this);
+                    
+                    if (isTimed && running) {
+                        task = pollTask(queueIdx);
+                        if (task == null) {
+                            // the non-core worker has been idle for the
+                            // keep-alive period
+                            return null;
+                        }
+                        
+                        return task;
+                    }
+                }
+            }
+        }
+        
+        private boolean tryWakeUp() {
+            if (state.get() == IDLE && state.compareAndSet(IDLE, RUNNING)) {
+                LockSupport.unpark(t);
+                return true;
+            }
+            
+            return false;
+        }
+        
+        private void wakeUp() {
+            state.set(RUNNING);
+            LockSupport.unpark(t);
+        }
+    }
+    
+    /**
+     * The {@link Queue} view over the workers' queues, which is used by
+     * {@link GrizzlyExecutorService#reconfigure(ThreadPoolConfig)} and
+     * {@link #shutdownNow()} to move the queued tasks.
+     */
+    private final class QueueView extends AbstractQueue<Runnable> {
+
+        @Override
+        public boolean offer(final Runnable task) {
+            if (task == null) {
+                throw new NullPointerException();
+            }
+            
+            // bypassing the queue limit, like the other pools' queues do
+            queuedTasksCount.incrementAndGet();
+            final int idx = boundQueueIdx();
+            queues[idx].offerLast(task);
+            signalWorker(idx);
+            
+            return true;
+        }
+
+        @Override
+        public Runnable poll() {
+            return pollTask(-1);
+        }
+
+        @Override
+        public Runnable peek() {
+            for (ConcurrentLinkedDeque<Runnable> queue : queues) {
+                final Runnable task = queue.peekFirst();
+                if (task != null) {
+                    return task;
+                }
+            }
+            
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return queuedTasksCount.get();
+        }
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            final List<Runnable> tasks = new ArrayList<Runnable>();
+            for (ConcurrentLinkedDeque<Runnable> queue : queues) {
+                tasks.addAll(queue);
+            }
+            
+            return Collections.unmodifiableList(tasks).iterator();
+        }
+    }
+}
@@ -48,12 +48,28 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Executes {@link Worker} tasks for the elements, whose timeout expires.
+ * 
+ * By default the elements of each {@link DelayQueue} are kept on a hashed
+ * timing wheel, so that adding, removing and rescheduling an element
+ * costs O(1) and on every check only the elements, whose timeout is about to
+ * expire, are examined. The legacy mode, where all the elements of all the
+ * {@link DelayQueue}s are checked on every check interval, could be turned on
+ * either via constructor or by setting
+ * <tt>org.glassfish.grizzly.utils.DelayedExecutor.full-scan</tt>
+ * system property to <tt>true</tt>.
  * 
  * @author Alexey Stashok
  */
 public class DelayedExecutor {
     public final static long UNSET_TIMEOUT = -1;
     
+    private static final boolean FULL_SCAN_DEFAULT = Boolean.getBoolean(
+            DelayedExecutor.class.getName() + ".full-scan");
+    
+    private static final int WHEEL_SIZE = Integer.getInteger(
+            DelayedExecutor.class.getName() + ".wheel-size", 512);
+    
     private final ExecutorService threadPool;
 
     private final DelayedRunnable runnable = new DelayedRunnable();
@@ -66,6 +82,8 @@ public class DelayedExecutor {
     private volatile boolean isStarted;
 
     private final long checkIntervalMillis;
+    
+    private final boolean isFullScan;
 
     public DelayedExecutor(final ExecutorService threadPool) {
         this(threadPool, 1000, TimeUnit.MILLISECONDS);
@@ -73,12 +91,26 @@ public class DelayedExecutor {
 
     public DelayedExecutor(final ExecutorService threadPool,
             final long checkInterval, final TimeUnit timeunit) {
+        this(threadPool, checkInterval, timeunit, FULL_SCAN_DEFAULT);
+    }
+
+    /**
+     * @param threadPool {@link ExecutorService} to run the check loop on
+     * @param checkInterval the check interval
+     * @param timeunit the check interval {@link TimeUnit}
+     * @param isFullScan <tt>true</tt>, if all the elements have to be checked
+     *        on every check interval, or <tt>false</tt> to use timing wheel
+     */
+    public DelayedExecutor(final ExecutorService threadPool,
+            final long checkInterval, final TimeUnit timeunit,
+            final boolean isFullScan) {
         if (checkInterval < 0) {
             throw new IllegalArgumentException("check interval can't be negative");
         }
         
         this.threadPool = threadPool;
         this.checkIntervalMillis = TimeUnit.MILLISECONDS.convert(checkInterval, timeunit);
+        this.isFullScan = isFullScan;
     }
 
     public void start() {
@@ -111,6 +143,14 @@ public class DelayedExecutor {
         return threadPool;
     }
 
+    /**
+     * @return <tt>true</tt>, if all the elements are checked on every check
+     *         interval, or <tt>false</tt> if timing wheel is used
+     */
+    public boolean isFullScan() {
+        return isFullScan;
+    }
+
     public <E> DelayQueue<E> createDelayQueue(final Worker<E> worker,
             final Resolver<E> resolver) {
         
@@ -134,34 +174,10 @@ public class DelayedExecutor {
                 final long currentTimeMillis = System.currentTimeMillis();
                 
                 for (final DelayQueue delayQueue : queues) {
-                    if (delayQueue.queue.isEmpty()) continue;
-                    
-                    final Resolver resolver = delayQueue.resolver;
-
-                    for (Iterator it = delayQueue.queue.keySet().iterator(); it.hasNext(); ) {
-                        final Object element = it.next();
-                        final long timeoutMillis = resolver.getTimeoutMillis(element);
-                        
-                        if (timeoutMillis == UNSET_TIMEOUT) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {                                
-                                delayQueue.queue.put(element, delayQueue);
-                            }
-                        } else if (currentTimeMillis - timeoutMillis >= 0) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {
-                                delayQueue.queue.put(element, delayQueue);
-                            } else {
-                                try {
-                                    if (!delayQueue.worker.doWork(element)) {
-                                        delayQueue.queue.put(element, delayQueue);
-                                    }
-                                } catch (Exception ignored) {
-                                }
-                            }
-                        }
+                    if (delayQueue.wheel != null) {
+                        delayQueue.wheel.expire(currentTimeMillis);
+                    } else {
+                        scan(delayQueue, currentTimeMillis);
                     }
                 }
 
@@ -175,11 +191,46 @@ public class DelayedExecutor {
                 }
             }
         }
+
+        private void scan(final DelayQueue delayQueue,
+                final long currentTimeMillis) {
+            if (delayQueue.queue.isEmpty()) return;
+
+            final Resolver resolver = delayQueue.resolver;
+
+            for (Iterator it = delayQueue.queue.keySet().iterator(); it.hasNext(); ) {
+                final Object element = it.next();
+                final long timeoutMillis = resolver.getTimeoutMillis(element);
+
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    it.remove();
+                    if (wasModified(timeoutMillis,
+                            resolver.getTimeoutMillis(element))) {                                
+                        delayQueue.queue.put(element, delayQueue);
+                    }
+                } else if (currentTimeMillis - timeoutMillis >= 0) {
+                    it.remove();
+                    if (wasModified(timeoutMillis,
+                            resolver.getTimeoutMillis(element))) {
+                        delayQueue.queue.put(element, delayQueue);
+                    } else {
+                        try {
+                            if (!delayQueue.worker.doWork(element)) {
+                                delayQueue.queue.put(element, delayQueue);
+                            }
+                        } catch (Exception ignored) {
+                        }
+                    }
+                }
+            }
+        }
     }
 
     public class DelayQueue<E> {
-        final ConcurrentMap<E, DelayQueue> queue =
-                DataStructures.getConcurrentMap();
+        // used in full-scan mode
+        final ConcurrentMap<E, DelayQueue> queue;
+        // used in timing wheel mode
+        final TimingWheel<E> wheel;
 
         final Worker<E> worker;
         final Resolver<E> resolver;
@@ -187,6 +238,15 @@ public class DelayedExecutor {
         public DelayQueue(final Worker<E> worker, final Resolver<E> resolver) {
             this.worker = worker;
             this.resolver = resolver;
+            
+            if (isFullScan) {
+                queue = DataStructures.getConcurrentMap();
+                wheel = null;
+            } else {
+                queue = null;
+                wheel = new TimingWheel<E>(worker, resolver,
+                        checkIntervalMillis, WHEEL_SIZE);
+            }
         }
 
         public void add(final E elem, final long delay, final TimeUnit timeUnit) {
@@ -194,12 +254,35 @@ public class DelayedExecutor {
                 final long delayWithSysTime =
                         System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
                 resolver.setTimeoutMillis(elem, ((delayWithSysTime < 0) ? Long.MAX_VALUE : delayWithSysTime));
-                queue.put(elem, this);
+                if (wheel != null) {
+                    wheel.schedule(elem);
+                } else {
+                    queue.put(elem, this);
+                }
             }
         }
 
         public void remove(final E elem) {
             resolver.removeTimeout(elem);
+            if (wheel != null) {
+                wheel.schedule(elem);
+            }
+        }
+
+        /**
+         * Notifies the queue, that the element's timeout has been changed
+         * directly via {@link Resolver}. It's not required to call this method
+         * if the timeout has been moved forward, but if it's been moved backward -
+         * in timing wheel mode the change might be noticed with significant delay,
+         * unless this method is called.
+         * The method has no effect, if the element is not in the queue.
+         * 
+         * @param elem the element, whose timeout has been changed
+         */
+        public void reschedule(final E elem) {
+            if (wheel != null) {
+                wheel.reschedule(elem);
+            }
         }
 
         public void destroy() {
@@ -298,8 +298,12 @@ public class IdleTimeoutFilter extends BaseFilter {
                             System.currentTimeMillis() + timeout;
                 }
 
-                IdleRecord.timeoutMillisUpdater.compareAndSet(
-                        idleRecord, FOREVER_SPECIAL, timeoutToSet);
+                if (IdleRecord.timeoutMillisUpdater.compareAndSet(
+                        idleRecord, FOREVER_SPECIAL, timeoutToSet)
+                        && timeoutToSet != FOREVER) {
+                    // the timeout has been moved backward
+                    queue.reschedule(connection);
+                }
             }
         }
     } // END ContextCompletionListener
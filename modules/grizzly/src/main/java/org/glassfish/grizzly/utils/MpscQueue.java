@@ -0,0 +1,257 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.utils;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Unbounded lock-free multi-producer single-consumer queue.
+ * 
+ * {@link #offer(java.lang.Object)} and {@link #remove(java.lang.Object)} could
+ * be called by any thread, but {@link #poll()} and {@link #peek()} must be
+ * called by one (consumer) thread at a time.
+ * 
+ * Producers link a new node with a single atomic swap of the tail, and the
+ * consumer advances the head with a plain write, so unlike
+ * {@link java.util.concurrent.ConcurrentLinkedQueue} the producers and the
+ * consumer never contend on the same end of the queue. The consumer does
+ * perform one CAS per element though: {@link #poll()} claims the element
+ * from its node by CAS, which lets {@link #remove(java.lang.Object)}
+ * logically delete an element from any thread; such a node is skipped and
+ * unlinked by the consumer. The CAS fails only if the element is removed
+ * concurrently.
+ * 
+ * The iterator, {@link #size()} and {@link #isEmpty()} are weakly consistent.
+ * An element, whose {@link #offer(java.lang.Object)} is still in progress,
+ * might not be visible to the consumer yet.
+ * 
+ * @since 2.4.0
+ */
+public final class MpscQueue<E> extends AbstractQueue<E> {
+    
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MpscQueue, Node> TAIL_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(MpscQueue.class, Node.class, "tail");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Object> ITEM_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "item");
+    
+    /**
+     * The consumer side: the stub node, which precedes the first element.
+     */
+    private Node<E> head;
+    
+    /**
+     * The producer side: the last linked node.
+     */
+    private volatile Node<E> tail;
+
+    public MpscQueue() {
+        final Node<E> stub = new Node<E>(null);
+        head = stub;
+        tail = stub;
+    }
+
+    /**
+     * Inserts the element at the tail of the queue. Could be called by
+     * any thread.
+     * 
+     * @return <tt>true</tt>
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean offer(final E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        
+        final Node<E> node = new Node<E>(e);
+        final Node<E> prev = TAIL_UPDATER.getAndSet(this, node);
+        prev.next = node;
+        
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of the queue. Must be called by
+     * the consumer thread only.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        Node<E> next;
+        while ((next = head.next) != null) {
+            // the node becomes the new stub
+            head = next;
+            
+            final E item = next.item;
+            if (item != null && ITEM_UPDATER.compareAndSet(next, item, null)) {
+                return item;
+            }
+        }
+        
+        return null;
+    }
+
+    /**
+     * Retrieves, but doesn't remove the head of the queue. Must be called by
+     * the consumer thread only.
+     */
+    @Override
+    public E peek() {
+        for (Node<E> node = head.next; node != null; node = node.next) {
+            final E item = node.item;
+            if (item != null) {
+                return item;
+            }
+        }
+        
+        return null;
+    }
+
+    /**
+     * Removes the element from the queue. Could be called by any thread.
+     */
+    @Override
+    public boolean remove(final Object o) {
+        if (o == null) {
+            return false;
+        }
+        
+        for (Node<E> node = head.next; node != null; node = node.next) {
+            final E item = node.item;
+            if (item != null && o.equals(item) &&
+                    ITEM_UPDATER.compareAndSet(node, item, null)) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node<E> node = head.next; node != null; node = node.next) {
+            if (node.item != null && ++size == Integer.MAX_VALUE) {
+                break;
+            }
+        }
+        
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+    
+    private final class Itr implements Iterator<E> {
+        private Node<E> nextNode;
+        private E nextItem;
+        private Node<E> lastNode;
+        private E lastItem;
+
+        private Itr() {
+            advance(head);
+        }
+
+        private void advance(Node<E> node) {
+            for (node = node.next; node != null; node = node.next) {
+                final E item = node.item;
+                if (item != null) {
+                    nextNode = node;
+                    nextItem = item;
+                    return;
+                }
+            }
+            
+            nextNode = null;
+            nextItem = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            
+            lastNode = nextNode;
+            lastItem = nextItem;
+            advance(nextNode);
+            return lastItem;
+        }
+
+        @Override
+        public void remove() {
+            if (lastNode == null) {
+                throw new IllegalStateException();
+            }
+            
+            ITEM_UPDATER.compareAndSet(lastNode, lastItem, null);
+            lastNode = null;
+            lastItem = null;
+        }
+    }
+    
+    private static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+
+        Node(final E item) {
+            this.item = item;
+        }
+    }
+}
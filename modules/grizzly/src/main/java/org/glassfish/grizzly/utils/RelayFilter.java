@@ -0,0 +1,399 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.utils;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.ICloseType;
+import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.Writer;
+import org.glassfish.grizzly.asyncqueue.WritableMessage;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.nio.LinkedReadThrottle;
+import org.glassfish.grizzly.nio.NIOConnection;
+
+/**
+ * The {@link org.glassfish.grizzly.filterchain.Filter}, which relays the data
+ * between the paired {@link NIOConnection}s (see {@link #pair(NIOConnection, NIOConnection)}).
+ * The {@link Buffer} read from one connection is passed to the other
+ * connection asynchronous writer as it is, without copying, and without
+ * passing through the rest of the {@link org.glassfish.grizzly.filterchain.FilterChain}s,
+ * so it's supposed to be added right after the
+ * {@link org.glassfish.grizzly.filterchain.TransportFilter}.
+ * The read events of the not paired connections are passed to the next filter.
+ * 
+ * The connection reads are throttled, while its peer write queue is above
+ * the high watermark (see {@link LinkedReadThrottle}), so the relay memory
+ * consumption stays bounded even if one of the peers is slow.
+ * Closing either connection closes the pair.
+ * 
+ * @since 2.4.0
+ */
+public class RelayFilter extends BaseFilter {
+    private static final Logger LOGGER = Grizzly.logger(RelayFilter.class);
+    
+    public static final int DEFAULT_HIGH_WATERMARK = 256 * 1024;
+    public static final int DEFAULT_LOW_WATERMARK = 64 * 1024;
+    
+    private final Attribute<Relay> relayAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            RelayFilter.class.getName() + '-' + hashCode() + ".relay");
+    
+    private final int highWatermark;
+    private final int lowWatermark;
+    
+    private final Set<Relay> relays = Collections.newSetFromMap(
+            new ConcurrentHashMap<Relay, Boolean>());
+
+    public RelayFilter() {
+        this(DEFAULT_HIGH_WATERMARK, DEFAULT_LOW_WATERMARK);
+    }
+
+    /**
+     * @param highWatermark the connection write queue size (in bytes), when
+     *  reached the peer reads are throttled
+     * @param lowWatermark the connection write queue size (in bytes), when
+     *  reached the peer reads are resumed
+     */
+    public RelayFilter(final int highWatermark, final int lowWatermark) {
+        if (highWatermark <= 0 || lowWatermark < 0
+                || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException(
+                    "highWatermark has to be positive, lowWatermark has to be >= 0 and < highWatermark");
+        }
+        
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    /**
+     * Pairs the connections, so the data read from one connection is
+     * written to another one.
+     * 
+     * @param first the first connection
+     * @param second the second connection
+     * @return the {@link Relay}
+     * @throws IllegalStateException if either connection is already paired
+     */
+    public Relay pair(final NIOConnection first, final NIOConnection second) {
+        if (first == second) {
+            throw new IllegalArgumentException("Can't pair the connection with itself");
+        }
+        
+        final Relay relay = new Relay(this, first, second);
+        synchronized (relays) {
+            if (relayAttr.isSet(first) || relayAttr.isSet(second)) {
+                throw new IllegalStateException("The connection is already paired");
+            }
+            
+            relayAttr.set(first, relay);
+            relayAttr.set(second, relay);
+            relays.add(relay);
+        }
+        
+        relay.start();
+        return relay;
+    }
+
+    /**
+     * @param connection the {@link Connection}
+     * @return the {@link Relay} the connection belongs to, or <tt>null</tt>
+     *  if the connection is not paired by this filter
+     */
+    public Relay getRelay(final Connection connection) {
+        return relayAttr.get(connection);
+    }
+    
+    /**
+     * @return the active {@link Relay}s
+     */
+    public Collection<Relay> getRelays() {
+        return Collections.unmodifiableSet(relays);
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+    
+    @Override
+    public NextAction handleRead(final FilterChainContext ctx)
+            throws IOException {
+        final Object message = ctx.getMessage();
+        final Relay relay;
+        if (!(message instanceof Buffer)
+                || (relay = relayAttr.get(ctx.getConnection())) == null) {
+            return ctx.getInvokeAction();
+        }
+        
+        relay.relay(ctx.getConnection(), (Buffer) message);
+        
+        return ctx.getStopAction();
+    }
+    
+    // ----------------------------------------------------------- Nested Classes
+    
+    /**
+     * The pair of the connections, which relay data to each other.
+     */
+    public static final class Relay {
+        private final RelayFilter filter;
+        private final Direction firstToSecond;
+        private final Direction secondToFirst;
+        private final long startTime = System.currentTimeMillis();
+        
+        private final AtomicBoolean isClosed = new AtomicBoolean();
+        
+        private final CloseListener<Closeable, ICloseType> closeListener =
+                new CloseListener<Closeable, ICloseType>() {
+            @Override
+            public void onClosed(final Closeable closeable,
+                    final ICloseType type) throws IOException {
+                close();
+            }
+        };
+        
+        private Relay(final RelayFilter filter,
+                final NIOConnection first, final NIOConnection second) {
+            this.filter = filter;
+            firstToSecond = new Direction(this, first, second);
+            secondToFirst = new Direction(this, second, first);
+        }
+
+        public NIOConnection getFirst() {
+            return firstToSecond.source;
+        }
+
+        public NIOConnection getSecond() {
+            return secondToFirst.source;
+        }
+        
+        /**
+         * @param connection one of the paired connections
+         * @return the paired connection
+         */
+        public NIOConnection getPeer(final Connection connection) {
+            return direction(connection).target;
+        }
+
+        /**
+         * @param source one of the paired connections
+         * @return the number of bytes read from the source connection and
+         *  written to its peer
+         */
+        public long getBytesRelayed(final Connection source) {
+            return direction(source).bytesRelayed.get();
+        }
+
+        /**
+         * @param source one of the paired connections
+         * @return the number of buffers read from the source connection and
+         *  passed to its peer writer
+         */
+        public long getBuffersRelayed(final Connection source) {
+            return direction(source).buffersRelayed.get();
+        }
+
+        /**
+         * @param source one of the paired connections
+         * @return the average number of bytes relayed from the source
+         *  connection to its peer per second since the connections were paired
+         */
+        public long getThroughput(final Connection source) {
+            final long elapsed = Math.max(1,
+                    System.currentTimeMillis() - startTime);
+            return getBytesRelayed(source) * 1000 / elapsed;
+        }
+
+        /**
+         * @param source one of the paired connections
+         * @return <tt>true</tt> if the source connection reads are throttled,
+         *  because its peer write queue is above the high watermark
+         */
+        public boolean isThrottled(final Connection source) {
+            return direction(source).throttle.isThrottling();
+        }
+        
+        /**
+         * @return the time (in milliseconds), when the connections were paired
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * @return <tt>true</tt> if the relay is closed
+         */
+        public boolean isClosed() {
+            return isClosed.get();
+        }
+        
+        /**
+         * Closes the relay and both connections.
+         */
+        public void close() {
+            if (!isClosed.compareAndSet(false, true)) {
+                return;
+            }
+            
+            synchronized (filter.relays) {
+                filter.relays.remove(this);
+                filter.relayAttr.remove(getFirst());
+                filter.relayAttr.remove(getSecond());
+            }
+            
+            firstToSecond.close();
+            secondToFirst.close();
+        }
+
+        @Override
+        public String toString() {
+            return "Relay{" + getFirst() + " <-> " + getSecond()
+                    + " bytesRelayed=" + firstToSecond.bytesRelayed
+                    + "/" + secondToFirst.bytesRelayed + '}';
+        }
+        
+        private void start() {
+            firstToSecond.start();
+            secondToFirst.start();
+        }
+        
+        private void relay(final Connection source, final Buffer buffer) {
+            final Direction direction = direction(source);
+            
+            // the buffer is not used after the write, so the writer may
+            // return it to the pool
+            buffer.allowBufferDispose(true);
+            direction.buffersRelayed.incrementAndGet();
+            direction.writer.write(direction.target, buffer,
+                    direction.completionHandler);
+        }
+        
+        private Direction direction(final Connection source) {
+            if (source == firstToSecond.source) {
+                return firstToSecond;
+            } else if (source == secondToFirst.source) {
+                return secondToFirst;
+            }
+            
+            throw new IllegalArgumentException(
+                    "The connection doesn't belong to the relay");
+        }
+    }
+    
+    private static final class Direction {
+        private final Relay relay;
+        private final NIOConnection source;
+        private final NIOConnection target;
+        private final Writer<SocketAddress> writer;
+        private volatile LinkedReadThrottle throttle;
+        
+        private final AtomicLong bytesRelayed = new AtomicLong();
+        private final AtomicLong buffersRelayed = new AtomicLong();
+
+        private final CompletionHandler<WriteResult<WritableMessage, SocketAddress>> completionHandler =
+                new EmptyCompletionHandler<WriteResult<WritableMessage, SocketAddress>>() {
+
+            @Override
+            public void completed(final WriteResult<WritableMessage, SocketAddress> result) {
+                bytesRelayed.addAndGet(result.getWrittenSize());
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Relay write failed " + relay,
+                            throwable);
+                }
+                
+                relay.close();
+            }
+        };
+        
+        @SuppressWarnings("unchecked")
+        private Direction(final Relay relay,
+                final NIOConnection source, final NIOConnection target) {
+            this.relay = relay;
+            this.source = source;
+            this.target = target;
+            writer = target.getTransport().getWriter(false);
+        }
+        
+        private void start() {
+            final RelayFilter filter = relay.filter;
+            throttle = LinkedReadThrottle.link(source, target,
+                    filter.highWatermark, filter.lowWatermark);
+            source.addCloseListener(relay.closeListener);
+        }
+        
+        private void close() {
+            final LinkedReadThrottle localThrottle = throttle;
+            if (localThrottle != null) {
+                localThrottle.unlink();
+            }
+            
+            source.removeCloseListener(relay.closeListener);
+            source.closeSilently();
+        }
+    }
+}
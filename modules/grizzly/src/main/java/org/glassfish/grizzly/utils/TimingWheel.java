@@ -0,0 +1,260 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.glassfish.grizzly.utils.DelayedExecutor.UNSET_TIMEOUT;
+
+/**
+ * Hashed timing wheel, which backs a {@link DelayedExecutor.DelayQueue} when
+ * the {@link DelayedExecutor} doesn't run in full-scan mode.
+ * 
+ * The wheel consists of a fixed number of slots, each slot covers one
+ * {@link DelayedExecutor} check interval (tick). An element is kept in the slot,
+ * which corresponds to its timeout, so on every tick only the elements
+ * of the expiring slot are checked. Elements, whose timeout is further
+ * than one wheel revolution, are revisited once per revolution and moved
+ * to the proper slot.
+ * 
+ * The slots are modified by the {@link DelayedExecutor} thread only, other
+ * threads register their changes via lock-free queues, which are drained
+ * on the next tick, so add/remove/reschedule operations cost O(1).
+ * 
+ * The element's timeout may be moved forward by the {@link DelayedExecutor.Resolver}
+ * without notifying the wheel, but if the timeout is moved backward -
+ * {@link DelayedExecutor.DelayQueue#reschedule(java.lang.Object)} has to be
+ * called, otherwise the change might be noticed only after the next wheel
+ * revolution.
+ */
+final class TimingWheel<E> {
+    private final DelayedExecutor.Worker<E> worker;
+    private final DelayedExecutor.Resolver<E> resolver;
+    
+    private final long tickMillis;
+    private final int mask;
+    private final Slot<E>[] slots;
+    
+    /**
+     * Maps an element to the slot it's currently registered on.
+     */
+    private final Map<E, Slot<E>> elementSlots = new HashMap<E, Slot<E>>();
+    
+    /**
+     * Elements, which were added or removed.
+     */
+    private final Queue<E> scheduleQueue = new ConcurrentLinkedQueue<E>();
+    
+    /**
+     * Elements, whose timeout was changed.
+     */
+    private final Queue<E> rescheduleQueue = new ConcurrentLinkedQueue<E>();
+    
+    // the set the next processed slot is going to be swapped with
+    private Set<E> spareSet = new HashSet<E>();
+    
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(final DelayedExecutor.Worker<E> worker,
+            final DelayedExecutor.Resolver<E> resolver,
+            final long tickMillis, final int wheelSize) {
+        this.worker = worker;
+        this.resolver = resolver;
+        this.tickMillis = tickMillis > 0 ? tickMillis : 1;
+        
+        final int size = roundUpToPowerOfTwo(wheelSize);
+        mask = size - 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot<E>();
+        }
+        
+        lastTick = System.currentTimeMillis() / this.tickMillis;
+    }
+
+    /**
+     * Registers the element on the wheel (if it wasn't registered before)
+     * and places it according to the element's current timeout.
+     * If the current timeout is {@link DelayedExecutor#UNSET_TIMEOUT} - the element
+     * will be removed from the wheel.
+     */
+    void schedule(final E element) {
+        scheduleQueue.offer(element);
+    }
+    
+    /**
+     * Places the element according to the element's current timeout, if
+     * the element is registered on the wheel.
+     */
+    void reschedule(final E element) {
+        rescheduleQueue.offer(element);
+    }
+    
+    /**
+     * Processes all the ticks passed since the last call.
+     * 
+     * @param currentTimeMillis the current time
+     */
+    synchronized void expire(final long currentTimeMillis) {
+        drainQueues();
+        
+        final long currentTick = currentTimeMillis / tickMillis;
+        
+        // there's no need to process more than one revolution
+        long tick = Math.max(lastTick, currentTick - slots.length) + 1;
+        
+        for (; tick <= currentTick; tick++) {
+            expireSlot(slots[(int) (tick & mask)], tick,
+                    currentTimeMillis, currentTick);
+        }
+        
+        lastTick = Math.max(lastTick, currentTick);
+    }
+
+    private void expireSlot(final Slot<E> slot, final long tick,
+            final long currentTimeMillis, final long currentTick) {
+        
+        if (slot.elements.isEmpty()) {
+            return;
+        }
+        
+        final Set<E> elements = slot.elements;
+        slot.elements = spareSet;
+        
+        try {
+            for (E element : elements) {
+                if (elementSlots.get(element) != slot) {
+                    // the element has been moved or removed
+                    continue;
+                }
+
+                final long timeoutMillis = resolver.getTimeoutMillis(element);
+
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    elementSlots.remove(element);
+                    final long newTimeoutMillis = resolver.getTimeoutMillis(element);
+                    if (timeoutMillis != newTimeoutMillis) {
+                        place(element, newTimeoutMillis, tick + 1);
+                    }
+                } else if (currentTimeMillis - timeoutMillis >= 0) {
+                    final long newTimeoutMillis = resolver.getTimeoutMillis(element);
+                    if (timeoutMillis != newTimeoutMillis) {
+                        place(element, newTimeoutMillis, tick + 1);
+                        continue;
+                    }
+
+                    elementSlots.remove(element);
+                    
+                    boolean isDone = true;
+                    try {
+                        isDone = worker.doWork(element);
+                    } catch (Exception ignored) {
+                    }
+                    
+                    if (!isDone) {
+                        // recheck the element on the next tick
+                        place(element, timeoutMillis, currentTick + 1);
+                    }
+                } else {
+                    place(element, timeoutMillis, tick + 1);
+                }
+            }
+        } finally {
+            elements.clear();
+            spareSet = elements;
+        }
+    }
+    
+    private void drainQueues() {
+        E element;
+        while ((element = scheduleQueue.poll()) != null) {
+            final long timeoutMillis = resolver.getTimeoutMillis(element);
+            if (timeoutMillis == UNSET_TIMEOUT) {
+                final Slot<E> slot = elementSlots.remove(element);
+                if (slot != null) {
+                    slot.elements.remove(element);
+                }
+            } else {
+                place(element, timeoutMillis, lastTick + 1);
+            }
+        }
+        
+        while ((element = rescheduleQueue.poll()) != null) {
+            if (elementSlots.containsKey(element)) {
+                place(element, resolver.getTimeoutMillis(element), lastTick + 1);
+            }
+        }
+    }
+    
+    private void place(final E element, final long timeoutMillis,
+            final long minTick) {
+        final long tick = Math.max(timeoutMillis / tickMillis, minTick);
+        final Slot<E> slot = slots[(int) (tick & mask)];
+        
+        final Slot<E> oldSlot = elementSlots.put(element, slot);
+        if (oldSlot != null && oldSlot != slot) {
+            oldSlot.elements.remove(element);
+        }
+        
+        // add even if the slot is the same, because the slot's set
+        // might have been swapped, if the slot is being processed now
+        slot.elements.add(element);
+    }
+    
+    private static int roundUpToPowerOfTwo(final int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+    
+    private static final class Slot<E> {
+        private Set<E> elements = new HashSet<E>();
+    }
+}
@@ -68,6 +68,7 @@ import org.glassfish.grizzly.impl.SafeFutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOAsyncQueueWriter;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
@@ -577,6 +578,111 @@ public class AsyncWriteQueueTest {
             transport.shutdownNow();
         }
     }
+
+    @Test
+    public void testCorkUncork() throws Exception {
+        doTestCorkUncork(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testCorkUncorkCoalescingLimits() throws Exception {
+        doTestCorkUncork(64, 3);
+    }
+
+    private void doTestCorkUncork(final int maxCoalescedBytes,
+            final int maxCoalescedRecords) throws Exception {
+        final int packetsCount = 100;
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < packetsCount; i++) {
+            expected.append("message-").append(i).append(';');
+        }
+
+        final StringBuffer serverRcvd = new StringBuffer();
+        final FutureImpl<Boolean> serverFuture = SafeFutureImpl.create();
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(new BaseFilter() {
+
+            @Override
+            public NextAction handleRead(FilterChainContext ctx)
+                    throws IOException {
+                final Buffer buffer = ctx.getMessage();
+                serverRcvd.append(buffer.toStringContent(Charsets.ASCII_CHARSET));
+                buffer.tryDispose();
+                if (serverRcvd.length() >= expected.length()) {
+                    serverFuture.result(Boolean.TRUE);
+                }
+                return ctx.getStopAction();
+            }
+        });
+
+        final TCPNIOTransport transport = createTransport(isOptimizedForMultiplexing);
+        transport.setProcessor(filterChainBuilder.build());
+
+        final TCPNIOAsyncQueueWriter asyncQueueWriter =
+                (TCPNIOAsyncQueueWriter) transport.getAsyncQueueIO().getWriter();
+        asyncQueueWriter.setMaxCoalescedBytes(maxCoalescedBytes);
+        asyncQueueWriter.setMaxCoalescedRecords(maxCoalescedRecords);
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            connection = transport.connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+            final NIOConnection nioConnection = (NIOConnection) connection;
+
+            final AtomicInteger completed = new AtomicInteger();
+            final CompletionHandler<WriteResult> ch =
+                    new EmptyCompletionHandler<WriteResult>() {
+
+                @Override
+                public void completed(final WriteResult result) {
+                    completed.incrementAndGet();
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    serverFuture.failure(throwable);
+                }
+            };
+
+            nioConnection.cork();
+            assertTrue(nioConnection.isCorked());
+
+            final MemoryManager mm = transport.getMemoryManager();
+            for (int i = 0; i < packetsCount; i++) {
+                connection.write(Buffers.wrap(mm, "message-" + i + ';',
+                        Charsets.ASCII_CHARSET), ch);
+            }
+
+            Thread.sleep(200);
+            assertEquals(0, completed.get());
+            assertEquals(0, serverRcvd.length());
+            assertFalse(nioConnection.getAsyncWriteQueue().isEmpty());
+
+            nioConnection.uncork();
+            assertFalse(nioConnection.isCorked());
+
+            assertTrue(serverFuture.get(10, TimeUnit.SECONDS));
+            assertEquals(expected.toString(), serverRcvd.toString());
+
+            // completion handlers are notified after the data is written
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (completed.get() < packetsCount
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(packetsCount, completed.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
     
     // ---------------------------------------------------------- Nested Classes
 
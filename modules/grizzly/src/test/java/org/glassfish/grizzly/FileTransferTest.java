@@ -39,6 +39,7 @@
  */
 package org.glassfish.grizzly;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -46,9 +47,11 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -62,6 +65,7 @@ import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 public class FileTransferTest {
@@ -203,8 +207,152 @@ public class FileTransferTest {
         }
     } 
     
+    @Test
+    public void testChunkedFileTransfer() throws Exception {
+        doTestChunkedFileTransfer(true);
+    }
+
+    @Test
+    public void testChunkedFileTransferCopied() throws Exception {
+        doTestChunkedFileTransfer(false);
+    }
+
+    @Test
+    public void negativeChunkedFileTransferAPITest() throws Exception {
+        final File f = generateTempFile(16);
+        final ChunkedFileTransfer transfer = new ChunkedFileTransfer(f, 4, 8);
+        assertEquals(8, transfer.getLength());
+        assertEquals(4, transfer.getPosition());
+        
+        try {
+            new ChunkedFileTransfer(f, 10, 8);
+            fail("Expected IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException iae) {
+        }
+
+        try {
+            transfer.setWindowSize(0);
+            fail("Expected IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException iae) {
+        }
+    }
+    
+    
     // --------------------------------------------------------- Private Methods
     
+    
+    private void doTestChunkedFileTransfer(final boolean isZeroCopy)
+            throws Exception {
+        final int fileSize = 1024 * 1024 + 123;
+        final int offset = 1000;
+        final int length = fileSize - 2 * offset;
+        final int chunkSize = 16 * 1024;
+        
+        final File f = generateTempFile(fileSize);
+        final SafeFutureImpl<WriteResult> sendFuture = SafeFutureImpl.create();
+        final AtomicInteger updates = new AtomicInteger();
+        final AtomicReference<ChunkedFileTransfer> transferRef =
+                new AtomicReference<ChunkedFileTransfer>();
+        
+        TCPNIOTransport t = TCPNIOTransportBuilder.newInstance().build();
+        FilterChainBuilder builder = FilterChainBuilder.stateless();
+        builder.add(new TransportFilter());
+        builder.add(new BaseFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                final ChunkedFileTransfer transfer =
+                        new ChunkedFileTransfer(f, offset, length);
+                transfer.setChunkSize(chunkSize);
+                transfer.setWindowSize(2);
+                transfer.setZeroCopyEnabled(isZeroCopy);
+                transferRef.set(transfer);
+                
+                transfer.send(ctx, new EmptyCompletionHandler<WriteResult>() {
+                    @Override
+                    public void updated(final WriteResult result) {
+                        updates.incrementAndGet();
+                    }
+
+                    @Override
+                    public void completed(final WriteResult result) {
+                        sendFuture.result(result);
+                    }
+
+                    @Override
+                    public void failed(final Throwable throwable) {
+                        sendFuture.failure(throwable);
+                    }
+                });
+                
+                // the transfer doesn't depend on this context
+                return ctx.getStopAction();
+            }
+        });
+        t.setProcessor(builder.build());
+
+        TCPNIOTransport client = TCPNIOTransportBuilder.newInstance().build();
+        FilterChainBuilder clientChain = FilterChainBuilder.stateless();
+        final SafeFutureImpl<byte[]> future = SafeFutureImpl.create();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        clientChain.add(new TransportFilter());
+        clientChain.add(new BaseFilter() {
+            @Override
+            public NextAction handleConnect(FilterChainContext ctx) throws IOException {
+                ctx.write(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, "."));
+                return ctx.getStopAction();
+            }
+
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                final Buffer b = ctx.getMessage();
+                final byte[] data = new byte[b.remaining()];
+                b.get(data);
+                out.write(data);
+                if (out.size() == length) {
+                    future.result(out.toByteArray());
+                }
+                return ctx.getStopAction();
+            }
+        });
+        client.setProcessor(clientChain.build());
+        
+        try {
+            t.bind(PORT + 1);
+            t.start();
+            client.start();
+            client.connect("localhost", PORT + 1);
+            
+            final byte[] received = future.get(10, TimeUnit.SECONDS);
+            final WriteResult result = sendFuture.get(10, TimeUnit.SECONDS);
+            
+            final byte[] expected = new byte[length];
+            final FileInputStream in = new FileInputStream(f);
+            try {
+                assertEquals(offset, in.skip(offset));
+                int read = 0;
+                while (read < length) {
+                    read += in.read(expected, read, length - read);
+                }
+            } finally {
+                in.close();
+            }
+            assertTrue(Arrays.equals(expected, received));
+            
+            final ChunkedFileTransfer transfer = transferRef.get();
+            assertEquals(isZeroCopy, transfer.isZeroCopy());
+            assertTrue(transfer.isDone());
+            assertEquals(length, result.getWrittenSize());
+            assertEquals(length, transfer.getBytesSent());
+            assertEquals(offset + length, transfer.getPosition());
+            // every chunk, but the last one, reports the progress
+            assertEquals((length + chunkSize - 1) / chunkSize - 1, updates.get());
+        } finally {
+            client.shutdownNow();
+            t.shutdownNow();
+        }
+    }
+    
+    
     private static BigInteger getMDSum(final File f) throws Exception {
         MessageDigest digest = MessageDigest.getInstance("MD5");  
         byte[] b = new byte[8192];
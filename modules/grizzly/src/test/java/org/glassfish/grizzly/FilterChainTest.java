@@ -42,9 +42,17 @@ package org.glassfish.grizzly;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -54,7 +62,10 @@ import org.glassfish.grizzly.asyncqueue.MessageCloner;
 import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.attributes.AttributeBuilder;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.ContextAllocationTracker;
+import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.DefaultFilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.FilterChainEvent;
@@ -114,6 +125,15 @@ public class FilterChainTest extends TestCase {
     };
     
     public void testInvokeActionAndIncompleteChunk() throws Exception {
+        doTestInvokeActionAndIncompleteChunk(false);
+    }
+
+    public void testFrozenInvokeActionAndIncompleteChunk() throws Exception {
+        doTestInvokeActionAndIncompleteChunk(true);
+    }
+
+    private void doTestInvokeActionAndIncompleteChunk(final boolean freeze)
+            throws Exception {
         final int expectedCommandsCount = 300;
 
         final BlockingQueue<String> intermResultQueue = DataStructures.getLTQInstance(String.class);
@@ -162,7 +182,12 @@ public class FilterChainTest extends TestCase {
         });
 
         TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
-        transport.setProcessor(filterChainBuilder.build());
+        final DefaultFilterChain filterChain =
+                (DefaultFilterChain) filterChainBuilder.build();
+        if (freeze) {
+            filterChain.freeze();
+        }
+        transport.setProcessor(filterChain);
 
         try {
             transport.bind(PORT);
@@ -430,6 +455,15 @@ public class FilterChainTest extends TestCase {
     }
 
     public void testInvokeActionWithRemainder() throws Exception {
+        doTestInvokeActionWithRemainder(false);
+    }
+
+    public void testFrozenInvokeActionWithRemainder() throws Exception {
+        doTestInvokeActionWithRemainder(true);
+    }
+
+    private void doTestInvokeActionWithRemainder(final boolean freeze)
+            throws Exception {
         final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
         final MemoryManager mm = transport.getMemoryManager();
 
@@ -496,6 +530,9 @@ public class FilterChainTest extends TestCase {
                 })
                 .build();
 
+        if (freeze) {
+            ((DefaultFilterChain) filterChain).freeze();
+        }
         transport.setProcessor(filterChain);
 
         Connection connection = null;
@@ -536,6 +573,182 @@ public class FilterChainTest extends TestCase {
         }
     }
     
+    public void testFrozenChain() throws Exception {
+        final Connection connection =
+                new TCPNIOConnection(TCPNIOTransportBuilder.newInstance().build(), null);
+
+        counterAttr.set(connection, new AtomicInteger(0));
+
+        final AtomicInteger readCounter = new AtomicInteger();
+        final DefaultFilterChain chain = (DefaultFilterChain) FilterChainBuilder.stateless()
+                .add(new EventCounterFilter(0))
+                .add(new BaseFilter())
+                .add(new EventCounterFilter(1))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        readCounter.incrementAndGet();
+                        return ctx.getInvokeAction();
+                    }
+                })
+                .add(new EventCounterFilter(2))
+                .build();
+
+        assertFalse(chain.isFrozen());
+        assertSame(chain, chain.freeze());
+        assertTrue(chain.isFrozen());
+        
+        try {
+            chain.add(new BaseFilter());
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+        
+        try {
+            chain.remove(0);
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+        
+        try {
+            chain.retainAll(Collections.<Filter>emptyList());
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+        
+        try {
+            chain.removeAll(Collections.singletonList(chain.get(0)));
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+        
+        try {
+            final Iterator<Filter> it = chain.iterator();
+            it.next();
+            it.remove();
+            fail("UnsupportedOperationException is expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+        
+        try {
+            final ListIterator<Filter> it = chain.listIterator();
+            it.next();
+            it.set(new BaseFilter());
+            fail("UnsupportedOperationException is expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+        
+        try {
+            chain.listIterator(1).add(new BaseFilter());
+            fail("UnsupportedOperationException is expected");
+        } catch (UnsupportedOperationException expected) {
+        }
+        
+        assertEquals(5, chain.size());
+
+        FutureImpl<FilterChainContext> resultFuture =
+                Futures.createSafeFuture();
+        chain.fireEventUpstream(connection, INC_EVENT,
+                Futures.toCompletionHandler(resultFuture));
+        resultFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(3, counterAttr.get(connection).get());
+        
+        counterAttr.get(connection).set(2);
+        resultFuture = Futures.createSafeFuture();
+        chain.fireEventDownstream(connection, DEC_EVENT,
+                Futures.toCompletionHandler(resultFuture));
+        resultFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(-1, counterAttr.get(connection).get());
+        
+        assertEquals(0, readCounter.get());
+    }
+    
+    public void testCrossThreadContextRecycle() throws Exception {
+        final Connection connection =
+                new TCPNIOConnection(TCPNIOTransportBuilder.newInstance().build(), null);
+
+        final ExecutorService resumeExecutor = Executors.newSingleThreadExecutor();
+        try {
+            // the context is obtained in the current thread and suspended,
+            // then resumed and recycled in the resume thread
+            final FilterChain chain = FilterChainBuilder.stateless()
+                    .add(new BaseFilter() {
+                        @Override
+                        public NextAction handleEvent(final FilterChainContext ctx,
+                                final FilterChainEvent event) throws IOException {
+                            resumeExecutor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    ctx.resume(ctx.getInvokeAction());
+                                }
+                            });
+                            
+                            return ctx.getSuspendAction();
+                        }
+                    })
+                    .build();
+
+            for (int i = 0; i < 64; i++) {
+                fireEventAndWait(chain, connection);
+            }
+            
+            final long allocations = ContextAllocationTracker.getAllocationsCount();
+            for (int i = 0; i < 1024; i++) {
+                fireEventAndWait(chain, connection);
+            }
+            
+            assertEquals(allocations, ContextAllocationTracker.getAllocationsCount());
+        } finally {
+            resumeExecutor.shutdownNow();
+        }
+    }
+    
+    public void testContextAllocationTracking() throws Exception {
+        final Connection connection =
+                new TCPNIOConnection(TCPNIOTransportBuilder.newInstance().build(), null);
+        
+        final List<FilterChainContext> contexts =
+                new ArrayList<FilterChainContext>();
+        
+        ContextAllocationTracker.setEnabled(true);
+        try {
+            ContextAllocationTracker.reset();
+            
+            // drain the context caches
+            while (ContextAllocationTracker.getAllocationsCount() == 0) {
+                contexts.add(FilterChainContext.create(connection));
+            }
+            
+            for (FilterChainContext context : contexts) {
+                context.completeAndRecycle();
+            }
+            
+            final Map<String, Long> allocations =
+                    ContextAllocationTracker.getAllocations();
+            assertEquals(1, allocations.size());
+            
+            final Map.Entry<String, Long> entry =
+                    allocations.entrySet().iterator().next();
+            assertTrue(entry.getKey(), entry.getKey().startsWith(
+                    "FilterChainContext " + FilterChainContext.Operation.NONE + " <- "
+                    + FilterChainTest.class.getName() + ".testContextAllocationTracking"));
+            assertEquals(1L, entry.getValue().longValue());
+        } finally {
+            ContextAllocationTracker.setEnabled(false);
+            ContextAllocationTracker.reset();
+        }
+    }
+    
+    private static void fireEventAndWait(final FilterChain chain,
+            final Connection connection) throws Exception {
+        final FutureImpl<FilterChainContext> resultFuture =
+                Futures.createSafeFuture();
+        chain.fireEventUpstream(connection, INC_EVENT,
+                Futures.toCompletionHandler(resultFuture));
+        resultFuture.get(10, TimeUnit.SECONDS);
+    }
+    
     private static class BufferStateFilter extends BaseFilter {
 
         private final FutureImpl<Boolean> part1Future;
@@ -41,9 +41,16 @@
 package org.glassfish.grizzly;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.threadpool.AbstractThreadPool;
+import org.glassfish.grizzly.threadpool.DeadlineTask;
 import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -196,6 +203,245 @@ public class GrizzlyExecutorServiceTest extends GrizzlyTestCase {
         assertNotNull(defaultThreadPool.toString());
     }
     
+    public void testWorkStealingThreadPool() throws Exception {
+        final int threads = 8;
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-ws")
+                .setCorePoolSize(-1).setMaxPoolSize(threads)
+                .setWorkStealing(true);
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        final int tasks = 2000000;
+        doTest(r, tasks);
+        assertTrue(r.getConfiguration().isWorkStealing());
+
+        // tasks submitted by the pool threads
+        final int subtasks = 1000;
+        final CountDownLatch latch = new CountDownLatch(threads * subtasks);
+        for (int i = 0; i < threads; i++) {
+            r.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < subtasks; j++) {
+                        r.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                latch.countDown();
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        doTest(r.reconfigure(r.getConfiguration().setWorkStealing(false)), tasks);
+        assertFalse(r.getConfiguration().isWorkStealing());
+        doTest(r.reconfigure(r.getConfiguration().setWorkStealing(true)), tasks);
+
+        runTasks(r, 100);
+        r.shutdown();
+        assertTrue(r.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(r.isTerminated());
+    }
+
+    public void testWorkStealingThreadPoolStealsAndGrows() throws Exception {
+        final int coreThreads = 2;
+        final int maxThreads = 6;
+        final AtomicInteger releasedThreads = new AtomicInteger();
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-ws-grow")
+                .setCorePoolSize(coreThreads).setMaxPoolSize(maxThreads)
+                .setKeepAliveTime(100, TimeUnit.MILLISECONDS)
+                .setWorkStealing(true);
+        cfg.getInitialMonitoringConfig().addProbes(new ThreadPoolProbe.Adapter() {
+            @Override
+            public void onThreadReleaseEvent(AbstractThreadPool threadPool,
+                    Thread thread) {
+                releasedThreads.incrementAndGet();
+            }
+        });
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        try {
+            // all the tasks are submitted by one thread, so they land in the
+            // same queue, but have to be processed in parallel
+            final CountDownLatch startedLatch = new CountDownLatch(maxThreads);
+            final CountDownLatch releaseLatch = new CountDownLatch(1);
+            for (int i = 0; i < maxThreads; i++) {
+                r.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        startedLatch.countDown();
+                        try {
+                            releaseLatch.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+
+            assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+            releaseLatch.countDown();
+
+            // the non-core threads have to be released after keep-alive timeout
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (releasedThreads.get() < maxThreads - coreThreads) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(20);
+            }
+            Thread.sleep(300);
+            assertEquals(maxThreads - coreThreads, releasedThreads.get());
+
+            doTest(r, 10000);
+        } finally {
+            r.shutdownNow();
+        }
+    }
+
+    public void testWorkStealingThreadPoolQueueLimit() throws Exception {
+        final AtomicInteger overflows = new AtomicInteger();
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-ws-limit")
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setQueueLimit(2)
+                .setWorkStealing(true);
+        cfg.getInitialMonitoringConfig().addProbes(new ThreadPoolProbe.Adapter() {
+            @Override
+            public void onTaskQueueOverflowEvent(AbstractThreadPool threadPool) {
+                overflows.incrementAndGet();
+            }
+        });
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        try {
+            final CountDownLatch startedLatch = new CountDownLatch(1);
+            final CountDownLatch releaseLatch = new CountDownLatch(1);
+            r.execute(new Runnable() {
+                @Override
+                public void run() {
+                    startedLatch.countDown();
+                    try {
+                        releaseLatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+
+            final CountDownLatch queuedLatch = new CountDownLatch(2);
+            final Runnable countDown = new Runnable() {
+                @Override
+                public void run() {
+                    queuedLatch.countDown();
+                }
+            };
+            r.execute(countDown);
+            r.execute(countDown);
+            try {
+                r.execute(countDown);
+                fail("RejectedExecutionException is expected");
+            } catch (RejectedExecutionException expected) {
+            }
+            assertEquals(1, overflows.get());
+
+            releaseLatch.countDown();
+            assertTrue(queuedLatch.await(10, TimeUnit.SECONDS));
+
+            // the queue has space again
+            doTest(r, 1);
+        } finally {
+            r.shutdownNow();
+        }
+    }
+
+    public void testDeadlineThreadPool() throws Exception {
+        final int threads = 8;
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-edf")
+                .setCorePoolSize(-1).setMaxPoolSize(threads)
+                .setDeadlineScheduling(true)
+                .setTaskDeadline(10, TimeUnit.SECONDS);
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        final int tasks = 200000;
+        doTest(r, tasks);
+        assertTrue(r.getConfiguration().isDeadlineScheduling());
+        assertEquals(10000, r.getConfiguration().getTaskDeadline(TimeUnit.MILLISECONDS));
+
+        doTest(r.reconfigure(r.getConfiguration().setDeadlineScheduling(false)), tasks);
+        assertFalse(r.getConfiguration().isDeadlineScheduling());
+        doTest(r.reconfigure(r.getConfiguration().setDeadlineScheduling(true)), tasks);
+
+        runTasks(r, 100);
+        r.shutdown();
+        assertTrue(r.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(r.isTerminated());
+    }
+
+    public void testDeadlineThreadPoolOrderAndShedding() throws Exception {
+        final List<String> cancelled =
+                Collections.synchronizedList(new LinkedList<String>());
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-edf-order")
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setDeadlineScheduling(true);
+        cfg.getInitialMonitoringConfig().addProbes(new ThreadPoolProbe.Adapter() {
+            @Override
+            public void onTaskCancelEvent(AbstractThreadPool threadPool,
+                    Runnable task) {
+                cancelled.add(task.toString());
+            }
+        });
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        try {
+            final CountDownLatch startedLatch = new CountDownLatch(1);
+            final CountDownLatch releaseLatch = new CountDownLatch(1);
+            r.execute(new Runnable() {
+                @Override
+                public void run() {
+                    startedLatch.countDown();
+                    try {
+                        releaseLatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+
+            final List<String> executed =
+                    Collections.synchronizedList(new LinkedList<String>());
+            final List<String> shed =
+                    Collections.synchronizedList(new LinkedList<String>());
+            final CountDownLatch doneLatch = new CountDownLatch(5);
+
+            r.execute(new TestDeadlineTask("late", 10000, executed, shed, doneLatch));
+            r.execute(new TestDeadlineTask("early", 5000, executed, shed, doneLatch));
+            r.execute(new TestDeadlineTask("expired", 1, executed, shed, doneLatch));
+            r.execute(new TestDeadlineTask("urgent", 500, executed, shed, doneLatch));
+            // the task w/o deadline is ordered by the default deadline, so
+            // it doesn't overtake the task with a closer deadline
+            r.execute(new Runnable() {
+                @Override
+                public void run() {
+                    executed.add("plain");
+                    doneLatch.countDown();
+                }
+            });
+
+            Thread.sleep(50);
+            releaseLatch.countDown();
+            assertTrue(doneLatch.await(10, TimeUnit.SECONDS));
+
+            assertEquals(Arrays.asList("urgent", "plain", "early", "late"), executed);
+            assertEquals(Collections.singletonList("expired"), shed);
+            assertEquals(Collections.singletonList("expired"), cancelled);
+        } finally {
+            r.shutdownNow();
+        }
+    }
+
     private void doTest(GrizzlyExecutorService r, int tasks) throws Exception{
         final CountDownLatch cl = new CountDownLatch(tasks);
         while(tasks-->0){
@@ -222,5 +468,44 @@ public class GrizzlyExecutorServiceTest extends GrizzlyTestCase {
             });
         }
     }
-    
+
+    private static final class TestDeadlineTask implements DeadlineTask {
+        private final String name;
+        private final long deadlineMillis;
+        private final List<String> executed;
+        private final List<String> shed;
+        private final CountDownLatch doneLatch;
+
+        private TestDeadlineTask(final String name, final long deadlineMillis,
+                final List<String> executed, final List<String> shed,
+                final CountDownLatch doneLatch) {
+            this.name = name;
+            this.deadlineMillis = deadlineMillis;
+            this.executed = executed;
+            this.shed = shed;
+            this.doneLatch = doneLatch;
+        }
+
+        @Override
+        public long getDeadline(final TimeUnit timeUnit) {
+            return timeUnit.convert(deadlineMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onDeadlineMissed() {
+            shed.add(name);
+            doneLatch.countDown();
+        }
+
+        @Override
+        public void run() {
+            executed.add(name);
+            doneLatch.countDown();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 }
@@ -58,15 +58,22 @@ import org.junit.Before;
 import org.junit.runners.Parameterized.Parameters;
 import java.util.Collection;
 import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.asyncqueue.AsyncQueueWriter;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategy;
+import org.glassfish.grizzly.strategies.AdaptiveIOStrategyProbe;
 import org.glassfish.grizzly.strategies.LeaderFollowerNIOStrategy;
 import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
 import org.glassfish.grizzly.strategies.SimpleDynamicNIOStrategy;
+import org.glassfish.grizzly.strategies.VirtualThreadIOStrategy;
 import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.VirtualThreads;
 import org.glassfish.grizzly.utils.Charsets;
 import org.glassfish.grizzly.utils.StringFilter;
 import org.junit.runners.Parameterized;
@@ -92,7 +99,9 @@ public class IOStrategyTest {
                     {WorkerThreadIOStrategy.getInstance()},
                     {LeaderFollowerNIOStrategy.getInstance()},
                     {SameThreadIOStrategy.getInstance()},
-                    {SimpleDynamicNIOStrategy.getInstance()}
+                    {SimpleDynamicNIOStrategy.getInstance()},
+                    {new AdaptiveIOStrategy()},
+                    {VirtualThreadIOStrategy.getInstance()}
         }
                 );
     }
@@ -188,6 +197,198 @@ public class IOStrategyTest {
         }
     }
     
+    @Test
+    public void testAdaptiveDispatch() throws Exception {
+        if (!(strategy instanceof AdaptiveIOStrategy)) {
+            return;
+        }
+        
+        final AdaptiveIOStrategy adaptiveStrategy = (AdaptiveIOStrategy) strategy;
+        final long slowMillis = 20;
+        final BlockingQueue<Boolean> decisions = new LinkedBlockingQueue<Boolean>();
+        final AtomicInteger latencyEvents = new AtomicInteger();
+        final AtomicReference<Connection> serverConnection =
+                new AtomicReference<Connection>();
+        final AdaptiveIOStrategyProbe probe = new AdaptiveIOStrategyProbe.Adapter() {
+
+            @Override
+            public void onDispatchEvent(AdaptiveIOStrategy strategy,
+                    Connection connection, IOEvent ioEvent,
+                    boolean isWorkerThread, long latencyNanos,
+                    long selectorLagNanos) {
+                if (ioEvent == IOEvent.READ &&
+                        connection == serverConnection.get()) {
+                    decisions.add(isWorkerThread);
+                }
+            }
+
+            @Override
+            public void onLatencyEvent(AdaptiveIOStrategy strategy,
+                    Connection connection, IOEvent ioEvent,
+                    long executionTimeNanos, long latencyNanos) {
+                latencyEvents.incrementAndGet();
+            }
+        };
+        adaptiveStrategy.getMonitoringConfig().addProbes(probe);
+        
+        final BlockingQueue<String> echoes = new LinkedBlockingQueue<String>();
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setIOStrategy(strategy)
+                .build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new StringFilter(Charsets.UTF8_CHARSET))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleAccept(final FilterChainContext ctx)
+                            throws IOException {
+                        serverConnection.set(ctx.getConnection());
+                        return ctx.getStopAction();
+                    }
+
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        final String msg = ctx.getMessage();
+                        if (msg.startsWith("slow")) {
+                            try {
+                                Thread.sleep(slowMillis);
+                            } catch (InterruptedException ignored) {
+                            }
+                        }
+                        
+                        ctx.write(msg);
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final FilterChain clientChain = FilterChainBuilder.stateless()
+                    .add(new TransportFilter())
+                    .add(new StringFilter(Charsets.UTF8_CHARSET))
+                    .add(new BaseFilter() {
+                        @Override
+                        public NextAction handleRead(final FilterChainContext ctx)
+                                throws IOException {
+                            echoes.add(ctx.<String>getMessage());
+                            return ctx.getStopAction();
+                        }
+                    })
+                    .build();
+            
+            connection = TCPNIOConnectorHandler.builder(transport)
+                    .processor(clientChain)
+                    .build()
+                    .connect(new InetSocketAddress("localhost", PORT))
+                    .get(10, TimeUnit.SECONDS);
+
+            // the first slow event is processed in the selector thread,
+            // the next ones have to be passed to the worker threads
+            final int slowMsgNum = 5;
+            for (int i = 0; i < slowMsgNum; i++) {
+                connection.write("slow" + i);
+                assertEquals("slow" + i, echoes.poll(10, TimeUnit.SECONDS));
+                final Boolean isWorkerThread = decisions.poll(10, TimeUnit.SECONDS);
+                assertNotNull(isWorkerThread);
+                assertEquals(i > 0, isWorkerThread.booleanValue());
+            }
+            
+            final long slowLatency = adaptiveStrategy.getLatency(
+                    serverConnection.get(), TimeUnit.MILLISECONDS);
+            assertTrue(slowLatency >= slowMillis / 2);
+            
+            // the fast events make the latency decrease
+            for (int i = 0; i < 10; i++) {
+                connection.write("fast" + i);
+                assertEquals("fast" + i, echoes.poll(10, TimeUnit.SECONDS));
+            }
+            
+            assertTrue(adaptiveStrategy.getLatency(
+                    serverConnection.get(), TimeUnit.MILLISECONDS) < slowLatency);
+            assertTrue(latencyEvents.get() >= slowMsgNum + 10);
+        } finally {
+            adaptiveStrategy.getMonitoringConfig().removeProbes(probe);
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testVirtualThreadDispatch() throws Exception {
+        if (!(strategy instanceof VirtualThreadIOStrategy)) {
+            return;
+        }
+        
+        final BlockingQueue<Boolean> isVirtualQueue =
+                new LinkedBlockingQueue<Boolean>();
+        final BlockingQueue<String> echoes = new LinkedBlockingQueue<String>();
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setIOStrategy(strategy)
+                .build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new StringFilter(Charsets.UTF8_CHARSET))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        isVirtualQueue.add(VirtualThreads.isVirtual());
+                        ctx.write(ctx.getMessage());
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final FilterChain clientChain = FilterChainBuilder.stateless()
+                    .add(new TransportFilter())
+                    .add(new StringFilter(Charsets.UTF8_CHARSET))
+                    .add(new BaseFilter() {
+                        @Override
+                        public NextAction handleRead(final FilterChainContext ctx)
+                                throws IOException {
+                            echoes.add(ctx.<String>getMessage());
+                            return ctx.getStopAction();
+                        }
+                    })
+                    .build();
+            
+            connection = TCPNIOConnectorHandler.builder(transport)
+                    .processor(clientChain)
+                    .build()
+                    .connect(new InetSocketAddress("localhost", PORT))
+                    .get(10, TimeUnit.SECONDS);
+
+            // on JVMs w/o virtual threads support the strategy falls back
+            // to the worker thread pool
+            for (int i = 0; i < 5; i++) {
+                connection.write("msg" + i);
+                assertEquals("msg" + i, echoes.poll(10, TimeUnit.SECONDS));
+                final Boolean isVirtual = isVirtualQueue.poll(10, TimeUnit.SECONDS);
+                assertNotNull(isVirtual);
+                assertEquals(VirtualThreads.isSupported(), isVirtual.booleanValue());
+            }
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+    
     private static final class EchoResultFilter extends BaseFilter {
         // handleReads should be executed synchronously, so plain "int" is ok
         private final AtomicInteger counter = new AtomicInteger();
@@ -46,7 +46,11 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.nio.FlightRecorder;
+import org.glassfish.grizzly.nio.NIOConnection;
 import org.glassfish.grizzly.nio.NIOTransport;
+import org.glassfish.grizzly.nio.SelectorHandler;
+import org.glassfish.grizzly.nio.SelectorRunner;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.glassfish.grizzly.nio.transport.UDPNIOTransportBuilder;
 import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
@@ -65,11 +69,14 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -945,4 +952,189 @@ public class NIOTransportTest {
         assertTrue(transport.isStopped());
     }
 
+
+    @Test
+    public void testSelectorWakeupCoalescing() throws Exception {
+        LOGGER.log(Level.INFO, "Running: testSelectorWakeupCoalescing ({0})", transport.getName());
+
+        Connection connection = null;
+        final CountDownLatch blockedLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            connection = transport.connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+            final SelectorRunner runner =
+                    ((NIOConnection) connection).getSelectorRunner();
+            final SelectorHandler selectorHandler = transport.getSelectorHandler();
+
+            // keep the runner thread busy
+            selectorHandler.execute(runner, new SelectorHandler.Task() {
+                @Override
+                public boolean run() throws Exception {
+                    blockedLatch.countDown();
+                    releaseLatch.await(10, TimeUnit.SECONDS);
+                    return true;
+                }
+            }, null);
+            assertTrue(blockedLatch.await(10, TimeUnit.SECONDS));
+
+            final long wakeups = runner.getWakeupCount();
+            final long avoidedWakeups = runner.getAvoidedWakeupCount();
+            final long processedTasks = runner.getProcessedTasksCount();
+
+            // the runner isn't selecting, so none of the tasks should wake it up
+            final int tasksCount = 100;
+            final AtomicInteger executed = new AtomicInteger();
+            for (int i = 0; i < tasksCount; i++) {
+                selectorHandler.execute(runner, new SelectorHandler.Task() {
+                    @Override
+                    public boolean run() throws Exception {
+                        executed.incrementAndGet();
+                        return true;
+                    }
+                }, null);
+            }
+
+            assertEquals(wakeups, runner.getWakeupCount());
+            assertEquals(avoidedWakeups + tasksCount, runner.getAvoidedWakeupCount());
+
+            releaseLatch.countDown();
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (executed.get() < tasksCount
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(tasksCount, executed.get());
+            // all the tasks have been processed within one select iteration
+            assertTrue(runner.getMaxTasksPerSelect() > tasksCount);
+            assertTrue(runner.getProcessedTasksCount() - processedTasks > tasksCount);
+        } finally {
+            releaseLatch.countDown();
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testFlightRecorder() throws Exception {
+        LOGGER.log(Level.INFO, "Running: testFlightRecorder ({0})", transport.getName());
+
+        Connection connection = null;
+        final FutureImpl<EnumSet<FlightRecorder.EventType>> readEventTypesFuture =
+                Futures.createSafeFuture();
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(new BaseFilter() {
+            @Override
+            public NextAction handleRead(final FilterChainContext ctx)
+                    throws IOException {
+                // the READ readiness and processing start have been recorded
+                // before the filter chain is executed
+                final NIOConnection serverConnection =
+                        (NIOConnection) ctx.getConnection();
+                final FlightRecorder recorder =
+                        serverConnection.getSelectorRunner().getFlightRecorder();
+                
+                final EnumSet<FlightRecorder.EventType> readEventTypes =
+                        EnumSet.noneOf(FlightRecorder.EventType.class);
+                for (FlightRecorder.Event event : recorder.getEvents()) {
+                    if (event.getConnectionId() == serverConnection.getId()
+                            && event.getIoEvent() == IOEvent.READ) {
+                        readEventTypes.add(event.getType());
+                    }
+                }
+                
+                readEventTypesFuture.result(readEventTypes);
+                return ctx.getInvokeAction();
+            }
+        });
+        filterChainBuilder.add(new EchoFilter());
+
+        transport.setProcessor(filterChainBuilder.build());
+        transport.setFlightRecorderCapacity(1000);
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final FutureImpl<Connection> connectFuture =
+                    Futures.createSafeFuture();
+            transport.connect(
+                    new InetSocketAddress("localhost", PORT),
+                    Futures.toCompletionHandler(
+                            connectFuture,
+                            new EmptyCompletionHandler<Connection>() {
+
+                                @Override
+                                public void completed(final Connection connection) {
+                                    connection.configureStandalone(true);
+                                }
+                            }));
+
+            connection = connectFuture.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            connection.configureBlocking(true);
+
+            byte[] originalMessage = "Hello".getBytes();
+            StreamWriter writer =
+                    StandaloneProcessor.INSTANCE.getStreamWriter(connection);
+            writer.writeByteArray(originalMessage);
+            writer.flush().get(10, TimeUnit.SECONDS);
+
+            StreamReader reader =
+                    StandaloneProcessor.INSTANCE.getStreamReader(connection);
+            assertTrue("Read timeout", reader.notifyAvailable(
+                    originalMessage.length).get(10, TimeUnit.SECONDS) != null);
+
+            final FlightRecorder recorder = ((NIOConnection) connection)
+                    .getSelectorRunner().getFlightRecorder();
+            assertNotNull(recorder);
+            assertEquals(1024, recorder.getCapacity());
+
+            // the echoed message has been read by the server
+            final EnumSet<FlightRecorder.EventType> readEventTypes =
+                    readEventTypesFuture.get(10, TimeUnit.SECONDS);
+            assertTrue(readEventTypes.toString(), readEventTypes.containsAll(
+                    EnumSet.of(FlightRecorder.EventType.IO_EVENT_READY,
+                            FlightRecorder.EventType.IO_EVENT_PROCESS)));
+            assertTrue(transport.dumpFlightRecorders().contains("IO_EVENT_READY READ"));
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFlightRecorderOverwrite() throws Exception {
+        final FlightRecorder recorder = new FlightRecorder(3);
+        assertEquals(4, recorder.getCapacity());
+        
+        for (int i = 0; i < 10; i++) {
+            recorder.record(null, FlightRecorder.EventType.WRITE_FLUSHED,
+                    IOEvent.WRITE, i);
+        }
+        
+        assertEquals(10, recorder.getRecordedCount());
+        final List<FlightRecorder.Event> events = recorder.getEvents();
+        assertEquals(4, events.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, events.get(i).getValue());
+            assertEquals(IOEvent.WRITE, events.get(i).getIoEvent());
+            assertEquals(0, events.get(i).getConnectionId());
+        }
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.utils.RelayFilter;
+
+/**
+ * Test {@link RelayFilter}
+ */
+public class RelayFilterTest extends GrizzlyTestCase {
+    public static final int PORT = 7790;
+
+    public void testRelay() throws Exception {
+        final RelayFilter relayFilter = new RelayFilter();
+        final BlockingQueue<NIOConnection> serverConnections =
+                new LinkedBlockingQueue<NIOConnection>();
+        final TCPNIOTransport transport = createTransport(relayFilter,
+                serverConnections);
+        
+        Socket first = null;
+        Socket second = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            first = new Socket("localhost", PORT);
+            final NIOConnection firstConnection =
+                    serverConnections.poll(10, TimeUnit.SECONDS);
+            second = new Socket("localhost", PORT);
+            final NIOConnection secondConnection =
+                    serverConnections.poll(10, TimeUnit.SECONDS);
+            
+            final RelayFilter.Relay relay =
+                    relayFilter.pair(firstConnection, secondConnection);
+            assertSame(relay, relayFilter.getRelay(firstConnection));
+            assertSame(relay, relayFilter.getRelay(secondConnection));
+            assertSame(secondConnection, relay.getPeer(firstConnection));
+            assertEquals(1, relayFilter.getRelays().size());
+            
+            // the pair is visible to its own filter only
+            assertNull(new RelayFilter().getRelay(firstConnection));
+            
+            try {
+                relayFilter.pair(firstConnection, secondConnection);
+                fail("IllegalStateException is expected");
+            } catch (IllegalStateException expected) {
+            }
+            
+            final byte[] request = "request".getBytes();
+            first.getOutputStream().write(request);
+            assertTrue(Arrays.equals(request, read(second.getInputStream(), request.length)));
+            
+            final byte[] response = "response-data".getBytes();
+            second.getOutputStream().write(response);
+            assertTrue(Arrays.equals(response, read(first.getInputStream(), response.length)));
+            
+            waitForBytesRelayed(relay, firstConnection, request.length);
+            waitForBytesRelayed(relay, secondConnection, response.length);
+            assertEquals(request.length, relay.getBytesRelayed(firstConnection));
+            assertEquals(response.length, relay.getBytesRelayed(secondConnection));
+            assertTrue(relay.getBuffersRelayed(firstConnection) >= 1);
+            
+            // closing one connection closes the pair
+            first.close();
+            assertEquals(-1, second.getInputStream().read());
+            assertTrue(relay.isClosed());
+            assertNull(relayFilter.getRelay(secondConnection));
+            assertTrue(relayFilter.getRelays().isEmpty());
+        } finally {
+            if (first != null) {
+                first.close();
+            }
+            if (second != null) {
+                second.close();
+            }
+            transport.shutdownNow();
+        }
+    }
+
+    public void testRelayBackpressure() throws Exception {
+        final int highWatermark = 256 * 1024;
+        final int chunkSize = 32 * 1024;
+        final int chunksCount = 512;
+        
+        final RelayFilter relayFilter =
+                new RelayFilter(highWatermark, highWatermark / 4);
+        final BlockingQueue<NIOConnection> serverConnections =
+                new LinkedBlockingQueue<NIOConnection>();
+        final TCPNIOTransport transport = createTransport(relayFilter,
+                serverConnections);
+        
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        Socket producer = null;
+        Socket consumer = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            producer = new Socket("localhost", PORT);
+            final NIOConnection producerConnection =
+                    serverConnections.poll(10, TimeUnit.SECONDS);
+            consumer = new Socket("localhost", PORT);
+            final NIOConnection consumerConnection =
+                    serverConnections.poll(10, TimeUnit.SECONDS);
+            
+            final RelayFilter.Relay relay =
+                    relayFilter.pair(producerConnection, consumerConnection);
+            
+            final OutputStream producerStream = producer.getOutputStream();
+            final Future<?> producerFuture = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    final byte[] chunk = new byte[chunkSize];
+                    for (int i = 0; i < chunksCount; i++) {
+                        Arrays.fill(chunk, (byte) i);
+                        producerStream.write(chunk);
+                    }
+                    return null;
+                }
+            });
+            
+            // the consumer doesn't read, so the producer reads get throttled
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (!relay.isThrottled(producerConnection)) {
+                assertTrue("Timeout waiting for the reads to be throttled",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            assertTrue(consumerConnection.getAsyncWriteQueue().spaceInBytes()
+                    < highWatermark * 2);
+            
+            final InputStream consumerStream = consumer.getInputStream();
+            final byte[] buffer = new byte[chunkSize];
+            long received = 0;
+            while (received < (long) chunkSize * chunksCount) {
+                final int len = consumerStream.read(buffer);
+                assertTrue(len > 0);
+                for (int i = 0; i < len; i++) {
+                    assertEquals((byte) ((received + i) / chunkSize), buffer[i]);
+                }
+                received += len;
+            }
+            
+            producerFuture.get(10, TimeUnit.SECONDS);
+            waitForBytesRelayed(relay, producerConnection, received);
+            assertFalse(relay.isThrottled(producerConnection));
+            assertTrue(relay.getThroughput(producerConnection) > 0);
+        } finally {
+            executor.shutdownNow();
+            if (producer != null) {
+                producer.close();
+            }
+            if (consumer != null) {
+                consumer.close();
+            }
+            transport.shutdownNow();
+        }
+    }
+    
+    private static TCPNIOTransport createTransport(final RelayFilter relayFilter,
+            final BlockingQueue<NIOConnection> serverConnections) {
+        final TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(relayFilter)
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleAccept(final FilterChainContext ctx)
+                            throws IOException {
+                        serverConnections.add((NIOConnection) ctx.getConnection());
+                        return ctx.getInvokeAction();
+                    }
+                })
+                .build());
+        
+        return transport;
+    }
+    
+    private static byte[] read(final InputStream in, final int length)
+            throws IOException {
+        final byte[] data = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            final int len = in.read(data, offset, length - offset);
+            assertTrue(len > 0);
+            offset += len;
+        }
+        
+        return data;
+    }
+    
+    private static void waitForBytesRelayed(final RelayFilter.Relay relay,
+            final Connection source, final long bytes) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (relay.getBytesRelayed(source) < bytes) {
+            assertTrue("Timeout", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
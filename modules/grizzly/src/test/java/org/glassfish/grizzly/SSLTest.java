@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
@@ -77,9 +78,11 @@ import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.ssl.SSLBaseFilter;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import org.glassfish.grizzly.ssl.SSLFilter;
+import org.glassfish.grizzly.ssl.SSLProbe;
 import org.glassfish.grizzly.ssl.SSLStreamReader;
 import org.glassfish.grizzly.ssl.SSLStreamWriter;
 import org.glassfish.grizzly.streams.StreamReader;
@@ -89,6 +92,7 @@ import org.glassfish.grizzly.utils.EchoFilter;
 import org.glassfish.grizzly.utils.StringFilter;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.net.ssl.KeyManager;
@@ -397,6 +401,133 @@ public class SSLTest {
 
     }
 
+    @Test
+    public void testHandshakeExecutor() throws Exception {
+        Connection connection = null;
+        SSLContextConfigurator sslContextConfigurator = createSSLContextConfigurator();
+        SSLEngineConfigurator clientSSLEngineConfigurator = null;
+        SSLEngineConfigurator serverSSLEngineConfigurator = null;
+
+        if (sslContextConfigurator.validateConfiguration(true)) {
+            clientSSLEngineConfigurator =
+                    new SSLEngineConfigurator(sslContextConfigurator.createSSLContext(true));
+            serverSSLEngineConfigurator =
+                    new SSLEngineConfigurator(sslContextConfigurator.createSSLContext(true),
+                    false, false, false);
+        } else {
+            fail("Failed to validate SSLContextConfiguration.");
+        }
+
+        final AtomicInteger executedTasks = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final Executor handshakeExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        executedTasks.incrementAndGet();
+                        command.run();
+                    }
+                });
+            }
+        };
+
+        // the client side executor is set via the SSLEngineConfigurator
+        clientSSLEngineConfigurator.setHandshakeExecutor(handshakeExecutor);
+
+        final SSLFilter serverSSLFilter =
+                new SSLFilter(serverSSLEngineConfigurator, null);
+        serverSSLFilter.setHandshakeExecutor(handshakeExecutor);
+
+        final AtomicInteger queuedTasks = new AtomicInteger();
+        final AtomicInteger completedTasks = new AtomicInteger();
+        final FutureImpl<Long> handshakeTimeFuture = Futures.createSafeFuture();
+        serverSSLFilter.getMonitoringConfig().addProbes(new SSLProbe.Adapter() {
+            @Override
+            public void onDelegatedTaskQueueEvent(SSLBaseFilter filter,
+                    Connection connection, int queueSize) {
+                queuedTasks.incrementAndGet();
+            }
+
+            @Override
+            public void onDelegatedTaskCompleteEvent(SSLBaseFilter filter,
+                    Connection connection, int queueSize, long taskTimeNanos) {
+                completedTasks.incrementAndGet();
+            }
+
+            @Override
+            public void onHandshakeCompleteEvent(SSLBaseFilter filter,
+                    Connection connection, long handshakeTimeNanos) {
+                handshakeTimeFuture.result(handshakeTimeNanos);
+            }
+
+            @Override
+            public void onHandshakeFailureEvent(SSLBaseFilter filter,
+                    Connection connection, Throwable error) {
+                handshakeTimeFuture.failure(error);
+            }
+        });
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(serverSSLFilter);
+        filterChainBuilder.add(new EchoFilter());
+
+        TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(filterChainBuilder.build());
+        transport.setMemoryManager(manager);
+
+        final FutureImpl<String> responseFuture = Futures.createSafeFuture();
+
+        TCPNIOTransport cTransport =
+                TCPNIOTransportBuilder.newInstance().build();
+        FilterChainBuilder clientChain = FilterChainBuilder.stateless();
+        clientChain.add(new TransportFilter());
+        clientChain.add(new SSLFilter(null, clientSSLEngineConfigurator));
+        clientChain.add(new StringFilter());
+        clientChain.add(new BaseFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx)
+                    throws IOException {
+                responseFuture.result((String) ctx.getMessage());
+                return ctx.getStopAction();
+            }
+        });
+        cTransport.setProcessor(clientChain.build());
+        cTransport.setMemoryManager(manager);
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            cTransport.start();
+
+            Future<Connection> future = cTransport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+
+            assertNotNull(connection);
+
+            connection.write("message");
+
+            assertEquals("message", responseFuture.get(10, TimeUnit.SECONDS));
+            assertTrue(handshakeTimeFuture.get(10, TimeUnit.SECONDS) > 0);
+
+            assertTrue(queuedTasks.get() > 0);
+            assertEquals(queuedTasks.get(), completedTasks.get());
+            assertEquals(0, serverSSLFilter.getPendingDelegatedTasksCount());
+            assertTrue(executedTasks.get() >= queuedTasks.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+            cTransport.shutdownNow();
+            transport.shutdownNow();
+            executorService.shutdownNow();
+        }
+    }
+
 
     // ------------------------------------------------------- Protected Methods
 
@@ -43,19 +43,32 @@ package org.glassfish.grizzly;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.channels.SelectableChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.glassfish.grizzly.asyncqueue.AsyncQueueWriter;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -64,11 +77,15 @@ import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.nio.AbstractNIOConnectionDistributor;
+import org.glassfish.grizzly.nio.LeastLoadedConnectionDistributor;
+import org.glassfish.grizzly.nio.LinkedReadThrottle;
 import org.glassfish.grizzly.nio.NIOConnection;
 import org.glassfish.grizzly.nio.NIOTransport;
 import org.glassfish.grizzly.nio.RegisterChannelResult;
 import org.glassfish.grizzly.nio.SelectorRunner;
+import org.glassfish.grizzly.nio.transport.ReadBufferSizePredictor;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.nio.transport.TCPNIOServerConnection;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
@@ -89,6 +106,7 @@ import org.junit.Test;
 
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
@@ -587,6 +605,138 @@ public class TCPNIOTransportTest {
 
         }
     }
+
+
+    @Test
+    public void testReadBufferSizePredictor() {
+        final ReadBufferSizePredictor predictor =
+                new ReadBufferSizePredictor(64, 1024, 65536);
+        assertEquals(1024, predictor.nextSize());
+
+        // full reads grow the prediction quickly, up to the max
+        predictor.record(1024, 1024);
+        final int grown = predictor.nextSize();
+        assertTrue(grown > 1024);
+        for (int i = 0; i < 10; i++) {
+            predictor.record(predictor.nextSize(), predictor.nextSize());
+        }
+        assertEquals(65536, predictor.nextSize());
+
+        // one small read doesn't shrink the prediction, two in a row do
+        predictor.record(100, 65536);
+        assertEquals(65536, predictor.nextSize());
+        predictor.record(100, 65536);
+        assertEquals(32768, predictor.nextSize());
+
+        // a not so small read in between resets the shrinking
+        predictor.record(100, 32768);
+        predictor.record(20000, 32768);
+        predictor.record(100, 32768);
+        assertEquals(32768, predictor.nextSize());
+
+        for (int i = 0; i < 100; i++) {
+            predictor.record(1, predictor.nextSize());
+        }
+        assertEquals(64, predictor.nextSize());
+
+        try {
+            new ReadBufferSizePredictor(64, 32, 65536);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testAdaptiveReadBufferSize() throws Exception {
+        doTestReadBufferSizing(true, 0);
+    }
+
+    @Test
+    public void testMultipleReadsPerEvent() throws Exception {
+        doTestReadBufferSizing(false, 128 * 1024);
+    }
+
+    @Test
+    public void testAdaptiveReadBufferSizeMultipleReadsPerEvent() throws Exception {
+        doTestReadBufferSizing(true, 128 * 1024);
+    }
+
+    private void doTestReadBufferSizing(final boolean isAdaptive,
+            final int maxReadBytesPerEvent) throws Exception {
+        final int size = 1024 * 1024;
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger maxMessageSize = new AtomicInteger();
+        final FutureImpl<Boolean> resultFuture = SafeFutureImpl.create();
+
+        Connection connection = null;
+
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setAdaptiveReadBufferSize(isAdaptive)
+                .setMaxReadBytesPerEvent(maxReadBytesPerEvent)
+                .build();
+        assertEquals(isAdaptive, transport.isAdaptiveReadBufferSize());
+        assertEquals(maxReadBytesPerEvent, transport.getMaxReadBytesPerEvent());
+
+        try {
+            FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+            filterChainBuilder.add(new TransportFilter());
+            filterChainBuilder.add(new BaseFilter() {
+
+                @Override
+                public NextAction handleRead(final FilterChainContext ctx)
+                        throws IOException {
+                    final Buffer buffer = ctx.getMessage();
+                    final int remaining = buffer.remaining();
+                    if (remaining > maxMessageSize.get()) {
+                        maxMessageSize.set(remaining);
+                    }
+
+                    int offset = received.get();
+                    boolean isCorrect = true;
+                    for (int i = buffer.position(); i < buffer.limit(); i++) {
+                        isCorrect &= buffer.get(i) == (byte) (offset++ % 251);
+                    }
+                    buffer.tryDispose();
+
+                    if (!isCorrect) {
+                        resultFuture.failure(new IllegalStateException(
+                                "Unexpected content"));
+                    } else if (received.addAndGet(remaining) == size) {
+                        resultFuture.result(Boolean.TRUE);
+                    }
+
+                    return ctx.getStopAction();
+                }
+            });
+
+            transport.setProcessor(filterChainBuilder.build());
+            transport.bind(PORT);
+            transport.start();
+
+            connection = transport.connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+
+            final byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = (byte) (i % 251);
+            }
+
+            final FutureImpl<WriteResult> writeFuture = Futures.createSafeFuture();
+            connection.write(Buffers.wrap(transport.getMemoryManager(), data),
+                    Futures.toCompletionHandler(writeFuture));
+            writeFuture.get(10, TimeUnit.SECONDS);
+
+            assertTrue(resultFuture.get(10, TimeUnit.SECONDS));
+            if (maxReadBytesPerEvent > 0) {
+                assertFalse(maxMessageSize.get() > maxReadBytesPerEvent);
+            }
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
     
     
     // ---------------------------------------------------------- Nested Classes
@@ -633,6 +783,310 @@ public class TCPNIOTransportTest {
         }
     }
 
+    @Test
+    public void testLeastLoadedConnectionDistributor() throws Exception {
+        doTestLeastLoadedConnectionDistributor(
+                LeastLoadedConnectionDistributor.LoadMetric.REGISTERED_KEYS);
+    }
+
+    @Test
+    public void testLeastLoadedConnectionDistributorBusyTime() throws Exception {
+        doTestLeastLoadedConnectionDistributor(
+                LeastLoadedConnectionDistributor.LoadMetric.BUSY_TIME);
+    }
+
+    private void doTestLeastLoadedConnectionDistributor(
+            final LeastLoadedConnectionDistributor.LoadMetric loadMetric)
+            throws Exception {
+        final int runnersCount = 4;
+        final int connectionsCount = 16;
+
+        final Queue<NIOConnection> serverConnections =
+                new ConcurrentLinkedQueue<NIOConnection>();
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setSelectorRunnersCount(runnersCount)
+                .build();
+        final LeastLoadedConnectionDistributor distributor =
+                new LeastLoadedConnectionDistributor(transport, true, loadMetric);
+        transport.setNIOChannelDistributor(distributor);
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleAccept(final FilterChainContext ctx)
+                            throws IOException {
+                        serverConnections.add((NIOConnection) ctx.getConnection());
+                        return ctx.getInvokeAction();
+                    }
+                })
+                .add(new EchoFilter())
+                .build());
+
+        final TCPNIOTransport clientTransport =
+                TCPNIOTransportBuilder.newInstance().build();
+        final BlockingQueue<String> echoes = new LinkedBlockingQueue<String>();
+        clientTransport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new StringFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        echoes.add(ctx.<String>getMessage());
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        final List<Connection> clientConnections = new ArrayList<Connection>();
+        try {
+            final TCPNIOServerConnection serverConnection = transport.bind(PORT);
+            transport.start();
+            clientTransport.start();
+
+            for (int i = 0; i < connectionsCount; i++) {
+                final Connection c = clientTransport.connect("localhost", PORT)
+                        .get(10, TimeUnit.SECONDS);
+                clientConnections.add(c);
+                if (loadMetric == LeastLoadedConnectionDistributor.LoadMetric.REGISTERED_KEYS) {
+                    checkEcho(c, echoes, "init-" + i);
+                }
+            }
+            waitFor(serverConnections, connectionsCount);
+
+            // the server connection occupies the dedicated acceptor runner
+            final SelectorRunner acceptorRunner = serverConnection.getSelectorRunner();
+            assertEquals(0, countConnections(serverConnections, acceptorRunner));
+
+            final Set<SelectorRunner> runners = Collections.newSetFromMap(
+                    new IdentityHashMap<SelectorRunner, Boolean>());
+            for (NIOConnection c : serverConnections) {
+                runners.add(c.getSelectorRunner());
+            }
+
+            if (loadMetric == LeastLoadedConnectionDistributor.LoadMetric.REGISTERED_KEYS) {
+                assertEquals(runnersCount - 1, runners.size());
+                final int expected = connectionsCount / (runnersCount - 1);
+                for (SelectorRunner runner : runners) {
+                    final int count = countConnections(serverConnections, runner);
+                    assertTrue("runner serves " + count + " connections",
+                            Math.abs(count - expected) <= 1);
+                }
+            }
+
+            // close all the connections, which aren't served by the chosen runner
+            final SelectorRunner loadedRunner =
+                    serverConnections.peek().getSelectorRunner();
+            final Set<SocketAddress> toClose = new HashSet<SocketAddress>();
+            for (NIOConnection c : serverConnections) {
+                if (c.getSelectorRunner() != loadedRunner) {
+                    toClose.add((SocketAddress) c.getPeerAddress());
+                }
+            }
+            for (Iterator<Connection> it = clientConnections.iterator(); it.hasNext();) {
+                final Connection c = it.next();
+                if (toClose.contains((SocketAddress) c.getLocalAddress())) {
+                    c.closeSilently();
+                    it.remove();
+                }
+            }
+            final int remaining = clientConnections.size();
+            assertTrue(remaining > 1);
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (!isClosed(runners, loadedRunner, remaining)) {
+                assertTrue("Timeout waiting for connections to close",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(20);
+            }
+
+            distributor.setRebalanceThreshold(0);
+            distributor.rebalance();
+
+            while (distributor.getMigratedConnectionsCount() < remaining - remaining / 3 - 1) {
+                assertTrue("Timeout waiting for connections to migrate",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(20);
+            }
+
+            assertTrue(loadedRunner.getRegisteredKeysCount() < remaining);
+
+            // the migrated connections have to keep working
+            for (int i = 0; i < clientConnections.size(); i++) {
+                checkEcho(clientConnections.get(i), echoes, "migrated-" + i);
+            }
+        } finally {
+            for (Connection c : clientConnections) {
+                c.closeSilently();
+            }
+            clientTransport.shutdownNow();
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLinkedReadThrottle() throws Exception {
+        final int highWatermark = 512 * 1024;
+        final int lowWatermark = 128 * 1024;
+        final int chunkSize = 64 * 1024;
+        final int chunksCount = 512;
+        
+        final BlockingQueue<NIOConnection> serverConnections =
+                new LinkedBlockingQueue<NIOConnection>();
+        final FutureImpl<NIOConnection> targetFuture = Futures.createSafeFuture();
+        final AtomicInteger maxQueueSize = new AtomicInteger();
+        
+        // the writes to the target connection are not limited,
+        // so only the read throttling keeps the queue size bounded
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setMaxAsyncWriteQueueSizeInBytes(AsyncQueueWriter.UNLIMITED_SIZE)
+                .build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleAccept(final FilterChainContext ctx)
+                            throws IOException {
+                        serverConnections.add((NIOConnection) ctx.getConnection());
+                        return ctx.getInvokeAction();
+                    }
+
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        final NIOConnection target = targetFuture.getResult();
+                        target.write(ctx.getMessage());
+                        
+                        final int queueSize = target.getAsyncWriteQueue().spaceInBytes();
+                        if (queueSize > maxQueueSize.get()) {
+                            maxQueueSize.set(queueSize);
+                        }
+                        
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        java.net.Socket sink = null;
+        java.net.Socket producer = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            // the sink doesn't read the data yet, so the target write queue grows
+            sink = new java.net.Socket("localhost", PORT);
+            final NIOConnection target = serverConnections.poll(10, TimeUnit.SECONDS);
+            assertNotNull(target);
+            
+            producer = new java.net.Socket("localhost", PORT);
+            final NIOConnection source = serverConnections.poll(10, TimeUnit.SECONDS);
+            assertNotNull(source);
+
+            final LinkedReadThrottle throttle = LinkedReadThrottle.link(
+                    source, target, highWatermark, lowWatermark);
+            targetFuture.result(target);
+
+            final java.io.OutputStream producerStream = producer.getOutputStream();
+            final Future<?> producerFuture = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    final byte[] chunk = new byte[chunkSize];
+                    for (int i = 0; i < chunksCount; i++) {
+                        Arrays.fill(chunk, (byte) i);
+                        producerStream.write(chunk);
+                    }
+                    producerStream.flush();
+                    return null;
+                }
+            });
+            
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (!throttle.isThrottling()) {
+                assertTrue("Timeout waiting for the reads to be throttled",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            assertTrue(source.isReadThrottled());
+            
+            // the producer is blocked, once the socket buffers are full
+            Thread.sleep(500);
+            assertFalse(producerFuture.isDone());
+            
+            final java.io.InputStream sinkStream = sink.getInputStream();
+            final byte[] buffer = new byte[chunkSize];
+            long received = 0;
+            while (received < (long) chunkSize * chunksCount) {
+                final int len = sinkStream.read(buffer);
+                assertTrue(len > 0);
+                for (int i = 0; i < len; i++) {
+                    assertEquals((byte) ((received + i) / chunkSize), buffer[i]);
+                }
+                received += len;
+            }
+
+            producerFuture.get(10, TimeUnit.SECONDS);
+            
+            assertFalse(throttle.isThrottling());
+            assertFalse(source.isReadThrottled());
+            assertTrue("max queue size " + maxQueueSize.get(),
+                    maxQueueSize.get() < highWatermark * 2);
+            
+            // closing the target releases the link
+            target.close().get(10, TimeUnit.SECONDS);
+            assertFalse(target.getAsyncWriteQueue().removeWatermark(throttle));
+        } finally {
+            executor.shutdownNow();
+            if (producer != null) {
+                producer.close();
+            }
+            if (sink != null) {
+                sink.close();
+            }
+            transport.shutdownNow();
+        }
+    }
+    
+    private static boolean isClosed(final Set<SelectorRunner> runners,
+            final SelectorRunner loadedRunner, final int remaining) {
+        for (SelectorRunner runner : runners) {
+            if (runner.getRegisteredKeysCount() !=
+                    (runner == loadedRunner ? remaining : 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void checkEcho(final Connection connection,
+            final BlockingQueue<String> echoes, final String message)
+            throws Exception {
+        connection.write(message);
+        assertEquals(message, echoes.poll(10, TimeUnit.SECONDS));
+    }
+
+    private static void waitFor(final Queue<?> queue, final int size)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (queue.size() < size) {
+            assertTrue("Timeout", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static int countConnections(final Queue<NIOConnection> connections,
+            final SelectorRunner runner) {
+        int count = 0;
+        for (NIOConnection connection : connections) {
+            if (connection.isOpen() && connection.getSelectorRunner() == runner) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
     public static class CustomChannelDistributor extends AbstractNIOConnectionDistributor {
 
         private final AtomicInteger counter;
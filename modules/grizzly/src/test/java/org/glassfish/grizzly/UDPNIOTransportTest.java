@@ -41,14 +41,35 @@
 package org.glassfish.grizzly;
 
 import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.glassfish.grizzly.filterchain.*;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.nio.LeastLoadedConnectionDistributor;
+import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.SelectorRunner;
 import org.glassfish.grizzly.nio.transport.UDPNIOConnectorHandler;
+import org.glassfish.grizzly.nio.transport.UDPNIOServerConnection;
 import org.glassfish.grizzly.nio.transport.UDPNIOTransport;
 import org.glassfish.grizzly.nio.transport.UDPNIOTransportBuilder;
+import org.glassfish.grizzly.utils.Futures;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -125,4 +146,382 @@ public class UDPNIOTransportTest {
             transport.shutdownNow();
         }
     }    
+
+    @Test
+    public void testBatchedRead() throws Exception {
+        final Charset charset = Charset.forName("UTF-8");
+        final int datagramsNum = 100;
+        
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setMaxDatagramsPerRead(8)
+                .build();
+        assertEquals(8, transport.getMaxDatagramsPerRead());
+
+        final AtomicInteger corkedReads = new AtomicInteger();
+        
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        if (((NIOConnection) ctx.getConnection()).isCorked()) {
+                            corkedReads.incrementAndGet();
+                        }
+                        
+                        // echo the datagram back to its sender
+                        final Buffer buffer = ctx.getMessage();
+                        ctx.write(ctx.getAddress(), buffer, null);
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        final DatagramSocket client = new DatagramSocket();
+        try {
+            final Connection serverConnection = transport.bind(PORT);
+            transport.start();
+            
+            client.setSoTimeout(10000);
+            final InetSocketAddress serverAddress =
+                    new InetSocketAddress("localhost", PORT);
+            
+            final Set<String> expected = new HashSet<String>();
+            for (int i = 0; i < datagramsNum; i++) {
+                final String message = "datagram-" + i;
+                expected.add(message);
+                final byte[] data = message.getBytes(charset);
+                client.send(new DatagramPacket(data, data.length, serverAddress));
+            }
+            
+            final byte[] receiveBuffer = new byte[128];
+            final Set<String> received = new HashSet<String>();
+            for (int i = 0; i < datagramsNum; i++) {
+                final DatagramPacket packet =
+                        new DatagramPacket(receiveBuffer, receiveBuffer.length);
+                client.receive(packet);
+                received.add(new String(packet.getData(), 0,
+                        packet.getLength(), charset));
+            }
+            
+            assertEquals(expected, received);
+            assertEquals(datagramsNum, corkedReads.get());
+            assertFalse(((NIOConnection) serverConnection).isCorked());
+        } finally {
+            client.close();
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchedReadSuspended() throws Exception {
+        final Charset charset = Charset.forName("UTF-8");
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setMaxDatagramsPerRead(8)
+                .build();
+
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        final Buffer buffer = ctx.getMessage();
+                        ctx.write(ctx.getAddress(), buffer, null);
+                        
+                        // suspend the batch and never resume it
+                        ctx.suspend();
+                        return ctx.getSuspendAction();
+                    }
+                })
+                .build());
+
+        final DatagramSocket client = new DatagramSocket();
+        try {
+            final Connection serverConnection = transport.bind(PORT);
+            transport.start();
+            
+            client.setSoTimeout(10000);
+            final byte[] data = "suspended".getBytes(charset);
+            client.send(new DatagramPacket(data, data.length,
+                    new InetSocketAddress("localhost", PORT)));
+            
+            // the reply mustn't be held back by the suspended batch
+            final byte[] receiveBuffer = new byte[128];
+            final DatagramPacket packet =
+                    new DatagramPacket(receiveBuffer, receiveBuffer.length);
+            client.receive(packet);
+            assertEquals("suspended", new String(packet.getData(), 0,
+                    packet.getLength(), charset));
+            assertFalse(((NIOConnection) serverConnection).isCorked());
+        } finally {
+            client.close();
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchedReadEmptyDatagram() throws Exception {
+        final Charset charset = Charset.forName("UTF-8");
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setMaxDatagramsPerRead(8)
+                .build();
+
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        // reply with the datagram's size
+                        final Buffer buffer = ctx.getMessage();
+                        final byte[] reply = String.valueOf(buffer.remaining())
+                                .getBytes(charset);
+                        buffer.tryDispose();
+                        
+                        ctx.write(ctx.getAddress(),
+                                Buffers.wrap(ctx.getMemoryManager(), reply), null);
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        final DatagramSocket client = new DatagramSocket();
+        try {
+            transport.bind(PORT);
+            transport.start();
+            
+            client.setSoTimeout(10000);
+            final InetSocketAddress serverAddress =
+                    new InetSocketAddress("localhost", PORT);
+            final byte[] data = "datagram".getBytes(charset);
+            client.send(new DatagramPacket(new byte[0], 0, serverAddress));
+            client.send(new DatagramPacket(data, data.length, serverAddress));
+            
+            final byte[] receiveBuffer = new byte[128];
+            final List<String> received = new ArrayList<String>();
+            for (int i = 0; i < 2; i++) {
+                final DatagramPacket packet =
+                        new DatagramPacket(receiveBuffer, receiveBuffer.length);
+                client.receive(packet);
+                received.add(new String(packet.getData(), 0,
+                        packet.getLength(), charset));
+            }
+            
+            assertEquals(Arrays.asList("0", String.valueOf(data.length)),
+                    received);
+        } finally {
+            client.close();
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeastLoadedDistributorSkipsUdpConnections() throws Exception {
+        final int runnersCount = 4;
+        final int connectionsCount = 8;
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setSelectorRunnersCount(runnersCount)
+                .build();
+        final LeastLoadedConnectionDistributor distributor =
+                new LeastLoadedConnectionDistributor(transport);
+        transport.setNIOChannelDistributor(distributor);
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .build());
+
+        final DatagramSocket peer = new DatagramSocket();
+        final List<NIOConnection> connections = new ArrayList<NIOConnection>();
+        try {
+            connections.add((NIOConnection) transport.bind(PORT));
+            transport.start();
+            
+            for (int i = 1; i < connectionsCount; i++) {
+                connections.add((NIOConnection) transport.connect(
+                        new InetSocketAddress("localhost", peer.getLocalPort()))
+                        .get(10, TimeUnit.SECONDS));
+            }
+            
+            final Set<SelectorRunner> runners = Collections.newSetFromMap(
+                    new IdentityHashMap<SelectorRunner, Boolean>());
+            for (NIOConnection c : connections) {
+                runners.add(c.getSelectorRunner());
+            }
+            
+            // leave the connections of a single runner only
+            final SelectorRunner loadedRunner = connections.get(0).getSelectorRunner();
+            for (Iterator<NIOConnection> it = connections.iterator(); it.hasNext();) {
+                final NIOConnection c = it.next();
+                if (c.getSelectorRunner() != loadedRunner) {
+                    c.closeSilently();
+                    it.remove();
+                }
+            }
+            assertTrue(connections.size() > 1);
+            
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (loadedRunner.getRegisteredKeysCount() != connections.size()
+                    || totalRegisteredKeys(runners) != connections.size()) {
+                assertTrue("Timeout waiting for connections to close",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(20);
+            }
+            
+            distributor.setRebalanceThreshold(0);
+            distributor.rebalance();
+            Thread.sleep(500);
+            
+            assertEquals(0, distributor.getMigratedConnectionsCount());
+            for (NIOConnection c : connections) {
+                assertSame(loadedRunner, c.getSelectorRunner());
+            }
+            assertEquals(connections.size(), loadedRunner.getRegisteredKeysCount());
+        } finally {
+            peer.close();
+            transport.shutdownNow();
+        }
+    }
+
+    private static int totalRegisteredKeys(final Set<SelectorRunner> runners) {
+        int total = 0;
+        for (SelectorRunner runner : runners) {
+            total += runner.getRegisteredKeysCount();
+        }
+        
+        return total;
+    }
+
+    @Test
+    public void testMultiChannelBind() throws Exception {
+        final int clientsNum = 8;
+        final int datagramsNum = 10;
+        final Charset charset = Charset.forName("ASCII");
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setSelectorRunnersCount(4)
+                .setServerChannelsPerBind(4)
+                .build();
+        assertEquals(4, transport.getServerChannelsPerBind());
+
+        final Set<Connection> readConnections = Collections.newSetFromMap(
+                new ConcurrentHashMap<Connection, Boolean>());
+        
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        readConnections.add(ctx.getConnection());
+                        
+                        final Buffer buffer = ctx.getMessage();
+                        ctx.write(ctx.getAddress(), buffer, null);
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        final DatagramSocket[] clients = new DatagramSocket[clientsNum];
+        try {
+            final UDPNIOServerConnection serverConnection = transport.bind(PORT);
+            transport.start();
+            
+            assertSame(serverConnection, serverConnection.getPrimaryConnection());
+            if (serverConnection.isDispatchReads()) {
+                // SO_REUSEPORT isn't supported
+                assertTrue(serverConnection.getReusePortConnections().isEmpty());
+            } else {
+                assertEquals(3, serverConnection.getReusePortConnections().size());
+                for (UDPNIOServerConnection c : serverConnection.getReusePortConnections()) {
+                    assertSame(serverConnection, c.getPrimaryConnection());
+                    assertEquals(serverConnection.getLocalAddress(), c.getLocalAddress());
+                    assertSame(serverConnection.getProcessor(), c.getProcessor());
+                }
+            }
+            
+            final InetSocketAddress serverAddress =
+                    new InetSocketAddress("localhost", PORT);
+            for (int i = 0; i < clientsNum; i++) {
+                clients[i] = new DatagramSocket();
+                clients[i].setSoTimeout(10000);
+                for (int j = 0; j < datagramsNum; j++) {
+                    final byte[] data = ("datagram-" + i + "-" + j).getBytes(charset);
+                    clients[i].send(new DatagramPacket(data, data.length, serverAddress));
+                }
+            }
+            
+            final byte[] receiveBuffer = new byte[128];
+            for (int i = 0; i < clientsNum; i++) {
+                final Set<String> received = new HashSet<String>();
+                for (int j = 0; j < datagramsNum; j++) {
+                    final DatagramPacket packet =
+                            new DatagramPacket(receiveBuffer, receiveBuffer.length);
+                    clients[i].receive(packet);
+                    received.add(new String(packet.getData(), 0,
+                            packet.getLength(), charset));
+                }
+                
+                assertEquals(datagramsNum, received.size());
+            }
+            
+            for (Connection c : readConnections) {
+                assertSame(serverConnection,
+                        ((UDPNIOServerConnection) c).getPrimaryConnection());
+            }
+            
+            transport.unbind(serverConnection);
+            assertFalse(serverConnection.isOpen());
+            for (UDPNIOServerConnection c : serverConnection.getReusePortConnections()) {
+                assertFalse(c.isOpen());
+            }
+        } finally {
+            for (DatagramSocket client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+            
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchedReadError() throws Exception {
+        final UDPNIOTransport transport = UDPNIOTransportBuilder.newInstance()
+                .setMaxDatagramsPerRead(8)
+                .build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .build());
+
+        // the port nobody listens on
+        final DatagramSocket closedSocket = new DatagramSocket();
+        final int closedPort = closedSocket.getLocalPort();
+        closedSocket.close();
+        
+        try {
+            transport.start();
+            
+            final Connection connection = transport.connect(
+                    new InetSocketAddress("localhost", closedPort))
+                    .get(10, TimeUnit.SECONDS);
+            final FutureImpl<CloseType> closeFuture =
+                    Futures.createSafeFuture();
+            connection.addCloseListener(new CloseListener() {
+                @Override
+                public void onClosed(final Closeable closeable,
+                        final ICloseType type) throws IOException {
+                    closeFuture.result((CloseType) type);
+                }
+            });
+            
+            // the ICMP port unreachable makes the next receive fail, which
+            // has to close the connection
+            connection.write(new HeapMemoryManager().wrap(new byte[] {1}));
+            
+            assertEquals(CloseType.LOCALLY, closeFuture.get(10, TimeUnit.SECONDS));
+            assertFalse(((NIOConnection) connection).isCorked());
+        } finally {
+            transport.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,400 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Buffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class ArenaMemoryManagerTest {
+
+    private static final int PAGE_SIZE = 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Parameters
+    public static Collection<Object[]> isDirect() {
+        return Arrays.asList(new Object[][]{
+                    {Boolean.FALSE},
+                    {Boolean.TRUE}
+                });
+    }
+
+    private final boolean isDirect;
+
+    public ArenaMemoryManagerTest(boolean isDirect) {
+        this.isDirect = isDirect;
+    }
+
+    @Test
+    public void testSizeClasses() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final int[] classes = mm.getSizeClasses();
+
+        assertArrayEquals(new Object[] {
+                16, 32, 48, 64, 80, 96, 112, 128,
+                160, 192, 224, 256, 320, 384, 448, 512}, toObjects(classes));
+
+        assertEquals(16, mm.allocate(1).capacity());
+        assertEquals(16, mm.allocate(16).capacity());
+        assertEquals(32, mm.allocate(17).capacity());
+        assertEquals(160, mm.allocate(129).capacity());
+        assertEquals(512, mm.allocate(500).capacity());
+        // large allocations are rounded up to pages
+        assertEquals(PAGE_SIZE, mm.allocate(513).capacity());
+        assertEquals(3 * PAGE_SIZE, mm.allocate(2 * PAGE_SIZE + 1).capacity());
+    }
+
+    @Test
+    public void testInvalidConstructorArguments() {
+        try {
+            new ArenaMemoryManager(1000, CHUNK_SIZE, 1, 0.01f, isDirect);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ArenaMemoryManager(PAGE_SIZE, PAGE_SIZE / 2, 1, 0.01f, isDirect);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ArenaMemoryManager(PAGE_SIZE, CHUNK_SIZE, 0, 0.01f, isDirect);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ArenaMemoryManager(PAGE_SIZE, CHUNK_SIZE, 1, 1.0f, isDirect);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSmallAllocationAndDispose() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocate(100);
+        assertEquals(100, b.remaining());
+        assertEquals(112, b.capacity());
+        assertEquals(isDirect, b.isDirect());
+        assertTrue(b.allowBufferDispose());
+        assertEquals(1, probe.bufferAllocated.get()); // the chunk
+        assertEquals(1, probe.bufferAllocatedFromPool.get());
+
+        final int freePages = arena.getFreePages();
+
+        // the regions of the same run are adjacent and don't overlap
+        final List<Buffer> buffers = new ArrayList<Buffer>();
+        for (int i = 0; i < 8; i++) {
+            final Buffer b2 = mm.allocate(100);
+            b2.put(0, (byte) i);
+            buffers.add(b2);
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, buffers.get(i).get(0));
+        }
+
+        b.tryDispose();
+        for (Buffer b2 : buffers) {
+            b2.tryDispose();
+        }
+        assertEquals(9, probe.bufferReleasedToPool.get());
+        assertEquals(freePages, arena.getFreePages());
+        assertEquals(1, mm.getReservedChunks());
+    }
+
+    @Test
+    public void testLargeAllocationAndDispose() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocateAtLeast(5000);
+        assertEquals(5 * PAGE_SIZE, b.capacity());
+        assertEquals(5 * PAGE_SIZE, b.limit());
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 5, arena.getFreePages());
+
+        b.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE, arena.getFreePages());
+    }
+
+    @Test
+    public void testGrowInPlace() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        Buffer b = mm.allocate(2 * PAGE_SIZE);
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            b.put((byte) i);
+        }
+        b.position(100);
+
+        final Buffer grown = mm.reallocate(b, 10 * PAGE_SIZE);
+        assertSame(b, grown);
+        assertEquals(10 * PAGE_SIZE, grown.capacity());
+        assertEquals(10 * PAGE_SIZE, grown.limit());
+        assertEquals(100, grown.position());
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            assertEquals((byte) i, grown.get(i));
+        }
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 10, arena.getFreePages());
+
+        // shrink gives the tail pages back
+        final Buffer shrunk = mm.reallocate(grown, 3 * PAGE_SIZE);
+        assertSame(b, shrunk);
+        assertEquals(3 * PAGE_SIZE, shrunk.capacity());
+        assertEquals(3 * PAGE_SIZE, shrunk.limit());
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 3, arena.getFreePages());
+
+        shrunk.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE, arena.getFreePages());
+    }
+
+    @Test
+    public void testGrowRelocatesIfNextPagesBusy() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocate(2 * PAGE_SIZE);
+        final Buffer blocker = mm.allocate(PAGE_SIZE);
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            b.put((byte) i);
+        }
+
+        final Buffer moved = mm.reallocate(b, 4 * PAGE_SIZE);
+        assertNotSame(b, moved);
+        assertEquals(4 * PAGE_SIZE, moved.limit());
+        assertEquals(2 * PAGE_SIZE, moved.position());
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            assertEquals((byte) i, moved.get(i));
+        }
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 5, arena.getFreePages());
+
+        moved.tryDispose();
+        blocker.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE, arena.getFreePages());
+    }
+
+    @Test
+    public void testSharedBufferIsNotResizedInPlace() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocate(2 * PAGE_SIZE);
+        final Buffer slice = b.slice(0, 10);
+
+        final Buffer moved = mm.reallocate(b, 4 * PAGE_SIZE);
+        assertNotSame(b, moved);
+
+        // the original pages are still referenced by the slice
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 6, arena.getFreePages());
+        slice.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE - 4, arena.getFreePages());
+
+        moved.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE, arena.getFreePages());
+    }
+
+    @Test
+    public void testSplitAndDispose() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+        final ArenaMemoryManager.Arena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocate(4 * PAGE_SIZE);
+        final Buffer tail = b.split(PAGE_SIZE);
+        assertEquals(PAGE_SIZE, b.capacity());
+        assertEquals(3 * PAGE_SIZE, tail.capacity());
+
+        // split buffer can't grow in place anymore
+        final Buffer moved = mm.reallocate(b, 2 * PAGE_SIZE);
+        assertNotSame(b, moved);
+
+        tail.tryDispose();
+        moved.tryDispose();
+        assertEquals(CHUNK_SIZE / PAGE_SIZE, arena.getFreePages());
+    }
+
+    @Test
+    public void testHugeAllocation() {
+        final ArenaMemoryManager mm = createMemoryManager(1, 4);
+
+        final Buffer b = mm.allocate(CHUNK_SIZE * 2 + PAGE_SIZE);
+        assertTrue(b.isComposite());
+        assertEquals(CHUNK_SIZE * 2 + PAGE_SIZE, b.remaining());
+        assertEquals(3, mm.getReservedChunks());
+
+        b.tryDispose();
+        for (ArenaMemoryManager.Arena arena : mm.getArenas()) {
+            assertEquals(arena.getChunksCount() * CHUNK_SIZE / PAGE_SIZE,
+                    arena.getFreePages());
+        }
+    }
+
+    @Test
+    public void testFallbackWhenOutOfChunks() {
+        final ArenaMemoryManager mm = createMemoryManager(2, 1);
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final Buffer b1 = mm.allocate(CHUNK_SIZE);
+        assertEquals(1, mm.getReservedChunks());
+
+        // no more chunks to reserve, so plain buffer is allocated
+        final Buffer b2 = mm.allocate(CHUNK_SIZE);
+        assertFalse(b2 instanceof ArenaMemoryManager.ArenaBuffer);
+        assertEquals(CHUNK_SIZE, b2.remaining());
+        assertEquals(1, mm.getReservedChunks());
+        assertEquals(2, probe.bufferAllocated.get());
+
+        b1.tryDispose();
+        b2.tryDispose();
+
+        // the freed chunk is reused by the other arenas as well
+        final Buffer b3 = mm.allocate(CHUNK_SIZE);
+        assertTrue(b3 instanceof ArenaMemoryManager.ArenaBuffer);
+        b3.tryDispose();
+    }
+
+    @Test
+    public void stressTest() throws Exception {
+        final int threadsNum = 8;
+        final ArenaMemoryManager mm = createMemoryManager(4, 16);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadsNum);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threadsNum; i++) {
+                final int seed = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        final Random random = new Random(seed);
+                        for (int j = 0; j < 10000; j++) {
+                            final int size = 1 + random.nextInt(4 * PAGE_SIZE);
+                            Buffer b = mm.allocate(size);
+                            final byte marker = (byte) j;
+                            b.put(0, marker);
+                            b.put(size - 1, marker);
+                            if (random.nextBoolean()) {
+                                b = mm.reallocate(b, size + random.nextInt(2 * PAGE_SIZE));
+                            }
+                            assertEquals(marker, b.get(0));
+                            assertEquals(marker, b.get(size - 1));
+                            b.tryDispose();
+                        }
+                        return true;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (ArenaMemoryManager.Arena arena : mm.getArenas()) {
+            // all the large runs are free, small runs may stay reserved
+            // as the current runs of their bins
+            assertTrue(arena.getFreePages() <= arena.getChunksCount() * CHUNK_SIZE / PAGE_SIZE);
+        }
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private ArenaMemoryManager createMemoryManager(final int arenas,
+                                                   final int chunks) {
+        return new ArenaMemoryManager(PAGE_SIZE, CHUNK_SIZE, arenas,
+                (float) chunks * CHUNK_SIZE / Runtime.getRuntime().maxMemory() + 0.00001f,
+                isDirect);
+    }
+
+    private static Object[] toObjects(final int[] array) {
+        final Object[] result = new Object[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    static final class TestProbe extends MemoryProbe.Adapter {
+        final AtomicInteger bufferAllocated = new AtomicInteger();
+        final AtomicInteger bufferAllocatedFromPool = new AtomicInteger();
+        final AtomicInteger bufferReleasedToPool = new AtomicInteger();
+
+        @Override
+        public void onBufferAllocateEvent(int size) {
+            bufferAllocated.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferAllocateFromPoolEvent(int size) {
+            bufferAllocatedFromPool.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferReleaseToPoolEvent(int size) {
+            bufferReleasedToPool.incrementAndGet();
+        }
+    }
+}
@@ -743,6 +743,65 @@ public class PooledMemoryManagerTest {
         assertFalse(slice0.offer(slice0.allocate()));
     }
 
+    @Test
+    public void threadAffineSlicesTest() {
+        final int slicesNum = 4;
+        final PooledMemoryManager mm = new PooledMemoryManager(
+                128, 1, 0, slicesNum,
+                slicesNum * 2048.0f / Runtime.getRuntime().maxMemory(),
+                DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                isDirect, true);
+        assertTrue(mm.isThreadAffine());
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final PooledMemoryManager.Pool pool = mm.getPools()[0];
+        final PooledMemoryManager.PoolSlice[] slices = pool.getSlices();
+        final int totalCount = pool.elementsCount();
+
+        // the same thread has to hit the same slice all the time
+        for (int i = 0; i < 10; i++) {
+            mm.allocate(128).tryDispose();
+        }
+        assertEquals(10, probe.bufferAllocatedFromPoolSliceHit.get());
+        assertEquals(0, probe.bufferAllocatedFromPoolSliceSteal.get());
+
+        PooledMemoryManager.PoolSlice home = null;
+        for (PooledMemoryManager.PoolSlice slice : slices) {
+            if (slice.getHitCount() > 0) {
+                assertNull("Only one slice is expected to be hit", home);
+                home = slice;
+            }
+            assertEquals(0, slice.getStealCount());
+        }
+        assertNotNull(home);
+        assertEquals(10, home.getHitCount());
+
+        // drain the home slice, so the next allocation has to steal
+        final ArrayList<Buffer> tempStorage = new ArrayList<Buffer>();
+        final int homeCount = home.elementsCount();
+        for (int i = 0; i < homeCount; i++) {
+            tempStorage.add(mm.allocate(128));
+        }
+        assertEquals(0, home.elementsCount());
+        tempStorage.add(mm.allocate(128));
+
+        final PooledMemoryManager.PoolSlice victim =
+                slices[(home.getIndex() + 1) % slicesNum];
+        assertEquals(10 + homeCount, probe.bufferAllocatedFromPoolSliceHit.get());
+        assertEquals(1, probe.bufferAllocatedFromPoolSliceSteal.get());
+        assertEquals(1, victim.getStealCount());
+        assertEquals(0, probe.bufferAllocated.get());
+
+        // releases go to the home slice first and spill over, once it's full
+        for (Buffer b : tempStorage) {
+            b.tryDispose();
+        }
+        assertEquals(home.getMaxElementsCount(), home.elementsCount());
+        assertEquals(victim.getMaxElementsCount(), victim.elementsCount());
+        assertEquals(totalCount, pool.elementsCount());
+    }
+
     @Test
     public void stressTest() {
         final int poolsNum = 3;
@@ -838,6 +897,8 @@ public class PooledMemoryManagerTest {
         final AtomicInteger bufferAllocated = new AtomicInteger();
         final AtomicInteger bufferAllocatedFromPool = new AtomicInteger();
         final AtomicInteger bufferReleasedToPool = new AtomicInteger();
+        final AtomicInteger bufferAllocatedFromPoolSliceHit = new AtomicInteger();
+        final AtomicInteger bufferAllocatedFromPoolSliceSteal = new AtomicInteger();
 
         @Override
         public void onBufferAllocateEvent(int size) {
@@ -853,5 +914,15 @@ public class PooledMemoryManagerTest {
         public void onBufferReleaseToPoolEvent(int size) {
             bufferReleasedToPool.incrementAndGet();
         }
+
+        @Override
+        public void onBufferAllocateFromPoolSliceHitEvent(int size, int sliceIndex) {
+            bufferAllocatedFromPoolSliceHit.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferAllocateFromPoolSliceStealEvent(int size, int sliceIndex) {
+            bufferAllocatedFromPoolSliceSteal.incrementAndGet();
+        }
     }
 }
@@ -0,0 +1,220 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.memory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.asyncqueue.AsyncWriteQueueRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class SharedBufferTest {
+
+    @Parameters
+    public static Collection<Object[]> isDirect() {
+        return Arrays.asList(new Object[][]{
+                    {Boolean.FALSE},
+                    {Boolean.TRUE}
+                });
+    }
+
+    private final boolean isDirect;
+
+    public SharedBufferTest(boolean isDirect) {
+        this.isDirect = isDirect;
+    }
+
+    @Test
+    public void testLastReleaseReturnsBufferToPool() {
+        final PooledMemoryManager mm = new PooledMemoryManager(isDirect);
+        final PooledMemoryManager.Pool pool = mm.getPools()[0];
+        final int initialCount = pool.elementsCount();
+
+        final SharedBuffer shared = SharedBuffer.wrap(filled(mm, 64));
+        assertEquals(initialCount - 1, pool.elementsCount());
+
+        final Buffer view1 = shared.retainedDuplicate();
+        final Buffer view2 = shared.retainedDuplicate();
+        assertEquals(3, shared.refCount());
+
+        assertFalse(shared.release());
+        view1.tryDispose();
+        assertEquals(1, shared.refCount());
+        assertEquals(initialCount - 1, pool.elementsCount());
+
+        view2.tryDispose();
+        assertEquals(0, shared.refCount());
+        assertEquals(initialCount, pool.elementsCount());
+    }
+
+    @Test
+    public void testViewsHaveIndependentPositions() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final Buffer buffer = filled(mm, 64);
+        buffer.position(10);
+        final SharedBuffer shared = SharedBuffer.wrap(buffer);
+
+        final Buffer view1 = shared.retainedDuplicate();
+        final Buffer view2 = shared.retainedDuplicate();
+        assertTrue(view1 instanceof SharedBuffer.View);
+        assertSame(shared, ((SharedBuffer.View) view1).getSharedBuffer());
+        assertEquals(10, view1.position());
+        assertEquals(64, view1.limit());
+
+        assertEquals(10, view1.get());
+        view1.position(60);
+        assertEquals(10, view2.position());
+        assertEquals(10, view2.get());
+        assertEquals(60, view1.get());
+
+        view1.tryDispose();
+        view2.tryDispose();
+        assertTrue(shared.release());
+    }
+
+    @Test
+    public void testDerivedBuffersHoldReferences() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final SharedBuffer shared = SharedBuffer.wrap(filled(mm, 64));
+
+        final Buffer view = shared.retainedDuplicate();
+        final Buffer slice = view.slice(8, 16);
+        final Buffer duplicate = view.duplicate();
+        final Buffer readOnly = view.asReadOnlyBuffer();
+        final Buffer tail = view.split(32);
+        assertEquals(6, shared.refCount());
+
+        assertEquals(8, slice.get(0));
+        assertEquals(32, tail.get(0));
+        assertTrue(readOnly.isReadOnly());
+        assertTrue(readOnly instanceof SharedBuffer.View);
+        assertTrue(tail instanceof SharedBuffer.View);
+
+        assertFalse(shared.release());
+        view.tryDispose();
+        slice.tryDispose();
+        duplicate.tryDispose();
+        readOnly.tryDispose();
+        assertEquals(1, shared.refCount());
+        assertEquals(63, tail.get(31));
+
+        tail.tryDispose();
+        assertEquals(0, shared.refCount());
+    }
+
+    @Test
+    public void testRepeatedViewDispose() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final SharedBuffer shared = SharedBuffer.wrap(filled(mm, 16));
+
+        final Buffer view = shared.retainedDuplicate();
+        view.tryDispose();
+        view.tryDispose();
+        assertEquals(1, shared.refCount());
+        assertTrue(shared.release());
+    }
+
+    @Test
+    public void testRetainAfterRelease() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final SharedBuffer shared = SharedBuffer.wrap(filled(mm, 16));
+        assertTrue(shared.release());
+
+        try {
+            shared.retainedDuplicate();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        try {
+            shared.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, shared.refCount());
+    }
+
+    @Test
+    public void testCompositeBufferRejected() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final Buffer composite = Buffers.appendBuffers(mm,
+                filled(mm, 16), filled(mm, 16));
+
+        try {
+            SharedBuffer.wrap(composite);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedWriteReleasesView() {
+        final MemoryManager mm = new PooledMemoryManager(isDirect);
+        final SharedBuffer shared = SharedBuffer.wrap(filled(mm, 16));
+
+        final AsyncWriteQueueRecord record = AsyncWriteQueueRecord.create(
+                null, shared.retainedDuplicate(), null, null, null, false);
+        assertEquals(2, shared.refCount());
+
+        record.notifyFailure(new IOException("Connection closed"));
+        assertEquals(1, shared.refCount());
+        assertTrue(shared.release());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static Buffer filled(final MemoryManager mm, final int size) {
+        final Buffer buffer = mm.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) i);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Test {@link DelayedExecutor} in both timing wheel and full-scan modes.
+ */
+public class DelayedExecutorTest extends TestCase {
+    
+    public void testExpireWheel() throws Exception {
+        doTestExpire(false);
+    }
+    
+    public void testExpireFullScan() throws Exception {
+        doTestExpire(true);
+    }
+
+    public void testRemoveWheel() throws Exception {
+        doTestRemove(false);
+    }
+    
+    public void testRemoveFullScan() throws Exception {
+        doTestRemove(true);
+    }
+    
+    public void testRescheduleWheel() throws Exception {
+        doTestReschedule(false);
+    }
+    
+    public void testRescheduleFullScan() throws Exception {
+        doTestReschedule(true);
+    }
+    
+    public void testRetryWheel() throws Exception {
+        doTestRetry(false);
+    }
+    
+    public void testRetryFullScan() throws Exception {
+        doTestRetry(true);
+    }
+    
+    private void doTestExpire(final boolean isFullScan) throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool,
+                10, TimeUnit.MILLISECONDS, isFullScan);
+        try {
+            executor.start();
+            final int count = 1000;
+            final CountDownLatch latch = new CountDownLatch(count);
+            final DelayedExecutor.DelayQueue<Element> queue =
+                    executor.createDelayQueue(new LatchWorker(latch),
+                    new ElementResolver());
+            
+            final long startTime = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                queue.add(new Element(), 50 + i % 100, TimeUnit.MILLISECONDS);
+            }
+            
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - startTime >= 50);
+        } finally {
+            executor.destroy();
+            threadPool.shutdownNow();
+        }
+    }
+    
+    private void doTestRemove(final boolean isFullScan) throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool,
+                10, TimeUnit.MILLISECONDS, isFullScan);
+        try {
+            executor.start();
+            final AtomicInteger counter = new AtomicInteger();
+            final DelayedExecutor.DelayQueue<Element> queue =
+                    executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+                @Override
+                public boolean doWork(final Element element) {
+                    counter.incrementAndGet();
+                    return true;
+                }
+            }, new ElementResolver());
+            
+            final Element removed = new Element();
+            queue.add(removed, 100, TimeUnit.MILLISECONDS);
+            queue.remove(removed);
+            
+            final CountDownLatch latch = new CountDownLatch(1);
+            final DelayedExecutor.DelayQueue<Element> queue2 =
+                    executor.createDelayQueue(new LatchWorker(latch),
+                    new ElementResolver());
+            queue2.add(new Element(), 300, TimeUnit.MILLISECONDS);
+            
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(0, counter.get());
+        } finally {
+            executor.destroy();
+            threadPool.shutdownNow();
+        }
+    }
+    
+    private void doTestReschedule(final boolean isFullScan) throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool,
+                10, TimeUnit.MILLISECONDS, isFullScan);
+        try {
+            executor.start();
+            final CountDownLatch latch = new CountDownLatch(2);
+            final ElementResolver resolver = new ElementResolver();
+            final DelayedExecutor.DelayQueue<Element> queue =
+                    executor.createDelayQueue(new LatchWorker(latch), resolver);
+            
+            final Element forward = new Element();
+            final Element backward = new Element();
+            queue.add(forward, 50, TimeUnit.MILLISECONDS);
+            queue.add(backward, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            
+            final long startTime = System.currentTimeMillis();
+            
+            // move the timeout forward without notifying the queue
+            resolver.setTimeoutMillis(forward, startTime + 500);
+            // move the timeout backward
+            resolver.setTimeoutMillis(backward, startTime + 100);
+            queue.reschedule(backward);
+            
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertTrue(forward.expirationTime - startTime >= 500);
+            assertTrue(backward.expirationTime - startTime >= 100);
+            assertTrue(backward.expirationTime < forward.expirationTime);
+        } finally {
+            executor.destroy();
+            threadPool.shutdownNow();
+        }
+    }
+    
+    private void doTestRetry(final boolean isFullScan) throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool,
+                10, TimeUnit.MILLISECONDS, isFullScan);
+        try {
+            executor.start();
+            final CountDownLatch latch = new CountDownLatch(3);
+            final DelayedExecutor.DelayQueue<Element> queue =
+                    executor.createDelayQueue(new DelayedExecutor.Worker<Element>() {
+                @Override
+                public boolean doWork(final Element element) {
+                    latch.countDown();
+                    return latch.getCount() == 0;
+                }
+            }, new ElementResolver());
+            
+            queue.add(new Element(), 10, TimeUnit.MILLISECONDS);
+            
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.destroy();
+            threadPool.shutdownNow();
+        }
+    }
+    
+    private static final class Element {
+        private volatile long timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+        private volatile long expirationTime;
+    }
+    
+    private static final class LatchWorker
+            implements DelayedExecutor.Worker<Element> {
+        private final CountDownLatch latch;
+
+        LatchWorker(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+        
+        @Override
+        public boolean doWork(final Element element) {
+            element.expirationTime = System.currentTimeMillis();
+            latch.countDown();
+            return true;
+        }
+    }
+    
+    private static final class ElementResolver
+            implements DelayedExecutor.Resolver<Element> {
+
+        @Override
+        public boolean removeTimeout(final Element element) {
+            if (element.timeoutMillis != DelayedExecutor.UNSET_TIMEOUT) {
+                element.timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+                return true;
+            }
+            
+            return false;
+        }
+
+        @Override
+        public long getTimeoutMillis(final Element element) {
+            return element.timeoutMillis;
+        }
+
+        @Override
+        public void setTimeoutMillis(final Element element,
+                final long timeoutMillis) {
+            element.timeoutMillis = timeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Test {@link MpscQueue}.
+ */
+public class MpscQueueTest extends TestCase {
+    
+    public void testOfferPoll() {
+        final MpscQueue<Integer> queue = new MpscQueue<Integer>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(i));
+        }
+        
+        assertEquals(10, queue.size());
+        assertEquals(Integer.valueOf(0), queue.peek());
+        
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        
+        try {
+            queue.offer(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+    
+    public void testRemove() {
+        final MpscQueue<Integer> queue = new MpscQueue<Integer>();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        
+        assertTrue(queue.remove(0));
+        assertTrue(queue.remove(2));
+        assertFalse(queue.remove(2));
+        assertFalse(queue.remove(7));
+        assertEquals(3, queue.size());
+        assertEquals(Integer.valueOf(1), queue.peek());
+        
+        final Iterator<Integer> it = queue.iterator();
+        assertEquals(Integer.valueOf(1), it.next());
+        assertEquals(Integer.valueOf(3), it.next());
+        it.remove();
+        assertEquals(Integer.valueOf(4), it.next());
+        assertFalse(it.hasNext());
+        
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertNull(queue.poll());
+        
+        queue.offer(5);
+        assertTrue(queue.remove(5));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+    
+    public void testMultipleProducers() throws Exception {
+        final int producers = 4;
+        final int count = 100000;
+        
+        final MpscQueue<long[]> queue = new MpscQueue<long[]>();
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        
+        try {
+            for (int i = 0; i < producers; i++) {
+                final int id = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        
+                        for (int j = 0; j < count; j++) {
+                            queue.offer(new long[] {id, j});
+                        }
+                    }
+                });
+            }
+            
+            startLatch.countDown();
+            
+            // every producer's elements have to come in order
+            final List<Long> lastSeen = new ArrayList<Long>(producers);
+            for (int i = 0; i < producers; i++) {
+                lastSeen.add(-1L);
+            }
+            
+            int received = 0;
+            final long deadline = System.currentTimeMillis() + 30000;
+            while (received < producers * count) {
+                final long[] e = queue.poll();
+                if (e == null) {
+                    assertTrue("Timeout", System.currentTimeMillis() < deadline);
+                    Thread.yield();
+                    continue;
+                }
+                
+                final int id = (int) e[0];
+                assertEquals(lastSeen.get(id) + 1, e[1]);
+                lastSeen.set(id, e[1]);
+                received++;
+            }
+            
+            assertNull(queue.poll());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
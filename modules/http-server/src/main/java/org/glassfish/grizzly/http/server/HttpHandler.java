@@ -44,6 +44,7 @@ import java.io.CharConversionException;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +61,7 @@ import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.http.util.RequestURIRef;
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.threadpool.DeadlineTask;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -101,6 +103,12 @@ public abstract class HttpHandler {
      */
     private boolean allowCustomStatusMessage = true;
 
+    /**
+     * The time, within which the request has to start being serviced by the
+     * worker thread pool, in nanoseconds
+     */
+    private long serviceDeadlineNanos = -1;
+
     /**
      * HttpHandler name
      */
@@ -209,7 +217,27 @@ public abstract class HttpHandler {
             final FilterChainContext ctx = request.getContext();
             ctx.suspend();
             
-            threadPool.execute(new Runnable() {
+            threadPool.execute(new DeadlineTask() {
+
+                @Override
+                public long getDeadline(final TimeUnit timeUnit) {
+                    return getServiceDeadline(timeUnit);
+                }
+
+                @Override
+                public void onDeadlineMissed() {
+                    // the worker thread pool is overloaded
+                    try {
+                        HtmlHelper.setErrorAndSendErrorPage(
+                                request, response,
+                                response.getErrorPageGenerator(),
+                                503, HttpStatus.SERVICE_UNAVAILABLE_503.getReasonPhrase(),
+                                "The request has not been serviced in time", null);
+                    } catch (IOException ignored) {
+                    } finally {
+                        ctx.resume();
+                    }
+                }
 
                 @Override
                 public void run() {
@@ -319,6 +347,46 @@ public abstract class HttpHandler {
         this.allowEncodedSlash = allowEncodedSlash;
     }
 
+    /**
+     * Returns the time, within which the {@link Request} has to start being
+     * serviced, after it has been passed to the worker thread pool.
+     *
+     * @param timeUnit the {@link TimeUnit} of the returned value
+     * @return the time, within which the {@link Request} has to start being
+     * serviced, or <tt>-1</tt> if the thread pool's default is used
+     *
+     * @see #setServiceDeadline(long, java.util.concurrent.TimeUnit)
+     * @since 2.4.0
+     */
+    public long getServiceDeadline(final TimeUnit timeUnit) {
+        return serviceDeadlineNanos < 0
+                ? -1
+                : timeUnit.convert(serviceDeadlineNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time, within which the {@link Request} has to start being
+     * serviced, after it has been passed to the worker thread pool.
+     * The deadline is honored by the thread pools, which use deadline
+     * scheduling (see {@link org.glassfish.grizzly.threadpool.ThreadPoolConfig#setDeadlineScheduling(boolean)}):
+     * the requests with closer deadlines are serviced first, and the requests,
+     * which have missed their deadline, are answered with
+     * <tt>503 Service Unavailable</tt> without being serviced.
+     * A negative value (default) means the thread pool's default deadline
+     * is used.
+     *
+     * @param deadline the time, within which the {@link Request} has to start
+     * being serviced
+     * @param timeUnit the {@link TimeUnit} of the deadline
+     *
+     * @since 2.4.0
+     */
+    public void setServiceDeadline(final long deadline, final TimeUnit timeUnit) {
+        serviceDeadlineNanos = deadline < 0
+                ? -1
+                : TimeUnit.NANOSECONDS.convert(deadline, timeUnit);
+    }
+
     /**
      * Get the request URI encoding used by this <tt>HttpHandler</tt>.
      * @return the request URI encoding used by this <tt>HttpHandler</tt>.
@@ -42,6 +42,7 @@ package org.glassfish.grizzly.http.server;
 
 import java.util.concurrent.Executor;
 import org.glassfish.grizzly.threadpool.Threads;
+import org.glassfish.grizzly.threadpool.VirtualThreads;
 
 /**
  * An implementation of this interface will be  responsible for executing
@@ -95,4 +96,34 @@ public interface RequestExecutorProvider {
             return request.getContext().getConnection().getTransport().getWorkerThreadPool();
         }
     }
+
+    /**
+     * The {@link RequestExecutorProvider} implementation, which executes
+     * the user's code in a new virtual {@link Thread} per {@link Request}, so
+     * the blocking {@link org.glassfish.grizzly.http.io.NIOInputStream},
+     * {@link org.glassfish.grizzly.http.io.NIOOutputStream} operations
+     * park the virtual {@link Thread} instead of occupying a worker thread.
+     * If the current {@link Thread} is already a virtual {@link Thread}
+     * - <tt>null</tt> will be returned to force the user code to be executed
+     * on the current {@link Thread}.
+     * If the JVM doesn't support virtual threads (see {@link VirtualThreads#isSupported()})
+     * - the implementation falls back to the {@link WorkerThreadProvider} behavior.
+     * 
+     * @since 2.4.0
+     */
+    class VirtualThreadProvider extends WorkerThreadProvider {
+
+        @Override
+        public Executor getExecutor(final Request request) {
+            if (!VirtualThreads.isSupported()) {
+                return super.getExecutor(request);
+            }
+            
+            if (VirtualThreads.isVirtual()) {
+                return null; // Execute in the current thread
+            }
+
+            return VirtualThreads.getExecutor();
+        }
+    }
 }
@@ -54,6 +54,7 @@ import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
 import org.glassfish.grizzly.http.io.NIOOutputStream;
+import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.io.OutputBuffer;
 import org.glassfish.grizzly.http.util.MimeType;
 import org.glassfish.grizzly.http.util.Header;
@@ -122,13 +123,24 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         final long length = file.length();
         response.setContentLengthLong(length);
         response.addDateHeader(Header.Date, System.currentTimeMillis());
-        if (!response.isSendFileEnabled() || response.getRequest().isSecure()) {
+        if (!isSendFileApplicable(response)) {
             sendUsingBuffers(response, file);
         } else {
             sendZeroCopy(response, file);
         }
     }
 
+    /**
+     * sendfile writes the file directly to the {@link org.glassfish.grizzly.Connection},
+     * so it's not used, if the data has to be encrypted, or framed by HTTP/2.
+     */
+    private static boolean isSendFileApplicable(final Response response) {
+        final Request request = response.getRequest();
+        return response.isSendFileEnabled()
+                && !request.isSecure()
+                && request.getRequest().getProtocol() != Protocol.HTTP_2_0;
+    }
+
     private static void sendUsingBuffers(final Response response, final File file)
             throws FileNotFoundException, IOException {
         final int chunkSize = 8192;
@@ -59,6 +59,7 @@ import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.glassfish.grizzly.utils.ChunkingFilter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -71,6 +72,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.VirtualThreads;
 import org.glassfish.grizzly.utils.DataStructures;
 import org.glassfish.grizzly.utils.DelayFilter;
 import org.glassfish.grizzly.utils.Futures;
@@ -345,6 +347,34 @@ public class HttpInputStreamsTest {
 
     }
 
+    @Test
+    public void testBinaryVirtualThreadProvider() throws Throwable {
+
+        final String expected = "abcdefghijklmnopqrstuvwxyz";
+        ReadStrategy reader = new ReadStrategy() {
+            @Override
+            public boolean doRead(Request request)
+                    throws IOException {
+                assertEquals(VirtualThreads.isSupported(),
+                        VirtualThreads.isVirtual());
+                InputStream in = request.getInputStream();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] b = new byte[8];
+                int len;
+                while ((len = in.read(b)) != -1) {
+                    out.write(b, 0, len);
+                }
+                assertEquals(expected, new String(out.toByteArray()));
+                in.close();
+                return true;
+            }
+        };
+
+        doTest(createRequest("POST", expected), reader, 4,
+                new RequestExecutorProvider.VirtualThreadProvider());
+
+    }
+
     @Test
     public void testBinary003() throws Throwable {
 
@@ -1038,7 +1068,7 @@ public class HttpInputStreamsTest {
         
         ServerConfiguration sconfig = server.getServerConfiguration();
         sconfig.addHttpHandler(
-                new SimpleResponseHttpHandler(reader, testResultQueue), "/*");
+                new SimpleResponseHttpHandler(reader, testResultQueue, null), "/*");
 
         try {
             server.start();
@@ -1299,26 +1329,43 @@ public class HttpInputStreamsTest {
     private void doTest(final HttpPacket request,
                         final ReadStrategy strategy,
                         final int chunkSize) throws Throwable {
+        doTest(request, strategy, chunkSize, null);
+    }
+
+    private void doTest(final HttpPacket request,
+                        final ReadStrategy strategy,
+                        final int chunkSize,
+                        final RequestExecutorProvider executorProvider)
+            throws Throwable {
         doTest(new RequestBuilder() {
 
             @Override
             public HttpPacket build() {
                 return request;
             }
-        }, strategy, chunkSize, 1);
+        }, strategy, chunkSize, 1, executorProvider);
     }
 
     private void doTest(RequestBuilder requestBuilder,
                         ReadStrategy strategy,
                         int chunkSize,
                         int count) throws Throwable {
+        doTest(requestBuilder, strategy, chunkSize, count, null);
+    }
+
+    private void doTest(RequestBuilder requestBuilder,
+                        ReadStrategy strategy,
+                        int chunkSize,
+                        int count,
+                        RequestExecutorProvider executorProvider) throws Throwable {
 
         final BlockingQueue<Future<Boolean>> testResultQueue =
                 DataStructures.getLTQInstance();
         
         HttpServer server = HttpServer.createSimpleServer("/tmp", PORT);
         ServerConfiguration sconfig = server.getServerConfiguration();
-        sconfig.addHttpHandler(new SimpleResponseHttpHandler(strategy, testResultQueue), "/*");
+        sconfig.addHttpHandler(new SimpleResponseHttpHandler(strategy,
+                testResultQueue, executorProvider), "/*");
 
         try {
             server.start();
@@ -1382,6 +1429,7 @@ public class HttpInputStreamsTest {
     private static final class SimpleResponseHttpHandler extends HttpHandler {
         private final BlockingQueue<Future<Boolean>> testResultQueue;
         private final ReadStrategy strategy;
+        private final RequestExecutorProvider executorProvider;
 
         private static final HeaderValue OK_HEADER_VALUE = HeaderValue.newHeaderValue("OK").prepare();
         private static final HeaderValue FAILED_HEADER_VALUE = HeaderValue.newHeaderValue("Failed").prepare();
@@ -1390,15 +1438,24 @@ public class HttpInputStreamsTest {
 
 
         public SimpleResponseHttpHandler(ReadStrategy strategy,
-                BlockingQueue<Future<Boolean>> testResultQueue) {
+                BlockingQueue<Future<Boolean>> testResultQueue,
+                RequestExecutorProvider executorProvider) {
             this.strategy = strategy;
             this.testResultQueue = testResultQueue;
+            this.executorProvider = executorProvider;
         }
 
 
         // ----------------------------------------- Methods from HttpHandler
 
 
+        @Override
+        public RequestExecutorProvider getRequestExecutorProvider() {
+            return executorProvider != null
+                    ? executorProvider
+                    : super.getRequestExecutorProvider();
+        }
+
         @Override
         public void service(Request req, Response res) throws Exception {
             Throwable t = null;
@@ -56,6 +56,7 @@ import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.GenericCloseListener;
 import org.glassfish.grizzly.SocketConnectorHandler;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.ContextAllocationTracker;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
@@ -324,6 +325,69 @@ public class KeepAliveTest extends TestCase {
             }
         }
     
+    public void testHttp11KeepAliveSteadyStateFilterChainAllocations() throws Exception {
+        final String msg = "Hello world #";
+
+        HttpServer server = createServer(new HttpHandler() {
+            private final AtomicInteger ai = new AtomicInteger();
+
+            @Override
+            public void service(Request request,
+                    Response response) throws Exception {
+                response.setContentType("text/plain");
+                response.getWriter().write(msg + ai.getAndIncrement());
+            }
+
+        }, "/path");
+        server.getListener("grizzly").getKeepAlive().setMaxRequestsCount(-1);
+
+        final TCPNIOTransport clientTransport = TCPNIOTransportBuilder.newInstance().build();
+        final HttpClient client = new HttpClient(clientTransport);
+
+        try {
+            server.start();
+            clientTransport.start();
+
+            Future<Connection> connectFuture = client.connect("localhost", PORT);
+            connectFuture.get(10, TimeUnit.SECONDS);
+
+            final int warmUpRequests = 100;
+            final int requests = 500;
+            long allocations = 0;
+            
+            for (int i = 0; i < warmUpRequests + requests; i++) {
+                if (i == warmUpRequests) {
+                    // track the allocation sites to report them on failure
+                    ContextAllocationTracker.reset();
+                    ContextAllocationTracker.setEnabled(true);
+                    allocations = ContextAllocationTracker.getAllocationsCount();
+                }
+                
+                final Future<Buffer> resultFuture = client.get(HttpRequestPacket.builder()
+                        .method("GET")
+                        .uri("/path").protocol(Protocol.HTTP_1_1)
+                        .header("Host", "localhost:" + PORT)
+                        .build());
+
+                final Buffer buffer = resultFuture.get(10, TimeUnit.SECONDS);
+
+                assertEquals(msg + i, buffer.toStringContent());
+            }
+
+            // the keep-alive requests must not allocate any filter chain
+            // objects: contexts, actions, processor results, states
+            assertEquals(String.valueOf(ContextAllocationTracker.getAllocations()),
+                    allocations, ContextAllocationTracker.getAllocationsCount());
+            assertTrue(String.valueOf(ContextAllocationTracker.getAllocations()),
+                    ContextAllocationTracker.getAllocations().isEmpty());
+        } finally {
+            ContextAllocationTracker.setEnabled(false);
+            client.close();
+            clientTransport.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
     public void testIdleTimeoutAfterConnect() throws Exception {
         final int idleTimeoutSeconds = 2;
         
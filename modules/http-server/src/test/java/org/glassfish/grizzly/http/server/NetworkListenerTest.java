@@ -45,6 +45,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -159,6 +163,72 @@ public class NetworkListenerTest {
         }
     }
     
+    @Test
+    public void testServiceDeadline() throws Exception {
+        final HttpServer server = HttpServer.createSimpleServer("/tmp", PORT);
+        final NetworkListener listener = server.getListener("grizzly");
+        listener.getTransport().getWorkerThreadPoolConfig()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setDeadlineScheduling(true);
+        
+        final CountDownLatch startedLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        server.getServerConfiguration().addHttpHandler(
+                new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response) throws Exception {
+                        startedLatch.countDown();
+                        releaseLatch.await(10, TimeUnit.SECONDS);
+                    }
+                }, "/busy"
+        );
+        final HttpHandler deadlineHandler = new HttpHandler() {
+            @Override
+            public void service(Request request, Response response) throws Exception {
+            }
+        };
+        deadlineHandler.setServiceDeadline(1, TimeUnit.MILLISECONDS);
+        assertEquals(1000000, deadlineHandler.getServiceDeadline(TimeUnit.NANOSECONDS));
+        server.getServerConfiguration().addHttpHandler(deadlineHandler, "/deadline");
+        
+        final ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            server.start();
+            
+            // occupy the only worker thread
+            final Future<Integer> busyFuture = clients.submit(responseCode("/busy"));
+            assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+            
+            final Future<Integer> deadlineFuture = clients.submit(responseCode("/deadline"));
+            Thread.sleep(200);
+            releaseLatch.countDown();
+            
+            assertEquals(200, (int) busyFuture.get(10, TimeUnit.SECONDS));
+            // the request has missed its deadline waiting for the worker thread
+            assertEquals(503, (int) deadlineFuture.get(10, TimeUnit.SECONDS));
+            assertEquals(200, (int) responseCode("/busy").call());
+        } finally {
+            releaseLatch.countDown();
+            clients.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    private static Callable<Integer> responseCode(final String path) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                final URL url = new URL("http://localhost:" + PORT + path);
+                final HttpURLConnection c = (HttpURLConnection) url.openConnection();
+                try {
+                    return c.getResponseCode();
+                } finally {
+                    c.disconnect();
+                }
+            }
+        };
+    }
+    
     @Test
     public void testImmediateGracefulShutdown() throws Exception {
         HttpServer server = HttpServer.createSimpleServer("/tmp", PORT);
@@ -52,6 +52,7 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.threadpool.Threads;
+import org.glassfish.grizzly.threadpool.VirtualThreads;
 import org.glassfish.grizzly.utils.Charsets;
 
 import java.io.IOException;
@@ -64,15 +65,20 @@ import java.nio.charset.CodingErrorAction;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.http.HttpBrokenContentException;
+import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.utils.Exceptions;
+import org.glassfish.grizzly.utils.Futures;
 
 import static org.glassfish.grizzly.http.util.Constants.*;
 
@@ -187,6 +193,12 @@ public class InputBuffer {
      * (is OP_READ enabled for the Connection)
      */
     private boolean isWaitingDataAsynchronously;
+
+    /**
+     * The future, which a virtual {@link Thread} is parked on, waiting for the
+     * next {@link HttpContent} chunk to be received asynchronously.
+     */
+    private volatile FutureImpl<HttpContent> parkedReadFuture;
     
     // ------------------------------------------------------------ Constructors
 
@@ -269,6 +281,7 @@ public class InputBuffer {
         averageCharsPerByte = 1.0f;
         
         isWaitingDataAsynchronously = false;
+        parkedReadFuture = null;
 
         encoding = DEFAULT_HTTP_CHARACTER_ENCODING;
 
@@ -913,6 +926,22 @@ public class InputBuffer {
         // (expected size) is not met.
         isWaitingDataAsynchronously = false;
         
+        final FutureImpl<HttpContent> localParkedReadFuture = parkedReadFuture;
+        if (localParkedReadFuture != null) {
+            // a virtual thread is parked in blockingRead() - pass the content
+            parkedReadFuture = null;
+            if (!HttpContent.isBroken(httpContent)) {
+                checkHttpTrailer(httpContent);
+                localParkedReadFuture.result(HttpContent.create(httpHeader,
+                        httpContent.isLast(), httpContent.getContent()));
+            } else {
+                localParkedReadFuture.failure(
+                        ((HttpBrokenContent) httpContent).getException());
+            }
+            
+            return false;
+        }
+        
         // check if it's broken HTTP content message or not
         if (!HttpContent.isBroken(httpContent)) {
             final Buffer buffer = httpContent.getContent();
@@ -1003,6 +1032,15 @@ public class InputBuffer {
      * @since 2.0.1
      */
     public void terminate() {
+        final FutureImpl<HttpContent> localParkedReadFuture = parkedReadFuture;
+        if (localParkedReadFuture != null) {
+            parkedReadFuture = null;
+            localParkedReadFuture.failure(
+                    connection.isOpen()
+                    ? new CancellationException()
+                    : new EOFException());
+        }
+        
         final ReadHandler localHandler = handler;
         if (localHandler != null) {
             handler = null;
@@ -1099,12 +1137,55 @@ public class InputBuffer {
      * @throws IOException if an error occurs reading data from the wire.
      */
     protected HttpContent blockingRead() throws IOException {
+        if (ctx.state() == FilterChainContext.State.SUSPEND
+                && VirtualThreads.isVirtual()) {
+            // the request processing was handed off to a virtual thread,
+            // so park it until the data comes asynchronously
+            return parkingRead();
+        }
+        
         final ReadResult rr = ctx.read();
         final HttpContent c = (HttpContent) rr.getMessage();
         rr.recycle();
         return c;
     }
 
+    /**
+     * Read next chunk of data, parking the current virtual {@link Thread}
+     * until the data is received asynchronously, instead of performing the
+     * blocking read using a temporary Selector.
+     * 
+     * @return {@link HttpContent}
+     * @throws IOException if an error occurs reading data from the wire.
+     */
+    private HttpContent parkingRead() throws IOException {
+        final FutureImpl<HttpContent> future = Futures.createSafeFuture();
+        parkedReadFuture = future;
+        
+        if (!isWaitingDataAsynchronously) {
+            isWaitingDataAsynchronously = true;
+            initiateAsyncronousDataReceiving();
+        }
+        
+        try {
+            final long readTimeout =
+                    connection.getReadTimeout(TimeUnit.MILLISECONDS);
+            if (readTimeout >= 0) {
+                return future.get(readTimeout, TimeUnit.MILLISECONDS);
+            } else {
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            throw Exceptions.makeIOException(e.getCause());
+        } catch (TimeoutException e) {
+            parkedReadFuture = null;
+            throw new IOException("Read timeout exceeded when trying to read the data");
+        } catch (Exception e) {
+            parkedReadFuture = null;
+            throw Exceptions.makeIOException(e);
+        }
+    }
+
     /**
      * <p>
      * Used to add additional HTTP message chunk content to {@link #inputContentBuffer}.
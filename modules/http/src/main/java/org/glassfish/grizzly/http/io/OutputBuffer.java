@@ -65,7 +65,7 @@ import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
-import org.glassfish.grizzly.FileTransfer;
+import org.glassfish.grizzly.ChunkedFileTransfer;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.IOEvent;
 import org.glassfish.grizzly.WriteHandler;
@@ -609,6 +609,15 @@ public class OutputBuffer {
      * </p>
      *
      * <p>
+     * The file is sent in chunks (see {@link ChunkedFileTransfer}). If the
+     * data has to be encrypted by SSL, the chunks are read from the file into
+     * the {@link Buffer}s instead. The {@link CompletionHandler} is
+     * notified about the number of bytes sent via
+     * {@link CompletionHandler#updated(Object)}. The chunks are not framed,
+     * so this method can't be used for HTTP/2 streams.
+     * </p>
+     *
+     * <p>
      * It's required that the response be suspended when using this functionality.
      * It will be assumed that if the response wasn't suspended when this method
      * is called, that it's desired that this method manages the suspend/resume cycle.
@@ -644,14 +653,15 @@ public class OutputBuffer {
         // clear the internal buffers; sendfile content is exclusive
         reset();
 
-        // additional precondition validation performed by FileTransfer
+        // additional precondition validation performed by ChunkedFileTransfer
         // constructor
-        final FileTransfer f = new FileTransfer(file, offset, length);
+        final ChunkedFileTransfer f =
+                new ChunkedFileTransfer(file, offset, length);
 
         // lock further sendfile requests out
         fileTransferRequested = true;
 
-        outputHeader.setContentLengthLong(f.remaining());
+        outputHeader.setContentLengthLong(f.getLength());
         if (outputHeader.getContentType() == null) {
             outputHeader.setContentType(MimeType.getByFilename(file.getName()));
         }
@@ -678,7 +688,9 @@ public class OutputBuffer {
 
 
         
-        ctx.write(f, handler);
+        // the file is sent in chunks: using FileTransfer over plain TCP,
+        // or read into Buffers, if the data has to be encrypted by SSL
+        f.send(ctx, handler);
     }
 
     public void write(final byte[] b, final int off, final int len) throws IOException {
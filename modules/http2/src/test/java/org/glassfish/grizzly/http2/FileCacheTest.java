@@ -55,6 +55,7 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import java.io.File;
@@ -79,6 +80,7 @@ import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.http.HttpPacket;
 import org.glassfish.grizzly.http.server.HttpHandler;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
 import org.glassfish.grizzly.http.server.StaticHttpHandler;
@@ -225,6 +227,52 @@ public class FileCacheTest extends AbstractHttp2Test {
         }
     }
     
+    /**
+     * Make sure the static resources are framed properly, when the
+     * sendfile is enabled: the zero-copy transfer can't be used for
+     * HTTP/2 streams.
+     */
+    @Test
+    public void testStaticFileWithSendFileEnabled() throws Exception {
+        final File file = createTempFile(256 * 1024);
+        final String requestPath = "/" + file.getName();
+
+        final NetworkListener listener = httpServer.getListener("grizzly");
+        listener.setSendFileEnabled(true);
+        listener.getFileCache().setEnabled(false);
+        startHttpServer(new StaticHttpHandler(file.getParent()));
+
+        final HttpPacket request = lastHttpPacket(
+                HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri(requestPath)
+                .protocol(Protocol.HTTP_1_1)
+                .host("localhost:" + PORT)
+                .build());
+
+        final byte[] data = new byte[(int) file.length()];
+        final InputStream fis = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length) {
+                read += fis.read(data, read, data.length - read);
+            }
+        } finally {
+            fis.close();
+        }
+
+        final BlockingQueue<HttpContent> inQueue =
+                DataStructures.getLTQInstance(HttpContent.class);
+        final Connection c = getConnection("localhost", PORT, inQueue);
+        c.write(request);
+        final HttpContent response = inQueue.poll(10, TimeUnit.SECONDS);
+
+        assertNotNull("response is null", response);
+        assertEquals(Protocol.HTTP_2_0, response.getHttpHeader().getProtocol());
+        assertEquals(200, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+        assertEquals(new String(data), response.getContent().toStringContent());
+    }
+    
 //    /**
 //     * http://java.net/jira/browse/GRIZZLY-1014
 //     * "Content-type for files cached in the file cache is incorrect"
@@ -441,14 +489,21 @@ public class FileCacheTest extends AbstractHttp2Test {
     }
 
     private static File createTempFile() throws IOException {
+        return createTempFile(0);
+    }
+
+    private static File createTempFile(final int minSize) throws IOException {
         final File f = File.createTempFile("grizzly-file-cache", ".txt");
         f.deleteOnExit();
         FileOutputStream out = null;
         try {
             out = new FileOutputStream(f);
             Random r = new Random(System.currentTimeMillis());
-            for (int i = 0; i < 100; i++) {
-                out.write(Long.toString(r.nextLong()).getBytes());
+            long size = 0;
+            for (int i = 0; i < 100 || size < minSize; i++) {
+                final byte[] bytes = Long.toString(r.nextLong()).getBytes();
+                out.write(bytes);
+                size += bytes.length;
             }
         } finally {
             if (out != null) {
@@ -66,6 +66,8 @@ public class MemoryManager extends JmxObject {
     private final AtomicLong realAllocatedBytes = new AtomicLong();
     private final AtomicLong poolAllocatedBytes = new AtomicLong();
     private final AtomicLong poolReleasedBytes = new AtomicLong();
+    private final AtomicLong poolSliceHits = new AtomicLong();
+    private final AtomicLong poolSliceSteals = new AtomicLong();
     
     public MemoryManager(org.glassfish.grizzly.memory.MemoryManager memoryManager) {
         this.memoryManager = memoryManager;
@@ -118,6 +120,18 @@ public class MemoryManager extends JmxObject {
         return poolReleasedBytes.get();
     }
 
+    @ManagedAttribute(id="pool-slice-hits")
+    @Description("Total number of buffers allocated from the pool slice the allocating thread is bound to")
+    public long getPoolSliceHits() {
+        return poolSliceHits.get();
+    }
+
+    @ManagedAttribute(id="pool-slice-steals")
+    @Description("Total number of buffers stolen from the pool slices other threads are bound to")
+    public long getPoolSliceSteals() {
+        return poolSliceSteals.get();
+    }
+
     private class JmxMemoryProbe implements MemoryProbe {
 
         @Override
@@ -137,5 +151,15 @@ public class MemoryManager extends JmxObject {
             poolReleasedBytes.addAndGet(size);
         }
 
+        @Override
+        public void onBufferAllocateFromPoolSliceHitEvent(int size, int sliceIndex) {
+            poolSliceHits.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferAllocateFromPoolSliceStealEvent(int size, int sliceIndex) {
+            poolSliceSteals.incrementAndGet();
+        }
+
     }
 }
@@ -43,6 +43,7 @@ package org.glassfish.grizzly.nio.transport.jmx;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ConnectionProbe;
+import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.IOEvent;
 import org.glassfish.grizzly.Transport;
 import org.glassfish.grizzly.TransportProbe;
@@ -56,10 +57,13 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.glassfish.gmbal.Description;
 import org.glassfish.gmbal.GmbalMBean;
 import org.glassfish.gmbal.ManagedAttribute;
 import org.glassfish.gmbal.ManagedObject;
+import org.glassfish.gmbal.ManagedOperation;
 import org.glassfish.gmbal.NameValue;
 import org.glassfish.grizzly.jmxbase.GrizzlyJmxManager;
 import org.glassfish.grizzly.utils.DataStructures;
@@ -72,6 +76,8 @@ import org.glassfish.grizzly.utils.DataStructures;
 @ManagedObject
 @Description("Grizzly NIO Transport")
 public class NIOTransport extends JmxObject {
+    private static final Logger LOGGER = Grizzly.logger(NIOTransport.class);
+
     protected final org.glassfish.grizzly.nio.NIOTransport transport;
     private final JmxTransportProbe probe;
     private final JmxConnectionProbe connectionProbe;
@@ -229,6 +235,28 @@ public class NIOTransport extends JmxObject {
         return totalConnectionsNum.get();
     }
 
+    @ManagedAttribute(id="flight-recorder-capacity")
+    public int getFlightRecorderCapacity() {
+        return transport.getFlightRecorderCapacity();
+    }
+
+    @ManagedAttribute(id="flight-recorder-events")
+    public String getFlightRecorderEvents() {
+        return transport.dumpFlightRecorders();
+    }
+
+    @ManagedOperation(id="dump-flight-recorders")
+    @Description("Logs and returns the events kept by the transport's flight recorders")
+    public String dumpFlightRecorders() {
+        final String dump = transport.dumpFlightRecorders();
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "{0} flight recorders:\n{1}",
+                    new Object[] {transport.getName(), dump});
+        }
+        
+        return dump;
+    }
+
     private static String getType(Object o) {
         return o != null ? o.getClass().getName() : "N/A";
     }
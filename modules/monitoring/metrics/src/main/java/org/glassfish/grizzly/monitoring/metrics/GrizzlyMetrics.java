@@ -0,0 +1,177 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import org.glassfish.grizzly.Transport;
+import org.glassfish.grizzly.http.server.HttpServerMonitoringConfig;
+import org.glassfish.grizzly.monitoring.metrics.jmx.Metrics;
+
+/**
+ * The set of latency histograms and counters fed by the Grizzly probes.
+ * 
+ * Example usage:
+ * <pre>
+ *     GrizzlyMetrics metrics = new GrizzlyMetrics("http-server");
+ *     metrics.attach(httpServer.getServerConfiguration().getMonitoringConfig());
+ *     GrizzlyJmxManager.instance().registerAtRoot(
+ *             metrics.createManagementObject(), metrics.getName());
+ *     ...
+ *     long p99 = metrics.getHttpServerMetrics().getRequestLatency()
+ *             .snapshot().getValueAtPercentile(99);
+ * </pre>
+ * 
+ * @since 2.4.0
+ */
+public class GrizzlyMetrics {
+    private final String name;
+    
+    private final TransportMetrics transportMetrics = new TransportMetrics();
+    private final ThreadPoolMetrics threadPoolMetrics = new ThreadPoolMetrics();
+    private final HttpServerMetrics httpServerMetrics = new HttpServerMetrics();
+
+    public GrizzlyMetrics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name the metrics are exposed via JMX with
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the {@link Transport} and {@link org.glassfish.grizzly.Connection} metrics
+     */
+    public TransportMetrics getTransportMetrics() {
+        return transportMetrics;
+    }
+
+    /**
+     * @return the worker thread pool metrics
+     */
+    public ThreadPoolMetrics getThreadPoolMetrics() {
+        return threadPoolMetrics;
+    }
+
+    /**
+     * @return the HTTP server metrics
+     */
+    public HttpServerMetrics getHttpServerMetrics() {
+        return httpServerMetrics;
+    }
+
+    /**
+     * Starts recording the metrics of the {@link Transport}, its
+     * {@link org.glassfish.grizzly.Connection}s and its worker thread pool.
+     * 
+     * @param transport the {@link Transport} to monitor
+     */
+    public void attach(final Transport transport) {
+        transport.getMonitoringConfig().addProbes(
+                transportMetrics.getTransportProbe());
+        transport.getConnectionMonitoringConfig().addProbes(
+                transportMetrics.getConnectionProbe());
+        transport.getThreadPoolMonitoringConfig().addProbes(threadPoolMetrics);
+    }
+
+    /**
+     * Stops recording the metrics of the {@link Transport}.
+     * 
+     * @param transport the monitored {@link Transport}
+     */
+    public void detach(final Transport transport) {
+        transport.getMonitoringConfig().removeProbes(
+                transportMetrics.getTransportProbe());
+        transport.getConnectionMonitoringConfig().removeProbes(
+                transportMetrics.getConnectionProbe());
+        transport.getThreadPoolMonitoringConfig().removeProbes(threadPoolMetrics);
+    }
+
+    /**
+     * Starts recording the metrics of all the listeners of an
+     * {@link org.glassfish.grizzly.http.server.HttpServer}. The probes
+     * are applied to the listeners, when they're started.
+     * 
+     * @param config the {@link HttpServerMonitoringConfig} of the server to
+     *  monitor
+     */
+    public void attach(final HttpServerMonitoringConfig config) {
+        config.getTransportConfig().addProbes(
+                transportMetrics.getTransportProbe());
+        config.getConnectionConfig().addProbes(
+                transportMetrics.getConnectionProbe());
+        config.getThreadPoolConfig().addProbes(threadPoolMetrics);
+        config.getWebServerConfig().addProbes(
+                httpServerMetrics.getHttpServerProbe());
+        config.getHttpConfig().addProbes(httpServerMetrics.getHttpProbe());
+        config.getFileCacheConfig().addProbes(
+                httpServerMetrics.getFileCacheProbe());
+    }
+
+    /**
+     * Stops recording the metrics of the
+     * {@link org.glassfish.grizzly.http.server.HttpServer}.
+     * 
+     * @param config the {@link HttpServerMonitoringConfig} of the monitored
+     *  server
+     */
+    public void detach(final HttpServerMonitoringConfig config) {
+        config.getTransportConfig().removeProbes(
+                transportMetrics.getTransportProbe());
+        config.getConnectionConfig().removeProbes(
+                transportMetrics.getConnectionProbe());
+        config.getThreadPoolConfig().removeProbes(threadPoolMetrics);
+        config.getWebServerConfig().removeProbes(
+                httpServerMetrics.getHttpServerProbe());
+        config.getHttpConfig().removeProbes(httpServerMetrics.getHttpProbe());
+        config.getFileCacheConfig().removeProbes(
+                httpServerMetrics.getFileCacheProbe());
+    }
+
+    /**
+     * @return the JMX management object, which exposes the metrics
+     */
+    public Object createManagementObject() {
+        return new Metrics(this);
+    }
+}
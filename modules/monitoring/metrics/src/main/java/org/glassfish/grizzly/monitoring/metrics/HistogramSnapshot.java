@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a {@link LatencyHistogram}. Snapshots of the
+ * histograms with the same precision may be merged, for example to get the
+ * percentiles over several transports or thread pools.
+ * 
+ * @since 2.4.0
+ */
+public final class HistogramSnapshot {
+    private final int subBucketBits;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(final int subBucketBits, final long[] counts,
+            final long sum, final long max) {
+        this.subBucketBits = subBucketBits;
+        this.counts = counts;
+        this.sum = sum;
+        this.max = max;
+        
+        long c = 0;
+        for (long bucketCount : counts) {
+            c += bucketCount;
+        }
+        
+        count = c;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the max recorded value, or <tt>0</tt> if no values were recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the recorded values, or <tt>0</tt> if no values
+     *  were recorded
+     */
+    public double getMean() {
+        return count != 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * Returns the value, which is greater or equal to the given percentage of
+     * the recorded values, for example <tt>getValueAtPercentile(99.9)</tt>
+     * returns the p999. The value is precise up to the histogram's bucket
+     * width.
+     * 
+     * @param percentile the percentile within <tt>[0, 100]</tt> range
+     * @return the value at the percentile, or <tt>0</tt> if no values were
+     *  recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile has to be within [0, 100] range");
+        }
+        
+        if (count == 0) {
+            return 0;
+        }
+        
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.highestEquivalentValue(
+                        i, subBucketBits));
+            }
+        }
+        
+        return max;
+    }
+
+    /**
+     * Merges this snapshot with another one.
+     * 
+     * @param other the snapshot of a histogram of the same precision
+     * @return the new snapshot, which counts the values of both snapshots
+     * @throws IllegalArgumentException if the histograms precision differs
+     */
+    public HistogramSnapshot merge(final HistogramSnapshot other) {
+        if (other.subBucketBits != subBucketBits) {
+            throw new IllegalArgumentException(
+                    "Can not merge the histograms of different precision");
+        }
+        
+        final long[] merged = Arrays.copyOf(counts,
+                Math.max(counts.length, other.counts.length));
+        for (int i = 0; i < other.counts.length; i++) {
+            merged[i] += other.counts[i];
+        }
+        
+        return new HistogramSnapshot(subBucketBits, merged,
+                sum + other.sum, Math.max(max, other.max));
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{" + "count=" + count
+                + ", mean=" + getMean()
+                + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99)
+                + ", p999=" + getValueAtPercentile(99.9)
+                + ", max=" + max + '}';
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.http.HttpPacket;
+import org.glassfish.grizzly.http.HttpProbe;
+import org.glassfish.grizzly.http.Note;
+import org.glassfish.grizzly.http.server.HttpServerFilter;
+import org.glassfish.grizzly.http.server.HttpServerProbe;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.server.filecache.FileCache;
+import org.glassfish.grizzly.http.server.filecache.FileCacheEntry;
+import org.glassfish.grizzly.http.server.filecache.FileCacheProbe;
+
+/**
+ * Records the HTTP server metrics, using the {@link HttpServerProbe},
+ * {@link HttpProbe} and {@link FileCacheProbe} it provides.
+ * 
+ * The request latency is measured from the moment the {@link HttpServerFilter}
+ * receives the request until the response is completed, so it includes the
+ * time the request spent suspended.
+ * 
+ * @since 2.4.0
+ */
+public class HttpServerMetrics {
+    private static final Note<Long> RECEIVED_AT_NOTE =
+            Request.createNote(HttpServerMetrics.class.getName() + ".received-at");
+    
+    private final HttpServerProbe httpServerProbe = new MetricsHttpServerProbe();
+    private final HttpProbe httpProbe = new MetricsHttpProbe();
+    private final FileCacheProbe fileCacheProbe = new MetricsFileCacheProbe();
+    
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder suspendedCount = new LongAdder();
+    private final LongAdder timedOutCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private final LongAdder httpErrorsCount = new LongAdder();
+    private final LongAdder fileCacheHitsCount = new LongAdder();
+    private final LongAdder fileCacheMissesCount = new LongAdder();
+
+    /**
+     * @return the {@link HttpServerProbe} to be registered with the
+     *  {@link HttpServerFilter}'s monitoring config
+     */
+    public HttpServerProbe getHttpServerProbe() {
+        return httpServerProbe;
+    }
+
+    /**
+     * @return the {@link HttpProbe} to be registered with the
+     *  {@link org.glassfish.grizzly.http.HttpCodecFilter}'s monitoring config
+     */
+    public HttpProbe getHttpProbe() {
+        return httpProbe;
+    }
+
+    /**
+     * @return the {@link FileCacheProbe} to be registered with the
+     *  {@link FileCache}'s monitoring config
+     */
+    public FileCacheProbe getFileCacheProbe() {
+        return fileCacheProbe;
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * @return the histogram of the requests latency (in nanoseconds)
+     */
+    public LatencyHistogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * @return the number of received requests
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * @return the number of completed requests
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * @return the number of times requests were suspended
+     */
+    public long getSuspendedCount() {
+        return suspendedCount.sum();
+    }
+
+    /**
+     * @return the number of suspended requests, which timed out
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * @return the number of cancelled requests
+     */
+    public long getCancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    /**
+     * @return the number of HTTP codec errors
+     */
+    public long getHttpErrorsCount() {
+        return httpErrorsCount.sum();
+    }
+
+    /**
+     * @return the number of file cache hits
+     */
+    public long getFileCacheHitsCount() {
+        return fileCacheHitsCount.sum();
+    }
+
+    /**
+     * @return the number of file cache misses
+     */
+    public long getFileCacheMissesCount() {
+        return fileCacheMissesCount.sum();
+    }
+
+    // -------------------------------------------------------- Nested Classes
+
+    private final class MetricsHttpServerProbe extends HttpServerProbe.Adapter {
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onRequestReceiveEvent(final HttpServerFilter filter,
+                final Connection connection, final Request request) {
+            receivedCount.increment();
+            request.setNote(RECEIVED_AT_NOTE, System.nanoTime());
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onRequestCompleteEvent(final HttpServerFilter filter,
+                final Connection connection, final Response response) {
+            completedCount.increment();
+            
+            final Long receivedAt = response.getRequest().getNote(RECEIVED_AT_NOTE);
+            if (receivedAt != null) {
+                requestLatency.recordSince(receivedAt);
+            }
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onRequestSuspendEvent(final HttpServerFilter filter,
+                final Connection connection, final Request request) {
+            suspendedCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onRequestTimeoutEvent(final HttpServerFilter filter,
+                final Connection connection, final Request request) {
+            timedOutCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onRequestCancelEvent(final HttpServerFilter filter,
+                final Connection connection, final Request request) {
+            cancelledCount.increment();
+        }
+    } // END MetricsHttpServerProbe
+
+    private final class MetricsHttpProbe extends HttpProbe.Adapter {
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onErrorEvent(final Connection connection,
+                final HttpPacket httpPacket, final Throwable error) {
+            httpErrorsCount.increment();
+        }
+    } // END MetricsHttpProbe
+
+    private final class MetricsFileCacheProbe extends FileCacheProbe.Adapter {
+
+        @Override
+        public void onEntryHitEvent(final FileCache fileCache,
+                final FileCacheEntry entry) {
+            fileCacheHitsCount.increment();
+        }
+
+        @Override
+        public void onEntryMissedEvent(final FileCache fileCache,
+                final String host, final String requestURI) {
+            fileCacheMissesCount.increment();
+        }
+    } // END MetricsFileCacheProbe
+}
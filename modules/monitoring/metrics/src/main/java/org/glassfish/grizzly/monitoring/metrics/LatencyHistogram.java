@@ -0,0 +1,242 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram, which is cheap enough to be updated on the
+ * hot path by {@link org.glassfish.grizzly.monitoring.MonitoringAware} probes.
+ * 
+ * The values are counted in buckets, which are linear within each power of
+ * two: the range <tt>[2<sup>n</sup>, 2<sup>n+1</sup>)</tt> is split into
+ * <tt>2<sup>subBucketBits</sup></tt> buckets of the same width, so a recorded
+ * value is reported with a relative error of at most
+ * <tt>2<sup>-subBucketBits</sup></tt> (~3% for the default 5 bits).
+ * 
+ * To avoid the contention on hot buckets, the counts are striped: each thread
+ * updates the stripe picked by its id, and {@link #snapshot()} merges the
+ * stripes into a {@link HistogramSnapshot}. A snapshot taken while values are
+ * being recorded is not atomic: the bucket count, the sum and the max of
+ * a value are updated separately, so a value recorded concurrently might be
+ * counted, but not yet added to the sum or the max, and the snapshot's
+ * mean and max might be slightly off.
+ * 
+ * @since 2.4.0
+ */
+public final class LatencyHistogram {
+    /**
+     * The default number of bits of the sub-bucket index.
+     */
+    public static final int DEFAULT_SUB_BUCKET_BITS = 5;
+
+    /**
+     * The default highest trackable value: one hour in nanoseconds.
+     */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE =
+            TimeUnit.HOURS.toNanos(1);
+
+    private static final int MAX_STRIPES = 32;
+    
+    private final int subBucketBits;
+    private final long highestTrackableValue;
+    private final int bucketsCount;
+    
+    /**
+     * Each stripe keeps the bucket counts followed by the sum and the max of
+     * the recorded values.
+     */
+    private final AtomicLongArray[] stripes;
+    private final int stripesMask;
+    
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SUB_BUCKET_BITS);
+    }
+    
+    /**
+     * @param highestTrackableValue the highest value to be tracked, bigger
+     *  values are recorded as this one
+     * @param subBucketBits the number of bits of the sub-bucket index, which
+     *  defines the precision of the histogram
+     */
+    public LatencyHistogram(final long highestTrackableValue,
+            final int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("subBucketBits has to be within [1, 16] range");
+        }
+        if (highestTrackableValue < 1) {
+            throw new IllegalArgumentException("highestTrackableValue has to be positive");
+        }
+        
+        this.subBucketBits = subBucketBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.bucketsCount = bucketIndex(highestTrackableValue, subBucketBits) + 1;
+        
+        // a power of two, which is at least twice the number of CPUs
+        final int stripesCount = Math.min(MAX_STRIPES, Integer.highestOneBit(
+                Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+        stripes = new AtomicLongArray[stripesCount];
+        for (int i = 0; i < stripesCount; i++) {
+            stripes[i] = new AtomicLongArray(bucketsCount + 2);
+        }
+        stripesMask = stripesCount - 1;
+    }
+
+    /**
+     * Records the value. Negative values are recorded as <tt>0</tt>, values
+     * bigger than the highest trackable value - as the highest trackable
+     * value.
+     * 
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+        }
+        
+        final AtomicLongArray stripe = stripes[
+                (int) Thread.currentThread().getId() & stripesMask];
+        
+        stripe.incrementAndGet(bucketIndex(value, subBucketBits));
+        stripe.addAndGet(bucketsCount, value);
+        
+        final int maxIdx = bucketsCount + 1;
+        long max;
+        while (value > (max = stripe.get(maxIdx))) {
+            if (stripe.compareAndSet(maxIdx, max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()}.
+     * 
+     * @param startNanos the {@link System#nanoTime()} the measured
+     *  operation has started at
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * @return the merged snapshot of the values recorded so far
+     */
+    public HistogramSnapshot snapshot() {
+        final long[] counts = new long[bucketsCount];
+        long sum = 0;
+        long max = 0;
+        
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < bucketsCount; i++) {
+                counts[i] += stripe.get(i);
+            }
+            
+            sum += stripe.get(bucketsCount);
+            max = Math.max(max, stripe.get(bucketsCount + 1));
+        }
+        
+        return new HistogramSnapshot(subBucketBits, counts, sum, max);
+    }
+    
+    /**
+     * Clears the recorded values. The values recorded concurrently with the
+     * reset may be partially cleared.
+     */
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < stripe.length(); i++) {
+                stripe.set(i, 0);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of bits of the sub-bucket index
+     */
+    public int getSubBucketBits() {
+        return subBucketBits;
+    }
+    
+    /**
+     * @return the highest value tracked by the histogram
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+    
+    // ---------------------------------------------------- Bucket Arithmetics
+    
+    /**
+     * Values below <tt>2<sup>subBucketBits</sup></tt> get a bucket each,
+     * every next power of two range is split into
+     * <tt>2<sup>subBucketBits</sup></tt> buckets.
+     */
+    static int bucketIndex(final long value, final int subBucketBits) {
+        final long subBucketsCount = 1L << subBucketBits;
+        if (value < subBucketsCount) {
+            return (int) value;
+        }
+        
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        return ((shift + 1) << subBucketBits)
+                + (int) ((value >>> shift) - subBucketsCount);
+    }
+    
+    /**
+     * @return the highest value, which is counted in the bucket
+     */
+    static long highestEquivalentValue(final int bucketIdx,
+            final int subBucketBits) {
+        final int subBucketsCount = 1 << subBucketBits;
+        if (bucketIdx < subBucketsCount) {
+            return bucketIdx;
+        }
+        
+        final int shift = (bucketIdx >>> subBucketBits) - 1;
+        final long subBucket = (bucketIdx & (subBucketsCount - 1)) + subBucketsCount;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.threadpool.AbstractThreadPool;
+import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
+
+/**
+ * {@link ThreadPoolProbe}, which records the time the tasks spend in the
+ * thread pool's queue and the time they take to execute.
+ * The same probe instance may be registered with several thread pools.
+ * 
+ * The time a task is queued at is stored in a fixed-size table, which is
+ * allocated upfront and updated with CAS operations only, so tracking a task
+ * neither locks nor allocates. The task occupies a slot until it's dequeued.
+ * If there's no free slot near the slot the task hashes to, the slots older
+ * than the stale timeout are reused; if there are none, the task is not
+ * tracked and its queue wait time isn't recorded.
+ * The thread pools report a task queued before a worker can dequeue it, so
+ * a dequeue event without a matching queue event means the task hasn't been
+ * tracked, and is ignored.
+ * 
+ * @since 2.4.0
+ */
+public class ThreadPoolMetrics extends ThreadPoolProbe.Adapter {
+    /**
+     * The default maximum number of the queued tasks to track.
+     */
+    public static final int DEFAULT_MAX_TRACKED_TASKS = 8192;
+    
+    /**
+     * The default time (in milliseconds) after which a tracked task is
+     * considered lost, for example dropped from the queue without notification.
+     */
+    public static final long DEFAULT_STALE_TASK_TIMEOUT_MILLIS = 60000;
+    
+    /**
+     * The max number of the slots probed for a task.
+     */
+    private static final int MAX_PROBES = 16;
+    
+    // the slot state is the slot version shifted left by 2 bits | the tag
+    private static final long FREE = 0;
+    private static final long BUSY = 1;
+    private static final long FULL = 2;
+    private static final long TAG_MASK = 3;
+    private static final long VERSION_INCREMENT = 4;
+    
+    /**
+     * The slots' states. A slot's task and time are written while the slot
+     * is <tt>BUSY</tt>, and are published by the volatile write of the
+     * <tt>FULL</tt> state. The version is increased every time the slot is
+     * claimed, so a reader, which validates the state it has read the slot at
+     * by CAS, can't mistake a reused slot for the one it has read.
+     */
+    private final AtomicLongArray slotStates;
+    private final Runnable[] slotTasks;
+    private final long[] slotTimes;
+    private final int slotsMask;
+    private final long staleTaskTimeoutNanos;
+    
+    /**
+     * The time the current worker thread has dequeued its task at.
+     * The task is dequeued and completed by the same thread.
+     */
+    private final ThreadLocal<long[]> dequeueTime = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+    
+    private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private final LongAdder queueOverflowCount = new LongAdder();
+
+    public ThreadPoolMetrics() {
+        this(DEFAULT_MAX_TRACKED_TASKS, DEFAULT_STALE_TASK_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxTrackedTasks the maximum number of the queued tasks to track,
+     *  rounded up to a power of two
+     * @param staleTaskTimeout the time after which a tracked task is
+     *  considered lost
+     * @param timeUnit the <tt>staleTaskTimeout</tt> {@link TimeUnit}
+     */
+    public ThreadPoolMetrics(final int maxTrackedTasks,
+            final long staleTaskTimeout, final TimeUnit timeUnit) {
+        if (maxTrackedTasks <= 0 || maxTrackedTasks > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "maxTrackedTasks must be within (0, 2^30]");
+        }
+        
+        final int slotsCount = maxTrackedTasks == 1
+                ? 1
+                : Integer.highestOneBit(maxTrackedTasks - 1) << 1;
+        slotStates = new AtomicLongArray(slotsCount);
+        slotTasks = new Runnable[slotsCount];
+        slotTimes = new long[slotsCount];
+        slotsMask = slotsCount - 1;
+        staleTaskTimeoutNanos = timeUnit.toNanos(staleTaskTimeout);
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * @return the histogram of the time (in nanoseconds) the tasks waited in
+     *  the queue before a worker thread picked them up
+     */
+    public LatencyHistogram getQueueWaitTime() {
+        return queueWaitTime;
+    }
+
+    /**
+     * @return the histogram of the tasks execution time (in nanoseconds)
+     */
+    public LatencyHistogram getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * @return the number of tasks queued
+     */
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    /**
+     * @return the number of tasks completed
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * @return the number of tasks cancelled
+     */
+    public long getCancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    /**
+     * @return the number of tasks rejected, because the queue was full
+     */
+    public long getQueueOverflowCount() {
+        return queueOverflowCount.sum();
+    }
+
+    /**
+     * @return the number of the queued tasks currently tracked
+     */
+    int getTrackedTasksCount() {
+        int count = 0;
+        for (int i = 0; i < slotStates.length(); i++) {
+            if ((slotStates.get(i) & TAG_MASK) == FULL) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+
+    // ----------------------------------------- Methods from ThreadPoolProbe
+
+    @Override
+    public void onTaskQueueEvent(final AbstractThreadPool threadPool,
+            final Runnable task) {
+        queuedCount.increment();
+        
+        final long now = System.nanoTime();
+        final int start = hash(task);
+        
+        // first try the free slots, then the stale ones
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < MAX_PROBES; i++) {
+                final int idx = (start + i) & slotsMask;
+                final long state = slotStates.get(idx);
+                final long tag = state & TAG_MASK;
+                
+                if ((tag == FREE
+                        || (pass == 1 && tag == FULL
+                                && now - slotTimes[idx] >= staleTaskTimeoutNanos))
+                        && slotStates.compareAndSet(idx, state,
+                                (state & ~TAG_MASK) + VERSION_INCREMENT + BUSY)) {
+                    slotTasks[idx] = task;
+                    slotTimes[idx] = now;
+                    slotStates.set(idx,
+                            (state & ~TAG_MASK) + VERSION_INCREMENT + FULL);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onTaskDequeueEvent(final AbstractThreadPool threadPool,
+            final Runnable task) {
+        final long now = System.nanoTime();
+        dequeueTime.get()[0] = now;
+        
+        final int start = hash(task);
+        
+        for (int i = 0; i < MAX_PROBES; i++) {
+            final int idx = (start + i) & slotsMask;
+            final long state = slotStates.get(idx);
+            
+            if ((state & TAG_MASK) == FULL && slotTasks[idx] == task) {
+                final long queuedAt = slotTimes[idx];
+                // the CAS validates the task and time have been read
+                // from the same version of the slot
+                if (slotStates.compareAndSet(idx, state,
+                        (state & ~TAG_MASK) + BUSY)) {
+                    slotTasks[idx] = null;
+                    slotStates.set(idx, (state & ~TAG_MASK) + FREE);
+                    queueWaitTime.record(now - queuedAt);
+                    return;
+                }
+                
+                // the slot has changed, check it again
+                i--;
+            }
+        }
+    }
+
+    @Override
+    public void onTaskCompleteEvent(final AbstractThreadPool threadPool,
+            final Runnable task) {
+        completedCount.increment();
+        
+        final long[] dequeuedAt = dequeueTime.get();
+        if (dequeuedAt[0] != 0) { // 0 if the probe was added meanwhile
+            executionTime.recordSince(dequeuedAt[0]);
+            dequeuedAt[0] = 0;
+        }
+    }
+
+    @Override
+    public void onTaskCancelEvent(final AbstractThreadPool threadPool,
+            final Runnable task) {
+        // the pools report the cancelled task dequeued first
+        cancelledCount.increment();
+    }
+
+    @Override
+    public void onTaskQueueOverflowEvent(final AbstractThreadPool threadPool) {
+        queueOverflowCount.increment();
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    private int hash(final Runnable task) {
+        final int h = System.identityHashCode(task) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.ConnectionProbe;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.Transport;
+import org.glassfish.grizzly.TransportProbe;
+import org.glassfish.grizzly.attributes.Attribute;
+
+/**
+ * Records the {@link Connection} and {@link Transport} metrics, using the
+ * {@link ConnectionProbe} and {@link TransportProbe} it provides.
+ * 
+ * The write latency is measured as the time a {@link Connection} waits for
+ * the channel to become writable, once a write couldn't complete right away
+ * and the {@link IOEvent#WRITE} interest was enabled.
+ * 
+ * @since 2.4.0
+ */
+public class TransportMetrics {
+    private static final AtomicInteger INSTANCES_COUNTER = new AtomicInteger();
+    
+    /**
+     * The time the connection has enabled {@link IOEvent#WRITE} at.
+     * Each instance needs its own attribute, because several instances may
+     * monitor the same connections.
+     */
+    private final Attribute<Long> writeEnabledAtAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    TransportMetrics.class.getName() + ".write-enabled-at-"
+                    + INSTANCES_COUNTER.incrementAndGet());
+    
+    private final ConnectionProbe connectionProbe = new MetricsConnectionProbe();
+    private final TransportProbe transportProbe = new MetricsTransportProbe();
+    
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder connectedCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder connectionErrorsCount = new LongAdder();
+    private final LongAdder transportErrorsCount = new LongAdder();
+    
+    /**
+     * @return the {@link ConnectionProbe} to be registered with the
+     *  {@link Transport}'s connection monitoring config
+     */
+    public ConnectionProbe getConnectionProbe() {
+        return connectionProbe;
+    }
+
+    /**
+     * @return the {@link TransportProbe} to be registered with the
+     *  {@link Transport}'s monitoring config
+     */
+    public TransportProbe getTransportProbe() {
+        return transportProbe;
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * @return the histogram of the time (in nanoseconds) the connections
+     *  waited to become writable
+     */
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * @return the number of accepted connections
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    /**
+     * @return the number of connected client connections
+     */
+    public long getConnectedCount() {
+        return connectedCount.sum();
+    }
+
+    /**
+     * @return the number of closed connections
+     */
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    /**
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return the number of connection errors
+     */
+    public long getConnectionErrorsCount() {
+        return connectionErrorsCount.sum();
+    }
+
+    /**
+     * @return the number of transport errors
+     */
+    public long getTransportErrorsCount() {
+        return transportErrorsCount.sum();
+    }
+
+    // -------------------------------------------------------- Nested Classes
+
+    private final class MetricsConnectionProbe extends ConnectionProbe.Adapter {
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onAcceptEvent(final Connection serverConnection,
+                final Connection clientConnection) {
+            acceptedCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onConnectEvent(final Connection connection) {
+            connectedCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onReadEvent(final Connection connection,
+                final Buffer data, final int size) {
+            bytesRead.add(size);
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onWriteEvent(final Connection connection,
+                final Buffer data, final long size) {
+            bytesWritten.add(size);
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onErrorEvent(final Connection connection,
+                final Throwable error) {
+            connectionErrorsCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onCloseEvent(final Connection connection) {
+            closedCount.increment();
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onIOEventEnableEvent(final Connection connection,
+                final IOEvent ioEvent) {
+            if (ioEvent == IOEvent.WRITE) {
+                writeEnabledAtAttr.set(connection, System.nanoTime());
+            }
+        }
+
+        @Override @SuppressWarnings("rawtypes")
+        public void onIOEventReadyEvent(final Connection connection,
+                final IOEvent ioEvent) {
+            if (ioEvent == IOEvent.WRITE) {
+                final Long enabledAt = writeEnabledAtAttr.remove(connection);
+                if (enabledAt != null) {
+                    writeLatency.recordSince(enabledAt);
+                }
+            }
+        }
+    } // END MetricsConnectionProbe
+
+    private final class MetricsTransportProbe extends TransportProbe.Adapter {
+
+        @Override
+        public void onErrorEvent(final Transport transport,
+                final Throwable error) {
+            transportErrorsCount.increment();
+        }
+    } // END MetricsTransportProbe
+}
@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics.jmx;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.GmbalMBean;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+import org.glassfish.grizzly.jmxbase.GrizzlyJmxManager;
+import org.glassfish.grizzly.monitoring.jmx.JmxObject;
+import org.glassfish.grizzly.monitoring.metrics.HistogramSnapshot;
+import org.glassfish.grizzly.monitoring.metrics.LatencyHistogram;
+
+/**
+ * JMX management object for a {@link LatencyHistogram} of nanosecond values.
+ * The percentiles are exposed in microseconds.
+ *
+ * @since 2.4.0
+ */
+@ManagedObject
+@Description("Latency histogram (the values are in microseconds).")
+public class Histogram extends JmxObject {
+
+    private final String name;
+    private final LatencyHistogram histogram;
+
+    // ------------------------------------------------------------ Constructors
+
+
+    public Histogram(final String name, final LatencyHistogram histogram) {
+        this.name = name;
+        this.histogram = histogram;
+    }
+
+
+    // -------------------------------------------------- Methods from JmxObject
+
+
+    @Override
+    public String getJmxName() {
+        return name;
+    }
+
+    @Override
+    protected void onRegister(GrizzlyJmxManager mom, GmbalMBean bean) {
+    }
+
+    @Override
+    protected void onDeregister(GrizzlyJmxManager mom) {
+    }
+
+
+    // -------------------------------------------------------------- Attributes
+
+
+    @ManagedAttribute(id="count")
+    @Description("The number of recorded values.")
+    public long getCount() {
+        return histogram.snapshot().getCount();
+    }
+
+    @ManagedAttribute(id="mean")
+    @Description("The mean of the recorded values.")
+    public double getMean() {
+        return histogram.snapshot().getMean() / 1000;
+    }
+
+    @ManagedAttribute(id="max")
+    @Description("The max recorded value.")
+    public long getMax() {
+        return toMicros(histogram.snapshot().getMax());
+    }
+
+    @ManagedAttribute(id="p50")
+    @Description("The median of the recorded values.")
+    public long getP50() {
+        return percentile(50);
+    }
+
+    @ManagedAttribute(id="p90")
+    @Description("The 90th percentile of the recorded values.")
+    public long getP90() {
+        return percentile(90);
+    }
+
+    @ManagedAttribute(id="p99")
+    @Description("The 99th percentile of the recorded values.")
+    public long getP99() {
+        return percentile(99);
+    }
+
+    @ManagedAttribute(id="p999")
+    @Description("The 99.9th percentile of the recorded values.")
+    public long getP999() {
+        return percentile(99.9);
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private long percentile(final double percentile) {
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        return toMicros(snapshot.getValueAtPercentile(percentile));
+    }
+
+    private static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics.jmx;
+
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.GmbalMBean;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+import org.glassfish.grizzly.jmxbase.GrizzlyJmxManager;
+import org.glassfish.grizzly.monitoring.jmx.JmxObject;
+import org.glassfish.grizzly.monitoring.metrics.GrizzlyMetrics;
+import org.glassfish.grizzly.monitoring.metrics.HttpServerMetrics;
+import org.glassfish.grizzly.monitoring.metrics.ThreadPoolMetrics;
+import org.glassfish.grizzly.monitoring.metrics.TransportMetrics;
+
+/**
+ * JMX management object for the {@link GrizzlyMetrics}. The latency
+ * histograms are registered as the child objects.
+ *
+ * @since 2.4.0
+ */
+@ManagedObject
+@Description("Grizzly latency histograms and counters.")
+public class Metrics extends JmxObject {
+
+    private final GrizzlyMetrics metrics;
+
+    private final Histogram[] histograms;
+
+    // ------------------------------------------------------------ Constructors
+
+
+    public Metrics(final GrizzlyMetrics metrics) {
+        this.metrics = metrics;
+        
+        histograms = new Histogram[] {
+            new Histogram("request-latency",
+                    metrics.getHttpServerMetrics().getRequestLatency()),
+            new Histogram("write-latency",
+                    metrics.getTransportMetrics().getWriteLatency()),
+            new Histogram("queue-wait-time",
+                    metrics.getThreadPoolMetrics().getQueueWaitTime()),
+            new Histogram("task-execution-time",
+                    metrics.getThreadPoolMetrics().getExecutionTime())
+        };
+    }
+
+
+    // -------------------------------------------------- Methods from JmxObject
+
+
+    @Override
+    public String getJmxName() {
+        return metrics.getName();
+    }
+
+    @Override
+    protected void onRegister(GrizzlyJmxManager mom, GmbalMBean bean) {
+        for (Histogram histogram : histograms) {
+            mom.register(this, histogram);
+        }
+    }
+
+    @Override
+    protected void onDeregister(GrizzlyJmxManager mom) {
+        for (Histogram histogram : histograms) {
+            mom.deregister(histogram);
+        }
+    }
+
+
+    // -------------------------------------------------------------- Attributes
+
+
+    @ManagedAttribute(id="connections-accepted-count")
+    @Description("The total number of accepted connections.")
+    public long getAcceptedCount() {
+        return transport().getAcceptedCount();
+    }
+
+    @ManagedAttribute(id="connections-connected-count")
+    @Description("The total number of connected client connections.")
+    public long getConnectedCount() {
+        return transport().getConnectedCount();
+    }
+
+    @ManagedAttribute(id="connections-closed-count")
+    @Description("The total number of closed connections.")
+    public long getClosedCount() {
+        return transport().getClosedCount();
+    }
+
+    @ManagedAttribute(id="bytes-read")
+    @Description("The total number of bytes read.")
+    public long getBytesRead() {
+        return transport().getBytesRead();
+    }
+
+    @ManagedAttribute(id="bytes-written")
+    @Description("The total number of bytes written.")
+    public long getBytesWritten() {
+        return transport().getBytesWritten();
+    }
+
+    @ManagedAttribute(id="connection-errors-count")
+    @Description("The total number of connection errors.")
+    public long getConnectionErrorsCount() {
+        return transport().getConnectionErrorsCount();
+    }
+
+    @ManagedAttribute(id="transport-errors-count")
+    @Description("The total number of transport errors.")
+    public long getTransportErrorsCount() {
+        return transport().getTransportErrorsCount();
+    }
+
+    @ManagedAttribute(id="tasks-queued-count")
+    @Description("The total number of tasks queued by the thread pools.")
+    public long getTasksQueuedCount() {
+        return threadPool().getQueuedCount();
+    }
+
+    @ManagedAttribute(id="tasks-completed-count")
+    @Description("The total number of tasks completed by the thread pools.")
+    public long getTasksCompletedCount() {
+        return threadPool().getCompletedCount();
+    }
+
+    @ManagedAttribute(id="tasks-cancelled-count")
+    @Description("The total number of tasks cancelled by the thread pools.")
+    public long getTasksCancelledCount() {
+        return threadPool().getCancelledCount();
+    }
+
+    @ManagedAttribute(id="task-queue-overflow-count")
+    @Description("The total number of tasks rejected, because the thread pool queue was full.")
+    public long getTaskQueueOverflowCount() {
+        return threadPool().getQueueOverflowCount();
+    }
+
+    @ManagedAttribute(id="requests-received-count")
+    @Description("The total number of requests received.")
+    public long getRequestsReceivedCount() {
+        return httpServer().getReceivedCount();
+    }
+
+    @ManagedAttribute(id="requests-completed-count")
+    @Description("The total number of requests completed.")
+    public long getRequestsCompletedCount() {
+        return httpServer().getCompletedCount();
+    }
+
+    @ManagedAttribute(id="requests-suspended-count")
+    @Description("The total number of times the requests were suspended.")
+    public long getRequestsSuspendedCount() {
+        return httpServer().getSuspendedCount();
+    }
+
+    @ManagedAttribute(id="requests-timed-out-count")
+    @Description("The total number of suspended requests, which timed out.")
+    public long getRequestsTimedOutCount() {
+        return httpServer().getTimedOutCount();
+    }
+
+    @ManagedAttribute(id="requests-cancelled-count")
+    @Description("The total number of cancelled requests.")
+    public long getRequestsCancelledCount() {
+        return httpServer().getCancelledCount();
+    }
+
+    @ManagedAttribute(id="http-errors-count")
+    @Description("The total number of HTTP codec errors.")
+    public long getHttpErrorsCount() {
+        return httpServer().getHttpErrorsCount();
+    }
+
+    @ManagedAttribute(id="file-cache-hits-count")
+    @Description("The total number of file cache hits.")
+    public long getFileCacheHitsCount() {
+        return httpServer().getFileCacheHitsCount();
+    }
+
+    @ManagedAttribute(id="file-cache-misses-count")
+    @Description("The total number of file cache misses.")
+    public long getFileCacheMissesCount() {
+        return httpServer().getFileCacheMissesCount();
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private TransportMetrics transport() {
+        return metrics.getTransportMetrics();
+    }
+
+    private ThreadPoolMetrics threadPool() {
+        return metrics.getThreadPoolMetrics();
+    }
+
+    private HttpServerMetrics httpServer() {
+        return metrics.getHttpServerMetrics();
+    }
+}
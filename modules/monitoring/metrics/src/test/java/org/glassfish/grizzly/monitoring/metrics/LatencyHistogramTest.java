@@ -0,0 +1,339 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.grizzly.monitoring.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link LatencyHistogram} and the probe based metrics tests.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(100000, snapshot.getCount());
+        assertEquals(100000, snapshot.getMax());
+        assertEquals(50000.5, snapshot.getMean(), 0.001);
+        
+        // the default precision is 2^-5
+        assertWithin(50000, snapshot.getValueAtPercentile(50), 1.0 / 32);
+        assertWithin(99000, snapshot.getValueAtPercentile(99), 1.0 / 32);
+        assertWithin(99900, snapshot.getValueAtPercentile(99.9), 1.0 / 32);
+        assertEquals(100000, snapshot.getValueAtPercentile(100));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (int bits = 1; bits <= 8; bits++) {
+            int lastIdx = -1;
+            for (long v = 0; v < 100000; v++) {
+                final int idx = LatencyHistogram.bucketIndex(v, bits);
+                assertTrue(idx == lastIdx || idx == lastIdx + 1);
+                assertTrue(LatencyHistogram.highestEquivalentValue(idx, bits) >= v);
+                if (idx != lastIdx && lastIdx >= 0) {
+                    assertEquals(v - 1,
+                            LatencyHistogram.highestEquivalentValue(lastIdx, bits));
+                }
+                lastIdx = idx;
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        final LatencyHistogram histogram = new LatencyHistogram(1000, 3);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(1000, snapshot.getMax());
+        
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void testMerge() {
+        final LatencyHistogram h1 = new LatencyHistogram();
+        final LatencyHistogram h2 = new LatencyHistogram();
+        for (int i = 0; i < 900; i++) {
+            h1.record(100);
+        }
+        for (int i = 0; i < 100; i++) {
+            h2.record(1000000);
+        }
+        
+        final HistogramSnapshot merged = h1.snapshot().merge(h2.snapshot());
+        assertEquals(1000, merged.getCount());
+        assertEquals(1000000, merged.getMax());
+        assertWithin(100, merged.getValueAtPercentile(90), 1.0 / 32);
+        assertWithin(1000000, merged.getValueAtPercentile(91), 1.0 / 32);
+        
+        try {
+            merged.merge(new LatencyHistogram(1000, 3).snapshot());
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threadsCount = 8;
+        final int valuesCount = 100000;
+        final Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= valuesCount; j++) {
+                        histogram.record(j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals((long) threadsCount * valuesCount, snapshot.getCount());
+        assertEquals((long) threadsCount * valuesCount * (valuesCount + 1) / 2,
+                snapshot.getSum());
+        assertEquals(valuesCount, snapshot.getMax());
+    }
+
+    @Test
+    public void testThreadPoolMetrics() throws Exception {
+        final ThreadPoolMetrics metrics = new ThreadPoolMetrics();
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setCorePoolSize(1).setMaxPoolSize(1);
+        config.getInitialMonitoringConfig().addProbes(metrics);
+        
+        final ExecutorService threadPool =
+                GrizzlyExecutorService.createInstance(config);
+        try {
+            final int tasksCount = 10;
+            final CountDownLatch latch = new CountDownLatch(tasksCount);
+            for (int i = 0; i < tasksCount; i++) {
+                threadPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException ignored) {
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+            
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            threadPool.shutdown();
+            assertTrue(threadPool.awaitTermination(10, TimeUnit.SECONDS));
+            
+            assertEquals(tasksCount, metrics.getQueuedCount());
+            assertEquals(tasksCount, metrics.getCompletedCount());
+            assertEquals(tasksCount, metrics.getQueueWaitTime().snapshot().getCount());
+            
+            final HistogramSnapshot executionTime =
+                    metrics.getExecutionTime().snapshot();
+            assertEquals(tasksCount, executionTime.getCount());
+            assertTrue(executionTime.getValueAtPercentile(50)
+                    >= TimeUnit.MILLISECONDS.toNanos(4));
+            // the single thread makes the last task wait for the others
+            assertTrue(metrics.getQueueWaitTime().snapshot().getMax()
+                    >= TimeUnit.MILLISECONDS.toNanos(20));
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadPoolMetricsTasksDrain() throws Exception {
+        final ThreadPoolMetrics metrics = new ThreadPoolMetrics();
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setCorePoolSize(4).setMaxPoolSize(4);
+        config.getInitialMonitoringConfig().addProbes(metrics);
+        
+        final ExecutorService threadPool =
+                GrizzlyExecutorService.createInstance(config);
+        try {
+            final int tasksCount = 100000;
+            final CountDownLatch latch = new CountDownLatch(tasksCount);
+            // the same instance is submitted over and over again
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            };
+            
+            for (int i = 0; i < tasksCount; i++) {
+                threadPool.execute(task);
+            }
+            
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            threadPool.shutdown();
+            assertTrue(threadPool.awaitTermination(10, TimeUnit.SECONDS));
+            
+            assertEquals(tasksCount, metrics.getCompletedCount());
+            assertEquals(0, metrics.getTrackedTasksCount());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadPoolMetricsShutdownNow() throws Exception {
+        final ThreadPoolMetrics metrics = new ThreadPoolMetrics();
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setCorePoolSize(1).setMaxPoolSize(1);
+        config.getInitialMonitoringConfig().addProbes(metrics);
+        
+        final ExecutorService threadPool =
+                GrizzlyExecutorService.createInstance(config);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        try {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    startLatch.countDown();
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+            
+            final int tasksCount = 1000;
+            for (int i = 0; i < tasksCount; i++) {
+                threadPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+            
+            assertEquals(tasksCount, threadPool.shutdownNow().size());
+            assertEquals(tasksCount, metrics.getCancelledCount());
+            assertEquals(0, metrics.getTrackedTasksCount());
+        } finally {
+            blockLatch.countDown();
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadPoolMetricsUntrackedTasks() {
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        
+        // the dequeue event of a task, which hasn't been tracked, is ignored
+        final ThreadPoolMetrics metrics = new ThreadPoolMetrics(16, 1,
+                TimeUnit.HOURS);
+        metrics.onTaskDequeueEvent(null, task);
+        metrics.onTaskCompleteEvent(null, task);
+        assertEquals(0, metrics.getTrackedTasksCount());
+        assertEquals(0, metrics.getQueueWaitTime().snapshot().getCount());
+        assertEquals(1, metrics.getCompletedCount());
+        
+        // the tracked tasks are bounded
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < 100; i++) {
+            final Runnable t = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            tasks.add(t);
+            metrics.onTaskQueueEvent(null, t);
+            assertTrue(metrics.getTrackedTasksCount() <= 16);
+        }
+        
+        for (Runnable t : tasks) {
+            metrics.onTaskDequeueEvent(null, t);
+        }
+        assertEquals(0, metrics.getTrackedTasksCount());
+        assertEquals(100, metrics.getQueuedCount());
+        
+        // the stale slots are reused
+        final ThreadPoolMetrics staleMetrics = new ThreadPoolMetrics(1, 0,
+                TimeUnit.MILLISECONDS);
+        staleMetrics.onTaskQueueEvent(null, tasks.get(0));
+        staleMetrics.onTaskQueueEvent(null, task);
+        assertEquals(1, staleMetrics.getTrackedTasksCount());
+        staleMetrics.onTaskDequeueEvent(null, task);
+        assertEquals(0, staleMetrics.getTrackedTasksCount());
+        assertEquals(1, staleMetrics.getQueueWaitTime().snapshot().getCount());
+    }
+
+    private static void assertWithin(final long expected, final long actual,
+            final double relativeError) {
+        assertTrue("expected " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected * relativeError);
+    }
+}
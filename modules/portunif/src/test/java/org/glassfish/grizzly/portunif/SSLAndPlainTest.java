@@ -40,6 +40,15 @@
 
 package org.glassfish.grizzly.portunif;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.glassfish.grizzly.ChunkedFileTransfer;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
 import org.glassfish.grizzly.portunif.finders.SSLProtocolFinder;
 import org.glassfish.grizzly.utils.StringDecoder;
@@ -65,6 +74,7 @@ import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import org.glassfish.grizzly.ssl.SSLFilter;
+import org.glassfish.grizzly.utils.StringEncoder;
 import org.glassfish.grizzly.utils.StringFilter;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -193,6 +203,134 @@ public class SSLAndPlainTest {
         }
     }
 
+    /**
+     * The file is sent by a protocol, which FilterChain doesn't contain
+     * the SSLFilter (it's in the parent FilterChain), so the transfer has to
+     * find out the connection is secured and encrypt the file content.
+     */
+    @Test
+    public void sslChunkedFileTransfer() throws Exception {
+        final ProtocolDescription protocol = new ProtocolDescription("FFFFF", true);
+        
+        final byte[] content = new byte[300 * 1024 + 17];
+        new Random().nextBytes(content);
+        final File file = File.createTempFile("grizzly-pu-file-transfer", ".tmp");
+        file.deleteOnExit();
+        final FileOutputStream fileOut = new FileOutputStream(file);
+        try {
+            fileOut.write(content);
+        } finally {
+            fileOut.close();
+        }
+        
+        SSLContextConfigurator sslContextConfigurator = createSSLContextConfigurator();
+        assertTrue("Failed to validate SSLContextConfiguration.",
+                sslContextConfigurator.validateConfiguration(true));
+        final SSLEngineConfigurator clientSSLEngineConfigurator =
+                new SSLEngineConfigurator(sslContextConfigurator.createSSLContext());
+        final SSLEngineConfigurator serverSSLEngineConfigurator =
+                new SSLEngineConfigurator(sslContextConfigurator.createSSLContext(),
+                false, false, false);
+
+        final PUFilter rootPuFilter = new PUFilter();
+        final PUFilter sslPuFilter = new PUFilter();
+        rootPuFilter.register(new SSLProtocolFinder(serverSSLEngineConfigurator),
+                rootPuFilter.getPUFilterChainBuilder()
+                .add(new SSLFilter(serverSSLEngineConfigurator, clientSSLEngineConfigurator))
+                .add(sslPuFilter)
+                .build());
+        
+        final AtomicReference<ChunkedFileTransfer> transferRef =
+                new AtomicReference<ChunkedFileTransfer>();
+        final FutureImpl<WriteResult> sendFuture = SafeFutureImpl.create();
+        sslPuFilter.register(new SimpleProtocolFinder(protocol),
+                sslPuFilter.getPUFilterChainBuilder()
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        final ChunkedFileTransfer transfer =
+                                new ChunkedFileTransfer(file);
+                        transfer.setChunkSize(16 * 1024);
+                        transferRef.set(transfer);
+                        transfer.send(ctx, new EmptyCompletionHandler<WriteResult>() {
+                            @Override
+                            public void completed(final WriteResult result) {
+                                sendFuture.result(result);
+                            }
+
+                            @Override
+                            public void failed(final Throwable throwable) {
+                                sendFuture.failure(throwable);
+                            }
+                        });
+                        
+                        return ctx.getStopAction();
+                    }
+                })
+                .build());
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(rootPuFilter)
+                .build());
+
+        final FutureImpl<byte[]> receivedFuture = SafeFutureImpl.create();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final FilterChain clientFilterChain = FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new SSLFilter(serverSSLEngineConfigurator,
+                        clientSSLEngineConfigurator))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        final Buffer buffer = ctx.getMessage();
+                        final byte[] data = new byte[buffer.remaining()];
+                        buffer.get(data);
+                        received.write(data);
+                        if (received.size() >= content.length) {
+                            receivedFuture.result(received.toByteArray());
+                        }
+                        
+                        return ctx.getStopAction();
+                    }
+                })
+                .build();
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final SocketConnectorHandler connectorHandler =
+                    TCPNIOConnectorHandler.builder(transport)
+                    .processor(clientFilterChain)
+                    .build();
+
+            connection = connectorHandler.connect("localhost", PORT).get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            final Buffer request = new StringEncoder(CHARSET).transform(
+                    connection, protocol.name).getMessage();
+            connection.write(request);
+
+            assertTrue(Arrays.equals(content,
+                    receivedFuture.get(10, TimeUnit.SECONDS)));
+            assertEquals(content.length,
+                    sendFuture.get(10, TimeUnit.SECONDS).getWrittenSize());
+            assertFalse(transferRef.get().isZeroCopy());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+            file.delete();
+        }
+    }
+
     private PUProtocol createProtocol(final PUFilter puFilter,
             final ProtocolDescription protocolDescription) {
 
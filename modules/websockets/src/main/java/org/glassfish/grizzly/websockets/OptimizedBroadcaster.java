@@ -41,7 +41,9 @@ package org.glassfish.grizzly.websockets;
 
 /**
  * The default {@link Broadcaster} optimized to send the same text to a set of
- * clients.
+ * clients. The frame is serialized once and the same raw data is passed to
+ * every recipient's {@link SimpleWebSocket#sendRaw(byte[])}, which wraps it
+ * without copying.
  * NOTE: works with {@link DefaultWebSocket}s and inherited classes.
  * 
  * @author Alexey Stashok
@@ -54,23 +56,12 @@ public class OptimizedBroadcaster implements Broadcaster {
     @Override
     public void broadcast(final Iterable<? extends WebSocket> recipients,
             final String text) {
-        
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(text);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
+        broadcastRaw(recipients, new RawDataFactory() {
+            @Override
+            byte[] toRawData(final DefaultWebSocket websocket) {
+                return websocket.toRawData(text);
             }
-        }
+        });
     }
     
     /**
@@ -79,48 +70,38 @@ public class OptimizedBroadcaster implements Broadcaster {
     @Override
     public void broadcast(final Iterable<? extends WebSocket> recipients,
             final byte[] binary) {
-        
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(binary);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
+        broadcastRaw(recipients, new RawDataFactory() {
+            @Override
+            byte[] toRawData(final DefaultWebSocket websocket) {
+                return websocket.toRawData(binary);
             }
-        }
+        });
     }
 
     @Override
     public void broadcastFragment(Iterable<? extends WebSocket> recipients,
-            String text, boolean last) {
-        byte[] rawDataToSend = null;
-        
-        for (WebSocket websocket : recipients) {
-            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
-            
-            if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(text, last);
-                }
-                
-                try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
-                } catch (WebSocketException ignored) {
-                }
+            final String text, final boolean last) {
+        broadcastRaw(recipients, new RawDataFactory() {
+            @Override
+            byte[] toRawData(final DefaultWebSocket websocket) {
+                return websocket.toRawData(text, last);
             }
-        }
+        });
     }
 
     @Override
-    public void broadcastFragment(Iterable<? extends WebSocket> recipients, byte[] binary, boolean last) {
+    public void broadcastFragment(Iterable<? extends WebSocket> recipients,
+            final byte[] binary, final boolean last) {
+        broadcastRaw(recipients, new RawDataFactory() {
+            @Override
+            byte[] toRawData(final DefaultWebSocket websocket) {
+                return websocket.toRawData(binary, last);
+            }
+        });
+    }
+
+    private static void broadcastRaw(final Iterable<? extends WebSocket> recipients,
+            final RawDataFactory rawDataFactory) {
         byte[] rawDataToSend = null;
         
         for (WebSocket websocket : recipients) {
@@ -128,7 +109,7 @@ public class OptimizedBroadcaster implements Broadcaster {
             
             if (websocket.isConnected()) {
                 if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(binary, last);
+                    rawDataToSend = rawDataFactory.toRawData(defaultWebSocket);
                 }
                 
                 try {
@@ -138,4 +119,8 @@ public class OptimizedBroadcaster implements Broadcaster {
             }
         }
     }
+
+    private static abstract class RawDataFactory {
+        abstract byte[] toRawData(DefaultWebSocket websocket);
+    }
 }